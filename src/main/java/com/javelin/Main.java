@@ -16,9 +16,11 @@
 package com.javelin;
 
 import com.javelin.core.CorsMiddleware;
+import com.javelin.core.PreparedResponse;
 import com.javelin.core.StaticFileHandler;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 
 public class Main {
     public static void main(String[] args) {
@@ -27,17 +29,9 @@ public class Main {
         server.use(new CorsMiddleware());
         server.use(new StaticFileHandler("/static", "public"));
 
-        server.get("/", ctx -> {
-            try (var in = Main.class.getResourceAsStream("/public/index.html")) {
-                if (in == null) {
-                    ctx.status(404).send("index.html not found");
-                    return;
-                }
-                String html = new String(in.readAllBytes());
-                ctx.setHeader("Content-Type", "text/html");
-                ctx.send(html);
-            }
-        });
+        // index.html never changes at runtime, so encode it once (with gzip variant and ETag)
+        PreparedResponse index = loadIndexPage();
+        server.get("/", ctx -> ctx.send(index));
 
         server.get("/images/*", ctx -> {
             // pathVar("wildcard")로 *에 해당하는 실제 경로 추출
@@ -63,6 +57,17 @@ public class Main {
         server.start();
     }
 
+    private static PreparedResponse loadIndexPage() {
+        try (var in = Main.class.getResourceAsStream("/public/index.html")) {
+            if (in == null) {
+                return PreparedResponse.text(404, "index.html not found");
+            }
+            return PreparedResponse.of(200, "text/html", in.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load index.html", e);
+        }
+    }
+
     private static String getMimeType(String filename) {
         if (filename.endsWith(".png")) return "image/png";
         if (filename.endsWith(".jpg") || filename.endsWith(".jpeg")) return "image/jpeg";
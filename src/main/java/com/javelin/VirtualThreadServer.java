@@ -1,6 +1,10 @@
 package com.javelin;
 
 import com.javelin.core.*;
+import com.javelin.core.jfr.*;
+import com.javelin.core.json.JsonCodecRegistry;
+import com.javelin.core.metrics.InFlightRequests;
+import com.javelin.core.metrics.ServerMetrics;
 import com.javelin.springBoot.GracefulShutdownCallback;
 import com.javelin.springBoot.GracefulShutdownResult;
 import com.javelin.springBoot.WebServer;
@@ -11,12 +15,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
 
+import static com.javelin.constants.HttpConstants.HEADER_ALLOW;
+import static com.javelin.constants.HttpConstants.HEADER_HOST;
 import static com.javelin.constants.HttpConstants.HEADER_X_HTTP_METHOD_OVERRIDE;
 
 /**
@@ -31,15 +40,36 @@ public class VirtualThreadServer implements WebServer {
 
     private final int port;
     private final Router router = new Router();                   // route registry
+    private final VirtualHosts hosts = new VirtualHosts();        // host-scoped route registries
     private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
     private HttpServer server;
 
-    // Middlewares are executed in order before the final route handler
-    private final List<Middleware> middlewares = new ArrayList<>();
+    // Generated JSON codecs for registered record types (Jackson for everything else)
+    private final JsonCodecRegistry jsonCodecs = new JsonCodecRegistry();
+
+    // Reusable byte arrays for serialized responses and request bodies
+    private final BufferPool buffers = new BufferPool();
+
+    // Named caches for handlers, reachable through Context.cache(name)
+    private final Map<String, LocalCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    // Per-route request metrics; null until enabled
+    private volatile ServerMetrics metrics;
+    private volatile InFlightRequests inFlight;
+
+    // Optional second listener for operational endpoints, started and stopped with this one
+    private VirtualThreadServer admin;
+    private FlightRecorderEndpoints flightRecorder;
+    private PinningMonitor pinningMonitor;
 
     // Global exception handler (default: 500 with simple message)
     private ExceptionHandler exceptionHandler = new DefaultExceptionHandler();
 
+    // Reusable request contexts, striped to keep threads from contending for one slot
+    private final AtomicReferenceArray<RequestSlot> contextPool =
+            new AtomicReferenceArray<>(Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 8 - 1) << 1);
+    private volatile boolean contextPooling = true;
+
     /**
      * Creates a new VirtualThreadServer instance bound to the given port.
      *
@@ -58,15 +88,26 @@ public class VirtualThreadServer implements WebServer {
             server = HttpServer.create(new InetSocketAddress(port), 0);
 
             // All requests go through this context
-            server.createContext("/", exchange ->
-                    executor.submit(() ->
-                            Thread.startVirtualThread(() -> handleRequest(exchange))
-                    )
-            );
+            server.createContext("/", exchange -> {
+                DispatchEvent dispatch = JavelinEvents.begin(DispatchEvent.class, DispatchEvent::new);
+                executor.submit(() ->
+                        Thread.startVirtualThread(() -> {
+                            if (JavelinEvents.end(dispatch)) {
+                                dispatch.path = exchange.getRequestURI().getPath();
+                                dispatch.commit();
+                            }
+                            handleRequest(exchange);
+                        })
+                );
+            });
 
             server.setExecutor(executor);
             server.start();
             logger.info("Server started on port {}", port);
+
+            if (admin != null) {
+                admin.start();
+            }
         } catch (IOException e) {
             throw new WebServerException("Failed to start server", e);
         }
@@ -74,13 +115,20 @@ public class VirtualThreadServer implements WebServer {
 
     /**
      * Handles an incoming HTTP request, running middleware and the route handler.
+     * Package-private so tests can drive requests without a socket.
      *
      * @param exchange the raw HTTP exchange from com.sun.net.httpserver
      */
-    private void handleRequest(HttpExchange exchange) {
-        // Create context for this request
-        HttpExchangeContext context = new HttpExchangeContext(exchange);
-        context.setMiddlewareChain(middlewares);
+    void handleRequest(HttpExchange exchange) {
+        ServerMetrics metrics = this.metrics;
+        long startNanos = metrics != null ? System.nanoTime() : 0;
+        RequestEvent requestEvent = JavelinEvents.begin(RequestEvent.class, RequestEvent::new);
+
+        // Reuse a pooled context for this request, or create one
+        RequestSlot slot = acquireSlot(exchange);
+        HttpExchangeContext context = slot.context;
+
+        ParseEvent parseEvent = JavelinEvents.begin(ParseEvent.class, ParseEvent::new);
 
         // Possibly override method (PATCH, etc.)
         String method = exchange.getRequestMethod();
@@ -91,47 +139,162 @@ public class VirtualThreadServer implements WebServer {
 
         String path = exchange.getRequestURI().getPath();
 
-        // For path variables
-        Map<String, String> pathVars = new HashMap<>();
-        JavelinHandler handler = router.findHandler(method, path, pathVars);
+        // Host-scoped router if one matches the Host header, otherwise the default
+        Router router = this.router;
+        if (!hosts.isEmpty()) {
+            Router hostRouter = hosts.resolve(exchange.getRequestHeaders().getFirst(HEADER_HOST));
+            if (hostRouter != null) {
+                router = hostRouter;
+            }
+        }
+        if (JavelinEvents.end(parseEvent)) {
+            parseEvent.method = method;
+            parseEvent.path = path;
+            parseEvent.commit();
+        }
+
+        InFlightRequests inFlight = this.inFlight;
+        if (inFlight != null) {
+            inFlight.begin(slot.inFlight, method, path);
+        }
+
+        RouteMatchEvent matchEvent = JavelinEvents.begin(RouteMatchEvent.class, RouteMatchEvent::new);
+
+        // Path variables are kept as offsets into the path, in the slot's reusable match
+        Route route = null;
+        if (router.find(method, path, slot.match)) {
+            route = slot.match.route();
+            context.setRouteMatch(slot.match);
+        }
+        slot.handler = route != null ? route.handler : null;
+        if (inFlight != null && route != null) {
+            slot.inFlight.route(route.originalPath);
+        }
+
+        // No route for this method: 405 if the path exists for other methods
+        slot.allowed = route == null ? router.allowedMethods(path) : null;
+        if (JavelinEvents.end(matchEvent)) {
+            matchEvent.method = method;
+            matchEvent.path = path;
+            matchEvent.route = route != null ? route.originalPath : null;
+            matchEvent.commit();
+        }
+
+        // Only the middleware that applies to this route, precompiled at registration
+        context.setMiddlewareChain(route != null ? route.pipeline : router.fallbackPipeline(path));
+
+        // Final route, 405 or fallback 404
+        context.setFinalHandler(slot);
+        context.setExceptionHandler(exceptionHandler);
+
+        // Run middleware chain → final handler
+        try {
+            context.next();
+        } catch (Throwable e) {
+            exceptionHandler.handle(e, context);
+        } finally {
+            if (metrics != null) {
+                metrics.record(route, exchange.getResponseCode(), System.nanoTime() - startNanos);
+            }
+            if (JavelinEvents.end(requestEvent)) {
+                requestEvent.method = method;
+                requestEvent.path = path;
+                requestEvent.route = route != null ? route.originalPath : null;
+                requestEvent.status = exchange.getResponseCode();
+                requestEvent.commit();
+            }
+            if (inFlight != null) {
+                inFlight.end(slot.inFlight);
+            }
+            releaseSlot(slot);
+        }
+    }
+
+    // ========== Context Pool ==========
 
-        // Set extracted variables into the context
-        context.setPathVars(pathVars);
+    /**
+     * The per-request state the server reuses: the context, its route match, and the
+     * final handler (the slot itself), so a request allocates none of them.
+     */
+    private final class RequestSlot implements Runnable {
+        final HttpExchangeContext context;
+        final RouteMatch match = new RouteMatch();
+        final InFlightRequests.Entry inFlight = new InFlightRequests.Entry();
+        final int stripe;
+        JavelinHandler handler;
+        String allowed;
+
+        RequestSlot(HttpExchange exchange, int stripe) {
+            this.context = new HttpExchangeContext(exchange, jsonCodecs, buffers, caches);
+            this.stripe = stripe;
+        }
 
-        // Final route or fallback 404
-        context.setFinalHandler(() -> {
+        @Override
+        public void run() {
             if (handler != null) {
+                HandlerEvent event = JavelinEvents.begin(HandlerEvent.class, HandlerEvent::new);
                 try {
                     handler.handle(context);
                 } catch (Throwable e) {
                     exceptionHandler.handle(e, context);
+                } finally {
+                    if (JavelinEvents.end(event)) {
+                        event.route = match.route() != null ? match.route().originalPath : null;
+                        event.status = context.responseCode();
+                        event.commit();
+                    }
                 }
+            } else if (allowed != null) {
+                respondMethodNotAllowed(context, allowed);
             } else {
-                respondNotFound(exchange, context);
+                respondNotFound(context);
             }
-        });
+        }
+    }
 
-        // Run middleware chain → final handler
-        try {
-            context.next();
-        } catch (Throwable e) {
-            exceptionHandler.handle(e, context);
+    /**
+     * Takes the slot parked in the calling thread's stripe, or creates one if the stripe
+     * is empty or pooling is disabled. Each request runs on its own virtual thread, so
+     * stripes are chosen by thread id rather than kept per thread.
+     */
+    private RequestSlot acquireSlot(HttpExchange exchange) {
+        int stripe = (int) Thread.currentThread().threadId() & (contextPool.length() - 1);
+        RequestSlot slot = contextPooling ? contextPool.getAndSet(stripe, null) : null;
+        if (slot == null) {
+            return new RequestSlot(exchange, stripe);
         }
+        slot.context.reset(exchange);
+        return slot;
     }
 
     /**
-     * Sends a 404 Not Found response when no route matches.
+     * Clears a finished request's references and parks the slot for reuse. If another
+     * request already refilled the stripe, the slot is left to the garbage collector.
      */
-    private void respondNotFound(HttpExchange exchange, Context ctx) {
-        try (exchange) {
-            String notFound = "404 Not Found";
-            exchange.sendResponseHeaders(404, notFound.length());
-            try (OutputStream os = exchange.getResponseBody()) {
-                os.write(notFound.getBytes());
-            }
-        } catch (IOException e) {
-            exceptionHandler.handle(e, ctx);
+    private void releaseSlot(RequestSlot slot) {
+        if (!contextPooling) {
+            return;
         }
+        slot.context.reset(null);
+        slot.match.clear();
+        slot.handler = null;
+        slot.allowed = null;
+        contextPool.compareAndSet(slot.stripe, null, slot);
+    }
+
+    /**
+     * Sends a 404 Not Found response when no route matches.
+     */
+    private void respondNotFound(Context ctx) {
+        ctx.send(PreparedResponse.NOT_FOUND);
+    }
+
+    /**
+     * Sends a 405 Method Not Allowed response listing the path's methods.
+     */
+    private void respondMethodNotAllowed(Context ctx, String allowed) {
+        ctx.setHeader(HEADER_ALLOW, allowed);
+        ctx.send(PreparedResponse.METHOD_NOT_ALLOWED);
     }
 
     /**
@@ -144,6 +307,15 @@ public class VirtualThreadServer implements WebServer {
             executor.shutdown();
             logger.info("Server stopped.");
         }
+        if (admin != null) {
+            admin.stop();
+        }
+        if (flightRecorder != null) {
+            flightRecorder.close();
+        }
+        if (pinningMonitor != null) {
+            pinningMonitor.close();
+        }
     }
 
     /**
@@ -194,12 +366,83 @@ public class VirtualThreadServer implements WebServer {
     }
 
     /**
-     * Registers a middleware function to be executed for all requests.
+     * Registers a middleware function to be executed for all requests served by the default
+     * routes. Requests dispatched to a {@link #host(String) host router} do not run it; register
+     * it on each host router too (a middleware instance may be shared).
      *
      * @param middleware the middleware function
      */
     public void use(Middleware middleware) {
-        middlewares.add(middleware);
+        router.use(middleware);
+    }
+
+    /**
+     * Caches {@code GET} responses in memory, up to {@code maxBytes}, as global middleware.
+     * Stale entries marked {@code stale-while-revalidate} are refreshed in the background by
+     * dispatching a request through this server. Like {@link #use(Middleware)}, this covers the
+     * default routes only; to cache a host's responses as well, pass the returned middleware to
+     * that host router's {@code use}.
+     *
+     * @param maxBytes   the memory budget for cached responses
+     * @param defaultTtl the lifetime of cacheable responses without {@code max-age}; zero to not store them
+     * @return the cache middleware
+     * @see ResponseCacheMiddleware
+     */
+    public ResponseCacheMiddleware enableResponseCache(long maxBytes, Duration defaultTtl) {
+        ResponseCacheMiddleware cache = new ResponseCacheMiddleware(maxBytes, defaultTtl, this::handleRequest);
+        use(cache);
+        return cache;
+    }
+
+    /**
+     * Registers a middleware function to be executed only for paths under the given prefix.
+     * As with {@link #use(Middleware)}, host routers do not run it.
+     *
+     * @param prefix     the path prefix (e.g. {@code "/api"})
+     * @param middleware the middleware function
+     */
+    public void use(String prefix, Middleware middleware) {
+        router.use(prefix, middleware);
+    }
+
+    /**
+     * Returns the router for requests whose {@code Host} header matches the given host,
+     * creating it on first use. Each host router has its own routes, middleware and static
+     * roots; requests for unregistered hosts use the server's default routes.
+     * <p>
+     * Host dispatch happens before any middleware runs, so a request routed to a host router
+     * runs only that router's middleware, not what was registered with
+     * {@link #use(Middleware)} or {@link #enableResponseCache}. Access logs, rate limits,
+     * caches and ETags meant for every site must be registered on each host router as well.
+     * Server-wide metrics, the request inspector and Flight Recorder events are recorded
+     * outside the middleware chain and cover host routers.
+     * <p>
+     * Example usage:
+     * <pre>{@code
+     * server.host("blog.example.com").get("/", ctx -> ctx.send("blog"));
+     * server.host("*.shop.example.com").use(new StaticFileHandler("/assets", "shop"));
+     *
+     * // Log every site to one file
+     * AccessLogMiddleware accessLog = new AccessLogMiddleware(Path.of("access.log"));
+     * server.use(accessLog);
+     * server.host("blog.example.com").use(accessLog);
+     * }</pre>
+     *
+     * @param hostPattern an exact host name, or {@code "*.domain"} for any single subdomain
+     * @return the host's router
+     */
+    public Router host(String hostPattern) {
+        return hosts.register(hostPattern);
+    }
+
+    /**
+     * Registers a group of routes sharing a path prefix, with their own middleware.
+     *
+     * @param prefix the common path prefix (e.g. {@code "/api"})
+     * @param routes a callback that registers the group's routes and middleware
+     */
+    public void group(String prefix, Consumer<RouteGroup> routes) {
+        router.group(prefix, routes);
     }
 
     // ============= Route registration methods =============
@@ -207,61 +450,265 @@ public class VirtualThreadServer implements WebServer {
     /**
      * Registers a GET route with its handler.
      *
-     * @param path    the path to match (e.g. "/users")
-     * @param handler the handler to execute
+     * @param path       the path to match (e.g. "/users")
+     * @param handler    the handler to execute
+     * @param middleware middleware that runs only for this route
      */
-    public void get(String path, JavelinHandler handler) {
-        router.get(path, handler);
+    public void get(String path, JavelinHandler handler, Middleware... middleware) {
+        router.get(path, handler, middleware);
     }
 
     /**
      * Registers a POST route with its handler.
      *
-     * @param path    the path to match (e.g. "/submit")
-     * @param handler the handler to execute
+     * @param path       the path to match (e.g. "/submit")
+     * @param handler    the handler to execute
+     * @param middleware middleware that runs only for this route
      */
-    public void post(String path, JavelinHandler handler) {
-        router.post(path, handler);
+    public void post(String path, JavelinHandler handler, Middleware... middleware) {
+        router.post(path, handler, middleware);
     }
 
     /**
      * Registers a PUT route.
      *
-     * @param path    the request path (e.g. {@code "/update"})
-     * @param handler the handler to execute
+     * @param path       the request path (e.g. {@code "/update"})
+     * @param handler    the handler to execute
+     * @param middleware middleware that runs only for this route
      */
-    public void put(String path, JavelinHandler handler) {
-        router.put(path, handler);
+    public void put(String path, JavelinHandler handler, Middleware... middleware) {
+        router.put(path, handler, middleware);
     }
 
     /**
      * Registers a DELETE route.
      *
-     * @param path    the request path (e.g. {@code "/delete"})
-     * @param handler the handler to execute
+     * @param path       the request path (e.g. {@code "/delete"})
+     * @param handler    the handler to execute
+     * @param middleware middleware that runs only for this route
      */
-    public void delete(String path, JavelinHandler handler) {
-        router.delete(path, handler);
+    public void delete(String path, JavelinHandler handler, Middleware... middleware) {
+        router.delete(path, handler, middleware);
     }
 
     /**
      * Registers a PATCH route.
      *
-     * @param path    the request path (e.g. {@code "/modify"})
-     * @param handler the handler to execute
+     * @param path       the request path (e.g. {@code "/modify"})
+     * @param handler    the handler to execute
+     * @param middleware middleware that runs only for this route
      */
-    public void patch(String path, JavelinHandler handler) {
-        router.patch(path, handler);
+    public void patch(String path, JavelinHandler handler, Middleware... middleware) {
+        router.patch(path, handler, middleware);
     }
 
     /**
      * Registers a HEAD route.
      *
-     * @param path    the request path (e.g. {@code "/ping"})
-     * @param handler the handler to execute
+     * @param path       the request path (e.g. {@code "/ping"})
+     * @param handler    the handler to execute
+     * @param middleware middleware that runs only for this route
+     */
+    public void head(String path, JavelinHandler handler, Middleware... middleware) {
+        router.head(path, handler, middleware);
+    }
+
+    /**
+     * Removes a previously registered route. Safe to call while the server is running;
+     * requests already being handled by the route complete normally.
+     *
+     * @param method the HTTP method the route was registered for (e.g. {@code "GET"})
+     * @param path   the path pattern the route was registered with (e.g. {@code "/users/{id}"})
+     * @return {@code true} if a route was removed
+     */
+    public boolean removeRoute(String method, String path) {
+        return router.remove(method, path);
+    }
+
+    /**
+     * Returns statistics of the router's exact-path lookup cache, e.g. to confirm that
+     * hot URLs are served without pattern matching.
+     *
+     * @return the cache statistics
+     */
+    public RouteCacheStats routeCacheStats() {
+        return router.cacheStats();
+    }
+
+    /**
+     * Returns the occupancy and reuse counters of the pool that response and request
+     * body buffers are taken from.
+     *
+     * @return the buffer pool statistics
+     */
+    public BufferPoolStats bufferPoolStats() {
+        return buffers.stats();
+    }
+
+    /**
+     * Registers a cache under {@code name}, so handlers can reach it with
+     * {@link Context#cache(String)} and its statistics are exported with the server's metrics.
+     *
+     * @param name  the cache name, also its {@code cache} label in the metrics
+     * @param cache the cache
+     * @param <K>   the key type
+     * @param <V>   the value type
+     * @return {@code cache}
+     * @throws IllegalStateException if another cache is already registered under {@code name}
+     */
+    public synchronized <K, V> LocalCache<K, V> cache(String name, LocalCache<K, V> cache) {
+        LocalCache<?, ?> existing = caches.putIfAbsent(name, cache);
+        if (existing != null && existing != cache) {
+            throw new IllegalStateException("A cache is already registered as " + name);
+        }
+        if (metrics != null) {
+            metrics.registerCache(name, cache);
+        }
+        return cache;
+    }
+
+    // ========== Operations ==========
+
+    /**
+     * Returns the admin listener on {@code port}, creating it on first call.
+     * <p>
+     * The admin listener is a separate server for operational endpoints such as metrics,
+     * so they can be kept off the public port. It starts and stops with this server; routes
+     * and middleware are registered on it like on any other server.
+     *
+     * @param port the admin port
+     * @return the admin server
+     * @throws IllegalStateException if an admin listener already exists on another port
+     */
+    public synchronized VirtualThreadServer admin(int port) {
+        if (admin == null) {
+            admin = new VirtualThreadServer(port);
+            if (server != null) {
+                admin.start();
+            }
+        } else if (admin.getPort() != port) {
+            throw new IllegalStateException("Admin listener already configured on port " + admin.getPort());
+        }
+        return admin;
+    }
+
+    /**
+     * Starts recording per-route request counts, status classes and latency histograms.
+     * Calling it again returns the same metrics.
+     *
+     * @return the server's metrics
+     */
+    public synchronized ServerMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new ServerMetrics();
+            caches.forEach(metrics::registerCache);
+        }
+        return metrics;
+    }
+
+    /**
+     * Starts recording metrics and serves them in the Prometheus text format on {@code path}:
+     * on the admin listener if one was configured with {@link #admin(int)}, otherwise on this server.
+     *
+     * @param path the metrics path, e.g. {@code "/metrics"}
+     * @return the server's metrics
+     */
+    public synchronized ServerMetrics enableMetrics(String path) {
+        ServerMetrics metrics = enableMetrics();
+        (admin != null ? admin : this).get(path, metrics.handler());
+        return metrics;
+    }
+
+    /**
+     * Starts tracking in-flight requests and serves two endpoints for diagnosing stalls, on the
+     * admin listener if one was configured with {@link #admin(int)}, otherwise on this server:
+     * {@code GET prefix/requests} lists the slowest in-flight requests with their current stacks,
+     * and {@code GET prefix/threads} returns a JSON thread dump that includes virtual threads.
+     *
+     * @param prefix the path prefix, e.g. {@code "/admin"}
+     * @return the in-flight request registry
+     * @see InFlightRequests
+     */
+    public synchronized InFlightRequests enableRequestInspector(String prefix) {
+        if (inFlight == null) {
+            inFlight = new InFlightRequests();
+        }
+        VirtualThreadServer target = admin != null ? admin : this;
+        target.get(prefix + "/requests", inFlight.handler());
+        target.get(prefix + "/threads", InFlightRequests.threadDumpHandler());
+        return inFlight;
+    }
+
+    /**
+     * Serves on-demand Flight Recorder recordings under {@code prefix}: {@code POST prefix/start},
+     * {@code GET prefix/dump} and {@code POST prefix/stop}, on the admin listener if one was
+     * configured with {@link #admin(int)}, otherwise on this server. A running recording is
+     * closed when the server stops.
+     *
+     * @param prefix the path prefix, e.g. {@code "/admin/jfr"}
+     * @return the endpoints
+     * @see FlightRecorderEndpoints
+     */
+    public synchronized FlightRecorderEndpoints enableFlightRecorder(String prefix) {
+        if (flightRecorder == null) {
+            flightRecorder = new FlightRecorderEndpoints();
+        }
+        VirtualThreadServer target = admin != null ? admin : this;
+        target.post(prefix + "/start", flightRecorder.start());
+        target.get(prefix + "/dump", flightRecorder.dump());
+        target.post(prefix + "/stop", flightRecorder.stop());
+        return flightRecorder;
+    }
+
+    /**
+     * Starts watching for virtual threads pinned to their carrier for at least {@code threshold},
+     * e.g. blocking inside {@code synchronized}, and attributes them to the application frame
+     * responsible. Calling it again returns the same monitor; it is closed when the server stops.
+     *
+     * @param threshold the shortest pin to record
+     * @return the pinning monitor
+     */
+    public synchronized PinningMonitor enablePinningMonitor(Duration threshold) {
+        if (pinningMonitor == null) {
+            pinningMonitor = PinningMonitor.start(threshold);
+        }
+        return pinningMonitor;
+    }
+
+    /**
+     * Generates a specialized JSON codec for the given record type.
+     * <p>
+     * Once registered, {@code ctx.json(..)} and {@code ctx.body(..)} use the generated codec
+     * for this type instead of Jackson's reflective serialization. Types that cannot be
+     * generated keep using Jackson.
+     *
+     * @param type the record class to generate a codec for
+     * @return {@code true} if a codec was generated
+     */
+    public <T extends Record> boolean registerJsonCodec(Class<T> type) {
+        return jsonCodecs.register(type);
+    }
+
+    /**
+     * Returns the JSON codec registry used by this server's request contexts.
+     *
+     * @return the codec registry
+     */
+    public JsonCodecRegistry jsonCodecs() {
+        return jsonCodecs;
+    }
+
+    /**
+     * Enables or disables reuse of request contexts (enabled by default).
+     * <p>
+     * A pooled context is reset and handed to a later request as soon as its handler
+     * returns. Disable pooling if handlers keep the {@link Context} after returning,
+     * for example by completing the response from another thread.
+     *
+     * @param enabled {@code false} to allocate a fresh context for every request
      */
-    public void head(String path, JavelinHandler handler) {
-        router.head(path, handler);
+    public void setContextPooling(boolean enabled) {
+        this.contextPooling = enabled;
     }
 
     /**
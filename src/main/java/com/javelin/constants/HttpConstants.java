@@ -18,9 +18,25 @@ public final class HttpConstants {
     public static final String HEADER_ACCEPT = "Accept";
     public static final String HEADER_USER_AGENT = "User-Agent";
     public static final String HEADER_X_HTTP_METHOD_OVERRIDE = "X-HTTP-Method-Override";
+    public static final String HEADER_VARY = "Vary";
+    public static final String HEADER_ETAG = "ETag";
+    public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    public static final String HEADER_HOST = "Host";
+    public static final String HEADER_ALLOW = "Allow";
+    public static final String HEADER_RETRY_AFTER = "Retry-After";
+    public static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    public static final String HEADER_AGE = "Age";
+    public static final String HEADER_SET_COOKIE = "Set-Cookie";
+    public static final String HEADER_COOKIE = "Cookie";
 
     // Common content types
     public static final String APPLICATION_JSON = "application/json";
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    public static final String APPLICATION_MSGPACK = "application/msgpack";
+    public static final String APPLICATION_X_MSGPACK = "application/x-msgpack";
+    public static final String APPLICATION_FORM_URLENCODED = "application/x-www-form-urlencoded";
     public static final String TEXT_PLAIN = "text/plain";
     public static final String TEXT_HTML = "text/html";
 
@@ -42,6 +58,8 @@ public final class HttpConstants {
     public static final String MESSAGE_UNAUTHORIZED = "Unauthorized";
     public static final String MESSAGE_FORBIDDEN = "Forbidden";
     public static final String MESSAGE_BAD_REQUEST = "Bad Request";
+    public static final String MESSAGE_METHOD_NOT_ALLOWED = "405 Method Not Allowed";
+    public static final String MESSAGE_TOO_MANY_REQUESTS = "429 Too Many Requests";
 
     // MIME
     public static final String TEXT_CSS = "text/css";
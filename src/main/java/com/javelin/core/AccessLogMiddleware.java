@@ -0,0 +1,422 @@
+package com.javelin.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Middleware that writes one access-log line per request without blocking the request on I/O.
+ * <p>
+ * Each request encodes its record straight into a slot of a preallocated ring buffer; a single
+ * background thread drains the ring into batches and writes them to the log file when a batch
+ * fills or the flush interval passes. When the ring is full the record is dropped and counted
+ * rather than making the request wait; the writer logs the drop count as a warning.
+ * <p>
+ * Records look like:
+ * <pre>
+ * 2026-10-19T01:02:03.456Z 10.0.0.7 "GET /users/7" 200 123 1.234ms /users/{id}
+ * </pre>
+ * i.e. time (UTC), client address, method and path, status, body bytes, duration, and the route
+ * pattern ({@code -} if none matched). Records longer than {@link #RECORD_BYTES} are truncated.
+ * <p>
+ * Example:
+ * <pre>
+ *     AccessLogMiddleware accessLog = new AccessLogMiddleware(Path.of("access.log"));
+ *     server.use(accessLog);
+ *     ...
+ *     accessLog.close(); // on shutdown, writes what is still buffered
+ * </pre>
+ */
+public final class AccessLogMiddleware implements Middleware, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLogMiddleware.class);
+
+    /** Records the ring holds by default. */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /** The largest encoded record; longer records are truncated. */
+    public static final int RECORD_BYTES = 512;
+
+    /** Bytes written to the file per batch by default. */
+    public static final int DEFAULT_BATCH_BYTES = 64 * 1024;
+
+    /** The longest a record waits to be written by default. */
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(200);
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long DROP_WARNING_INTERVAL_NANOS = 10_000_000_000L;
+
+    private final FileChannel channel;
+    private final byte[] ring;
+    private final int[] lengths;
+    private final int mask;
+    // Slot i holds a published record when sequences[i] == its claim index + 1
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    private final ByteBuffer batch;
+    private final long flushIntervalNanos;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile double sampleRate = 1.0;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    /**
+     * Opens (or creates) {@code file} for appending with the default capacity, batch size and flush interval.
+     *
+     * @param file the access log file
+     * @throws IOException if the file cannot be opened
+     */
+    public AccessLogMiddleware(Path file) throws IOException {
+        this(file, DEFAULT_CAPACITY, DEFAULT_BATCH_BYTES, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Opens (or creates) {@code file} for appending.
+     *
+     * @param file          the access log file
+     * @param capacity      the records the ring holds, rounded up to a power of two
+     * @param batchBytes    the bytes collected before a write to the file
+     * @param flushInterval the longest a record waits before it is written
+     * @throws IOException if the file cannot be opened
+     */
+    public AccessLogMiddleware(Path file, int capacity, int batchBytes, Duration flushInterval) throws IOException {
+        if (capacity <= 0 || batchBytes < RECORD_BYTES || flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("capacity and flushInterval must be positive and batchBytes at least " + RECORD_BYTES);
+        }
+        int slots = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.ring = new byte[slots * RECORD_BYTES];
+        this.lengths = new int[slots];
+        this.mask = slots - 1;
+        this.sequences = new AtomicLongArray(slots);
+        this.batch = ByteBuffer.allocate(batchBytes);
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.writer = Thread.ofPlatform().name("javelin-access-log").daemon().start(this::drainLoop);
+    }
+
+    /**
+     * Logs only a fraction of requests. Server errors (5xx) are always logged.
+     *
+     * @param sampleRate the fraction to log, from {@code 0.0} to {@code 1.0}
+     */
+    public void setSampleRate(double sampleRate) {
+        if (!(sampleRate >= 0.0 && sampleRate <= 1.0)) {
+            throw new IllegalArgumentException("sampleRate must be between 0 and 1: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @return records dropped because the ring was full
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return records taken from the ring and handed to the file writer
+     */
+    public long written() {
+        return written.sum();
+    }
+
+    /**
+     * Runs the rest of the chain, then queues the request's record. An exception from the
+     * chain is answered by the server's {@link ExceptionHandler} here rather than propagated,
+     * so the record shows the status and size that were actually sent. Background cache
+     * refreshes ({@link Context#isRevalidation()}) are not logged.
+     *
+     * @param ctx the request/response context
+     * @throws Exception if the exception handler throws
+     */
+    @Override
+    public void handle(Context ctx) throws Exception {
+        if (ctx.isRevalidation()) {
+            ctx.next();
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            try {
+                ctx.next();
+            } catch (Throwable e) {
+                ctx.handleException(e);
+            }
+            failed = false;
+        } finally {
+            int status = ctx.responseCode();
+            if (status < 0 && failed) {
+                status = 500; // the exception handler itself failed
+            }
+            if (status >= 500 || sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+                append(ctx, status, System.nanoTime() - start);
+            }
+        }
+    }
+
+    // ========== Ring Buffer ==========
+
+    private void append(Context ctx, int status, long nanos) {
+        if (!running) {
+            return;
+        }
+        long claim;
+        do {
+            claim = tail.get();
+            if (claim - head.get() > mask) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(claim, claim + 1));
+
+        int slot = (int) claim & mask;
+        int start = slot * RECORD_BYTES;
+        lengths[slot] = encode(ctx, status, nanos, start, start + RECORD_BYTES) - start;
+        sequences.setRelease(slot, claim + 1);
+    }
+
+    private void drainLoop() {
+        long firstPending = 0;
+        long droppedReported = 0;
+        long lastWarning = System.nanoTime() - DROP_WARNING_INTERVAL_NANOS;
+        while (running || head.get() != tail.get()) {
+            int drained = drain();
+            long now = System.nanoTime();
+            if (drained > 0 && firstPending == 0) {
+                firstPending = now;
+            }
+            if (batch.position() > 0 && (!running || now - firstPending >= flushIntervalNanos)) {
+                flush();
+                firstPending = 0;
+            }
+            long drops = dropped.sum();
+            if (drops != droppedReported && now - lastWarning >= DROP_WARNING_INTERVAL_NANOS) {
+                log.warn("Access log buffer full: dropped {} records ({} in total)", drops - droppedReported, drops);
+                droppedReported = drops;
+                lastWarning = now;
+            }
+            if (drained == 0 && running) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close access log", e);
+        }
+    }
+
+    /**
+     * Moves published records into the batch, writing the batch whenever the next record does not fit.
+     */
+    private int drain() {
+        long next = head.get();
+        int drained = 0;
+        while (true) {
+            int slot = (int) next & mask;
+            if (sequences.getAcquire(slot) != next + 1) {
+                break;
+            }
+            int length = lengths[slot];
+            if (batch.remaining() < length) {
+                flush();
+            }
+            batch.put(ring, slot * RECORD_BYTES, length);
+            next++;
+            drained++;
+            head.set(next); // frees the slot for producers
+        }
+        written.add(drained);
+        return drained;
+    }
+
+    private void flush() {
+        batch.flip();
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write access log", e);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Stops accepting records, writes everything still buffered and closes the file.
+     * If the calling thread is interrupted while waiting, it stops waiting with its interrupt
+     * status set, and the writer finishes in the background.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========== Encoding ==========
+
+    private int encode(Context ctx, int status, long nanos, int pos, int limit) {
+        byte[] out = ring;
+        limit--; // room for the newline
+        pos = putTimestamp(out, pos, System.currentTimeMillis());
+        pos = put(out, pos, limit, ' ');
+        pos = put(out, pos, limit, ctx.remoteIp());
+        pos = put(out, pos, limit, ' ');
+        pos = put(out, pos, limit, '"');
+        pos = put(out, pos, limit, ctx.method());
+        pos = put(out, pos, limit, ' ');
+        pos = put(out, pos, limit, ctx.path());
+        pos = put(out, pos, limit, '"');
+        pos = put(out, pos, limit, ' ');
+        pos = putLong(out, pos, limit, status);
+        pos = put(out, pos, limit, ' ');
+        pos = putLong(out, pos, limit, ctx.bytesSent());
+        pos = put(out, pos, limit, ' ');
+        long micros = nanos / 1000;
+        pos = putLong(out, pos, limit, micros / 1000);
+        pos = put(out, pos, limit, '.');
+        long fraction = micros % 1000;
+        pos = put(out, pos, limit, (char) ('0' + fraction / 100));
+        pos = put(out, pos, limit, (char) ('0' + fraction / 10 % 10));
+        pos = put(out, pos, limit, (char) ('0' + fraction % 10));
+        pos = put(out, pos, limit, "ms ");
+        String route = ctx.routePattern();
+        pos = put(out, pos, limit, route != null ? route : "-");
+        out[pos++] = '\n';
+        return pos;
+    }
+
+    private static int put(byte[] out, int pos, int limit, char c) {
+        if (pos < limit) {
+            out[pos++] = (byte) c;
+        }
+        return pos;
+    }
+
+    /**
+     * Writes {@code value} as UTF-8, replacing control characters and quotes (which could forge
+     * or split records) and unpaired surrogates with {@code ?}.
+     */
+    private static int put(byte[] out, int pos, int limit, String value) {
+        if (value == null) {
+            return put(out, pos, limit, '-');
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (pos >= limit) {
+                    return pos;
+                }
+                out[pos++] = c < 0x20 || c == '"' || c == 0x7F ? (byte) '?' : (byte) c;
+            } else if (c < 0x800) {
+                if (pos + 2 > limit) {
+                    return pos;
+                }
+                out[pos++] = (byte) (0xC0 | c >> 6);
+                out[pos++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                if (pos + 4 > limit) {
+                    return pos;
+                }
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                out[pos++] = (byte) (0xF0 | cp >> 18);
+                out[pos++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                out[pos++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                out[pos++] = (byte) (0x80 | cp & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                pos = put(out, pos, limit, '?');
+            } else {
+                if (pos + 3 > limit) {
+                    return pos;
+                }
+                out[pos++] = (byte) (0xE0 | c >> 12);
+                out[pos++] = (byte) (0x80 | c >> 6 & 0x3F);
+                out[pos++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return pos;
+    }
+
+    private static int putLong(byte[] out, int pos, int limit, long value) {
+        if (value < 0) {
+            pos = put(out, pos, limit, '-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        if (pos + digits > limit) {
+            return pos;
+        }
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            out[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits;
+    }
+
+    /**
+     * Writes {@code millis} as an ISO-8601 UTC timestamp ({@code 2026-10-19T01:02:03.456Z}),
+     * always 24 bytes, using the civil-from-days algorithm so no date objects are created.
+     */
+    private static int putTimestamp(byte[] out, int pos, long millis) {
+        long days = Math.floorDiv(millis, 86_400_000L);
+        long ms = Math.floorMod(millis, 86_400_000L);
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        pos = putDigits(out, pos, year, 4);
+        out[pos++] = '-';
+        pos = putDigits(out, pos, month, 2);
+        out[pos++] = '-';
+        pos = putDigits(out, pos, day, 2);
+        out[pos++] = 'T';
+        pos = putDigits(out, pos, ms / 3_600_000, 2);
+        out[pos++] = ':';
+        pos = putDigits(out, pos, ms / 60_000 % 60, 2);
+        out[pos++] = ':';
+        pos = putDigits(out, pos, ms / 1000 % 60, 2);
+        out[pos++] = '.';
+        pos = putDigits(out, pos, ms % 1000, 3);
+        out[pos++] = 'Z';
+        return pos;
+    }
+
+    private static int putDigits(byte[] out, int pos, long value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            out[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + width;
+    }
+}
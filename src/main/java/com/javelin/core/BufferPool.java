@@ -0,0 +1,198 @@
+package com.javelin.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of reusable byte arrays for request and response I/O.
+ * <p>
+ * Arrays come in six size classes from 1 KB to 1 MB, each four times the previous one.
+ * {@link #acquire(int)} rounds a request up to its class and takes a pooled array if one
+ * is available. {@link #release(byte[])} hands the array back for the next request.
+ * Requests larger than the biggest class get a plain array that is not pooled.
+ * <p>
+ * Each class is an array of slots, probed from a position derived from the calling thread's
+ * id. Requests run on short-lived virtual threads, so a per-thread cache would never be
+ * hit again. Spreading threads over the slots gives the same low contention without one.
+ * <p>
+ * Arrays are heap-backed because {@code com.sun.net.httpserver} streams only accept
+ * {@code byte[]}. A direct buffer would need one more copy.
+ */
+public final class BufferPool {
+
+    private static final int MIN_SHIFT = 10;          // 1 KB
+    private static final int CLASS_COUNT = 6;         // 1 KB, 4 KB, 16 KB, 64 KB, 256 KB, 1 MB
+    private static final int MAX_SLOTS_PER_CLASS = 256;
+    private static final int PROBES = 4;
+
+    /** Retained bytes per size class used by {@link #BufferPool()}. */
+    public static final long DEFAULT_MAX_BYTES_PER_CLASS = 2L * 1024 * 1024;
+
+    private final AtomicReferenceArray<byte[]>[] classes;
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder released = new LongAdder();
+
+    // Where each outstanding buffer was acquired, while leak detection is on (byte[] keys compare by identity)
+    private volatile Map<byte[], Throwable> tracked;
+
+    /**
+     * Creates a pool that retains up to {@link #DEFAULT_MAX_BYTES_PER_CLASS} per size class.
+     */
+    public BufferPool() {
+        this(DEFAULT_MAX_BYTES_PER_CLASS);
+    }
+
+    /**
+     * Creates a pool that retains up to {@code maxBytesPerClass} bytes per size class.
+     *
+     * @param maxBytesPerClass the retention limit; {@code 0} disables pooling
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BufferPool(long maxBytesPerClass) {
+        if (maxBytesPerClass < 0) {
+            throw new IllegalArgumentException("maxBytesPerClass must not be negative");
+        }
+        classes = new AtomicReferenceArray[CLASS_COUNT];
+        for (int c = 0; c < CLASS_COUNT; c++) {
+            long slots = Math.min(MAX_SLOTS_PER_CLASS, maxBytesPerClass / classSize(c));
+            // A power of two so the thread id can be masked into a start position
+            classes[c] = new AtomicReferenceArray<>(slots == 0 ? 0 : Integer.highestOneBit((int) slots));
+        }
+    }
+
+    // ========== Acquire & Release ==========
+
+    /**
+     * Returns an array of at least {@code minLength} bytes. Its contents are undefined.
+     *
+     * @param minLength the minimum length
+     * @return a pooled or newly allocated array
+     */
+    public byte[] acquire(int minLength) {
+        acquired.increment();
+        byte[] buffer = null;
+        int c = classOf(minLength);
+        if (c < CLASS_COUNT) {
+            buffer = poll(classes[c]);
+            if (buffer != null) {
+                reused.increment();
+            } else {
+                buffer = new byte[classSize(c)];
+            }
+        } else {
+            buffer = new byte[minLength];
+        }
+        Map<byte[], Throwable> sites = tracked;
+        if (sites != null) {
+            sites.put(buffer, new Throwable("Buffer of " + buffer.length + " bytes acquired here"));
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns an array obtained from {@link #acquire(int)}. The caller must not use it afterwards.
+     *
+     * @param buffer the array to return
+     * @throws IllegalStateException if leak detection is on and the array is not outstanding
+     */
+    public void release(byte[] buffer) {
+        Map<byte[], Throwable> sites = tracked;
+        if (sites != null && sites.remove(buffer) == null) {
+            throw new IllegalStateException("Buffer released twice or not acquired from this pool");
+        }
+        released.increment();
+        int c = classOf(buffer.length);
+        if (c < CLASS_COUNT && classSize(c) == buffer.length) {
+            offer(classes[c], buffer);
+        }
+    }
+
+    private static byte[] poll(AtomicReferenceArray<byte[]> slots) {
+        int length = slots.length();
+        if (length == 0) {
+            return null;
+        }
+        int start = (int) Thread.currentThread().threadId();
+        for (int i = 0; i < Math.min(PROBES, length); i++) {
+            int index = (start + i) & (length - 1);
+            byte[] buffer = slots.get(index);
+            if (buffer != null && slots.compareAndSet(index, buffer, null)) {
+                return buffer;
+            }
+        }
+        return null;
+    }
+
+    private static void offer(AtomicReferenceArray<byte[]> slots, byte[] buffer) {
+        int length = slots.length();
+        int start = (int) Thread.currentThread().threadId();
+        for (int i = 0; i < Math.min(PROBES, length); i++) {
+            int index = (start + i) & (length - 1);
+            if (slots.get(index) == null && slots.compareAndSet(index, null, buffer)) {
+                return;
+            }
+        }
+        // Nearby slots are full: let the garbage collector have it
+    }
+
+    // ========== Leak Detection ==========
+
+    /**
+     * Records where each buffer is acquired until it is released, so tests can find
+     * code paths that never return their buffers. Costs a stack trace per acquisition.
+     *
+     * @param enabled {@code true} to start tracking (clearing earlier records)
+     */
+    public void setLeakDetection(boolean enabled) {
+        tracked = enabled ? new ConcurrentHashMap<>() : null;
+    }
+
+    /**
+     * @return one stack trace per buffer acquired since leak detection was enabled and not yet
+     *         released; empty if leak detection is off
+     */
+    public List<Throwable> leaks() {
+        Map<byte[], Throwable> sites = tracked;
+        return sites == null ? List.of() : new ArrayList<>(sites.values());
+    }
+
+    // ========== Metrics ==========
+
+    /**
+     * @return a snapshot of this pool's usage and occupancy
+     */
+    public BufferPoolStats stats() {
+        int pooledBuffers = 0;
+        long pooledBytes = 0;
+        for (AtomicReferenceArray<byte[]> slots : classes) {
+            for (int i = 0; i < slots.length(); i++) {
+                byte[] buffer = slots.get(i);
+                if (buffer != null) {
+                    pooledBuffers++;
+                    pooledBytes += buffer.length;
+                }
+            }
+        }
+        long acquisitions = acquired.sum();
+        return new BufferPoolStats(acquisitions, reused.sum(), acquisitions - released.sum(), pooledBuffers, pooledBytes);
+    }
+
+    // ========== Size Classes ==========
+
+    private static int classSize(int c) {
+        return 1 << (MIN_SHIFT + 2 * c);
+    }
+
+    /**
+     * @return the smallest class whose arrays hold {@code length} bytes, or {@code CLASS_COUNT} if none does
+     */
+    private static int classOf(int length) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(length, 1) - 1);
+        return bits <= MIN_SHIFT ? 0 : Math.min(CLASS_COUNT, (bits - MIN_SHIFT + 1) >> 1);
+    }
+}
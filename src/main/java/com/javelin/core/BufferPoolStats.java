@@ -0,0 +1,20 @@
+package com.javelin.core;
+
+/**
+ * A point-in-time snapshot of a {@link BufferPool}.
+ *
+ * @param acquisitions buffers handed out since the pool was created
+ * @param reused       acquisitions served from the pool rather than newly allocated
+ * @param outstanding  buffers acquired but not yet released
+ * @param pooledBuffers buffers currently held for reuse
+ * @param pooledBytes  the total size of the held buffers
+ */
+public record BufferPoolStats(long acquisitions, long reused, long outstanding, int pooledBuffers, long pooledBytes) {
+
+    /**
+     * @return the fraction of acquisitions served from the pool, or 0 if there were none
+     */
+    public double hitRate() {
+        return acquisitions == 0 ? 0.0 : (double) reused / acquisitions;
+    }
+}
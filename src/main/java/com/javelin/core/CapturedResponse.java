@@ -0,0 +1,33 @@
+package com.javelin.core;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A copy of a response as it was sent, kept when {@link Context#captureResponse()} was called
+ * before the response was written.
+ *
+ * @param status  the status code
+ * @param headers the response headers at the time the response was sent
+ * @param body    the body bytes, exactly as written (e.g. still gzip-encoded)
+ */
+public record CapturedResponse(int status, Map<String, List<String>> headers, byte[] body) {
+
+    // Connection- or send-specific headers that are recomputed rather than replayed
+    static final Set<String> PER_SEND_HEADERS = Set.of("content-length", "transfer-encoding", "date", "age", "connection");
+
+    /**
+     * Sends this response again on another request.
+     */
+    void sendTo(Context ctx) {
+        ctx.status(status);
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (!PER_SEND_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                ctx.setHeader(header.getKey(), String.join(", ", header.getValue()));
+            }
+        }
+        ctx.sendBytes(body);
+    }
+}
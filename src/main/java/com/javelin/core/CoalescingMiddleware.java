@@ -0,0 +1,211 @@
+package com.javelin.core;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static com.javelin.constants.HttpConstants.*;
+
+/**
+ * Middleware that collapses identical concurrent {@code GET} requests into one handler run
+ * (single-flight).
+ * <p>
+ * The first request for a key runs the chain as usual; requests for the same key that arrive
+ * while it is running wait for it and are answered with a copy of its response (status, headers
+ * and body), so a burst of requests for an expensive resource, e.g. when a cache entry expires,
+ * costs one database query instead of hundreds. Waiting parks the request's virtual thread,
+ * which holds no carrier thread while it waits.
+ * <p>
+ * A waiter runs the chain itself if the first request takes longer than the timeout, throws,
+ * streams its response, or sets a cookie (which must not be shared), and when the response
+ * names request headers in {@code Vary} (such as {@code Accept} or {@code Accept-Encoding})
+ * whose values differ between the two requests. The default key is the
+ * host, path and query; requests with {@code Authorization} or {@code Cookie} headers may get
+ * per-user responses and are not coalesced under it.
+ *
+ * Example:
+ * <pre>
+ *     server.use("/api/reports", new CoalescingMiddleware(Duration.ofSeconds(5)));
+ *
+ *     // per tenant
+ *     server.use(new CoalescingMiddleware(Duration.ofSeconds(5),
+ *             ctx -&gt; ctx.header("X-Tenant") + ' ' + ctx.path()));
+ * </pre>
+ */
+public final class CoalescingMiddleware implements Middleware {
+
+    private final long timeoutNanos;
+    private final Function<Context, String> keyExtractor;
+    private final Map<String, CompletableFuture<Shared>> flights = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    /**
+     * The leader's response, with the leader's values of the request headers it varies on.
+     */
+    private record Shared(CapturedResponse response, String[] varyNames, String[] varyValues) {
+
+        boolean matches(Context ctx) {
+            for (int i = 0; i < varyNames.length; i++) {
+                if (!Objects.equals(varyValues[i], ctx.header(varyNames[i]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Coalesces {@code GET} requests with the same host, path and query.
+     *
+     * @param timeout how long a request waits for an identical one before running the chain itself
+     */
+    public CoalescingMiddleware(Duration timeout) {
+        this(timeout, CoalescingMiddleware::defaultKey);
+    }
+
+    /**
+     * Coalesces {@code GET} requests with the same key; requests for which {@code keyExtractor}
+     * returns {@code null} are not coalesced.
+     *
+     * @param timeout      how long a request waits for an identical one before running the chain itself
+     * @param keyExtractor derives the key identical requests share
+     */
+    public CoalescingMiddleware(Duration timeout, Function<Context, String> keyExtractor) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.timeoutNanos = timeout.toNanos();
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * Runs the chain, or waits for an identical request already running it and sends its response.
+     *
+     * @param ctx the request/response context
+     * @throws Exception if the chain throws, or the thread is interrupted while waiting
+     */
+    @Override
+    public void handle(Context ctx) throws Exception {
+        String key = METHOD_GET.equals(ctx.method()) ? keyExtractor.apply(ctx) : null;
+        if (key == null) {
+            ctx.next();
+            return;
+        }
+
+        CompletableFuture<Shared> flight = new CompletableFuture<>();
+        CompletableFuture<Shared> running = flights.putIfAbsent(key, flight);
+        if (running == null) {
+            lead(ctx, key, flight);
+            return;
+        }
+
+        Shared shared;
+        try {
+            shared = running.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            shared = null;
+        } catch (ExecutionException e) {
+            shared = null; // not reached: flights only complete normally
+        }
+        if (shared == null || !shared.matches(ctx)) {
+            fallbacks.increment();
+            ctx.next();
+            return;
+        }
+        coalesced.increment();
+        shared.response().sendTo(ctx);
+    }
+
+    /**
+     * @return the number of times a coalesced key ran the chain
+     */
+    public long executions() {
+        return executions.sum();
+    }
+
+    /**
+     * @return the number of requests answered with another request's response
+     */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return the number of waiting requests that ran the chain themselves, after a timeout or
+     *         a response that could not be shared
+     */
+    public long fallbacks() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * @return the number of keys currently being handled
+     */
+    public int inFlight() {
+        return flights.size();
+    }
+
+    private void lead(Context ctx, String key, CompletableFuture<Shared> flight) throws Exception {
+        executions.increment();
+        Shared shared = null;
+        try {
+            ctx.captureResponse();
+            ctx.next();
+            shared = shareable(ctx, ctx.capturedResponse());
+        } finally {
+            // Removed before completing, so a request that misses the result starts a new flight
+            flights.remove(key, flight);
+            flight.complete(shared);
+        }
+    }
+
+    private static Shared shareable(Context ctx, CapturedResponse response) {
+        if (response == null) {
+            return null;
+        }
+        String vary = null;
+        for (Map.Entry<String, List<String>> header : response.headers().entrySet()) {
+            if (header.getKey().equalsIgnoreCase(HEADER_SET_COOKIE)) {
+                return null;
+            }
+            if (header.getKey().equalsIgnoreCase(HEADER_VARY)) {
+                vary = vary == null ? String.join(",", header.getValue()) : vary + ',' + String.join(",", header.getValue());
+            }
+        }
+        if (vary == null || vary.isBlank()) {
+            return new Shared(response, new String[0], new String[0]);
+        }
+        String[] names = vary.split(",");
+        String[] values = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].trim().toLowerCase(Locale.ROOT);
+            if (names[i].equals("*")) {
+                return null;
+            }
+            values[i] = ctx.header(names[i]);
+        }
+        return new Shared(response, names, values);
+    }
+
+    private static String defaultKey(Context ctx) {
+        if (ctx.header(HEADER_AUTHORIZATION) != null || ctx.header(HEADER_COOKIE) != null) {
+            return null;
+        }
+        String host = ctx.header(HEADER_HOST);
+        String query = ctx.rawQuery();
+        String target = query == null ? ctx.path() : ctx.path() + '?' + query;
+        return host == null ? target : host + ' ' + target;
+    }
+}
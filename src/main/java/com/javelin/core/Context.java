@@ -2,8 +2,13 @@ package com.javelin.core;
 
 import com.javelin.core.upload.MultipartForm;
 
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Represents a lightweight abstraction over an HTTP request and response.
@@ -22,22 +27,71 @@ public interface Context {
 
     /**
      * Sends a plain text response to the client.
-     * This ends the exchange.
+     * <p>
+     * The text is encoded in the charset of the response {@code Content-Type}, which
+     * defaults to {@code text/plain; charset=UTF-8}. This ends the exchange.
      *
      * @param body the response body to send as plain text
      */
     void send(String body);
 
+    /**
+     * Sends a pre-encoded response built once at startup.
+     * <p>
+     * The response's own status, headers, ETag and (if the client accepts it) gzip
+     * variant are used as-is; a matching {@code If-None-Match} yields {@code 304 Not Modified}.
+     * This ends the exchange.
+     *
+     * @param response the prepared response to send
+     */
+    void send(PreparedResponse response);
+
+    /**
+     * Returns the query string of the request URI, still percent-encoded.
+     *
+     * @return the raw query (e.g. {@code "q=a%20b&page=2"}), or {@code null} if there is none
+     */
+    String rawQuery();
+
     /**
      * Returns the value of a query parameter from the request URL.
      * <p>
      * For example, given "/search?q=hello", calling {@code queryParam("q")} returns {@code "hello"}.
+     * If the parameter is repeated, the first value is returned (see {@link #queryParams(String)}).
      *
      * @param key the name of the query parameter
      * @return the value of the parameter, or {@code null} if not present
      */
     String queryParam(String key);
 
+    /**
+     * Returns every value of a repeated query parameter, e.g. {@code ?tag=a&tag=b}.
+     *
+     * @param key the name of the query parameter
+     * @return the values in request order, or an empty list if not present
+     */
+    List<String> queryParams(String key);
+
+    /**
+     * Parses a query parameter as an {@code int}.
+     *
+     * @param key          the name of the query parameter
+     * @param defaultValue returned when the parameter is missing or empty
+     * @return the parsed value
+     * @throws NumberFormatException if the value is not a valid {@code int}
+     */
+    int queryInt(String key, int defaultValue);
+
+    /**
+     * Parses a query parameter as a {@code long}.
+     *
+     * @param key          the name of the query parameter
+     * @param defaultValue returned when the parameter is missing or empty
+     * @return the parsed value
+     * @throws NumberFormatException if the value is not a valid {@code long}
+     */
+    long queryLong(String key, long defaultValue);
+
     /**
      * Sends a JSON response to the client.
      * The object will be serialized using the default ObjectMapper.
@@ -47,6 +101,57 @@ public interface Context {
      */
     void json(Object data);
 
+    /**
+     * Sends {@code data} in the format negotiated from the request's {@code Accept} header.
+     * <p>
+     * Clients that prefer MessagePack ({@code application/msgpack} or {@code application/x-msgpack})
+     * receive a binary MessagePack body; everyone else receives JSON exactly as with {@link #json(Object)}.
+     * Both encodings use the same object model. This ends the exchange.
+     *
+     * @param data the object to serialize
+     */
+    void respond(Object data);
+
+    /**
+     * Streams the elements of {@code items} as a JSON array using chunked transfer encoding.
+     * <p>
+     * Elements are serialized one at a time and flushed to the client in batches, so memory use
+     * is bounded by a single element rather than the whole result. If the client disconnects,
+     * no further elements are pulled and the stream is closed.
+     * This ends the exchange.
+     *
+     * @param items the elements to write
+     */
+    void jsonStream(Stream<?> items);
+
+    /**
+     * Streams the remaining elements of {@code items} as a JSON array using chunked transfer encoding.
+     * <p>
+     * See {@link #jsonStream(Stream)}.
+     *
+     * @param items the elements to write
+     */
+    void jsonStream(Iterator<?> items);
+
+    /**
+     * Streams the elements of {@code items} as newline-delimited JSON ({@code application/x-ndjson}),
+     * one JSON document per line.
+     * <p>
+     * See {@link #jsonStream(Stream)} for flushing and disconnect behavior.
+     *
+     * @param items the elements to write
+     */
+    void ndjsonStream(Stream<?> items);
+
+    /**
+     * Streams the remaining elements of {@code items} as newline-delimited JSON.
+     * <p>
+     * See {@link #ndjsonStream(Stream)}.
+     *
+     * @param items the elements to write
+     */
+    void ndjsonStream(Iterator<?> items);
+
     /**
      * Retrieves the value of the specified HTTP request header.
      * <p>
@@ -79,6 +184,44 @@ public interface Context {
      */
     <T> T body(Class<T> clazz);
 
+    /**
+     * Parses the request body according to its {@code Content-Type}.
+     * <p>
+     * MessagePack bodies are decoded as MessagePack; anything else is treated as JSON like {@link #body(Class)}.
+     *
+     * @param clazz the class to deserialize into
+     * @return the parsed object
+     * @param <T> the type of object to return
+     */
+    <T> T read(Class<T> clazz);
+
+    /**
+     * Lazily parses the request body as a sequence of objects of the specified type.
+     * <p>
+     * The body may be either a top-level JSON array or newline-delimited JSON (NDJSON).
+     * Elements are decoded one at a time as the stream is consumed, so arbitrarily large
+     * bodies can be processed in constant memory. Closing the stream closes the request body.
+     *
+     * @param clazz the element class to deserialize into
+     * @return a sequential stream of decoded elements
+     * @param <T> the element type
+     */
+    <T> Stream<T> bodyStream(Class<T> clazz);
+
+    /**
+     * Parses the request body as a sequence of objects and hands them to {@code consumer}
+     * in batches of at most {@code batchSize} elements.
+     * <p>
+     * Each batch is a new list, so the consumer may keep it or pass it downstream.
+     * Only one batch is held in memory at a time.
+     *
+     * @param clazz     the element class to deserialize into
+     * @param batchSize the maximum number of elements per batch
+     * @param consumer  receives each batch in order
+     * @param <T> the element type
+     */
+    <T> void bodyStream(Class<T> clazz, int batchSize, Consumer<List<T>> consumer);
+
     /**
      * Sets the HTTP status code for the response.
      *
@@ -102,11 +245,66 @@ public interface Context {
      */
     String pathVar(String name);
 
+    /**
+     * Parses a path variable as a {@code long}, e.g. for routes like {@code /users/{id:long}}.
+     * The value is read directly from the request path without creating a string.
+     *
+     * @param name the variable name (e.g. "id")
+     * @return the parsed value
+     * @throws IllegalArgumentException if the variable does not exist or is not a valid {@code long}
+     */
+    long pathLong(String name);
+
+    /**
+     * Parses a path variable as an {@code int}, e.g. for routes like {@code /pages/{n:int}}.
+     *
+     * @param name the variable name
+     * @return the parsed value
+     * @throws IllegalArgumentException if the variable does not exist or is not a valid {@code int}
+     */
+    int pathInt(String name);
+
     /**
      * Sets all path variables captured during routing.
      */
     void setPathVars(Map<String, String> vars);
 
+    /**
+     * Returns the methods registered for the request path, as an {@code Allow} header value
+     * (e.g. {@code "GET, HEAD, POST, OPTIONS"}), including those of other route patterns that
+     * also match the path. The value is computed when routes are registered, unless patterns
+     * overlap.
+     *
+     * @return the allowed methods, or {@code null} if the request matched no route
+     */
+    String allowedMethods();
+
+    /**
+     * Returns a request attribute set earlier in the chain, e.g. by authentication middleware.
+     *
+     * @param key the attribute key
+     * @return the value, or {@code null} if none was set for this request
+     * @param <T> the attribute type
+     */
+    <T> T attr(Key<T> key);
+
+    /**
+     * Sets a request attribute for later middleware and the route handler. Attributes live
+     * only for the current request.
+     *
+     * @param key   the attribute key
+     * @param value the value, or {@code null} to remove it
+     * @param <T> the attribute type
+     */
+    <T> Context attr(Key<T> key, T value);
+
+    /**
+     * Sets the routing result whose path variables this context exposes.
+     *
+     * @param match the matched route and variable offsets
+     */
+    void setRouteMatch(RouteMatch match);
+
     /**
      * Sets the chain of middleware for the current request.
      *
@@ -114,6 +312,14 @@ public interface Context {
      */
     void setMiddlewareChain(List<Middleware> chain);
 
+    /**
+     * Sets a precompiled chain of middleware for the current request.
+     * The array is shared between requests and must not be modified.
+     *
+     * @param chain the middleware to apply, in order
+     */
+    void setMiddlewareChain(Middleware[] chain);
+
     /**
      * Sets the final route handler to be invoked after all middleware.
      *
@@ -129,6 +335,15 @@ public interface Context {
      */
     void sendBytes(byte[] data);
 
+    /**
+     * Sends a file as the response body, streaming it so it is never held in memory.
+     * This also ends the exchange.
+     *
+     * @param file the file to send; its size is sent as {@code Content-Length}
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    void sendFile(Path file);
+
     /**
      * Retrieves the value of a form parameter from a {@code application/x-www-form-urlencoded} request.
      * <p>
@@ -140,6 +355,14 @@ public interface Context {
      */
     String formParam(String key);
 
+    /**
+     * Returns every value of a repeated form parameter.
+     *
+     * @param key the name of the form field
+     * @return the values in request order, or an empty list if not present
+     */
+    List<String> formParams(String key);
+
     /**
      * Retrieves the value of a cookie by name from the incoming HTTP request.
      *
@@ -187,4 +410,85 @@ public interface Context {
      * @return the HTTP method string
      */
     String method();
+
+    /**
+     * Returns the pattern of the route that matched this request, e.g. {@code /users/{id}}.
+     *
+     * @return the route pattern, or {@code null} if no route matched
+     */
+    String routePattern();
+
+    /**
+     * Returns the status code of the response sent so far, for middleware that runs
+     * after {@link #next()} returns.
+     *
+     * @return the sent status, or {@code -1} if no response has been sent yet
+     */
+    int responseCode();
+
+    /**
+     * Answers the request through the server's {@link ExceptionHandler}, as if {@code e} had
+     * propagated out of the middleware chain. Middleware that catches an exception from
+     * {@link #next()} calls this to have the failure answered before it inspects the response.
+     *
+     * @param e the exception thrown by the rest of the chain
+     */
+    void handleException(Throwable e);
+
+    /**
+     * Returns whether this request is a background refresh issued by {@link ResponseCacheMiddleware}
+     * rather than a client request. Middleware that accounts for clients, such as access logs and
+     * rate limiters, passes these straight on.
+     *
+     * @return {@code true} for a cache revalidation request
+     */
+    boolean isRevalidation();
+
+    /**
+     * Returns the number of response body bytes written so far. Bodies of {@code HEAD}
+     * and {@code 304} responses are not sent and count as zero.
+     *
+     * @return the body bytes written
+     */
+    long bytesSent();
+
+    /**
+     * Keeps a copy of the response this request sends, for middleware such as caches that need
+     * the status, headers and body after {@link #next()} returns. Streamed responses
+     * ({@link #jsonStream}, {@link #ndjsonStream}) and {@code HEAD} responses are not captured.
+     */
+    void captureResponse();
+
+    /**
+     * @return the response sent since {@link #captureResponse()} was called, or {@code null}
+     *         if capture is off, nothing was sent yet, or the response could not be captured
+     */
+    CapturedResponse capturedResponse();
+
+    /**
+     * Gives the buffered response this request sends ({@link #send(String)}, {@link #sendBytes},
+     * {@link #json}, {@link #respond}) an {@code ETag} derived from its body, unless the handler
+     * set one, and answers a request whose {@code If-None-Match} matches it with {@code 304 Not
+     * Modified} and no body. Only {@code 200} responses are tagged.
+     */
+    void tagResponse();
+
+    /**
+     * Returns a response header set so far, for middleware that runs after {@link #next()} returns.
+     *
+     * @param name the header name (case-insensitive)
+     * @return the first value, or {@code null} if the header is not set
+     */
+    String responseHeader(String name);
+
+    /**
+     * Returns a cache registered on the server with {@code VirtualThreadServer.cache(name, cache)}.
+     *
+     * @param name the name the cache was registered under
+     * @param <K>  the key type
+     * @param <V>  the value type
+     * @return the cache
+     * @throws IllegalStateException if no cache is registered under {@code name}
+     */
+    <K, V> LocalCache<K, V> cache(String name);
 }
@@ -8,6 +8,9 @@ import static com.javelin.constants.HttpConstants.*;
  * This middleware adds standard CORS headers to all HTTP responses,
  * allowing browsers to make cross-origin requests to the server.
  * It also handles preflight (OPTIONS) requests by returning an empty 200 OK response.
+ * The preflight's {@code Access-Control-Allow-Methods} is the route's method set, which
+ * the router precomputes when routes are registered; paths without a route get the
+ * default method list.
  *
  * Example:
  * <pre>
@@ -16,6 +19,9 @@ import static com.javelin.constants.HttpConstants.*;
  */
 public class CorsMiddleware implements Middleware {
 
+    private static final String DEFAULT_ALLOW_METHODS = "GET, POST, PUT, DELETE, OPTIONS, PATCH";
+    private static final String ALLOW_HEADERS = HEADER_CONTENT_TYPE + ", " + HEADER_AUTHORIZATION;
+
     /**
      * Adds CORS headers to the response and handles preflight OPTIONS requests.
      *
@@ -26,8 +32,9 @@ public class CorsMiddleware implements Middleware {
     public void handle(Context ctx) throws Exception {
         // Set basic CORS headers
         ctx.setHeader(HEADER_ACCESS_CONTROL_ALLOW_ORIGIN, "*");
-        ctx.setHeader(HEADER_ACCESS_CONTROL_ALLOW_METHODS, "GET, POST, PUT, DELETE, OPTIONS, PATCH");
-        ctx.setHeader(HEADER_ACCESS_CONTROL_ALLOW_HEADERS, HEADER_CONTENT_TYPE + ", " + HEADER_AUTHORIZATION);
+        String routeMethods = ctx.allowedMethods();
+        ctx.setHeader(HEADER_ACCESS_CONTROL_ALLOW_METHODS, routeMethods != null ? routeMethods : DEFAULT_ALLOW_METHODS);
+        ctx.setHeader(HEADER_ACCESS_CONTROL_ALLOW_HEADERS, ALLOW_HEADERS);
 
         // Handle preflight (OPTIONS) requests
         if (METHOD_OPTIONS.equalsIgnoreCase(ctx.method()) ||
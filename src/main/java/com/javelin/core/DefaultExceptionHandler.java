@@ -5,6 +5,8 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 
+import static com.javelin.constants.HttpConstants.MESSAGE_INTERNAL_ERROR;
+
 /**
  * Default exception handler used by Javelin when no user-defined handler is set.
  * <p>
@@ -15,6 +17,12 @@ public class DefaultExceptionHandler implements ExceptionHandler {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultExceptionHandler.class);
 
+    // The 500 body never varies, so it is encoded once
+    private static final PreparedResponse INTERNAL_ERROR = PreparedResponse.json(500, Map.of(
+            "status", 500,
+            "error", MESSAGE_INTERNAL_ERROR
+    ));
+
     @Override
     public void handle(Throwable e, Context ctx) {
         int status;
@@ -28,9 +36,9 @@ public class DefaultExceptionHandler implements ExceptionHandler {
             status = 403;
             errorMsg = "Forbidden: " + e.getMessage();
         } else {
-            status = 500;
-            errorMsg = "Internal Server Error";
             log.error("Unhandled exception during request processing", e);
+            ctx.send(INTERNAL_ERROR);
+            return;
         }
 
         // Respond with JSON
@@ -0,0 +1,162 @@
+package com.javelin.core;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static com.javelin.constants.HttpConstants.*;
+
+/**
+ * Middleware that gives dynamic {@code GET} responses an {@code ETag} and answers clients that
+ * already have the current body with {@code 304 Not Modified} and no body.
+ * <p>
+ * The tag is a hash of the bytes the handler sends through {@link Context#send(String)},
+ * {@link Context#sendBytes}, {@link Context#json} or {@link Context#respond} (see
+ * {@link Context#tagResponse()}), so a client polling an unchanged result downloads only
+ * headers. The handler still runs and serializes the result to hash it.
+ * <p>
+ * To skip that work too, give the middleware a version function: a cheap value that changes
+ * whenever the content of a URL does, such as a row's update counter or a cache generation.
+ * The middleware remembers the tag it sent for each URL and version, and answers a matching
+ * {@code If-None-Match} without running the handler at all while the version is unchanged.
+ *
+ * Example:
+ * <pre>
+ *     server.use("/api", new ETagMiddleware());
+ *
+ *     // skips the handler while the board has not changed
+ *     server.use("/boards", new ETagMiddleware(ctx -&gt; boards.version(ctx.pathLong("id"))));
+ * </pre>
+ */
+public final class ETagMiddleware implements Middleware {
+
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+    private static final byte[] NO_BODY = new byte[0];
+
+    private final Function<Context, ?> version;
+    private final int maxEntries;
+    private final Map<String, Tag> tags = new ConcurrentHashMap<>();
+
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    private record Tag(Object version, String etag) {}
+
+    /**
+     * Tags every response by hashing its body.
+     */
+    public ETagMiddleware() {
+        this(null, 0);
+    }
+
+    /**
+     * Tags every response by hashing its body, and remembers the tag of up to 10,000 URLs so an
+     * unchanged one is answered without running the handler.
+     *
+     * @param version returns a value that changes whenever the content of the request's URL
+     *                changes, or {@code null} if it is unknown for this request
+     */
+    public ETagMiddleware(Function<Context, ?> version) {
+        this(version, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Tags every response by hashing its body, and remembers the tag of up to {@code maxEntries}
+     * URLs so an unchanged one is answered without running the handler.
+     *
+     * @param version    returns a value that changes whenever the content of the request's URL
+     *                   changes, or {@code null} if it is unknown for this request
+     * @param maxEntries the number of URLs whose tags are remembered
+     */
+    public ETagMiddleware(Function<Context, ?> version, int maxEntries) {
+        if (version != null && maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.version = version;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Answers {@code 304} from a remembered tag if the version is unchanged, otherwise runs the
+     * chain with the response tagged.
+     *
+     * @param ctx the request/response context
+     * @throws Exception if the chain throws
+     */
+    @Override
+    public void handle(Context ctx) throws Exception {
+        String method = ctx.method();
+        if (!METHOD_GET.equals(method) && !METHOD_HEAD.equals(method)) {
+            ctx.next();
+            return;
+        }
+        Object current = version != null ? version.apply(ctx) : null;
+        if (current == null) {
+            ctx.tagResponse();
+            ctx.next();
+            countNotModified(ctx);
+            return;
+        }
+
+        String key = urlKey(ctx);
+        Tag tag = tags.get(key);
+        if (tag != null && tag.version().equals(current) && ETags.matches(ctx.header(HEADER_IF_NONE_MATCH), tag.etag())) {
+            skipped.increment();
+            notModified.increment();
+            ctx.setHeader(HEADER_ETAG, tag.etag());
+            ctx.status(304);
+            ctx.sendBytes(NO_BODY);
+            return;
+        }
+
+        ctx.tagResponse();
+        ctx.next();
+        countNotModified(ctx);
+        String etag = ctx.responseHeader(HEADER_ETAG);
+        int status = ctx.responseCode();
+        if (etag != null && (status == 200 || status == 304)) {
+            remember(key, new Tag(current, etag));
+        }
+    }
+
+    /**
+     * @return the number of {@code 304 Not Modified} responses sent
+     */
+    public long notModified() {
+        return notModified.sum();
+    }
+
+    /**
+     * @return the number of {@code 304} responses sent from a remembered tag, without running the handler
+     */
+    public long skipped() {
+        return skipped.sum();
+    }
+
+    private void countNotModified(Context ctx) {
+        if (ctx.responseCode() == 304) {
+            notModified.increment();
+        }
+    }
+
+    private void remember(String key, Tag tag) {
+        if (tags.put(key, tag) == null && tags.size() > maxEntries) {
+            // Any other entry; a full table of polled URLs is rare enough not to warrant LRU order
+            Iterator<String> keys = tags.keySet().iterator();
+            while (keys.hasNext() && tags.size() > maxEntries) {
+                if (!keys.next().equals(key)) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    private static String urlKey(Context ctx) {
+        String host = ctx.header(HEADER_HOST);
+        String query = ctx.rawQuery();
+        String target = query == null ? ctx.path() : ctx.path() + '?' + query;
+        return host == null ? target : host + ' ' + target;
+    }
+}
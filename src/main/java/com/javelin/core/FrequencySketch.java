@@ -0,0 +1,79 @@
+package com.javelin.core;
+
+/**
+ * A count-min sketch of 4-bit counters estimating how often a key has been seen recently.
+ * <p>
+ * Used for TinyLFU-style admission: a new entry only replaces an existing one when it has
+ * been requested more often. Counters are halved once the number of increments reaches
+ * ten times the table width, so old popularity fades.
+ * <p>
+ * Updates are plain (non-atomic) writes. Under contention an increment may be lost, which
+ * only makes the estimate slightly lower; it never corrupts the table.
+ */
+final class FrequencySketch {
+
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedEntries the number of entries whose frequency should be tracked accurately
+     */
+    FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(16, expectedEntries) - 1) << 1;
+        this.table = new long[width];
+        this.mask = width - 1;
+        this.sampleSize = width * 10;
+    }
+
+    /**
+     * Returns the estimated number of occurrences of the key (0 to 15).
+     */
+    int frequency(int hash) {
+        int min = 15;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long h = rehash(hash, i);
+            int shift = (int) (h & 15) << 2;
+            int count = (int) ((table[(int) (h >>> 4) & mask] >>> shift) & 15);
+            min = Math.min(min, count);
+        }
+        return min;
+    }
+
+    /**
+     * Records one occurrence of the key.
+     */
+    void increment(int hash) {
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long h = rehash(hash, i);
+            int shift = (int) (h & 15) << 2;
+            int index = (int) (h >>> 4) & mask;
+            if (((table[index] >>> shift) & 15) != 15) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = sampleSize / 2;
+    }
+
+    private static long rehash(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        return h + (h >>> 32);
+    }
+}
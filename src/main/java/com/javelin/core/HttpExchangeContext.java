@@ -1,16 +1,33 @@
 package com.javelin.core;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javelin.core.json.JsonCodecRegistry;
+import com.javelin.core.json.JsonOutput;
+import com.javelin.core.jfr.JavelinEvents;
+import com.javelin.core.jfr.MiddlewareEvent;
+import com.javelin.core.jfr.ResponseWriteEvent;
+import com.javelin.core.jfr.SerializationEvent;
+import com.javelin.core.json.JsonValueIterator;
+import com.javelin.core.msgpack.MessagePackCodec;
 import com.javelin.core.upload.DefaultMultipartForm;
 import com.javelin.core.upload.MultipartForm;
 import com.javelin.core.upload.UploadedFile;
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.javelin.constants.HttpConstants.*;
 import static java.nio.charset.StandardCharsets.*;
@@ -23,22 +40,56 @@ import static java.nio.charset.StandardCharsets.*;
  */
 public class HttpExchangeContext implements Context {
 
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Logger log = LoggerFactory.getLogger(HttpExchangeContext.class);
 
-    private final HttpExchange exchange;
-    private final Map<String, String> queryParams;
-    private Map<String, String> formParams;
+    private static final JsonCodecRegistry DEFAULT_CODECS = new JsonCodecRegistry();
+    private static final BufferPool DEFAULT_BUFFERS = new BufferPool();
+    private static final ExceptionHandler DEFAULT_EXCEPTION_HANDLER = new DefaultExceptionHandler();
 
-    // Path variables extracted from router
-    private final Map<String, String> pathVars = new HashMap<>();
+    // First buffer for serialized responses; grows through the pool's size classes
+    private static final int RESPONSE_BUFFER_BYTES = 1024;
+
+    // Streamed responses are handed to the socket once this many bytes are buffered
+    private static final int STREAM_FLUSH_BYTES = 8 * 1024;
+
+    // Header values shared by every prepared response
+    private static final List<String> GZIP = List.of("gzip");
+    private static final List<String> VARY_ACCEPT_ENCODING = List.of(HEADER_ACCEPT_ENCODING);
+    private static final List<String> VARY_ACCEPT = List.of(HEADER_ACCEPT);
+    private static final List<String> TEXT_PLAIN_UTF8 = List.of(TEXT_PLAIN + "; charset=" + CHARSET_UTF8);
+
+    // Rebound by reset(HttpExchange) when the server reuses this context
+    private HttpExchange exchange;
+    private final JsonCodecRegistry codecs;
+    private final BufferPool buffers;
+    private final Map<String, LocalCache<?, ?>> caches;
+    // Created on the first send(String) and kept while the context is pooled
+    private TextEncoder textEncoder;
+    // Parsed lazily on first access
+    private UrlEncodedParams queryParams;
+    private UrlEncodedParams formParams;
+
+    // Path variables from the router (offsets into the path), plus any set explicitly
+    private RouteMatch routeMatch;
+    private Map<String, String> pathVars;
+
+    // Typed attributes, indexed by Key slot; kept (cleared) across pooled reuse
+    private Object[] attributes;
+    private boolean hasAttributes;
 
     // Middleware chain
-    private List<Middleware> middlewareChain;
+    private Middleware[] middlewareChain;
     private Runnable finalHandler;
     private int currentIndex = -1;
+    // Answers failures passed to handleException; set by the server for every request
+    private ExceptionHandler exceptionHandler = DEFAULT_EXCEPTION_HANDLER;
 
     // Response status code
     private int statusCode = 200;
+    private long bytesSent;
+    private boolean capturing;
+    private CapturedResponse captured;
+    private boolean tagging;
 
     /**
      * Constructs a new context based on the provided {@code HttpExchange}.
@@ -46,8 +97,133 @@ public class HttpExchangeContext implements Context {
      * @param exchange the underlying HTTP exchange
      */
     public HttpExchangeContext(HttpExchange exchange) {
+        this(exchange, DEFAULT_CODECS);
+    }
+
+    /**
+     * Constructs a new context that serializes JSON through the given codec registry.
+     *
+     * @param exchange the underlying HTTP exchange
+     * @param codecs   the JSON codecs to use for {@link #json(Object)} and {@link #body(Class)}
+     */
+    public HttpExchangeContext(HttpExchange exchange, JsonCodecRegistry codecs) {
+        this(exchange, codecs, DEFAULT_BUFFERS);
+    }
+
+    /**
+     * Constructs a new context that serializes JSON through the given codec registry and
+     * builds responses and reads request bodies in buffers from the given pool.
+     *
+     * @param exchange the underlying HTTP exchange
+     * @param codecs   the JSON codecs to use for {@link #json(Object)} and {@link #body(Class)}
+     * @param buffers  the pool for response and request body buffers
+     */
+    public HttpExchangeContext(HttpExchange exchange, JsonCodecRegistry codecs, BufferPool buffers) {
+        this(exchange, codecs, buffers, Map.of());
+    }
+
+    /**
+     * Constructs a new context that also gives handlers the server's named caches.
+     *
+     * @param exchange the underlying HTTP exchange
+     * @param codecs   the JSON codecs to use for {@link #json(Object)} and {@link #body(Class)}
+     * @param buffers  the pool for response and request body buffers
+     * @param caches   the caches {@link #cache(String)} looks up, by name
+     */
+    public HttpExchangeContext(HttpExchange exchange, JsonCodecRegistry codecs, BufferPool buffers,
+                               Map<String, LocalCache<?, ?>> caches) {
+        this.exchange = exchange;
+        this.codecs = codecs;
+        this.buffers = buffers;
+        this.caches = caches;
+    }
+
+    /**
+     * Rebinds this context to a new exchange and clears all per-request state, so the
+     * server can reuse one context for many requests instead of allocating one each time.
+     * <p>
+     * Only the server calls this, after the previous request has completed. Handlers must
+     * not keep a context (or its {@link RouteMatch}) beyond the request it was passed for.
+     *
+     * @param exchange the exchange for the next request, or {@code null} to release the last one
+     */
+    public void reset(HttpExchange exchange) {
         this.exchange = exchange;
-        this.queryParams = parseQueryParams(exchange.getRequestURI().getRawQuery());
+        this.queryParams = null;
+        this.formParams = null;
+        this.routeMatch = null;
+        this.pathVars = null;
+        if (hasAttributes) {
+            Arrays.fill(attributes, null);
+            hasAttributes = false;
+        }
+        this.middlewareChain = null;
+        this.finalHandler = null;
+        this.currentIndex = -1;
+        this.statusCode = 200;
+        this.bytesSent = 0;
+        this.capturing = false;
+        this.captured = null;
+        this.tagging = false;
+    }
+
+    @Override
+    public int responseCode() {
+        return exchange.getResponseCode();
+    }
+
+    @Override
+    public boolean isRevalidation() {
+        return exchange instanceof RevalidationExchange;
+    }
+
+    @Override
+    public long bytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Sets the handler that answers exceptions passed to {@link #handleException(Throwable)}.
+     *
+     * @param handler the server's exception handler
+     */
+    public void setExceptionHandler(ExceptionHandler handler) {
+        this.exceptionHandler = handler;
+    }
+
+    @Override
+    public void handleException(Throwable e) {
+        exceptionHandler.handle(e, this);
+    }
+
+    @Override
+    public void captureResponse() {
+        capturing = true;
+    }
+
+    @Override
+    public CapturedResponse capturedResponse() {
+        return captured;
+    }
+
+    @Override
+    public void tagResponse() {
+        tagging = true;
+    }
+
+    @Override
+    public String responseHeader(String name) {
+        return exchange.getResponseHeaders().getFirst(name);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> LocalCache<K, V> cache(String name) {
+        LocalCache<?, ?> cache = caches.get(name);
+        if (cache == null) {
+            throw new IllegalStateException("No cache registered as " + name);
+        }
+        return (LocalCache<K, V>) cache;
     }
 
     // ========== Path & Query ==========
@@ -62,6 +238,11 @@ public class HttpExchangeContext implements Context {
         return exchange.getRequestURI().getPath();
     }
 
+    @Override
+    public String rawQuery() {
+        return exchange.getRequestURI().getRawQuery();
+    }
+
     /**
      * Returns the value of a query parameter from the request URL.
      * <p>
@@ -72,7 +253,29 @@ public class HttpExchangeContext implements Context {
      */
     @Override
     public String queryParam(String key) {
-        return queryParams.get(key);
+        return query().get(key);
+    }
+
+    @Override
+    public List<String> queryParams(String key) {
+        return query().getAll(key);
+    }
+
+    @Override
+    public int queryInt(String key, int defaultValue) {
+        return query().getInt(key, defaultValue);
+    }
+
+    @Override
+    public long queryLong(String key, long defaultValue) {
+        return query().getLong(key, defaultValue);
+    }
+
+    private UrlEncodedParams query() {
+        if (queryParams == null) {
+            queryParams = new UrlEncodedParams(exchange.getRequestURI().getRawQuery());
+        }
+        return queryParams;
     }
 
     /**
@@ -84,7 +287,34 @@ public class HttpExchangeContext implements Context {
      */
     @Override
     public String pathVar(String name) {
-        return pathVars.get(name);
+        if (pathVars != null && pathVars.containsKey(name)) {
+            return pathVars.get(name);
+        }
+        return routeMatch != null ? routeMatch.pathVar(name) : null;
+    }
+
+    @Override
+    public long pathLong(String name) {
+        if (pathVars == null && routeMatch != null) {
+            return routeMatch.pathLong(name);
+        }
+        return Long.parseLong(requirePathVar(name));
+    }
+
+    @Override
+    public int pathInt(String name) {
+        if (pathVars == null && routeMatch != null) {
+            return routeMatch.pathInt(name);
+        }
+        return Integer.parseInt(requirePathVar(name));
+    }
+
+    private String requirePathVar(String name) {
+        String value = pathVar(name);
+        if (value == null) {
+            throw new IllegalArgumentException("No path variable named '" + name + "'");
+        }
+        return value;
     }
 
     /**
@@ -94,9 +324,43 @@ public class HttpExchangeContext implements Context {
      */
     @Override
     public void setPathVars(Map<String, String> vars) {
+        if (pathVars == null) {
+            pathVars = new HashMap<>();
+        }
         this.pathVars.putAll(vars);
     }
 
+    @Override
+    public String allowedMethods() {
+        return routeMatch != null && routeMatch.route() != null ? routeMatch.allowedMethods() : null;
+    }
+
+    @Override
+    public void setRouteMatch(RouteMatch match) {
+        this.routeMatch = match;
+    }
+
+    // ========== Attributes ==========
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T attr(Key<T> key) {
+        int slot = key.slot();
+        return attributes != null && slot < attributes.length ? (T) attributes[slot] : null;
+    }
+
+    @Override
+    public <T> Context attr(Key<T> key, T value) {
+        int slot = key.slot();
+        if (attributes == null || slot >= attributes.length) {
+            // Sized for every key created so far, so this happens at most once per context in steady state
+            attributes = Arrays.copyOf(attributes == null ? new Object[0] : attributes, Math.max(Key.slotCount(), slot + 1));
+        }
+        attributes[slot] = value;
+        hasAttributes = true;
+        return this;
+    }
+
     // ========== Response Handling ==========
 
     /**
@@ -124,25 +388,138 @@ public class HttpExchangeContext implements Context {
     }
 
     /**
-     * Sends a plain text response with the currently set HTTP status.
+     * Sends a text response with the current status.
+     * <p>
+     * The body is encoded from the string into a pooled buffer in the charset named by the
+     * {@code Content-Type} header, without an intermediate {@code byte[]} copy, and
+     * {@code Content-Length} is the number of bytes written.
+     * Without a {@code Content-Type}, {@code text/plain; charset=UTF-8} is sent; a
+     * {@code text/*} type without a charset gets {@code ; charset=UTF-8} appended.
      * This also closes the exchange.
      *
-     * @param body the response body as plain text
+     * @param body the response text
+     * @throws IllegalStateException if the {@code Content-Type} names an unsupported charset
      */
     @Override
     public void send(String body) {
         try {
-            String method = exchange.getRequestMethod();
-            byte[] bytes = body.getBytes();
+            Charset charset = responseCharset(!body.isEmpty());
+            if (textEncoder == null) {
+                textEncoder = new TextEncoder();
+            }
+            textEncoder.encode(body, charset, buffers);
+            try {
+                writeBody(textEncoder.array(), textEncoder.length());
+            } finally {
+                buffers.release(textEncoder.array());
+                textEncoder.clear();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Resolves the charset for a text body from the response {@code Content-Type},
+     * filling in the header when it is missing or has no charset.
+     *
+     * @param hasBody {@code false} for an empty body, which needs no {@code Content-Type}
+     */
+    private Charset responseCharset(boolean hasBody) {
+        Headers headers = exchange.getResponseHeaders();
+        String contentType = headers.getFirst(HEADER_CONTENT_TYPE);
+        if (contentType == null) {
+            if (hasBody) {
+                headers.put(HEADER_CONTENT_TYPE, TEXT_PLAIN_UTF8);
+            }
+            return UTF_8;
+        }
+        String name = charsetParameter(contentType);
+        if (name == null) {
+            if (contentType.regionMatches(true, 0, "text/", 0, 5)) {
+                headers.set(HEADER_CONTENT_TYPE, contentType + "; charset=" + CHARSET_UTF8);
+            }
+            return UTF_8;
+        }
+        if (name.equalsIgnoreCase(CHARSET_UTF8)) {
+            return UTF_8;
+        }
+        try {
+            return Charset.forName(name);
+        } catch (IllegalArgumentException e) {
+            // A server-side mistake, not a bad request
+            throw new IllegalStateException("Unsupported response charset: " + name, e);
+        }
+    }
+
+    /**
+     * @return the value of the {@code charset} parameter of a media type, without quotes, or {@code null}
+     */
+    private static String charsetParameter(String contentType) {
+        int semicolon = contentType.indexOf(';');
+        while (semicolon >= 0) {
+            int start = semicolon + 1;
+            while (start < contentType.length() && contentType.charAt(start) == ' ') start++;
+            semicolon = contentType.indexOf(';', start);
+            if (contentType.regionMatches(true, start, "charset=", 0, 8)) {
+                int end = semicolon < 0 ? contentType.length() : semicolon;
+                String value = contentType.substring(start + 8, end).trim();
+                if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sends a pre-encoded response, choosing the gzip variant when the client accepts it
+     * and answering {@code 304 Not Modified} when {@code If-None-Match} matches its ETag.
+     * This also closes the exchange.
+     *
+     * @param response the prepared response
+     */
+    @Override
+    public void send(PreparedResponse response) {
+        try {
+            Headers headers = exchange.getResponseHeaders();
+            for (int i = 0; i < response.headerCount(); i++) {
+                headers.put(response.headerName(i), response.headerValue(i));
+            }
+            boolean gzip = response.hasGzip() && acceptsGzip();
+            headers.put(HEADER_ETAG, response.etagValue(gzip));
+            if (response.hasGzip()) {
+                addVary(VARY_ACCEPT_ENCODING);
+            }
+
+            // Only a successful GET or HEAD may be answered with 304; errors keep their bodies
+            if (response.status() / 100 == 2 && isGetOrHead() && response.matches(header(HEADER_IF_NONE_MATCH))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
 
-            // HEAD request => no body
-            if (METHOD_HEAD.equalsIgnoreCase(method)) {
-                exchange.getResponseHeaders().set(HEADER_CONTENT_LENGTH, "0");
-                exchange.sendResponseHeaders(statusCode, 0);
+            if (gzip) {
+                headers.put(HEADER_CONTENT_ENCODING, GZIP);
+            }
+            byte[] body = response.rawBody(gzip);
+
+            if (isHead()) {
+                headers.put(HEADER_CONTENT_LENGTH, response.contentLength(gzip));
+                exchange.sendResponseHeaders(response.status(), -1);
             } else {
-                exchange.sendResponseHeaders(statusCode, bytes.length);
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(bytes);
+                ResponseWriteEvent event = JavelinEvents.begin(ResponseWriteEvent.class, ResponseWriteEvent::new);
+                try {
+                    exchange.sendResponseHeaders(response.status(), body.length == 0 ? -1 : body.length);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(body);
+                    }
+                    bytesSent = body.length;
+                    capture(response.status(), body, body.length);
+                } finally {
+                    commitWrite(event, response.status(), body.length);
                 }
             }
         } catch (IOException e) {
@@ -152,9 +529,72 @@ public class HttpExchangeContext implements Context {
         }
     }
 
+    /**
+     * Checks {@code Accept-Encoding} for gzip: an explicit {@code gzip} entry decides by its
+     * q-value, otherwise a {@code *} entry does. Codings are case-insensitive, whitespace around
+     * parameters is allowed, and {@code q=0} (in any spelling such as {@code 0.000}) refuses.
+     */
+    private boolean acceptsGzip() {
+        String acceptEncoding = header(HEADER_ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        int wildcard = -1;
+        int start = 0;
+        int length = acceptEncoding.length();
+        while (start < length) {
+            int end = acceptEncoding.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int semicolon = acceptEncoding.indexOf(';', start);
+            int codingEnd = semicolon >= 0 && semicolon < end ? semicolon : end;
+            int from = start;
+            int to = codingEnd;
+            while (from < to && acceptEncoding.charAt(from) <= ' ') {
+                from++;
+            }
+            while (to > from && acceptEncoding.charAt(to - 1) <= ' ') {
+                to--;
+            }
+            int codingLength = to - from;
+            if ((codingLength == 4 && acceptEncoding.regionMatches(true, from, "gzip", 0, 4))
+                    || (codingLength == 6 && acceptEncoding.regionMatches(true, from, "x-gzip", 0, 6))) {
+                return acceptable(acceptEncoding, codingEnd, end);
+            }
+            if (codingLength == 1 && acceptEncoding.charAt(from) == '*') {
+                wildcard = acceptable(acceptEncoding, codingEnd, end) ? 1 : 0;
+            }
+            start = end + 1;
+        }
+        return wildcard == 1;
+    }
+
+    /**
+     * @return whether the parameters in {@code value[from, to)} carry no q-value, or a non-zero one
+     */
+    private static boolean acceptable(String value, int from, int to) {
+        if (from == to) {
+            return true;
+        }
+        for (String param : value.substring(from, to).split(";")) {
+            int equals = param.indexOf('=');
+            if (equals > 0 && param.substring(0, equals).trim().equalsIgnoreCase("q")) {
+                try {
+                    return Double.parseDouble(param.substring(equals + 1).trim()) > 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Sends a JSON response with the currently set HTTP status.
      * Sets {@code Content-Type: application/json}.
+     * Types registered in the {@link JsonCodecRegistry} are written by their generated codec;
+     * everything else goes through Jackson.
      * This also closes the exchange.
      *
      * @param data the object to serialize into JSON
@@ -162,11 +602,18 @@ public class HttpExchangeContext implements Context {
     @Override
     public void json(Object data) {
         try {
-            byte[] json = mapper.writeValueAsBytes(data);
-            exchange.getResponseHeaders().set(HEADER_CONTENT_TYPE, APPLICATION_JSON);
-            exchange.sendResponseHeaders(statusCode, json.length);
-            try (OutputStream os = exchange.getResponseBody()) {
-                os.write(json);
+            if (isHead()) {
+                sendHeadersOnly(APPLICATION_JSON);
+                return;
+            }
+            PooledOutput json = new PooledOutput(buffers, RESPONSE_BUFFER_BYTES);
+            try {
+                SerializationEvent event = JavelinEvents.begin(SerializationEvent.class, SerializationEvent::new);
+                codecs.write(data, json);
+                commitSerialization(event, APPLICATION_JSON, data, json.size());
+                sendEncoded(APPLICATION_JSON, json);
+            } finally {
+                json.release();
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -175,6 +622,353 @@ public class HttpExchangeContext implements Context {
         }
     }
 
+    /**
+     * Sends {@code data} as MessagePack if the client prefers it, otherwise as JSON.
+     * Adds {@code Accept} to {@code Vary} since the body depends on that header.
+     * This also closes the exchange.
+     *
+     * @param data the object to serialize
+     */
+    @Override
+    public void respond(Object data) {
+        String messagePackType = negotiateMessagePack();
+        if (messagePackType == null) {
+            addVary(VARY_ACCEPT);
+            json(data);
+            return;
+        }
+        try {
+            addVary(VARY_ACCEPT);
+            if (isHead()) {
+                sendHeadersOnly(messagePackType);
+                return;
+            }
+            PooledOutput out = new PooledOutput(buffers, RESPONSE_BUFFER_BYTES);
+            try {
+                SerializationEvent event = JavelinEvents.begin(SerializationEvent.class, SerializationEvent::new);
+                new MessagePackCodec(codecs.mapper()).write(data, out);
+                commitSerialization(event, messagePackType, data, out.size());
+                sendEncoded(messagePackType, out);
+            } finally {
+                out.release();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Writes a complete body with the current status. For HEAD requests only the headers are
+     * sent, with the {@code Content-Length} the body would have had.
+     */
+    private void writeBody(byte[] bytes, int length) throws IOException {
+        if (tagging && notModified(bytes, length)) {
+            return;
+        }
+        if (isHead()) {
+            exchange.getResponseHeaders().set(HEADER_CONTENT_LENGTH, Integer.toString(length));
+            exchange.sendResponseHeaders(statusCode, -1);
+            return;
+        }
+        ResponseWriteEvent event = JavelinEvents.begin(ResponseWriteEvent.class, ResponseWriteEvent::new);
+        try {
+            // -1 => no body (Content-Length: 0); 0 would mean chunked
+            exchange.sendResponseHeaders(statusCode, length == 0 ? -1 : length);
+            if (length > 0) {
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(bytes, 0, length);
+                }
+                bytesSent = length;
+            }
+            capture(statusCode, bytes, length);
+        } finally {
+            commitWrite(event, statusCode, length);
+        }
+    }
+
+    /**
+     * Answers a HEAD request for a serialized response without serializing it.
+     * The length is unknown, so no {@code Content-Length} is sent.
+     */
+    private void sendHeadersOnly(String contentType) throws IOException {
+        exchange.getResponseHeaders().set(HEADER_CONTENT_TYPE, contentType);
+        exchange.sendResponseHeaders(statusCode, -1);
+    }
+
+    private boolean isGetOrHead() {
+        String method = exchange.getRequestMethod();
+        return METHOD_GET.equalsIgnoreCase(method) || METHOD_HEAD.equalsIgnoreCase(method);
+    }
+
+    private boolean isHead() {
+        return METHOD_HEAD.equalsIgnoreCase(exchange.getRequestMethod());
+    }
+
+    /**
+     * Writes an already encoded body with the given content type and the current status.
+     */
+    private void sendEncoded(String contentType, JsonOutput body) throws IOException {
+        exchange.getResponseHeaders().set(HEADER_CONTENT_TYPE, contentType);
+        if (tagging && notModified(body.array(), body.size())) {
+            return;
+        }
+        ResponseWriteEvent event = JavelinEvents.begin(ResponseWriteEvent.class, ResponseWriteEvent::new);
+        try {
+            exchange.sendResponseHeaders(statusCode, body.size());
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body.array(), 0, body.size());
+            }
+            bytesSent = body.size();
+            capture(statusCode, body.array(), body.size());
+        } finally {
+            commitWrite(event, statusCode, body.size());
+        }
+    }
+
+    /**
+     * Sets the {@code ETag} of a {@code 200} body, if {@link #tagResponse()} asked for one, and
+     * sends {@code 304} instead of the body if the client already has it.
+     *
+     * @return whether the {@code 304} was sent
+     */
+    private boolean notModified(byte[] body, int length) throws IOException {
+        if (statusCode != 200) {
+            return false;
+        }
+        Headers headers = exchange.getResponseHeaders();
+        String etag = headers.getFirst(HEADER_ETAG);
+        if (etag == null) {
+            etag = ETags.of(body, length);
+            headers.set(HEADER_ETAG, etag);
+        }
+        if (!ETags.matches(header(HEADER_IF_NONE_MATCH), etag)) {
+            return false;
+        }
+        exchange.sendResponseHeaders(304, -1);
+        return true;
+    }
+
+    // ========== Flight Recorder ==========
+
+    private void commitSerialization(SerializationEvent event, String contentType, Object data, long bytes) {
+        if (JavelinEvents.end(event)) {
+            event.contentType = contentType;
+            event.type = data == null ? null : data.getClass();
+            event.bytes = bytes;
+            event.route = routePattern();
+            event.commit();
+        }
+    }
+
+    private void commitWrite(ResponseWriteEvent event, int status, long bytes) {
+        if (JavelinEvents.end(event)) {
+            event.status = status;
+            event.bytes = bytes;
+            event.route = routePattern();
+            event.commit();
+        }
+    }
+
+    /**
+     * Copies a response that was just written, if {@link #captureResponse()} asked for it.
+     * The body may be a pooled array, so it is always copied.
+     */
+    private void capture(int status, byte[] body, int length) {
+        if (!capturing) {
+            return;
+        }
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        exchange.getResponseHeaders().forEach((name, values) -> headers.put(name, List.copyOf(values)));
+        captured = new CapturedResponse(status, headers, Arrays.copyOf(body, length));
+    }
+
+    @Override
+    public String routePattern() {
+        return routeMatch != null && routeMatch.route() != null ? routeMatch.route().originalPath : null;
+    }
+
+    /**
+     * Adds a request header name to {@code Vary}, keeping the names a handler or middleware
+     * already listed there, so caches key the response on all of them.
+     *
+     * @param vary a single-element list holding the header name, stored as is when
+     *             {@code Vary} is not set yet
+     */
+    private void addVary(List<String> vary) {
+        Headers headers = exchange.getResponseHeaders();
+        List<String> values = headers.get(HEADER_VARY);
+        if (values == null || values.isEmpty()) {
+            headers.put(HEADER_VARY, vary);
+            return;
+        }
+        String name = vary.get(0);
+        for (String value : values) {
+            for (String token : value.split(",")) {
+                String existing = token.trim();
+                if (existing.equals("*") || existing.equalsIgnoreCase(name)) {
+                    return;
+                }
+            }
+        }
+        headers.put(HEADER_VARY, List.of(String.join(", ", values) + ", " + name));
+    }
+
+    /**
+     * Picks MessagePack when the {@code Accept} header ranks it at least as high as JSON.
+     * JSON is ranked by its most specific range: {@code application/json}, else
+     * {@code application/*}, else {@code *}{@code /*}. Media types and the {@code q} parameter
+     * are case-insensitive, and {@code q} is clamped to [0, 1].
+     *
+     * @return the MessagePack media type to respond with, or {@code null} to respond with JSON
+     */
+    private String negotiateMessagePack() {
+        String accept = header(HEADER_ACCEPT);
+        if (accept == null || !containsIgnoreCase(accept, "msgpack")) {
+            return null;
+        }
+
+        String bestMessagePack = null;
+        double messagePackQ = 0;
+        double jsonQ = -1;
+        double applicationQ = -1;
+        double anyQ = -1;
+        for (String range : accept.split(",")) {
+            String[] params = range.split(";");
+            String mediaType = params[0].trim();
+            double q = 1.0;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i];
+                int eq = param.indexOf('=');
+                if (eq > 0 && param.substring(0, eq).trim().equalsIgnoreCase("q")) {
+                    q = qValue(param.substring(eq + 1).trim());
+                }
+            }
+
+            if (mediaType.equalsIgnoreCase(APPLICATION_MSGPACK) || mediaType.equalsIgnoreCase(APPLICATION_X_MSGPACK)) {
+                if (q > messagePackQ) {
+                    messagePackQ = q;
+                    bestMessagePack = mediaType.equalsIgnoreCase(APPLICATION_MSGPACK) ? APPLICATION_MSGPACK : APPLICATION_X_MSGPACK;
+                }
+            } else if (mediaType.equalsIgnoreCase(APPLICATION_JSON)) {
+                jsonQ = Math.max(jsonQ, q);
+            } else if (mediaType.equalsIgnoreCase("application/*")) {
+                applicationQ = Math.max(applicationQ, q);
+            } else if (mediaType.equals("*/*")) {
+                anyQ = Math.max(anyQ, q);
+            }
+        }
+        double json = jsonQ >= 0 ? jsonQ : applicationQ >= 0 ? applicationQ : Math.max(anyQ, 0);
+        return messagePackQ > 0 && messagePackQ >= json ? bestMessagePack : null;
+    }
+
+    private static double qValue(String value) {
+        try {
+            double q = Double.parseDouble(value);
+            return q >= 0 ? Math.min(q, 1.0) : 0; // NaN is not >= 0
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean containsIgnoreCase(String s, String part) {
+        for (int i = 0; i + part.length() <= s.length(); i++) {
+            if (s.regionMatches(true, i, part, 0, part.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void jsonStream(Stream<?> items) {
+        try (items) {
+            writeJsonStream(items.iterator(), false);
+        }
+    }
+
+    @Override
+    public void jsonStream(Iterator<?> items) {
+        writeJsonStream(items, false);
+    }
+
+    @Override
+    public void ndjsonStream(Stream<?> items) {
+        try (items) {
+            writeJsonStream(items.iterator(), true);
+        }
+    }
+
+    @Override
+    public void ndjsonStream(Iterator<?> items) {
+        writeJsonStream(items, true);
+    }
+
+    /**
+     * Writes elements incrementally as a JSON array or as NDJSON with chunked encoding.
+     * <p>
+     * Only one element plus the pending flush batch is held in memory at a time.
+     * A write failure means the client has gone away, so iteration stops there.
+     * If an element cannot be produced or serialized, the error is logged and the
+     * connection is dropped without the terminating chunk, so the client sees a
+     * truncated response instead of a complete-looking one.
+     *
+     * @param items  the source of elements
+     * @param ndjson {@code true} for newline-delimited JSON, {@code false} for a JSON array
+     */
+    private void writeJsonStream(Iterator<?> items, boolean ndjson) {
+        try {
+            exchange.getResponseHeaders().set(HEADER_CONTENT_TYPE, ndjson ? APPLICATION_NDJSON : APPLICATION_JSON);
+            if (isHead()) {
+                exchange.sendResponseHeaders(statusCode, -1);
+                return;
+            }
+
+            // Installed as the exchange's body so closing the exchange can drop the connection
+            AbortableOutputStream os = new AbortableOutputStream(exchange.getResponseBody());
+            exchange.setStreams(null, os);
+            exchange.sendResponseHeaders(statusCode, 0); // 0 => chunked transfer encoding
+
+            PooledOutput out = new PooledOutput(buffers, STREAM_FLUSH_BYTES + 256);
+            try {
+                if (!ndjson) out.write('[');
+
+                boolean first = true;
+                while (true) {
+                    try {
+                        if (!items.hasNext()) break;
+                        if (!ndjson && !first) out.write(',');
+                        codecs.write(items.next(), out);
+                        if (ndjson) out.write('\n');
+                    } catch (IOException | RuntimeException e) {
+                        log.error("Aborting streamed response for {}: element could not be serialized", path(), e);
+                        os.abort();
+                        return;
+                    }
+                    first = false;
+
+                    if (out.size() >= STREAM_FLUSH_BYTES) {
+                        os.write(out.array(), 0, out.size());
+                        os.flush();
+                        bytesSent += out.size();
+                        out.reset();
+                    }
+                }
+
+                if (!ndjson) out.write(']');
+                os.write(out.array(), 0, out.size());
+                bytesSent += out.size();
+            } finally {
+                out.release();
+            }
+        } catch (IOException e) {
+            // Client disconnected (or never accepted the headers): stop pulling from the source
+        } finally {
+            exchange.close();
+        }
+    }
+
     /**
      * Returns the value of a request header.
      *
@@ -199,7 +993,89 @@ public class HttpExchangeContext implements Context {
     @Override
     public <T> T body(Class<T> clazz) {
         try (InputStream is = exchange.getRequestBody()) {
-            return mapper.readValue(is, clazz);
+            return codecs.read(is, clazz);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to parse request body", e);
+        }
+    }
+
+    /**
+     * Lazily parses a JSON array or NDJSON request body using Jackson's streaming parser.
+     *
+     * @param clazz the element class to deserialize into
+     * @param <T>   the element type
+     * @return a stream of decoded elements; close it to release the request body
+     * @throws RuntimeException if the body cannot be opened for parsing
+     */
+    @Override
+    public <T> Stream<T> bodyStream(Class<T> clazz) {
+        JsonValueIterator<T> values = openBodyValues(clazz);
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(values, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                values.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Parses a JSON array or NDJSON request body and delivers it in fixed-size batches.
+     *
+     * @param clazz     the element class to deserialize into
+     * @param batchSize the maximum number of elements per batch
+     * @param consumer  receives each batch in order
+     * @param <T>       the element type
+     * @throws RuntimeException if the body cannot be parsed
+     */
+    @Override
+    public <T> void bodyStream(Class<T> clazz, int batchSize, Consumer<List<T>> consumer) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        try (JsonValueIterator<T> values = openBodyValues(clazz)) {
+            List<T> batch = new ArrayList<>(batchSize);
+            while (values.hasNext()) {
+                batch.add(values.next());
+                if (batch.size() == batchSize) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                consumer.accept(batch);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Failed to parse request body", e);
+        }
+    }
+
+    private <T> JsonValueIterator<T> openBodyValues(Class<T> clazz) {
+        try {
+            return codecs.readValues(exchange.getRequestBody(), clazz);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to parse request body", e);
+        }
+    }
+
+    /**
+     * Parses the request body as MessagePack or JSON depending on its {@code Content-Type}.
+     *
+     * @param clazz the class to deserialize into
+     * @param <T>   the type of object to return
+     * @return the deserialized object
+     * @throws RuntimeException if the body cannot be parsed
+     */
+    @Override
+    public <T> T read(Class<T> clazz) {
+        String contentType = header(HEADER_CONTENT_TYPE);
+        if (contentType == null || !(contentType.regionMatches(true, 0, APPLICATION_MSGPACK, 0, APPLICATION_MSGPACK.length())
+                || contentType.regionMatches(true, 0, APPLICATION_X_MSGPACK, 0, APPLICATION_X_MSGPACK.length()))) {
+            return body(clazz);
+        }
+        try (InputStream is = exchange.getRequestBody()) {
+            return new MessagePackCodec(codecs.mapper()).read(is, clazz);
         } catch (IOException e) {
             throw new RuntimeException("Failed to parse request body", e);
         }
@@ -209,6 +1085,11 @@ public class HttpExchangeContext implements Context {
 
     @Override
     public void setMiddlewareChain(List<Middleware> chain) {
+        this.middlewareChain = chain.toArray(new Middleware[0]);
+    }
+
+    @Override
+    public void setMiddlewareChain(Middleware[] chain) {
         this.middlewareChain = chain;
     }
 
@@ -225,8 +1106,19 @@ public class HttpExchangeContext implements Context {
     @Override
     public void next() throws Exception {
         currentIndex++;
-        if (middlewareChain != null && currentIndex < middlewareChain.size()) {
-            middlewareChain.get(currentIndex).handle(this);
+        if (middlewareChain != null && currentIndex < middlewareChain.length) {
+            Middleware middleware = middlewareChain[currentIndex];
+            MiddlewareEvent event = JavelinEvents.begin(MiddlewareEvent.class, MiddlewareEvent::new);
+            try {
+                middleware.handle(this);
+            } finally {
+                if (JavelinEvents.end(event)) {
+                    event.middleware = middleware.getClass().getName();
+                    event.route = routePattern();
+                    event.status = exchange.getResponseCode();
+                    event.commit();
+                }
+            }
         } else if (finalHandler != null) {
             finalHandler.run();
         }
@@ -241,18 +1133,43 @@ public class HttpExchangeContext implements Context {
     @Override
     public void sendBytes(byte[] data) {
         try {
-            String method = exchange.getRequestMethod();
-            if (METHOD_HEAD.equalsIgnoreCase(method)) {
-                exchange.getResponseHeaders().set(HEADER_CONTENT_LENGTH, "0");
-                exchange.sendResponseHeaders(statusCode, 0);
-            } else {
-                exchange.sendResponseHeaders(statusCode, data.length);
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(data);
+            writeBody(data, data.length);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void sendFile(Path file) {
+        InputStream in;
+        long length;
+        try {
+            in = Files.newInputStream(file);
+            length = Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + file, e);
+        }
+        try (in) {
+            if (isHead()) {
+                exchange.getResponseHeaders().set(HEADER_CONTENT_LENGTH, Long.toString(length));
+                exchange.sendResponseHeaders(statusCode, -1);
+                return;
+            }
+            ResponseWriteEvent event = JavelinEvents.begin(ResponseWriteEvent.class, ResponseWriteEvent::new);
+            try {
+                exchange.sendResponseHeaders(statusCode, length == 0 ? -1 : length);
+                if (length > 0) {
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        bytesSent = in.transferTo(os);
+                    }
                 }
+            } finally {
+                commitWrite(event, statusCode, bytesSent);
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            // Client disconnected mid-transfer
         } finally {
             exchange.close();
         }
@@ -269,65 +1186,39 @@ public class HttpExchangeContext implements Context {
      */
     @Override
     public String formParam(String key) {
-        if (formParams == null) {
-            formParams = parseFormParams();
-        }
-        return formParams.get(key);
+        return form().get(key);
     }
 
-    // ========== Internal Helpers ==========
-
-    /**
-     * Parses a query string (or URL-encoded form body) into a map of key-value pairs.
-     * <p>
-     * Keys and values are automatically URL-decoded using UTF-8.
-     *
-     * @param rawQuery the raw query string (e.g. {@code "id=1&name=test"})
-     * @return a map of parsed parameters
-     */
-    private Map<String, String> parseQueryParams(String rawQuery) {
-        Map<String, String> result = new HashMap<>();
-        if (rawQuery == null || rawQuery.isEmpty()) return result;
-
-        for (String pair : rawQuery.split("&")) {
-            String[] parts = pair.split("=", 2);
-            String name = decode(parts[0]);
-            String value = parts.length > 1 ? decode(parts[1]) : "";
-            result.put(name, value);
-        }
-        return result;
+    @Override
+    public List<String> formParams(String key) {
+        return form().getAll(key);
     }
 
-    /**
-     * Safely decodes a URL-encoded string using UTF-8.
-     *
-     * @param value the encoded string
-     * @return the decoded string
-     */
-    private String decode(String value) {
-        try {
-            return java.net.URLDecoder.decode(value, UTF_8);
-        } catch (Exception e) {
-            return value;
+    private UrlEncodedParams form() {
+        if (formParams == null) {
+            formParams = parseFormParams();
         }
+        return formParams;
     }
 
+    // ========== Internal Helpers ==========
+
     /**
      * Parses form-encoded parameters from the request body.
      * <p>
      * This applies only to {@code application/x-www-form-urlencoded} requests.
      *
-     * @return a map of form parameter names and values, or an empty map if not applicable
+     * @return the form parameters, or empty parameters if not applicable
      */
-    private Map<String, String> parseFormParams() {
-        if (!"application/x-www-form-urlencoded".equalsIgnoreCase(header("Content-Type"))) {
-            return Map.of();
+    private UrlEncodedParams parseFormParams() {
+        String contentType = header(HEADER_CONTENT_TYPE);
+        if (contentType == null || !contentType.regionMatches(true, 0, APPLICATION_FORM_URLENCODED, 0, APPLICATION_FORM_URLENCODED.length())) {
+            return new UrlEncodedParams(null);
         }
         try (InputStream is = exchange.getRequestBody()) {
-            String body = new String(is.readAllBytes(), UTF_8);
-            return parseQueryParams(body);
+            return new UrlEncodedParams(readBody(is, UTF_8));
         } catch (IOException e) {
-            return Map.of();
+            return new UrlEncodedParams(null);
         }
     }
 
@@ -425,8 +1316,7 @@ public class HttpExchangeContext implements Context {
         String finalBoundary = boundary + "--";
 
         try (InputStream is = exchange.getRequestBody()) {
-            byte[] raw = is.readAllBytes();
-            String body = new String(raw, StandardCharsets.ISO_8859_1); // binary-safe encoding
+            String body = readBody(is, ISO_8859_1); // binary-safe encoding
 
             DefaultMultipartForm form = new DefaultMultipartForm();
             String[] parts = body.split(boundary + "\r\n");
@@ -443,6 +1333,30 @@ public class HttpExchangeContext implements Context {
         }
     }
 
+    /**
+     * Reads the whole request body into pooled buffers and decodes it, so the only
+     * allocation left is the resulting string.
+     */
+    private String readBody(InputStream is, Charset charset) throws IOException {
+        byte[] buffer = buffers.acquire(RESPONSE_BUFFER_BYTES);
+        try {
+            int length = 0;
+            int read;
+            while ((read = is.read(buffer, length, buffer.length - length)) != -1) {
+                length += read;
+                if (length == buffer.length) {
+                    byte[] larger = buffers.acquire(buffer.length << 1);
+                    System.arraycopy(buffer, 0, larger, 0, length);
+                    buffers.release(buffer);
+                    buffer = larger;
+                }
+            }
+            return new String(buffer, 0, length, charset);
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
     /**
      * Returns the HTTP method of the current request.
      *
@@ -517,4 +1431,45 @@ public class HttpExchangeContext implements Context {
         }
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * A response body that can be closed without completing the response. The JDK server
+     * drops the connection when closing the exchange's body fails, so after {@link #abort()}
+     * {@link #close()} throws instead of writing the terminating chunk.
+     */
+    private static final class AbortableOutputStream extends OutputStream {
+        private final OutputStream body;
+        private boolean aborted;
+
+        AbortableOutputStream(OutputStream body) {
+            this.body = body;
+        }
+
+        void abort() {
+            aborted = true;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            body.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            body.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            body.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (aborted) {
+                throw new IOException("Response aborted");
+            }
+            body.close();
+        }
+    }
+}
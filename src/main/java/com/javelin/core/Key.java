@@ -0,0 +1,67 @@
+package com.javelin.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A typed key for request attributes, used by middleware to hand values to handlers.
+ * <p>
+ * Every key is assigned its own array slot when it is created, so
+ * {@link Context#attr(Key)} and {@link Context#attr(Key, Object)} are plain array
+ * accesses with no hashing. Keys are meant to be created once and kept in constants:
+ * <pre>{@code
+ * static final Key<User> USER = Key.of("user");
+ *
+ * server.use(ctx -> {
+ *     ctx.attr(USER, tokens.decode(ctx.header("Authorization")));
+ *     ctx.next();
+ * });
+ * server.get("/me", ctx -> ctx.json(ctx.attr(USER)));
+ * }</pre>
+ *
+ * @param <T> the type of value stored under this key
+ */
+public final class Key<T> {
+
+    private static final AtomicInteger SLOTS = new AtomicInteger();
+
+    private final String name;
+    private final int slot;
+
+    private Key(String name, int slot) {
+        this.name = name;
+        this.slot = slot;
+    }
+
+    /**
+     * Creates a new key with the next free slot. Two keys with the same name are still
+     * distinct keys.
+     *
+     * @param name a descriptive name, used only for debugging
+     * @return the new key
+     */
+    public static <T> Key<T> of(String name) {
+        return new Key<>(name, SLOTS.getAndIncrement());
+    }
+
+    public String name() {
+        return name;
+    }
+
+    // ========== Used by HttpExchangeContext ==========
+
+    int slot() {
+        return slot;
+    }
+
+    /**
+     * @return the number of slots allocated so far, i.e. the array size that fits every key
+     */
+    static int slotCount() {
+        return SLOTS.get();
+    }
+
+    @Override
+    public String toString() {
+        return "Key[" + name + "]";
+    }
+}
@@ -0,0 +1,585 @@
+package com.javelin.core;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A bounded, concurrent in-memory cache for handlers, with W-TinyLFU eviction, an optional
+ * time-to-live and deduplicated loading.
+ * <p>
+ * The cache holds entries up to a maximum total weight: by default every entry weighs one, so
+ * the bound is a number of entries, or a weigher can charge e.g. bytes. New entries enter a
+ * small LRU window (1% of the weight), which absorbs bursts of recent keys. Entries leaving the
+ * window compete with the main area's least recently used entry, and only the one a
+ * {@link FrequencySketch} says is requested more often stays. The main area is split into a
+ * probation and a protected segment, and entries are promoted to protected when hit again.
+ * This keeps the popular working set through scans of one-off keys that would flush an LRU
+ * cache.
+ * <p>
+ * Reads never lock: a lookup is a {@link ConcurrentHashMap} read, and the hit is recorded in
+ * a lossy buffer striped by thread, which is applied to the eviction policy in batches. Writes
+ * and evictions take a lock, which parks rather than pins a virtual thread.
+ * {@link #get(Object, Function)} and {@link #getAsync} load a missing value once, however
+ * many requests ask for it at the same time.
+ *
+ * Example:
+ * <pre>
+ *     LocalCache&lt;Long, User&gt; users = server.cache("users", new LocalCache&lt;&gt;(10_000, Duration.ofMinutes(5)));
+ *     server.get("/users/{id}", ctx -&gt; ctx.json(users.get(ctx.pathLong("id"), userRepository::find)));
+ * </pre>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class LocalCache<K, V> {
+
+    private static final int WINDOW = 1;
+    private static final int PROBATION = 2;
+    private static final int PROTECTED = 3;
+
+    private static final int READ_BUFFER_SIZE = 16;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final long expireNanos;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+
+    private final Map<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final Map<K, Load<V>> loading = new ConcurrentHashMap<>();
+    private final ReadBuffer[] readBuffers;
+    private final int readBufferMask;
+
+    // Eviction policy, guarded by evictionLock
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessQueue<K, V> window = new AccessQueue<>();
+    private final AccessQueue<K, V> probation = new AccessQueue<>();
+    private final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+    private Node<K, V> writeHead;
+    private Node<K, V> writeTail;
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static final class Node<K, V> {
+        final K key;
+        final int hash;
+        volatile V value;
+        volatile long writtenAt;
+        int weight;                  // guarded by evictionLock
+        int queue;                   // guarded by evictionLock; 0 once removed
+        Node<K, V> prev, next;       // access order within the queue
+        Node<K, V> writePrev, writeNext;
+
+        Node(K key, int hash, V value, int weight, long writtenAt) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.weight = weight;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    /**
+     * A running load, which remembers its thread so a loader that asks for its own key fails
+     * instead of waiting for itself.
+     */
+    private static final class Load<V> extends CompletableFuture<V> {
+        volatile Thread thread;
+    }
+
+    /**
+     * A doubly linked LRU list: the head is the least recently used entry.
+     */
+    private static final class AccessQueue<K, V> {
+        Node<K, V> head, tail;
+        long weight;
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = node.next = null;
+            weight -= node.weight;
+        }
+
+        void moveToTail(Node<K, V> node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    /**
+     * Hits recorded by one stripe of threads, applied to the policy by whichever thread fills it.
+     * Lossy by design: hits arriving while a full buffer waits to be drained are dropped, which
+     * only makes the recency and frequency estimates slightly coarser.
+     */
+    private static final class ReadBuffer {
+        final AtomicReferenceArray<Node<?, ?>> nodes = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        final AtomicInteger count = new AtomicInteger();
+    }
+
+    /**
+     * Creates a cache of up to {@code maximumSize} entries that never expire.
+     *
+     * @param maximumSize the maximum number of entries
+     */
+    public LocalCache(long maximumSize) {
+        this(maximumSize, Duration.ZERO, null);
+    }
+
+    /**
+     * Creates a cache of up to {@code maximumSize} entries that expire {@code expireAfterWrite}
+     * after they were stored.
+     *
+     * @param maximumSize      the maximum number of entries
+     * @param expireAfterWrite how long an entry is served after it was stored; zero for no limit
+     */
+    public LocalCache(long maximumSize, Duration expireAfterWrite) {
+        this(maximumSize, expireAfterWrite, null);
+    }
+
+    /**
+     * Creates a cache of up to {@code maximumWeight}, where each entry weighs what
+     * {@code weigher} returns when it is stored.
+     *
+     * @param maximumWeight    the maximum total weight of the entries
+     * @param expireAfterWrite how long an entry is served after it was stored; zero for no limit
+     * @param weigher          returns the non-negative weight of an entry, or {@code null} to weigh each entry 1
+     */
+    public LocalCache(long maximumWeight, Duration expireAfterWrite, ToIntBiFunction<? super K, ? super V> weigher) {
+        if (maximumWeight <= 0 || expireAfterWrite.isNegative()) {
+            throw new IllegalArgumentException("maximumWeight must be positive and expireAfterWrite not negative");
+        }
+        this.maximumWeight = maximumWeight;
+        this.windowMaximum = Math.max(1, maximumWeight / 100);
+        this.protectedMaximum = (maximumWeight - windowMaximum) * 8 / 10;
+        this.expireNanos = expireAfterWrite.toNanos();
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, weigher == null ? maximumWeight : 1 << 16));
+        int stripes = Integer.highestOneBit(Math.max(4, Runtime.getRuntime().availableProcessors() * 2) - 1) << 1;
+        this.readBuffers = new ReadBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+        this.readBufferMask = stripes - 1;
+    }
+
+    // ========== Reads ==========
+
+    /**
+     * Returns the value cached for {@code key}, without locking.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if absent or expired
+     */
+    public V getIfPresent(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null || isExpired(node, System.nanoTime())) {
+            misses.increment();
+            // Counted here so a key that keeps missing can win admission once loaded
+            sketch.increment(spread(key.hashCode()));
+            return null;
+        }
+        hits.increment();
+        recordHit(node);
+        return node.value;
+    }
+
+    /**
+     * Returns the value cached for {@code key}, loading and storing it on a miss. Concurrent
+     * calls for a missing key run {@code loader} once; the others wait for its result.
+     *
+     * @param key    the key
+     * @param loader computes the value on a miss; a {@code null} result is returned but not cached
+     * @return the cached or loaded value
+     * @throws IllegalStateException if {@code loader} calls this method for its own key
+     * @throws RuntimeException      whatever {@code loader} throws, in this or a concurrent call
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        Load<V> load = new Load<>();
+        load.thread = Thread.currentThread();
+        Load<V> running = loading.putIfAbsent(key, load);
+        if (running == null) {
+            return load(key, loader, load);
+        }
+        if (running.thread == Thread.currentThread()) {
+            throw new IllegalStateException("Recursive load of key " + key);
+        }
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the value cached for {@code key}, or starts loading it on a new virtual thread.
+     * Concurrent calls for a missing key share one load.
+     *
+     * @param key    the key
+     * @param loader computes the value on a miss; a {@code null} result is not cached
+     * @return a future of the cached or loaded value, failed with whatever {@code loader} throws,
+     *         or with {@link IllegalStateException} if {@code loader} asks for its own key
+     */
+    public CompletableFuture<V> getAsync(K key, Function<? super K, ? extends V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+        Load<V> load = new Load<>();
+        Load<V> running = loading.putIfAbsent(key, load);
+        if (running != null) {
+            return running.thread == Thread.currentThread()
+                    ? CompletableFuture.failedFuture(new IllegalStateException("Recursive load of key " + key))
+                    : running;
+        }
+        Thread.startVirtualThread(() -> {
+            load.thread = Thread.currentThread();
+            try {
+                load(key, loader, load);
+            } catch (RuntimeException | Error e) {
+                // Delivered through the future
+            }
+        });
+        return load;
+    }
+
+    private V load(K key, Function<? super K, ? extends V> loader, Load<V> load) {
+        // A load that finished after this call missed has stored its value and left the map
+        Node<K, V> node = data.get(key);
+        if (node != null && !isExpired(node, System.nanoTime())) {
+            V present = node.value;
+            loading.remove(key, load);
+            load.complete(present);
+            return present;
+        }
+        V value;
+        try {
+            value = loader.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            loading.remove(key, load);
+            load.completeExceptionally(e);
+            throw e;
+        }
+        loads.increment();
+        // Stored before the load is removed, so a call that misses before the removal finds
+        // either this load or, once it registers its own, the stored value above
+        loading.remove(key, load);
+        load.complete(value);
+        return value;
+    }
+
+    // ========== Writes ==========
+
+    /**
+     * Stores a value, replacing any previous one. An entry heavier than the whole cache is not stored.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void put(K key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value must not be null");
+        }
+        int entryWeight = weigher == null ? 1 : weigher.applyAsInt(key, value);
+        if (entryWeight < 0) {
+            throw new IllegalArgumentException("negative weight: " + entryWeight);
+        }
+        long now = System.nanoTime();
+        int hash = spread(key.hashCode());
+        evictionLock.lock();
+        try {
+            drainReadBuffersLocked();
+            sketch.increment(hash);
+            Node<K, V> node = data.get(key);
+            if (entryWeight > maximumWeight) {
+                if (node != null) {
+                    removeLocked(node);
+                }
+                evictions.increment();
+                return;
+            }
+            if (node != null) {
+                node.value = value;
+                node.writtenAt = now;
+                queueOf(node).weight += entryWeight - node.weight;
+                weight += entryWeight - node.weight;
+                node.weight = entryWeight;
+                onHitLocked(node);
+                unlinkWrite(node);
+                linkWrite(node);
+            } else {
+                node = new Node<>(key, hash, value, entryWeight, now);
+                data.put(key, node);
+                node.queue = WINDOW;
+                window.addLast(node);
+                linkWrite(node);
+                weight += entryWeight;
+            }
+            maintainLocked(now);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the entry for {@code key}, if any.
+     *
+     * @param key the key
+     */
+    public void invalidate(K key) {
+        evictionLock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                removeLocked(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void invalidateAll() {
+        evictionLock.lock();
+        try {
+            drainReadBuffersLocked();
+            while (writeHead != null) {
+                removeLocked(writeHead);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Applies pending hits to the eviction policy and removes expired entries. This happens as
+     * the cache is used; calling it is only needed to see an up-to-date {@link #stats()}.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            drainReadBuffersLocked();
+            maintainLocked(System.nanoTime());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * @return hit, miss, load and eviction counters and the current size
+     */
+    public LocalCacheStats stats() {
+        evictionLock.lock();
+        try {
+            return new LocalCacheStats(hits.sum(), misses.sum(), loads.sum(), loadFailures.sum(),
+                    evictions.sum(), data.size(), weight);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of entries, including expired ones not yet removed
+     */
+    public int size() {
+        return data.size();
+    }
+
+    // ========== Read Buffers ==========
+
+    private void recordHit(Node<K, V> node) {
+        ReadBuffer buffer = readBuffers[(int) Thread.currentThread().threadId() & readBufferMask];
+        int index = buffer.count.getAndIncrement();
+        if (index < READ_BUFFER_SIZE) {
+            buffer.nodes.lazySet(index, node);
+        }
+        // The thread that fills the buffer drains it; if the lock is busy, a later one retries
+        if ((index & READ_BUFFER_MASK) == READ_BUFFER_MASK && evictionLock.tryLock()) {
+            try {
+                drainReadBuffersLocked();
+                maintainLocked(System.nanoTime());
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drainReadBuffersLocked() {
+        for (ReadBuffer buffer : readBuffers) {
+            if (buffer.count.get() == 0) {
+                continue;
+            }
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+                Node<K, V> node = (Node<K, V>) buffer.nodes.getAndSet(i, null);
+                if (node != null && node.queue != 0) {
+                    sketch.increment(node.hash);
+                    onHitLocked(node);
+                }
+            }
+            buffer.count.set(0);
+        }
+    }
+
+    // ========== Eviction Policy ==========
+
+    /**
+     * Moves a hit entry to the back of its queue, promoting it from probation to protected.
+     */
+    private void onHitLocked(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW -> window.moveToTail(node);
+            case PROTECTED -> protectedQueue.moveToTail(node);
+            case PROBATION -> {
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedQueue.addLast(node);
+                // Overflow is demoted back to probation, most stale first
+                while (protectedQueue.weight > protectedMaximum && protectedQueue.head != node) {
+                    Node<K, V> demoted = protectedQueue.head;
+                    protectedQueue.remove(demoted);
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private void maintainLocked(long now) {
+        if (expireNanos > 0) {
+            while (writeHead != null && now - writeHead.writtenAt - expireNanos >= 0) {
+                removeLocked(writeHead);
+                evictions.increment();
+            }
+        }
+        // Entries leaving the window join probation as candidates for the main area
+        while (window.weight > windowMaximum && window.head != null) {
+            Node<K, V> candidate = window.head;
+            window.remove(candidate);
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+        }
+        while (weight > maximumWeight) {
+            if (probation.head == null) {
+                Node<K, V> demoted = protectedQueue.head != null ? protectedQueue.head : window.head;
+                queueOf(demoted).remove(demoted);
+                demoted.queue = PROBATION;
+                probation.addLast(demoted);
+            }
+            // The newest candidate against the least recently used entry: the less frequent one goes
+            Node<K, V> victim = probation.head;
+            Node<K, V> candidate = probation.tail;
+            Node<K, V> evicted = victim == candidate || sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)
+                    ? victim : candidate;
+            removeLocked(evicted);
+            evictions.increment();
+        }
+    }
+
+    private void removeLocked(Node<K, V> node) {
+        if (node.queue == 0) {
+            return;
+        }
+        data.remove(node.key, node);
+        queueOf(node).remove(node);
+        unlinkWrite(node);
+        weight -= node.weight;
+        node.queue = 0;
+    }
+
+    private AccessQueue<K, V> queueOf(Node<K, V> node) {
+        return switch (node.queue) {
+            case WINDOW -> window;
+            case PROBATION -> probation;
+            default -> protectedQueue;
+        };
+    }
+
+    private void linkWrite(Node<K, V> node) {
+        node.writePrev = writeTail;
+        node.writeNext = null;
+        if (writeTail == null) {
+            writeHead = node;
+        } else {
+            writeTail.writeNext = node;
+        }
+        writeTail = node;
+    }
+
+    private void unlinkWrite(Node<K, V> node) {
+        if (node.writePrev == null) {
+            writeHead = node.writeNext;
+        } else {
+            node.writePrev.writeNext = node.writeNext;
+        }
+        if (node.writeNext == null) {
+            writeTail = node.writePrev;
+        } else {
+            node.writeNext.writePrev = node.writePrev;
+        }
+        node.writePrev = node.writeNext = null;
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return expireNanos > 0 && now - node.writtenAt - expireNanos >= 0;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,24 @@
+package com.javelin.core;
+
+/**
+ * A point-in-time snapshot of a {@link LocalCache}.
+ *
+ * @param hits         lookups that found a live entry
+ * @param misses       lookups that found no entry, or an expired one
+ * @param loads        values computed by a loader
+ * @param loadFailures loaders that threw
+ * @param evictions    entries removed for size or because they expired
+ * @param entries      entries currently cached, including expired ones not yet removed
+ * @param weight       the total weight of the cached entries
+ */
+public record LocalCacheStats(long hits, long misses, long loads, long loadFailures, long evictions,
+                              int entries, long weight) {
+
+    /**
+     * @return the fraction of lookups that found a live entry, or 0 if there were none
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
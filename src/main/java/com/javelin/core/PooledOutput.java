@@ -0,0 +1,30 @@
+package com.javelin.core;
+
+import com.javelin.core.json.JsonOutput;
+
+/**
+ * A {@link JsonOutput} whose backing arrays are borrowed from a {@link BufferPool}.
+ * Growing swaps in a larger pooled array and returns the old one; {@link #release()}
+ * returns the current array once the output has been written.
+ */
+final class PooledOutput extends JsonOutput {
+
+    private final BufferPool pool;
+
+    PooledOutput(BufferPool pool, int initialCapacity) {
+        super(pool.acquire(initialCapacity));
+        this.pool = pool;
+    }
+
+    @Override
+    protected byte[] grow(byte[] old, int count, int minCapacity) {
+        byte[] larger = pool.acquire(Math.max(old.length << 1, minCapacity));
+        System.arraycopy(old, 0, larger, 0, count);
+        pool.release(old);
+        return larger;
+    }
+
+    void release() {
+        pool.release(array());
+    }
+}
@@ -0,0 +1,249 @@
+package com.javelin.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static com.javelin.constants.HttpConstants.*;
+
+/**
+ * An immutable, fully encoded HTTP response for endpoints that always return the same bytes.
+ * <p>
+ * Everything that would otherwise be recomputed per request is done once at construction:
+ * the body is encoded to bytes, a gzip variant is compressed (when it is worth it), a strong
+ * {@code ETag} is derived from the content, and every header value is stored as a ready-made
+ * list for {@link com.sun.net.httpserver.Headers}. Sending it with {@link Context#send(PreparedResponse)}
+ * only copies references and writes the bytes.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * PreparedResponse health = PreparedResponse.json(200, Map.of("status", "UP"));
+ * server.get("/health", ctx -> ctx.send(health));
+ * }</pre>
+ */
+public final class PreparedResponse {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    // Bodies smaller than this are not worth a gzip round trip
+    private static final int MIN_GZIP_LENGTH = 256;
+
+    /** The plain-text {@code 404 Not Found} response used by the server and static file handler. */
+    public static final PreparedResponse NOT_FOUND = text(404, MESSAGE_NOT_FOUND);
+
+    /** The plain-text {@code 405 Method Not Allowed} response; the server adds the path's {@code Allow} header. */
+    public static final PreparedResponse METHOD_NOT_ALLOWED = text(405, MESSAGE_METHOD_NOT_ALLOWED);
+
+    private final int status;
+    private final String[] headerNames;
+    private final List<String>[] headerValues;
+    private final byte[] body;
+    private final byte[] gzipBody;
+    private final String etag;
+    private final List<String> etagValue;
+    private final List<String> gzipEtagValue;
+    private final List<String> contentLength;
+    private final List<String> gzipContentLength;
+
+    private PreparedResponse(int status, String[] headerNames, List<String>[] headerValues, byte[] body, byte[] gzipBody) {
+        this.status = status;
+        this.headerNames = headerNames;
+        this.headerValues = headerValues;
+        this.body = body;
+        this.gzipBody = gzipBody;
+        this.etag = computeEtag(body);
+        this.etagValue = List.of(etag);
+        // A compressed representation needs its own strong validator
+        this.gzipEtagValue = List.of(etag.substring(0, etag.length() - 1) + "-gzip\"");
+        this.contentLength = List.of(Integer.toString(body.length));
+        this.gzipContentLength = gzipBody == null ? null : List.of(Integer.toString(gzipBody.length));
+    }
+
+    // ========== Factories ==========
+
+    /**
+     * Creates a prepared response from raw bytes.
+     *
+     * @param status      the HTTP status code
+     * @param contentType the {@code Content-Type} header value
+     * @param body        the response body (copied)
+     * @return the prepared response
+     */
+    public static PreparedResponse of(int status, String contentType, byte[] body) {
+        byte[] copy = body.clone();
+        return new PreparedResponse(status,
+                new String[]{HEADER_CONTENT_TYPE},
+                headerValues(List.of(contentType)),
+                copy,
+                isCompressible(contentType) ? gzip(copy) : null);
+    }
+
+    /**
+     * Creates a {@code text/plain; charset=UTF-8} response.
+     *
+     * @param status the HTTP status code
+     * @param body   the response text
+     * @return the prepared response
+     */
+    public static PreparedResponse text(int status, String body) {
+        return of(status, TEXT_PLAIN + "; charset=" + CHARSET_UTF8, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a {@code text/html; charset=UTF-8} response.
+     *
+     * @param status the HTTP status code
+     * @param html   the HTML document
+     * @return the prepared response
+     */
+    public static PreparedResponse html(int status, String html) {
+        return of(status, TEXT_HTML + "; charset=" + CHARSET_UTF8, html.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates an {@code application/json} response by serializing {@code value} once.
+     *
+     * @param status the HTTP status code
+     * @param value  the object to serialize
+     * @return the prepared response
+     * @throws IllegalArgumentException if the value cannot be serialized
+     */
+    public static PreparedResponse json(int status, Object value) {
+        try {
+            return of(status, APPLICATION_JSON, mapper.writeValueAsBytes(value));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize prepared JSON body", e);
+        }
+    }
+
+    /**
+     * Returns a copy of this response with an additional (or replaced) header.
+     *
+     * @param name  the header name
+     * @param value the header value
+     * @return a new prepared response
+     */
+    public PreparedResponse withHeader(String name, String value) {
+        int index = indexOf(name);
+        String[] names = index < 0 ? Arrays.copyOf(headerNames, headerNames.length + 1) : headerNames.clone();
+        List<String>[] values = index < 0 ? Arrays.copyOf(headerValues, headerValues.length + 1) : headerValues.clone();
+        int slot = index < 0 ? headerNames.length : index;
+        names[slot] = name;
+        values[slot] = List.of(value);
+
+        byte[] gzipped = gzipBody;
+        if (HEADER_CONTENT_TYPE.equalsIgnoreCase(name)) {
+            gzipped = isCompressible(value) ? gzip(body) : null;
+        }
+        return new PreparedResponse(status, names, values, body, gzipped);
+    }
+
+    // ========== Accessors ==========
+
+    public int status() {
+        return status;
+    }
+
+    /**
+     * @return the strong entity tag of the uncompressed body, including quotes
+     */
+    public String etag() {
+        return etag;
+    }
+
+    /**
+     * @return a copy of the uncompressed body
+     */
+    public byte[] body() {
+        return body.clone();
+    }
+
+    // ========== Used by HttpExchangeContext ==========
+
+    int headerCount() {
+        return headerNames.length;
+    }
+
+    String headerName(int i) {
+        return headerNames[i];
+    }
+
+    List<String> headerValue(int i) {
+        return headerValues[i];
+    }
+
+    List<String> etagValue(boolean gzip) {
+        return gzip ? gzipEtagValue : etagValue;
+    }
+
+    /**
+     * Checks an {@code If-None-Match} request header against this response's ETags.
+     * Either representation's tag matches, since both describe the same content.
+     */
+    boolean matches(String ifNoneMatch) {
+        return ETags.matches(ifNoneMatch, etag) || ETags.matches(ifNoneMatch, gzipEtagValue.get(0));
+    }
+
+    boolean hasGzip() {
+        return gzipBody != null;
+    }
+
+    byte[] rawBody(boolean gzip) {
+        return gzip ? gzipBody : body;
+    }
+
+    List<String> contentLength(boolean gzip) {
+        return gzip ? gzipContentLength : contentLength;
+    }
+
+    // ========== Internal Helpers ==========
+
+    @SuppressWarnings("unchecked")
+    private static List<String>[] headerValues(List<String> value) {
+        List<String>[] values = (List<String>[]) new List<?>[1];
+        values[0] = value;
+        return values;
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < headerNames.length; i++) {
+            if (headerNames[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isCompressible(String contentType) {
+        String type = contentType.toLowerCase();
+        return type.startsWith("text/") || type.contains("json") || type.contains("javascript")
+                || type.contains("xml") || type.contains("svg");
+    }
+
+    /**
+     * @return the gzip-compressed body, or {@code null} if compression would not make it smaller
+     */
+    private static byte[] gzip(byte[] body) {
+        if (body.length < MIN_GZIP_LENGTH) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] compressed = out.toByteArray();
+        return compressed.length < body.length ? compressed : null;
+    }
+
+    private static String computeEtag(byte[] body) {
+        return ETags.of(body, body.length);
+    }
+}
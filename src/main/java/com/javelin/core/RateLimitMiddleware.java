@@ -0,0 +1,201 @@
+package com.javelin.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static com.javelin.constants.HttpConstants.HEADER_RETRY_AFTER;
+import static com.javelin.constants.HttpConstants.MESSAGE_TOO_MANY_REQUESTS;
+
+/**
+ * Middleware that limits each client, or any other key, to a token-bucket rate.
+ * <p>
+ * Every key has a bucket of {@code capacity} permits that refills at {@code permitsPerSecond}.
+ * A request that finds its bucket empty is answered with a pre-encoded {@code 429 Too Many
+ * Requests} and a {@code Retry-After} header giving the seconds until a permit is available.
+ * <p>
+ * A bucket is a single {@code long} updated by compare-and-set: the time at which it will be
+ * full again (the generic cell rate algorithm, which behaves exactly like a token bucket). A
+ * check never locks, so it never pins a virtual thread, and buckets live in sharded maps so
+ * concurrent checks on different keys do not contend. A bucket that has refilled completely is
+ * indistinguishable from a new one, so such idle keys are evicted by a periodic sweep of each
+ * shard, run by whichever request finds the shard due.
+ *
+ * Example:
+ * <pre>
+ *     // 100 requests per second per client IP, in bursts of up to 20
+ *     server.use(new RateLimitMiddleware(20, 100));
+ *
+ *     // per API key; requests without one are not limited
+ *     server.use(new RateLimitMiddleware(1000, 50, ctx -&gt; ctx.header("X-API-Key")));
+ * </pre>
+ */
+public final class RateLimitMiddleware implements Middleware {
+
+    private static final PreparedResponse TOO_MANY_REQUESTS = PreparedResponse.text(429, MESSAGE_TOO_MANY_REQUESTS);
+
+    // A bucket being evicted; a check that finds it looks the key up again
+    private static final long EVICTED = Long.MIN_VALUE;
+    private static final long SWEEP_INTERVAL_NANOS = 10_000_000_000L;
+
+    // Retry-After values up to a minute, so a rejection does not format a number
+    private static final String[] RETRY_AFTER = new String[61];
+
+    static {
+        for (int i = 0; i < RETRY_AFTER.length; i++) {
+            RETRY_AFTER[i] = Integer.toString(i);
+        }
+    }
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final Function<Context, String> keyExtractor;
+    private final Shard[] shards;
+    private final int shardMask;
+
+    private static final class Shard {
+        final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        final AtomicLong nextSweep = new AtomicLong(System.nanoTime() + SWEEP_INTERVAL_NANOS);
+    }
+
+    /**
+     * Limits each client IP ({@link Context#remoteIp()}).
+     *
+     * @param capacity         the largest burst a client may send
+     * @param permitsPerSecond the sustained rate a client may send
+     */
+    public RateLimitMiddleware(int capacity, double permitsPerSecond) {
+        this(capacity, permitsPerSecond, Context::remoteIp);
+    }
+
+    /**
+     * Limits each key returned by {@code keyExtractor}; requests for which it returns
+     * {@code null} are not limited.
+     *
+     * @param capacity         the largest burst a key may send
+     * @param permitsPerSecond the sustained rate a key may send
+     * @param keyExtractor     derives the key to limit from the request
+     */
+    public RateLimitMiddleware(int capacity, double permitsPerSecond, Function<Context, String> keyExtractor) {
+        if (capacity <= 0 || !(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("capacity and permitsPerSecond must be positive");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        // Saturated for absurdly slow rates, which would otherwise overflow
+        this.toleranceNanos = capacity - 1 > Long.MAX_VALUE / 4 / intervalNanos
+                ? Long.MAX_VALUE / 4 : (capacity - 1) * intervalNanos;
+        this.keyExtractor = keyExtractor;
+        int count = Integer.highestOneBit(Math.max(16, Runtime.getRuntime().availableProcessors() * 4) - 1) << 1;
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard();
+        }
+        this.shardMask = count - 1;
+    }
+
+    /**
+     * Rejects the request with {@code 429} if its key has no permit left, otherwise continues the chain.
+     * Background cache refreshes ({@link Context#isRevalidation()}) are not charged.
+     *
+     * @param ctx the request/response context
+     * @throws Exception if the chain throws
+     */
+    @Override
+    public void handle(Context ctx) throws Exception {
+        String key = ctx.isRevalidation() ? null : keyExtractor.apply(ctx);
+        if (key != null) {
+            long waitNanos = tryAcquire(key);
+            if (waitNanos > 0) {
+                ctx.setHeader(HEADER_RETRY_AFTER, retryAfter(waitNanos));
+                ctx.send(TOO_MANY_REQUESTS);
+                return;
+            }
+        }
+        ctx.next();
+    }
+
+    /**
+     * Takes one permit from {@code key}'s bucket if it has one.
+     *
+     * @param key the key to charge
+     * @return {@code 0} if a permit was taken, otherwise the nanoseconds until one is available
+     */
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        Shard shard = shards[spread(key.hashCode()) & shardMask];
+        long due = shard.nextSweep.get();
+        if (now - due >= 0 && shard.nextSweep.compareAndSet(due, now + SWEEP_INTERVAL_NANOS)) {
+            sweep(shard, now);
+        }
+
+        while (true) {
+            AtomicLong bucket = shard.buckets.get(key);
+            if (bucket == null) {
+                bucket = shard.buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+            }
+            long full = bucket.get();
+            if (full == EVICTED) {
+                shard.buckets.remove(key, bucket);
+                continue;
+            }
+            // The bucket is full again at `full`; each permit moves that one interval later
+            long start = full - now > 0 ? full : now;
+            long excess = start - now - toleranceNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (bucket.compareAndSet(full, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Evicts every key whose bucket has refilled completely.
+     *
+     * @return the number of keys evicted
+     */
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Shard shard : shards) {
+            evicted += sweep(shard, now);
+        }
+        return evicted;
+    }
+
+    /**
+     * @return the number of keys that currently have a bucket
+     */
+    public int trackedKeys() {
+        int keys = 0;
+        for (Shard shard : shards) {
+            keys += shard.buckets.size();
+        }
+        return keys;
+    }
+
+    private static int sweep(Shard shard, long now) {
+        int evicted = 0;
+        for (Map.Entry<String, AtomicLong> entry : shard.buckets.entrySet()) {
+            AtomicLong bucket = entry.getValue();
+            long full = bucket.get();
+            // Marked first, so a concurrent check cannot take a permit from a bucket being removed
+            if (full != EVICTED && now - full >= 0 && bucket.compareAndSet(full, EVICTED)) {
+                shard.buckets.remove(entry.getKey(), bucket);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static String retryAfter(long waitNanos) {
+        long seconds = (waitNanos + 999_999_999L) / 1_000_000_000L;
+        return seconds < RETRY_AFTER.length ? RETRY_AFTER[(int) seconds] : Long.toString(seconds);
+    }
+}
@@ -0,0 +1,566 @@
+package com.javelin.core;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import static com.javelin.constants.HttpConstants.*;
+
+/**
+ * Middleware that caches whole {@code GET} responses (status, headers and body) in memory.
+ * <p>
+ * Entries are keyed by host, path and query, plus the request headers the response names in
+ * {@code Vary}. Freshness comes from the handler's {@code Cache-Control}: {@code s-maxage} or
+ * {@code max-age} sets how long an entry is served, {@code no-store}, {@code no-cache} and
+ * {@code private} keep the response out of the cache, and responses without a lifetime use the
+ * default TTL (by default none, so only responses that ask to be cached are). Requests with
+ * {@code Authorization} or {@code Cookie} (which may get per-user responses), responses with
+ * {@code Set-Cookie} or {@code Vary: *}, and requests
+ * sent with {@code Cache-Control: no-cache} (which are answered fresh and re-cached) bypass it.
+ * <p>
+ * A response with {@code stale-while-revalidate=N} keeps being served for N seconds after it
+ * expires while one background request on a virtual thread refreshes it, so no client waits
+ * for the refresh. This needs a revalidator that can dispatch requests, which
+ * {@code VirtualThreadServer.enableResponseCache} supplies; without one, expired entries are
+ * simply missed.
+ * <p>
+ * The cache is bounded by bytes. Lookups are lock-free; inserts take a lock and evict with a
+ * CLOCK sweep (entries hit since the last sweep get a second chance). A new entry only displaces
+ * the sweep's victim if a {@link FrequencySketch} says it is requested more often (TinyLFU
+ * admission), so a burst of one-off URLs cannot flush the popular ones.
+ *
+ * Example:
+ * <pre>
+ *     server.enableResponseCache(64 * 1024 * 1024, Duration.ZERO);
+ *     server.get("/reports/{id}", ctx -&gt; ctx
+ *             .setHeader("Cache-Control", "max-age=60, stale-while-revalidate=300")
+ *             .json(reports.build(ctx.pathLong("id"))));
+ * </pre>
+ */
+public final class ResponseCacheMiddleware implements Middleware {
+
+    // Statuses cacheable by default (RFC 9111, section 4.2.2) that handlers commonly send
+    private static final Set<Integer> CACHEABLE_STATUSES = Set.of(200, 203, 204, 300, 301, 308, 404, 410);
+
+    // Bytes charged per entry for the objects around the body and headers
+    private static final int ENTRY_OVERHEAD = 256;
+    // Bytes charged per resource with Vary for its mapping to the header names
+    private static final int VARIANTS_OVERHEAD = 96;
+
+    private final long maxBytes;
+    private final long defaultTtlNanos;
+    private final Consumer<HttpExchange> revalidator;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // The Vary header names of each cached resource that has them, which select its variant on lookup
+    private final Map<String, Variants> varyByResource = new ConcurrentHashMap<>();
+    private final FrequencySketch sketch;
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final ArrayDeque<Entry> clock = new ArrayDeque<>(); // guarded by evictionLock
+    private long bytes; // guarded by evictionLock
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    private static final class Entry {
+        final String key;
+        final String resource;
+        final String[] vary;
+        final int hash;
+        final int status;
+        final String[] headerNames;
+        final String[] headerValues;
+        final byte[] body;
+        final long storedAt;
+        final long freshUntil;
+        final long staleUntil;
+        final URI uri;
+        final Map<String, String> revalidationHeaders;
+        final long size;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        volatile boolean referenced;
+        boolean removed; // guarded by evictionLock
+        Variants variants; // guarded by evictionLock
+
+        Entry(String key, String resource, String[] vary, int status, String[] headerNames, String[] headerValues, byte[] body, long storedAt,
+              long freshUntil, long staleUntil, URI uri, Map<String, String> revalidationHeaders) {
+            this.key = key;
+            this.resource = resource;
+            this.vary = vary;
+            this.hash = key.hashCode();
+            this.status = status;
+            this.headerNames = headerNames;
+            this.headerValues = headerValues;
+            this.body = body;
+            this.storedAt = storedAt;
+            this.freshUntil = freshUntil;
+            this.staleUntil = staleUntil;
+            this.uri = uri;
+            this.revalidationHeaders = revalidationHeaders;
+            long headerChars = 0;
+            for (int i = 0; i < headerNames.length; i++) {
+                headerChars += headerNames[i].length() + headerValues[i].length();
+            }
+            this.size = ENTRY_OVERHEAD + body.length + 2 * (headerChars + key.length());
+        }
+    }
+
+    /**
+     * The Vary header names of a resource, kept while any of its variants is cached.
+     */
+    private static final class Variants {
+        final String[] names;
+        final long size;
+        int count; // guarded by evictionLock
+
+        Variants(String resource, String[] names) {
+            this.names = names;
+            long chars = resource.length();
+            for (String name : names) {
+                chars += name.length();
+            }
+            this.size = VARIANTS_OVERHEAD + 2 * chars;
+        }
+    }
+
+    private record Freshness(long ttlNanos, long staleNanos) {}
+
+    /**
+     * Creates a cache of up to {@code maxBytes} that stores only responses with an explicit
+     * lifetime and does not revalidate stale entries in the background.
+     *
+     * @param maxBytes the memory budget for cached responses
+     */
+    public ResponseCacheMiddleware(long maxBytes) {
+        this(maxBytes, Duration.ZERO, null);
+    }
+
+    /**
+     * Creates a cache of up to {@code maxBytes}.
+     *
+     * @param maxBytes    the memory budget for cached responses
+     * @param defaultTtl  the lifetime of cacheable responses without {@code max-age}; zero to not store them
+     * @param revalidator dispatches background refresh requests through the server, or {@code null}
+     *                    to disable stale-while-revalidate
+     */
+    public ResponseCacheMiddleware(long maxBytes, Duration defaultTtl, Consumer<HttpExchange> revalidator) {
+        if (maxBytes <= 0 || defaultTtl.isNegative()) {
+            throw new IllegalArgumentException("maxBytes must be positive and defaultTtl not negative");
+        }
+        this.maxBytes = maxBytes;
+        this.defaultTtlNanos = defaultTtl.toNanos();
+        this.revalidator = revalidator;
+        // Tracks popularity for about one key per 4 KB of budget
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, Math.max(1024, maxBytes / 4096)));
+    }
+
+    /**
+     * Serves the request from the cache if it holds a usable entry; otherwise runs the chain
+     * and stores the response if it is cacheable.
+     *
+     * @param ctx the request/response context
+     * @throws Exception if the chain throws
+     */
+    @Override
+    public void handle(Context ctx) throws Exception {
+        String method = ctx.method();
+        boolean head = METHOD_HEAD.equals(method);
+        if (!(head || METHOD_GET.equals(method))
+                || ctx.header(HEADER_AUTHORIZATION) != null || ctx.header(HEADER_COOKIE) != null) {
+            ctx.next();
+            return;
+        }
+        String requestCacheControl = ctx.header(HEADER_CACHE_CONTROL);
+        boolean noStore = hasDirective(requestCacheControl, "no-store");
+        boolean noCache = noStore || hasDirective(requestCacheControl, "no-cache");
+
+        String resource = resourceKey(ctx);
+        Variants variants = varyByResource.get(resource);
+        String key = variantKey(resource, variants != null ? variants.names : null, ctx);
+        sketch.increment(key.hashCode());
+
+        if (!noCache) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                long now = System.nanoTime();
+                if (now - entry.freshUntil < 0) {
+                    hits.increment();
+                    serve(ctx, entry, now);
+                    return;
+                }
+                if (now - entry.staleUntil < 0 && revalidator != null) {
+                    staleHits.increment();
+                    revalidate(entry);
+                    serve(ctx, entry, now);
+                    return;
+                }
+            }
+        }
+        misses.increment();
+        if (head || noStore) {
+            ctx.next();
+            return;
+        }
+
+        ctx.captureResponse();
+        ctx.next();
+        CapturedResponse response = ctx.capturedResponse();
+        if (response != null) {
+            store(ctx, resource, response);
+        }
+    }
+
+    /**
+     * @return hit, miss and eviction counters and the current size
+     */
+    public ResponseCacheStats stats() {
+        evictionLock.lock();
+        try {
+            return new ResponseCacheStats(hits.sum(), staleHits.sum(), misses.sum(), evictions.sum(),
+                    rejections.sum(), entries.size(), bytes);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        evictionLock.lock();
+        try {
+            for (Entry entry : clock) {
+                removeLocked(entry);
+            }
+            clock.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // ========== Serving ==========
+
+    private void serve(Context ctx, Entry entry, long now) {
+        entry.referenced = true;
+        ctx.status(entry.status);
+        for (int i = 0; i < entry.headerNames.length; i++) {
+            ctx.setHeader(entry.headerNames[i], entry.headerValues[i]);
+        }
+        ctx.setHeader(HEADER_AGE, Long.toString((now - entry.storedAt) / 1_000_000_000L));
+        ctx.sendBytes(entry.body);
+    }
+
+    /**
+     * Starts one background refresh of a stale entry. The refresh is a {@code no-cache} request
+     * through the server, so it passes this middleware as a miss and replaces the entry; access
+     * logging and rate limiting let it through unrecorded ({@link Context#isRevalidation()}).
+     */
+    private void revalidate(Entry entry) {
+        if (entry.refreshing.compareAndSet(false, true)) {
+            Thread.startVirtualThread(() -> {
+                try {
+                    revalidator.accept(new RevalidationExchange(entry.uri, entry.revalidationHeaders));
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        }
+    }
+
+    // ========== Storing ==========
+
+    private void store(Context ctx, String resource, CapturedResponse response) {
+        if (!CACHEABLE_STATUSES.contains(response.status())) {
+            return;
+        }
+        Map<String, List<String>> headers = response.headers();
+        if (header(headers, HEADER_SET_COOKIE) != null) {
+            return;
+        }
+        Freshness freshness = freshness(header(headers, HEADER_CACHE_CONTROL));
+        if (freshness == null) {
+            return;
+        }
+        String[] vary = varyNames(header(headers, HEADER_VARY));
+        if (vary == null) {
+            return;
+        }
+        String key = variantKey(resource, vary, ctx);
+
+        URI uri;
+        try {
+            String path = new URI(null, null, ctx.path(), null).getRawPath();
+            String query = ctx.rawQuery();
+            uri = new URI(query == null ? path : path + '?' + query);
+        } catch (URISyntaxException e) {
+            return;
+        }
+        Map<String, String> revalidationHeaders = new LinkedHashMap<>();
+        String host = ctx.header(HEADER_HOST);
+        if (host != null) {
+            revalidationHeaders.put(HEADER_HOST, host);
+        }
+        for (String name : vary) {
+            String value = ctx.header(name);
+            if (value != null) {
+                revalidationHeaders.put(name, value);
+            }
+        }
+        revalidationHeaders.put(HEADER_CACHE_CONTROL, "no-cache");
+
+        int count = 0;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (!CapturedResponse.PER_SEND_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                count++;
+            }
+        }
+        String[] names = new String[count];
+        String[] values = new String[count];
+        int i = 0;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (!CapturedResponse.PER_SEND_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                names[i] = header.getKey();
+                values[i++] = String.join(", ", header.getValue());
+            }
+        }
+
+        long now = System.nanoTime();
+        long freshUntil = now + freshness.ttlNanos();
+        Entry entry = new Entry(key, resource, vary, response.status(), names, values, response.body(), now, freshUntil,
+                freshUntil + freshness.staleNanos(), uri, revalidationHeaders);
+        if (entry.size <= maxBytes) {
+            admit(entry, now);
+        }
+    }
+
+    /**
+     * Inserts an entry, evicting until it fits. A new key must be more popular than the first
+     * victim, unless the victim has expired; a refresh of a cached key is always admitted.
+     * The resource's Vary names are recorded only once an entry is admitted, and are charged
+     * to the budget with it.
+     */
+    private void admit(Entry entry, long now) {
+        evictionLock.lock();
+        try {
+            Entry previous = entries.get(entry.key);
+            if (previous != null) {
+                removeLocked(previous);
+            }
+            boolean checkAdmission = previous == null;
+            long required = entry.size + (needsVariantsLocked(entry) ? new Variants(entry.resource, entry.vary).size : 0);
+            while (bytes + required > maxBytes) {
+                Entry victim = nextVictimLocked(now);
+                if (victim == null) {
+                    break;
+                }
+                if (checkAdmission && now - victim.staleUntil < 0
+                        && sketch.frequency(victim.hash) > sketch.frequency(entry.hash)) {
+                    clock.addFirst(victim);
+                    rejections.increment();
+                    return;
+                }
+                checkAdmission = false;
+                removeLocked(victim);
+                evictions.increment();
+            }
+            entries.put(entry.key, entry);
+            clock.addLast(entry);
+            bytes += entry.size;
+            trackVariantsLocked(entry);
+            if (clock.size() > 2 * entries.size() + 64) {
+                clock.removeIf(e -> e.removed);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Takes the next victim off the clock: the first entry that has expired, or that has not
+     * been served since the sweep last passed it.
+     */
+    private Entry nextVictimLocked(long now) {
+        Entry entry;
+        while ((entry = clock.pollFirst()) != null) {
+            if (entry.removed) {
+                continue;
+            }
+            if (entry.referenced && now - entry.staleUntil < 0) {
+                entry.referenced = false;
+                clock.addLast(entry);
+                continue;
+            }
+            return entry;
+        }
+        return null;
+    }
+
+    private void removeLocked(Entry entry) {
+        if (!entry.removed) {
+            entry.removed = true;
+            entries.remove(entry.key, entry);
+            bytes -= entry.size;
+            Variants variants = entry.variants;
+            if (variants != null && --variants.count == 0) {
+                varyByResource.remove(entry.resource, variants);
+                bytes -= variants.size;
+            }
+        }
+    }
+
+    private boolean needsVariantsLocked(Entry entry) {
+        if (entry.vary.length == 0) {
+            return false;
+        }
+        Variants current = varyByResource.get(entry.resource);
+        return current == null || !Arrays.equals(current.names, entry.vary);
+    }
+
+    /**
+     * Points the entry's resource at the entry's Vary names. Variants stored under names the
+     * resource no longer uses stay charged until they are evicted, but are no longer looked up.
+     */
+    private void trackVariantsLocked(Entry entry) {
+        Variants current = varyByResource.get(entry.resource);
+        if (entry.vary.length == 0) {
+            if (current != null) {
+                varyByResource.remove(entry.resource, current);
+            }
+            return;
+        }
+        if (current == null || !Arrays.equals(current.names, entry.vary)) {
+            current = new Variants(entry.resource, entry.vary);
+            varyByResource.put(entry.resource, current);
+            bytes += current.size;
+        }
+        current.count++;
+        entry.variants = current;
+    }
+
+    // ========== Keys & Headers ==========
+
+    private static String resourceKey(Context ctx) {
+        String host = ctx.header(HEADER_HOST);
+        String query = ctx.rawQuery();
+        String path = ctx.path();
+        int length = (host != null ? host.length() : 0) + path.length() + (query != null ? query.length() + 1 : 0);
+        StringBuilder key = new StringBuilder(length + 1);
+        if (host != null) {
+            key.append(host);
+        }
+        key.append(' ').append(path);
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        return key.toString();
+    }
+
+    private static String variantKey(String resource, String[] vary, Context ctx) {
+        if (vary == null || vary.length == 0) {
+            return resource;
+        }
+        StringBuilder key = new StringBuilder(resource);
+        for (String name : vary) {
+            String value = ctx.header(name);
+            key.append('\0').append(name).append('=');
+            if (value != null) {
+                key.append(value);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return the lower-cased header names listed in {@code Vary}, or {@code null} for {@code Vary: *}
+     */
+    private static String[] varyNames(String vary) {
+        if (vary == null || vary.isBlank()) {
+            return new String[0];
+        }
+        String[] names = vary.split(",");
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].trim().toLowerCase(Locale.ROOT);
+            if (names[i].equals("*")) {
+                return null;
+            }
+        }
+        Arrays.sort(names);
+        return names;
+    }
+
+    /**
+     * @return how long a response may be served fresh and then stale, or {@code null} if it must not be stored
+     */
+    private Freshness freshness(String cacheControl) {
+        long maxAge = -1;
+        long sharedMaxAge = -1;
+        long stale = 0;
+        if (cacheControl != null) {
+            for (String directive : cacheControl.split(",")) {
+                String d = directive.trim().toLowerCase(Locale.ROOT);
+                if (d.equals("no-store") || d.equals("no-cache") || d.equals("private")) {
+                    return null;
+                } else if (d.startsWith("max-age=")) {
+                    maxAge = seconds(d.substring(8));
+                } else if (d.startsWith("s-maxage=")) {
+                    sharedMaxAge = seconds(d.substring(9));
+                } else if (d.startsWith("stale-while-revalidate=")) {
+                    stale = Math.max(0, seconds(d.substring(23)));
+                }
+            }
+        }
+        long ttl = sharedMaxAge >= 0 ? sharedMaxAge * 1_000_000_000L
+                : maxAge >= 0 ? maxAge * 1_000_000_000L
+                : defaultTtlNanos;
+        return ttl > 0 ? new Freshness(ttl, stale * 1_000_000_000L) : null;
+    }
+
+    private static long seconds(String value) {
+        try {
+            // Capped at a year so the nanosecond arithmetic cannot overflow
+            return Math.max(0, Math.min(Long.parseLong(value.trim()), 365L * 24 * 3600));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean hasDirective(String cacheControl, String directive) {
+        if (cacheControl != null) {
+            for (String d : cacheControl.split(",")) {
+                String name = d.trim();
+                int eq = name.indexOf('=');
+                if ((eq < 0 ? name : name.substring(0, eq).trim()).equalsIgnoreCase(directive)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String header(Map<String, List<String>> headers, String name) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return String.join(", ", header.getValue());
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,24 @@
+package com.javelin.core;
+
+/**
+ * A point-in-time snapshot of a {@link ResponseCacheMiddleware}.
+ *
+ * @param hits       requests served from a fresh entry
+ * @param staleHits  requests served from a stale entry while it was refreshed in the background
+ * @param misses     requests passed on to the handler
+ * @param evictions  entries removed to make room for others
+ * @param rejections responses not stored because they were less popular than the entry they would displace
+ * @param entries    entries currently cached
+ * @param bytes      the memory charged for the cached entries
+ */
+public record ResponseCacheStats(long hits, long staleHits, long misses, long evictions, long rejections,
+                                 int entries, long bytes) {
+
+    /**
+     * @return the fraction of requests served from the cache, or 0 if there were none
+     */
+    public double hitRate() {
+        long total = hits + staleHits + misses;
+        return total == 0 ? 0.0 : (double) (hits + staleHits) / total;
+    }
+}
@@ -0,0 +1,53 @@
+package com.javelin.core;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A server-internal GET request with no client: the response is discarded, since the
+ * middleware that issued the request captures what it needs on the way out.
+ * Used by {@link ResponseCacheMiddleware} to refresh stale entries in the background.
+ */
+final class RevalidationExchange extends HttpExchange {
+
+    private static final InetSocketAddress LOOPBACK = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+    private final URI uri;
+    private final Headers requestHeaders = new Headers();
+    private final Headers responseHeaders = new Headers();
+    private final Map<String, Object> attributes = new HashMap<>();
+    private int responseCode = -1;
+
+    RevalidationExchange(URI uri, Map<String, String> headers) {
+        this.uri = uri;
+        headers.forEach(requestHeaders::set);
+    }
+
+    @Override public Headers getRequestHeaders() { return requestHeaders; }
+    @Override public Headers getResponseHeaders() { return responseHeaders; }
+    @Override public URI getRequestURI() { return uri; }
+    @Override public String getRequestMethod() { return "GET"; }
+    @Override public HttpContext getHttpContext() { return null; }
+    @Override public void close() { }
+    @Override public InputStream getRequestBody() { return InputStream.nullInputStream(); }
+    @Override public OutputStream getResponseBody() { return OutputStream.nullOutputStream(); }
+    @Override public void sendResponseHeaders(int rCode, long responseLength) { this.responseCode = rCode; }
+    @Override public InetSocketAddress getRemoteAddress() { return LOOPBACK; }
+    @Override public int getResponseCode() { return responseCode; }
+    @Override public InetSocketAddress getLocalAddress() { return LOOPBACK; }
+    @Override public String getProtocol() { return "HTTP/1.1"; }
+    @Override public Object getAttribute(String name) { return attributes.get(name); }
+    @Override public void setAttribute(String name, Object value) { attributes.put(name, value); }
+    @Override public void setStreams(InputStream i, OutputStream o) { }
+    @Override public HttpPrincipal getPrincipal() { return null; }
+}
@@ -8,19 +8,72 @@ import java.util.List;
  * - original path pattern (e.g. /users/{id})
  * - the handler
  * - the paramNames extracted
+ * - the middleware registered for this route only
+ * - the precompiled pipeline: every middleware that applies to this route, in execution order
+ * - the methods allowed for its paths, filled in by the route table
  *
- * The compiled regex is stored as a string key in the Map in Router.
+ * The compiled pattern is stored alongside the route in Router's {@link RouteTable}.
  */
 public class Route {
+    private static final Middleware[] NO_MIDDLEWARE = new Middleware[0];
+
     public final String method;
     public final String originalPath;
     public final JavelinHandler handler;
     public final List<String> paramNames;
+    public final Middleware[] middleware;
+    public final Middleware[] pipeline;
+    final RouteTable.PathMethods pathMethods;
 
     public Route(String method, String originalPath, JavelinHandler handler, List<String> paramNames) {
+        this(method, originalPath, handler, paramNames, NO_MIDDLEWARE, NO_MIDDLEWARE);
+    }
+
+    public Route(String method, String originalPath, JavelinHandler handler, List<String> paramNames,
+                 Middleware[] middleware, Middleware[] pipeline) {
+        this(method, originalPath, handler, paramNames, middleware, pipeline, null);
+    }
+
+    Route(String method, String originalPath, JavelinHandler handler, List<String> paramNames,
+          Middleware[] middleware, Middleware[] pipeline, RouteTable.PathMethods pathMethods) {
         this.method = method;
         this.originalPath = originalPath;
         this.handler = handler;
         this.paramNames = paramNames;
+        this.middleware = middleware;
+        this.pipeline = pipeline;
+        this.pathMethods = pathMethods;
+    }
+
+    /**
+     * Returns the {@code Allow} header value for a path this route matched: the methods of
+     * every registered pattern matching the path, not only this route's.
+     *
+     * @param path the matched request path
+     * @return the allowed methods, or {@code null} if the route is not registered in a router
+     */
+    String allowedMethods(String path) {
+        return pathMethods != null ? pathMethods.allowFor(path) : null;
+    }
+
+    /**
+     * Returns a copy of this route with a newly compiled pipeline.
+     */
+    Route withPipeline(Middleware[] pipeline) {
+        return new Route(method, originalPath, handler, paramNames, middleware, pipeline, pathMethods);
+    }
+
+    /**
+     * Returns a copy of this route with the methods registered for its pattern.
+     */
+    Route withAllowedMethods(RouteTable.PathMethods pathMethods) {
+        return new Route(method, originalPath, handler, paramNames, middleware, pipeline, pathMethods);
+    }
+
+    /**
+     * Returns a copy of this route registered under another method (e.g. HEAD derived from GET).
+     */
+    Route asMethod(String method) {
+        return new Route(method, originalPath, handler, paramNames, middleware, pipeline, pathMethods);
     }
 }
@@ -0,0 +1,116 @@
+package com.javelin.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, lock-free cache from (method, exact path) to the route it resolved to and
+ * the offsets of its path variables.
+ * <p>
+ * The cache is 4-way set associative: a key can only live in the four slots of its set,
+ * so lookups probe at most four entries. When a set is full, a new key replaces the
+ * least frequently used entry of the set only if a {@link FrequencySketch} says the new
+ * key is requested more often. A scan over many unique paths (e.g. one request per ID)
+ * therefore cannot flush the hot entries.
+ * <p>
+ * Entries remember the {@link RouteTable} they were resolved against and are ignored once
+ * the router publishes a new table, so route changes never serve stale results.
+ */
+final class RouteCache {
+
+    private static final int WAYS = 4;
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int setMask;
+    private final FrequencySketch sketch;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    record Entry(int hash, String method, String path, RouteTable table, Route route, int[] bounds) {
+        boolean matches(int hash, String method, String path) {
+            return this.hash == hash && this.path.equals(path) && this.method.equals(method);
+        }
+    }
+
+    /**
+     * @param capacity the maximum number of cached paths (rounded up to a power of two)
+     */
+    RouteCache(int capacity) {
+        int sets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS) * 2 - 1);
+        this.slots = new AtomicReferenceArray<>(sets * WAYS);
+        this.setMask = sets - 1;
+        this.sketch = new FrequencySketch(sets * WAYS);
+    }
+
+    /**
+     * Looks up a cached resolution that is valid for the given table.
+     *
+     * @return the entry, or {@code null} on a miss
+     */
+    Entry get(RouteTable table, String method, String path) {
+        int hash = hash(method, path);
+        sketch.increment(hash);
+        int base = (hash & setMask) * WAYS;
+        for (int i = 0; i < WAYS; i++) {
+            Entry e = slots.get(base + i);
+            if (e != null && e.table == table && e.matches(hash, method, path)) {
+                hits.increment();
+                return e;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Offers a resolution to the cache. It is stored in a free or stale slot of its set,
+     * or replaces the set's least frequent entry if it is more frequent than that entry.
+     * {@code bounds} belongs to the caller and is copied only if the entry is stored.
+     */
+    void put(RouteTable table, String method, String path, Route route, int[] bounds) {
+        int hash = hash(method, path);
+        int base = (hash & setMask) * WAYS;
+
+        int victimSlot = -1;
+        Entry victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        for (int i = 0; i < WAYS; i++) {
+            Entry e = slots.get(base + i);
+            if (e == null || e.table != table) {
+                slots.compareAndSet(base + i, e, new Entry(hash, method, path, table, route, Arrays.copyOf(bounds, route.paramNames.size() * 2)));
+                return;
+            }
+            if (e.matches(hash, method, path)) {
+                return; // another thread cached it first
+            }
+            int frequency = sketch.frequency(e.hash);
+            if (frequency < victimFrequency) {
+                victimSlot = base + i;
+                victim = e;
+                victimFrequency = frequency;
+            }
+        }
+        if (sketch.frequency(hash) > victimFrequency) {
+            slots.compareAndSet(victimSlot, victim, new Entry(hash, method, path, table, route, Arrays.copyOf(bounds, route.paramNames.size() * 2)));
+        }
+    }
+
+    RouteCacheStats stats(RouteTable table) {
+        int size = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            Entry e = slots.get(i);
+            if (e != null && e.table == table) {
+                size++;
+            }
+        }
+        return new RouteCacheStats(hits.sum(), misses.sum(), size, slots.length());
+    }
+
+    private static int hash(String method, String path) {
+        int h = method.hashCode() * 31 + path.hashCode();
+        h ^= h >>> 16;
+        h *= 0x45d9f3b;
+        return h ^ (h >>> 16);
+    }
+}
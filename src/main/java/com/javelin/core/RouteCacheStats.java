@@ -0,0 +1,20 @@
+package com.javelin.core;
+
+/**
+ * A point-in-time snapshot of the router's exact-path lookup cache.
+ *
+ * @param hits     lookups answered from the cache
+ * @param misses   lookups that fell back to pattern matching
+ * @param size     entries currently cached for the live route table
+ * @param capacity the maximum number of entries
+ */
+public record RouteCacheStats(long hits, long misses, int size, int capacity) {
+
+    /**
+     * @return the fraction of lookups answered from the cache, or 0 if there were none
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
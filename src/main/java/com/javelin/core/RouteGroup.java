@@ -0,0 +1,112 @@
+package com.javelin.core;
+
+import java.util.function.Consumer;
+
+/**
+ * A set of routes sharing a common path prefix.
+ * <p>
+ * Middleware registered with {@link #use(Middleware)} applies only to paths under the
+ * group's prefix, and middleware passed with a single route applies only to that route.
+ * Groups can be nested.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * server.group("/api", api -> {
+ *     api.use(authMiddleware);
+ *     api.get("/users", ctx -> ctx.json(users));
+ *     api.group("/admin", admin -> admin.delete("/users/{id}", deleteUser, auditMiddleware));
+ * });
+ * }</pre>
+ */
+public class RouteGroup {
+
+    private final Router router;
+    private final String prefix;
+
+    RouteGroup(Router router, String prefix) {
+        this.router = router;
+        this.prefix = trimTrailingSlash(prefix);
+    }
+
+    /**
+     * Returns the full path prefix of this group.
+     *
+     * @return the prefix (e.g. {@code "/api/admin"})
+     */
+    public String prefix() {
+        return prefix.isEmpty() ? "/" : prefix;
+    }
+
+    /**
+     * Registers a middleware for every path under this group's prefix.
+     *
+     * @param middleware the middleware function
+     * @return this group
+     */
+    public RouteGroup use(Middleware middleware) {
+        router.use(prefix(), middleware);
+        return this;
+    }
+
+    /**
+     * Registers a nested group under this group's prefix.
+     *
+     * @param prefix the nested prefix, relative to this group
+     * @param routes a callback that registers the nested group's routes and middleware
+     * @return this group
+     */
+    public RouteGroup group(String prefix, Consumer<RouteGroup> routes) {
+        routes.accept(new RouteGroup(router, fullPath(prefix)));
+        return this;
+    }
+
+    // ========== Route registration ==========
+
+    public RouteGroup get(String path, JavelinHandler handler, Middleware... middleware) {
+        router.get(fullPath(path), handler, middleware);
+        return this;
+    }
+
+    public RouteGroup post(String path, JavelinHandler handler, Middleware... middleware) {
+        router.post(fullPath(path), handler, middleware);
+        return this;
+    }
+
+    public RouteGroup put(String path, JavelinHandler handler, Middleware... middleware) {
+        router.put(fullPath(path), handler, middleware);
+        return this;
+    }
+
+    public RouteGroup delete(String path, JavelinHandler handler, Middleware... middleware) {
+        router.delete(fullPath(path), handler, middleware);
+        return this;
+    }
+
+    public RouteGroup patch(String path, JavelinHandler handler, Middleware... middleware) {
+        router.patch(fullPath(path), handler, middleware);
+        return this;
+    }
+
+    public RouteGroup head(String path, JavelinHandler handler, Middleware... middleware) {
+        router.head(fullPath(path), handler, middleware);
+        return this;
+    }
+
+    // ========== Internal Helpers ==========
+
+    private String fullPath(String path) {
+        String relative = trimTrailingSlash(path);
+        if (relative.isEmpty()) {
+            return prefix();
+        }
+        return prefix + (relative.startsWith("/") ? relative : "/" + relative);
+    }
+
+    private static String trimTrailingSlash(String path) {
+        String p = path.trim();
+        while (p.endsWith("/")) {
+            p = p.substring(0, p.length() - 1);
+        }
+        return p.isEmpty() || p.startsWith("/") ? p : "/" + p;
+    }
+}
@@ -0,0 +1,198 @@
+package com.javelin.core;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of routing a request: the matched {@link Route} and where each path
+ * variable sits in the request path.
+ * <p>
+ * Variables are stored as start/end offsets into the path rather than as substrings.
+ * {@link #pathLong(String)} and {@link #pathInt(String)} parse straight from the path's
+ * characters, and {@link #pathVar(String)} only creates a string when asked.
+ * <p>
+ * A match created with {@link #RouteMatch()} is a reusable holder for
+ * {@link Router#find(String, String, RouteMatch)}: it is overwritten by every lookup, so it
+ * must not be kept past the request it was filled for.
+ */
+public final class RouteMatch {
+
+    private Route route;
+    private String path;
+    private int[] bounds; // start/end pairs, one per route.paramNames entry; may be shared with the route cache
+
+    // Scratch offsets owned by this holder, reused across lookups
+    private int[] scratch = new int[0];
+
+    RouteMatch(Route route, String path, int[] bounds) {
+        this.route = route;
+        this.path = path;
+        this.bounds = bounds;
+    }
+
+    /**
+     * Creates an empty, reusable match for {@link Router#find(String, String, RouteMatch)}.
+     */
+    public RouteMatch() {
+    }
+
+    // ========== Reuse (used by Router) ==========
+
+    void set(Route route, String path, int[] bounds) {
+        this.route = route;
+        this.path = path;
+        this.bounds = bounds;
+    }
+
+    /**
+     * @return this holder's own offsets array with room for {@code length} entries
+     */
+    int[] scratch(int length) {
+        if (scratch.length < length) {
+            scratch = new int[length];
+        }
+        return scratch;
+    }
+
+    /**
+     * Drops the references to the last request so a pooled holder does not retain it.
+     */
+    public void clear() {
+        route = null;
+        path = null;
+        bounds = null;
+    }
+
+    public Route route() {
+        return route;
+    }
+
+    /**
+     * @return the {@code Allow} header value for the matched path, covering every route
+     *         pattern that matches it
+     */
+    public String allowedMethods() {
+        return route.allowedMethods(path);
+    }
+
+    /**
+     * Returns the value of a path variable.
+     *
+     * @param name the variable name (e.g. "id")
+     * @return the value, or {@code null} if the route has no such variable
+     */
+    public String pathVar(String name) {
+        int i = route.paramNames.indexOf(name);
+        return i < 0 ? null : path.substring(bounds[2 * i], bounds[2 * i + 1]);
+    }
+
+    /**
+     * Parses a path variable as a {@code long} without creating a substring.
+     *
+     * @param name the variable name
+     * @return the parsed value
+     * @throws IllegalArgumentException if the route has no such variable
+     * @throws NumberFormatException    if the value is not a valid {@code long}
+     */
+    public long pathLong(String name) {
+        int i = indexOf(name);
+        return parseLong(path, bounds[2 * i], bounds[2 * i + 1], Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Parses a path variable as an {@code int} without creating a substring.
+     *
+     * @param name the variable name
+     * @return the parsed value
+     * @throws IllegalArgumentException if the route has no such variable
+     * @throws NumberFormatException    if the value is not a valid {@code int}
+     */
+    public int pathInt(String name) {
+        int i = indexOf(name);
+        return (int) parseLong(path, bounds[2 * i], bounds[2 * i + 1], Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return all path variables as a new map of name to value
+     */
+    public Map<String, String> pathVars() {
+        List<String> names = route.paramNames;
+        Map<String, String> vars = new HashMap<>(names.size() * 2);
+        for (int i = 0; i < names.size(); i++) {
+            vars.put(names.get(i), path.substring(bounds[2 * i], bounds[2 * i + 1]));
+        }
+        return vars;
+    }
+
+    private int indexOf(String name) {
+        int i = route.paramNames.indexOf(name);
+        if (i < 0) {
+            throw new IllegalArgumentException("No path variable named '" + name + "' in " + route.originalPath);
+        }
+        return i;
+    }
+
+    // ========== Number parsing on path characters ==========
+
+    /**
+     * Checks whether {@code s[start, end)} is an optionally signed decimal number within
+     * {@code [min, max]}. Route matching calls this for every typed segment, so a mismatch
+     * returns {@code false} rather than throwing.
+     */
+    static boolean isNumber(String s, int start, int end, long min, long max) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            return false;
+        }
+        long limit = negative ? min : -max;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = s.charAt(i) - '0';
+            if (!fitsDigit(result, digit, limit)) {
+                return false;
+            }
+            result = result * 10 - digit;
+        }
+        return true;
+    }
+
+    /**
+     * Parses {@code s[start, end)} as a decimal number within {@code [min, max]}.
+     * Accumulates negatively like {@link Long#parseLong(String)} so {@code Long.MIN_VALUE} parses.
+     */
+    static long parseLong(String s, int start, int end, long min, long max) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            throw new NumberFormatException("Not a number: \"" + s.substring(start, end) + "\"");
+        }
+        long limit = negative ? min : -max;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = s.charAt(i) - '0';
+            if (!fitsDigit(result, digit, limit)) {
+                throw new NumberFormatException("Not a number in range: \"" + s.substring(start, end) + "\"");
+            }
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * @return whether {@code digit} is a decimal digit that can be appended to the negative
+     *         accumulation {@code result} without going below {@code limit}
+     */
+    private static boolean fitsDigit(long result, int digit, long limit) {
+        return digit >= 0 && digit <= 9 && result >= (limit + digit) / 10;
+    }
+}
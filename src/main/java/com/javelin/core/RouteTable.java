@@ -0,0 +1,400 @@
+package com.javelin.core;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.javelin.constants.HttpConstants.*;
+
+/**
+ * An immutable snapshot of the registered routes with their compiled patterns.
+ * <p>
+ * Routes are grouped by HTTP method and kept in registration order within each group.
+ * Every modification returns a new table; an existing table is never changed, so it can
+ * be read by any number of threads without synchronization.
+ * <p>
+ * Building a table also derives, per path pattern:
+ * <ul>
+ *   <li>the {@code Allow} header value (registered methods, plus HEAD for GET, plus OPTIONS),
+ *       together with the other patterns that may match the same paths, whose methods are
+ *       added for the paths they do match,</li>
+ *   <li>a HEAD route running the GET route's handler, unless HEAD is registered explicitly,</li>
+ *   <li>an OPTIONS route answering {@code 204} with {@code Allow}, unless OPTIONS is registered.</li>
+ * </ul>
+ * Derived routes are matched after the explicitly registered routes of the same method.
+ */
+final class RouteTable {
+
+    private static final Entry[] NONE = new Entry[0];
+    private static final PathMethods[] NO_PATHS = new PathMethods[0];
+    private static final Middleware[] NO_MIDDLEWARE = new Middleware[0];
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    // Order of methods in Allow headers
+    private static final List<String> METHOD_ORDER = List.of(
+            METHOD_GET, METHOD_HEAD, METHOD_POST, METHOD_PUT, METHOD_DELETE, METHOD_PATCH, METHOD_OPTIONS);
+
+    static final RouteTable EMPTY = new RouteTable(NONE);
+
+    /**
+     * The type constraint of a path variable, checked after the pattern matches.
+     */
+    enum ParamType {
+        STRING(0, 0),
+        INT(Integer.MIN_VALUE, Integer.MAX_VALUE),
+        LONG(Long.MIN_VALUE, Long.MAX_VALUE);
+
+        final long min;
+        final long max;
+
+        ParamType(long min, long max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * @param constraint the text after the colon in {@code {name:constraint}}, or null
+         * @return the numeric type it names, or {@link #STRING} (regex or no constraint)
+         */
+        static ParamType of(String constraint) {
+            if ("long".equals(constraint)) return LONG;
+            if ("int".equals(constraint)) return INT;
+            return STRING;
+        }
+    }
+
+    /**
+     * A route with its compiled path pattern.
+     *
+     * @param route   the route
+     * @param regex   the pattern source, identifying the route together with its method
+     * @param pattern the compiled pattern
+     * @param types   the constraint of each path variable, parallel to {@code route.paramNames}
+     */
+    record Entry(Route route, String regex, Pattern pattern, ParamType[] types) {
+        boolean sameKey(String method, String regex) {
+            return route.method.equals(method) && this.regex.equals(regex);
+        }
+    }
+
+    /**
+     * All methods registered for one path pattern.
+     * <p>
+     * Patterns can overlap: {@code /users/me} is also matched by {@code /users/{id}}, so the
+     * methods allowed for a path are those of every pattern matching it. Each pattern keeps the
+     * patterns whose segments could match the same path; only those are tried per request, and
+     * a pattern without any answers with its precomputed value.
+     */
+    static final class PathMethods {
+        final Entry entry;
+        final Set<String> methods;
+        final String allow;
+        PathMethods[] overlapping = NO_PATHS; // set while the table is built
+
+        PathMethods(Entry entry, Set<String> methods) {
+            this.entry = entry;
+            this.methods = methods;
+            this.allow = allowHeader(methods);
+        }
+
+        /**
+         * @param path a path this pattern matches
+         * @return the {@code Allow} header value for the path
+         */
+        String allowFor(String path) {
+            Set<String> union = null;
+            for (PathMethods other : overlapping) {
+                if (other.matches(path) && !methods.containsAll(other.methods)) {
+                    if (union == null) {
+                        union = new HashSet<>(methods);
+                    }
+                    union.addAll(other.methods);
+                }
+            }
+            return union == null ? allow : allowHeader(union);
+        }
+
+        boolean matches(String path) {
+            Matcher matcher = entry.pattern.matcher(path);
+            return matcher.matches() && extract(entry, matcher, path, new int[entry.types.length * 2]);
+        }
+    }
+
+    // All registered entries in registration order
+    private final Entry[] entries;
+
+    // Registered and derived entries per method, each in registration order
+    private final Map<String, Entry[]> byMethod;
+
+    // One element per distinct path pattern, in registration order
+    private final PathMethods[] paths;
+
+    private RouteTable(Entry[] registered) {
+        // Group registrations by path pattern
+        Map<String, List<Entry>> byPattern = new LinkedHashMap<>();
+        for (Entry entry : registered) {
+            byPattern.computeIfAbsent(entry.regex, r -> new ArrayList<>()).add(entry);
+        }
+        Map<String, PathMethods> methodsByPattern = new HashMap<>();
+        List<PathMethods> pathList = new ArrayList<>(byPattern.size());
+        byPattern.forEach((regex, list) -> {
+            PathMethods methods = new PathMethods(list.get(0), methodSet(list));
+            methodsByPattern.put(regex, methods);
+            pathList.add(methods);
+        });
+        this.paths = pathList.toArray(NO_PATHS);
+        linkOverlapping(paths);
+
+        Entry[] withAllow = new Entry[registered.length];
+        Map<String, List<Entry>> grouped = new LinkedHashMap<>();
+        Map<String, List<Entry>> samePattern = new LinkedHashMap<>();
+        for (int i = 0; i < registered.length; i++) {
+            Entry e = registered[i];
+            withAllow[i] = new Entry(e.route.withAllowedMethods(methodsByPattern.get(e.regex)), e.regex, e.pattern, e.types);
+            grouped.computeIfAbsent(e.route.method, m -> new ArrayList<>()).add(withAllow[i]);
+            samePattern.computeIfAbsent(e.regex, r -> new ArrayList<>()).add(withAllow[i]);
+        }
+        this.entries = withAllow;
+
+        // Derived HEAD and OPTIONS routes go after the registered ones
+        samePattern.forEach((regex, list) -> {
+            Entry first = list.get(0);
+            Entry get = findMethod(list, METHOD_GET);
+            if (get != null && findMethod(list, METHOD_HEAD) == null) {
+                grouped.computeIfAbsent(METHOD_HEAD, m -> new ArrayList<>())
+                        .add(new Entry(get.route.asMethod(METHOD_HEAD), regex, get.pattern, get.types));
+            }
+            if (findMethod(list, METHOD_OPTIONS) == null) {
+                grouped.computeIfAbsent(METHOD_OPTIONS, m -> new ArrayList<>())
+                        .add(new Entry(optionsRoute(first.route), regex, first.pattern, first.types));
+            }
+        });
+
+        Map<String, Entry[]> index = new HashMap<>();
+        grouped.forEach((method, list) -> index.put(method, list.toArray(NONE)));
+        this.byMethod = Map.copyOf(index);
+    }
+
+    /**
+     * @return the entries for the method, in registration order (never null)
+     */
+    Entry[] entries(String method) {
+        Entry[] found = byMethod.get(method);
+        if (found == null) {
+            // Methods are registered upper-case; clients normally send them that way too
+            found = byMethod.get(method.toUpperCase());
+        }
+        return found != null ? found : NONE;
+    }
+
+    /**
+     * Returns the {@code Allow} header value for a path: the methods of every path pattern
+     * matching it.
+     *
+     * @return the allowed methods, or {@code null} if no route matches the path
+     */
+    String allowedMethods(String path) {
+        for (PathMethods methods : paths) {
+            if (methods.matches(path)) {
+                // Every other pattern matching the path is among this one's overlapping patterns
+                return methods.allowFor(path);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records the offsets of each path variable of a matched entry and checks typed constraints.
+     *
+     * @return {@code false} if a typed variable is out of range
+     */
+    static boolean extract(Entry entry, Matcher matcher, String path, int[] bounds) {
+        List<String> names = entry.route.paramNames;
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            int start = matcher.start(name);
+            int end = matcher.end(name);
+            ParamType type = entry.types[i];
+            if (type != ParamType.STRING && !RouteMatch.isNumber(path, start, end, type.min, type.max)) {
+                return false;
+            }
+            bounds[2 * i] = start;
+            bounds[2 * i + 1] = end;
+        }
+        return true;
+    }
+
+    List<Route> routes() {
+        List<Route> routes = new ArrayList<>(entries.length);
+        for (Entry entry : entries) {
+            routes.add(entry.route);
+        }
+        return Collections.unmodifiableList(routes);
+    }
+
+    /**
+     * Returns a table with the route added, or replacing the route with the same method
+     * and pattern while keeping its position.
+     */
+    RouteTable with(Route route, String regex, Pattern pattern, ParamType[] types) {
+        Entry entry = new Entry(route, regex, pattern, types);
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].sameKey(route.method, regex)) {
+                Entry[] copy = entries.clone();
+                copy[i] = entry;
+                return new RouteTable(copy);
+            }
+        }
+        Entry[] copy = Arrays.copyOf(entries, entries.length + 1);
+        copy[entries.length] = entry;
+        return new RouteTable(copy);
+    }
+
+    /**
+     * Returns a table without the route for the method and pattern, or this table if absent.
+     */
+    RouteTable without(String method, String regex) {
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].sameKey(method, regex)) {
+                Entry[] copy = new Entry[entries.length - 1];
+                System.arraycopy(entries, 0, copy, 0, i);
+                System.arraycopy(entries, i + 1, copy, i, entries.length - i - 1);
+                return new RouteTable(copy);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns a table with every route replaced by {@code mapper}'s result.
+     */
+    RouteTable map(UnaryOperator<Route> mapper) {
+        Entry[] copy = new Entry[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            Entry e = entries[i];
+            copy[i] = new Entry(mapper.apply(e.route), e.regex, e.pattern, e.types);
+        }
+        return new RouteTable(copy);
+    }
+
+    // ========== Derived routes ==========
+
+    private static Set<String> methodSet(List<Entry> samePattern) {
+        Set<String> methods = new HashSet<>();
+        for (Entry entry : samePattern) {
+            methods.add(entry.route.method);
+        }
+        if (methods.contains(METHOD_GET)) {
+            methods.add(METHOD_HEAD);
+        }
+        methods.add(METHOD_OPTIONS);
+        return Set.copyOf(methods);
+    }
+
+    private static String allowHeader(Set<String> methods) {
+        StringJoiner allow = new StringJoiner(", ");
+        for (String method : METHOD_ORDER) {
+            if (methods.contains(method)) {
+                allow.add(method);
+            }
+        }
+        methods.stream().filter(m -> !METHOD_ORDER.contains(m)).sorted().forEach(allow::add);
+        return allow.toString();
+    }
+
+    /**
+     * Gives each pattern the other patterns that may match some of the same paths.
+     */
+    private static void linkOverlapping(PathMethods[] paths) {
+        if (paths.length < 2) {
+            return;
+        }
+        String[][] segments = new String[paths.length][];
+        for (int i = 0; i < paths.length; i++) {
+            segments[i] = segments(paths[i].entry.route.originalPath);
+        }
+        List<PathMethods> overlapping = new ArrayList<>();
+        for (int i = 0; i < paths.length; i++) {
+            for (int j = 0; j < paths.length; j++) {
+                if (i != j && mayOverlap(segments[i], segments[j])) {
+                    overlapping.add(paths[j]);
+                }
+            }
+            if (!overlapping.isEmpty()) {
+                paths[i].overlapping = overlapping.toArray(NO_PATHS);
+                overlapping.clear();
+            }
+        }
+    }
+
+    /**
+     * Compares two patterns segment by segment. Only two different literal segments, or a
+     * different number of segments, rule out a shared path; a trailing {@code *} or a regex
+     * constraint may span segments, so it is assumed to match the rest.
+     */
+    private static boolean mayOverlap(String[] a, String[] b) {
+        for (int i = 0; i < Math.max(a.length, b.length); i++) {
+            String x = i < a.length ? a[i] : null;
+            String y = i < b.length ? b[i] : null;
+            if (spansRest(a, i) || spansRest(b, i)) {
+                return true;
+            }
+            if (x == null || y == null) {
+                return false;
+            }
+            if (!isVariable(x) && !isVariable(y) && !x.equals(y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean spansRest(String[] segments, int i) {
+        if (i >= segments.length) {
+            return false;
+        }
+        String seg = segments[i];
+        if (seg.equals("*") && i == segments.length - 1) {
+            return true;
+        }
+        int colon = seg.indexOf(':');
+        return isVariable(seg) && colon >= 0 && ParamType.of(seg.substring(colon + 1, seg.length() - 1)) == ParamType.STRING;
+    }
+
+    private static boolean isVariable(String seg) {
+        return seg.startsWith("{") && seg.endsWith("}");
+    }
+
+    private static String[] segments(String path) {
+        return Arrays.stream(path.split("/"))
+                .filter(seg -> !seg.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * @return the first entry with the given method, or null
+     */
+    private static Entry findMethod(List<Entry> samePattern, String method) {
+        for (Entry entry : samePattern) {
+            if (entry.route.method.equals(method)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Builds the OPTIONS route for a path: it runs the prefix and global middleware of the
+     * path (so e.g. CORS middleware can answer preflights) but none of a route's own middleware.
+     */
+    private static Route optionsRoute(Route template) {
+        JavelinHandler handler = ctx -> {
+            ctx.setHeader(HEADER_ALLOW, ctx.allowedMethods());
+            ctx.status(204).sendBytes(EMPTY_BODY);
+        };
+        Middleware[] pipeline = Arrays.copyOf(template.pipeline, template.pipeline.length - template.middleware.length);
+        return new Route(METHOD_OPTIONS, template.originalPath, handler, template.paramNames,
+                NO_MIDDLEWARE, pipeline, template.pathMethods);
+    }
+}
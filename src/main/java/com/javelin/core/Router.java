@@ -1,7 +1,7 @@
 package com.javelin.core;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -11,24 +11,123 @@ import static com.javelin.constants.HttpConstants.*;
  * Javelin's routing system for mapping HTTP methods and paths to handlers.
  * <p>
  * Supports path variables via patterns like /users/{id}.
- * Internally uses a thread-safe {@link ConcurrentHashMap} for route storage.
+ * <p>
+ * Routes live in an immutable {@link RouteTable} snapshot published through a single
+ * volatile reference. Lookups read the reference once and never block; registration and
+ * removal build a new snapshot under the router's lock and swap it in (copy-on-write).
+ * Routes are matched in registration order, so the first registered pattern that matches
+ * wins. Re-registering the same method and pattern replaces the route in place.
+ * HEAD is answered by the GET route and OPTIONS by a generated route, unless registered.
+ * <p>
+ * Resolutions of exact paths are kept in a bounded {@link RouteCache}, so frequently
+ * requested URLs skip pattern matching entirely.
+ * <p>
+ * Middleware can be registered globally, for a path prefix, or for a single route.
+ * Every route carries a precompiled pipeline (see {@link Route#pipeline}) containing only
+ * the middleware that applies to it, so a request never filters middleware at runtime.
+ * Pipelines are rebuilt whenever middleware is registered.
  */
 public class Router {
 
+    private static final Middleware[] NO_MIDDLEWARE = new Middleware[0];
+
+    /** Number of exact paths cached by a router created with {@link #Router()}. */
+    public static final int DEFAULT_CACHE_CAPACITY = 1024;
+
+    // Current route snapshot; replaced wholesale on every change
+    private volatile RouteTable table = RouteTable.EMPTY;
+
+    // Exact-path lookup cache, or null if disabled
+    private final RouteCache cache;
+
+    // Global and prefix middleware in registration order; an immutable list replaced under this
+    private volatile List<ScopedMiddleware> middlewares = List.of();
+
+    // Pipeline for requests that match no route
+    private volatile Middleware[] globalPipeline = NO_MIDDLEWARE;
+    private volatile boolean hasPrefixMiddleware;
+
     /**
-     * Map key = "METHOD <regex>", e.g. "GET ^/users/(?<id>[^/]+)/?$"
-     * Value = Route object storing the handler & paramNames
+     * Creates a router with the default lookup cache capacity.
      */
-    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+    public Router() {
+        this(DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * Creates a router that caches up to {@code cacheCapacity} resolved exact paths.
+     *
+     * @param cacheCapacity the cache size; {@code 0} disables the cache
+     */
+    public Router(int cacheCapacity) {
+        this.cache = cacheCapacity > 0 ? new RouteCache(cacheCapacity) : null;
+    }
 
     // ========== Public route registration ==========
 
-    public void get(String path, JavelinHandler handler)    { addRoute(METHOD_GET, path, handler);    }
-    public void post(String path, JavelinHandler handler)   { addRoute(METHOD_POST, path, handler);   }
-    public void put(String path, JavelinHandler handler)    { addRoute(METHOD_PUT, path, handler);    }
-    public void delete(String path, JavelinHandler handler) { addRoute(METHOD_DELETE, path, handler); }
-    public void patch(String path, JavelinHandler handler)  { addRoute(METHOD_PATCH, path, handler);  }
-    public void head(String path, JavelinHandler handler)   { addRoute(METHOD_HEAD, path, handler);   }
+    public void get(String path, JavelinHandler handler, Middleware... middleware)    { addRoute(METHOD_GET, path, handler, middleware);    }
+    public void post(String path, JavelinHandler handler, Middleware... middleware)   { addRoute(METHOD_POST, path, handler, middleware);   }
+    public void put(String path, JavelinHandler handler, Middleware... middleware)    { addRoute(METHOD_PUT, path, handler, middleware);    }
+    public void delete(String path, JavelinHandler handler, Middleware... middleware) { addRoute(METHOD_DELETE, path, handler, middleware); }
+    public void patch(String path, JavelinHandler handler, Middleware... middleware)  { addRoute(METHOD_PATCH, path, handler, middleware);  }
+    public void head(String path, JavelinHandler handler, Middleware... middleware)   { addRoute(METHOD_HEAD, path, handler, middleware);   }
+
+    // ========== Middleware registration ==========
+
+    /**
+     * Registers a middleware that runs for every request.
+     *
+     * @param middleware the middleware function
+     */
+    public void use(Middleware middleware) {
+        use("/", middleware);
+    }
+
+    /**
+     * Registers a middleware that runs only for paths under the given prefix.
+     * <p>
+     * The prefix is matched segment by segment against the literal segments of each route
+     * pattern, so {@code "/api"} applies to {@code /api} and {@code /api/users/{id}} but not
+     * to {@code /apis}. Where a path variable or trailing {@code *} of the pattern could match
+     * part of the prefix (e.g. {@code /{tenant}/admin} or {@code /files/*} under
+     * {@code "/acme"} or {@code "/files/private"}), the middleware is kept in the route's
+     * pipeline and checked against the request path when the request is dispatched.
+     * Requests that match no route are checked against the request path.
+     *
+     * @param prefix     the path prefix (e.g. {@code "/api"}); {@code "/"} means every request
+     * @param middleware the middleware function
+     */
+    public synchronized void use(String prefix, Middleware middleware) {
+        ScopedMiddleware scoped = new ScopedMiddleware(segments(prefix), middleware);
+        List<ScopedMiddleware> updated = new ArrayList<>(middlewares);
+        updated.add(scoped);
+        middlewares = List.copyOf(updated);
+        if (scoped.prefix.length > 0) {
+            hasPrefixMiddleware = true;
+        }
+        globalPipeline = compile(new String[0], NO_MIDDLEWARE);
+        table = table.map(route -> route.withPipeline(compile(segments(route.originalPath), route.middleware)));
+    }
+
+    /**
+     * Registers a group of routes that share a path prefix.
+     * <p>
+     * Example usage:
+     * <pre>{@code
+     * router.group("/api", api -> {
+     *     api.use(auth);
+     *     api.get("/users", listUsers);
+     * });
+     * }</pre>
+     *
+     * @param prefix the common path prefix
+     * @param routes a callback that registers the group's routes and middleware
+     */
+    public void group(String prefix, Consumer<RouteGroup> routes) {
+        routes.accept(new RouteGroup(this, prefix));
+    }
+
+    // ========== Lookup ==========
 
     /**
      * Finds the appropriate handler based on HTTP method and path.
@@ -39,48 +138,201 @@ public class Router {
      * @return the matching handler or null if not found
      */
     public JavelinHandler findHandler(String method, String path, Map<String, String> pathVarsOut) {
-        // We'll iterate over routes map entries
-        for (Map.Entry<String, Route> entry : routes.entrySet()) {
-            String routeKey = entry.getKey(); // e.g. "GET ^/users/(?<id>[^/]+)/?$"
-            String[] keyParts = routeKey.split(" ", 2);
-            if (keyParts.length < 2) continue;
-
-            String routeMethod = keyParts[0];
-            // The rest is a compiledRegex string
-            String compiledRegex = keyParts[1];
-            Route route = entry.getValue();
-
-            if (!routeMethod.equalsIgnoreCase(method)) continue;
-
-            Matcher matcher = Pattern.compile(compiledRegex).matcher(path);
-            if (matcher.matches()) {
-                // put extracted vars
-                for (String param : route.paramNames) {
-                    pathVarsOut.put(param, matcher.group(param));
-                }
-                return route.handler;
+        Route route = match(method, path, pathVarsOut);
+        return route != null ? route.handler : null;
+    }
+
+    /**
+     * Finds the route matching the HTTP method and path.
+     *
+     * @param method      HTTP method (e.g. GET, POST)
+     * @param path        the actual path requested
+     * @param pathVarsOut a map to store extracted path variables
+     * @return the matching route (with its precompiled pipeline) or null if not found
+     */
+    public Route match(String method, String path, Map<String, String> pathVarsOut) {
+        RouteMatch match = find(method, path);
+        if (match == null) {
+            return null;
+        }
+        if (!match.route().paramNames.isEmpty()) {
+            pathVarsOut.putAll(match.pathVars());
+        }
+        return match.route();
+    }
+
+    /**
+     * Finds the route matching the HTTP method and path, recording path variables as
+     * offsets into {@code path} instead of extracting them.
+     * <p>
+     * Typed variables ({@code {id:long}}, {@code {n:int}}) are range-checked here; a route
+     * whose constraints reject the path is skipped and matching continues with the next one.
+     *
+     * @param method HTTP method (e.g. GET, POST)
+     * @param path   the actual path requested
+     * @return the match, or null if no route matches
+     */
+    public RouteMatch find(String method, String path) {
+        RouteMatch match = new RouteMatch();
+        return find(method, path, match) ? match : null;
+    }
+
+    /**
+     * Resolves a request into a caller-owned {@link RouteMatch}, so steady-state routing
+     * allocates nothing: cached matches share the cache's offsets, and uncached ones are
+     * written into the holder's own array.
+     *
+     * @param method the HTTP method
+     * @param path   the request path
+     * @param into   the holder to fill; left untouched if nothing matches
+     * @return {@code true} if a route matched
+     */
+    public boolean find(String method, String path, RouteMatch into) {
+        RouteTable current = table;
+        if (cache != null) {
+            RouteCache.Entry cached = cache.get(current, method, path);
+            if (cached != null) {
+                into.set(cached.route(), path, cached.bounds());
+                return true;
+            }
+        }
+
+        for (RouteTable.Entry entry : current.entries(method)) {
+            Matcher matcher = entry.pattern().matcher(path);
+            if (!matcher.matches()) continue;
+
+            Route route = entry.route();
+            int[] bounds = into.scratch(route.paramNames.size() * 2);
+            if (!RouteTable.extract(entry, matcher, path, bounds)) continue;
+
+            if (cache != null) cache.put(current, method, path, route, bounds);
+            into.set(route, path, bounds);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns hit and miss counts of the exact-path lookup cache.
+     *
+     * @return the cache statistics (all zero if the cache is disabled)
+     */
+    public RouteCacheStats cacheStats() {
+        return cache != null ? cache.stats(table) : new RouteCacheStats(0, 0, 0, 0);
+    }
+
+    /**
+     * Returns the {@code Allow} header value for a path, e.g. to answer a request whose
+     * method is not registered for the path with {@code 405 Method Not Allowed}.
+     *
+     * @param path the request path
+     * @return the allowed methods (e.g. {@code "GET, HEAD, OPTIONS"}), or null if no route matches the path
+     */
+    public String allowedMethods(String path) {
+        return table.allowedMethods(path);
+    }
+
+    /**
+     * Returns all registered routes in registration (match precedence) order.
+     *
+     * @return an immutable snapshot of the routes
+     */
+    public List<Route> routes() {
+        return table.routes();
+    }
+
+    /**
+     * Removes a route registered with the given method and path pattern.
+     * Requests already being handled by the route are not affected.
+     *
+     * @param method      HTTP method (e.g. GET)
+     * @param pathPattern the pattern the route was registered with (e.g. {@code "/users/{id}"})
+     * @return {@code true} if a route was removed
+     */
+    public synchronized boolean remove(String method, String pathPattern) {
+        String regex = convertPathToRegex(pathPattern, new ArrayList<>(), new ArrayList<>());
+        RouteTable updated = table.without(method.toUpperCase(), regex);
+        if (updated == table) {
+            return false;
+        }
+        table = updated;
+        return true;
+    }
+
+    /**
+     * Returns the middleware to run for a request that matched no route: every global
+     * middleware plus any prefix middleware whose prefix covers the request path.
+     * Compiled from the current middleware snapshot without taking the router's lock.
+     *
+     * @param path the request path
+     * @return the middleware pipeline, in registration order
+     */
+    public Middleware[] fallbackPipeline(String path) {
+        if (!hasPrefixMiddleware) {
+            return globalPipeline;
+        }
+        List<ScopedMiddleware> middlewares = this.middlewares;
+        List<Middleware> pipeline = new ArrayList<>(middlewares.size());
+        for (ScopedMiddleware scoped : middlewares) {
+            if (scoped.covers(path)) {
+                pipeline.add(scoped.middleware);
             }
         }
-        return null;
+        return pipeline.isEmpty() ? NO_MIDDLEWARE : pipeline.toArray(NO_MIDDLEWARE);
     }
 
     // ========== Internal registration logic ==========
 
-    private void addRoute(String method, String pathPattern, JavelinHandler handler) {
+    private synchronized void addRoute(String method, String pathPattern, JavelinHandler handler, Middleware[] routeMiddleware) {
         // Convert pathPattern, e.g. "/users/{id}" => "^/users/(?<id>[^/]+)/?$"
         List<String> paramNames = new ArrayList<>();
-        String compiledRegex = convertPathToRegex(pathPattern, paramNames);
+        List<RouteTable.ParamType> types = new ArrayList<>();
+        String compiledRegex = convertPathToRegex(pathPattern, paramNames, types);
+
+        Middleware[] own = routeMiddleware.length == 0 ? NO_MIDDLEWARE : routeMiddleware.clone();
+        Middleware[] pipeline = compile(segments(pathPattern), own);
+
+        Route route = new Route(method, pathPattern, handler, paramNames, own, pipeline);
+        table = table.with(route, compiledRegex, Pattern.compile(compiledRegex),
+                types.toArray(new RouteTable.ParamType[0]));
+    }
 
-        // store as "GET ^/users/(?<id>[^/]+)/?$"
-        String routeKey = method + " " + compiledRegex;
-        routes.put(routeKey, new Route(method, pathPattern, handler, paramNames));
+    /**
+     * Builds the pipeline for a route pattern: global and matching prefix middleware in
+     * registration order, followed by the route's own middleware. Prefix middleware that
+     * only some of the pattern's paths fall under is guarded by a check of the request path.
+     */
+    private Middleware[] compile(String[] patternSegments, Middleware[] routeMiddleware) {
+        List<ScopedMiddleware> middlewares = this.middlewares;
+        List<Middleware> pipeline = new ArrayList<>(middlewares.size() + routeMiddleware.length);
+        for (ScopedMiddleware scoped : middlewares) {
+            switch (scoped.scope(patternSegments)) {
+                case ALL -> pipeline.add(scoped.middleware);
+                case SOME -> pipeline.add(new PrefixGuard(scoped));
+                case NONE -> { }
+            }
+        }
+        Collections.addAll(pipeline, routeMiddleware);
+        return pipeline.isEmpty() ? NO_MIDDLEWARE : pipeline.toArray(NO_MIDDLEWARE);
+    }
+
+    private static String[] segments(String path) {
+        return Arrays.stream(path.split("/"))
+                .filter(seg -> !seg.isEmpty())
+                .toArray(String[]::new);
     }
 
     /**
      * Converts a path pattern with {vars} into a named group regex.
      * e.g. "/users/{id}" -> "^/users/(?<id>[^/]+)/?$"
+     * <p>
+     * A variable may carry a constraint after a colon:
+     * <ul>
+     *   <li>{@code {id:long}} / {@code {n:int}} - a decimal number that fits the type</li>
+     *   <li>{@code {name:[a-z]+}} - any other constraint is a regex the segment must match</li>
+     * </ul>
      */
-    private String convertPathToRegex(String pathPattern, List<String> paramNames) {
+    private String convertPathToRegex(String pathPattern, List<String> paramNames, List<RouteTable.ParamType> types) {
         String[] segments = pathPattern.split("/");
         StringBuilder sb = new StringBuilder("^");
 
@@ -91,12 +343,27 @@ public class Router {
             sb.append("/");
 
             if (seg.startsWith("{") && seg.endsWith("}")) {
-                String varName = seg.substring(1, seg.length() - 1);
+                String spec = seg.substring(1, seg.length() - 1);
+                int colon = spec.indexOf(':');
+                String varName = colon < 0 ? spec : spec.substring(0, colon);
+                String constraint = colon < 0 ? null : spec.substring(colon + 1);
+                RouteTable.ParamType type = RouteTable.ParamType.of(constraint);
+
                 paramNames.add(varName);
-                sb.append("(?<").append(varName).append(">[^/]+)");
+                types.add(type);
+                sb.append("(?<").append(varName).append(">");
+                if (type != RouteTable.ParamType.STRING) {
+                    sb.append("[-+]?[0-9]+");
+                } else if (constraint != null) {
+                    sb.append("(?:").append(constraint).append(")");
+                } else {
+                    sb.append("[^/]+");
+                }
+                sb.append(")");
             } else if (seg.equals("*") && i == segments.length - 1) {
                 // 마지막 segment가 *일 때만 허용
                 paramNames.add("wildcard");
+                types.add(RouteTable.ParamType.STRING);
                 sb.append("(?<wildcard>.*)");
             } else {
                 sb.append(Pattern.quote(seg));
@@ -106,4 +373,70 @@ public class Router {
         sb.append("/?$");
         return sb.toString();
     }
+
+    /** How many of the paths a route pattern matches fall under a middleware's prefix. */
+    private enum Scope { ALL, SOME, NONE }
+
+    /**
+     * A middleware together with the path prefix (as segments) it is scoped to.
+     */
+    private record ScopedMiddleware(String[] prefix, Middleware middleware) {
+
+        /**
+         * Compares the prefix with a route pattern. A literal segment must equal the prefix
+         * segment; a path variable may match it, and a trailing {@code *} may match the
+         * rest of the prefix, so either makes the answer depend on the request path.
+         */
+        Scope scope(String[] patternSegments) {
+            boolean variable = false;
+            for (int i = 0; i < prefix.length; i++) {
+                if (i >= patternSegments.length) {
+                    return Scope.NONE;
+                }
+                String seg = patternSegments[i];
+                if (seg.equals("*") && i == patternSegments.length - 1) {
+                    return Scope.SOME;
+                }
+                if (seg.startsWith("{") && seg.endsWith("}")) {
+                    variable = true;
+                } else if (!prefix[i].equals(seg)) {
+                    return Scope.NONE;
+                }
+            }
+            return variable ? Scope.SOME : Scope.ALL;
+        }
+
+        /**
+         * Checks whether a request path lies under the prefix, without splitting it.
+         */
+        boolean covers(String path) {
+            int pos = 0;
+            int length = path.length();
+            for (String seg : prefix) {
+                while (pos < length && path.charAt(pos) == '/') pos++;
+                int end = path.indexOf('/', pos);
+                if (end < 0) end = length;
+                if (end - pos != seg.length() || !path.regionMatches(pos, seg, 0, seg.length())) {
+                    return false;
+                }
+                pos = end;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Runs a prefix middleware only for requests whose path lies under its prefix, for
+     * routes whose variable or wildcard segments may or may not match the prefix.
+     */
+    private record PrefixGuard(ScopedMiddleware scoped) implements Middleware {
+        @Override
+        public void handle(Context ctx) throws Exception {
+            if (scoped.covers(ctx.path())) {
+                scoped.middleware.handle(ctx);
+            } else {
+                ctx.next();
+            }
+        }
+    }
 }
@@ -66,8 +66,7 @@ public class StaticFileHandler implements Middleware {
     }
 
     private void serve404(Context ctx) {
-        ctx.status(404);
-        ctx.send(MESSAGE_NOT_FOUND);
+        ctx.send(PreparedResponse.NOT_FOUND);
     }
 
     private String guessMimeType(Path path) {
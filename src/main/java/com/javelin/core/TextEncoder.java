@@ -0,0 +1,113 @@
+package com.javelin.core;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Encodes response text into pooled byte arrays without creating a copy of the body.
+ * <p>
+ * The text is copied into a small reusable {@code char[]} in chunks and encoded from there
+ * with a reusable {@link CharsetEncoder}. Array-backed buffers let the JDK encoders use their
+ * intrinsic ASCII and Latin-1 loops, so this keeps pace with {@link String#getBytes} while
+ * allocating nothing per call once warmed up. The encoded length is the write position, so
+ * no second pass is needed for {@code Content-Length}.
+ * <p>
+ * One encoder belongs to one (pooled) context and is not thread-safe.
+ */
+final class TextEncoder {
+
+    private static final int MAX_CHUNK = 2048;
+
+    private char[] chars = new char[0];
+    private CharBuffer in;
+    private CharsetEncoder encoder;
+
+    private byte[] out;
+    private int length;
+
+    /**
+     * Encodes {@code text} into an array acquired from {@code pool}. Unmappable chars and
+     * unpaired surrogates become the charset's replacement, as with {@link String#getBytes(Charset)}.
+     * The caller reads {@link #array()} and {@link #length()} and then releases the array.
+     */
+    void encode(String text, Charset charset, BufferPool pool) {
+        int len = text.length();
+        CharsetEncoder encoder = encoderFor(charset);
+        CharBuffer in = chunkBuffer(len);
+
+        out = pool.acquire((int) Math.min(Integer.MAX_VALUE - 8, (long) (len * encoder.averageBytesPerChar())));
+        ByteBuffer dst = ByteBuffer.wrap(out);
+        int offset = 0;
+        in.clear();
+        while (true) {
+            // Append the next chunk after any chars the encoder left over (a split surrogate pair)
+            int count = Math.min(in.remaining(), len - offset);
+            text.getChars(offset, offset + count, chars, in.position());
+            in.position(in.position() + count);
+            offset += count;
+            boolean last = offset == len;
+
+            in.flip();
+            while (encoder.encode(in, dst, last).isOverflow()) {
+                dst = grow(dst, pool);
+            }
+            in.compact();
+            if (last) break;
+        }
+        while (encoder.flush(dst).isOverflow()) {
+            dst = grow(dst, pool);
+        }
+        length = dst.position();
+    }
+
+    byte[] array() {
+        return out;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * Drops the reference to the last output array after it has been released.
+     */
+    void clear() {
+        out = null;
+        length = 0;
+    }
+
+    private CharsetEncoder encoderFor(Charset charset) {
+        if (encoder == null || !encoder.charset().equals(charset)) {
+            encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        } else {
+            encoder.reset();
+        }
+        return encoder;
+    }
+
+    /**
+     * @return the chunk buffer, grown (up to {@code MAX_CHUNK}) to fit short texts in one chunk
+     */
+    private CharBuffer chunkBuffer(int textLength) {
+        // Room for one leftover char besides the chunk itself
+        int wanted = Math.min(MAX_CHUNK, textLength + 1);
+        if (chars.length < wanted) {
+            chars = new char[Math.max(wanted, Math.min(MAX_CHUNK, chars.length << 1))];
+            in = CharBuffer.wrap(chars);
+        }
+        return in;
+    }
+
+    private ByteBuffer grow(ByteBuffer dst, BufferPool pool) {
+        byte[] larger = pool.acquire(out.length << 1);
+        System.arraycopy(out, 0, larger, 0, dst.position());
+        pool.release(out);
+        out = larger;
+        return ByteBuffer.wrap(larger).position(dst.position());
+    }
+}
@@ -0,0 +1,223 @@
+package com.javelin.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lazily parsed {@code application/x-www-form-urlencoded} parameters, used for both query
+ * strings and form bodies.
+ * <p>
+ * Nothing is parsed until the first lookup. The first lookup indexes the raw string once,
+ * recording where every name and value starts and ends; no substrings are created. Names
+ * are compared against the raw characters, values are decoded only when they are read, and
+ * numeric accessors parse straight from the raw characters when the value is not encoded.
+ * <p>
+ * Repeated names keep all of their values in order. Instances are meant to be used by one
+ * request at a time and are not thread-safe.
+ */
+public final class UrlEncodedParams {
+
+    private static final int[] NOT_INDEXED = new int[0];
+
+    private final String raw;
+
+    // Four ints per pair: name start, name end, value start, value end
+    private int[] index = NOT_INDEXED;
+    private int count = -1;
+    private String[] decodedValues;
+
+    /**
+     * @param raw the encoded parameters without a leading {@code '?'} (may be null)
+     */
+    public UrlEncodedParams(String raw) {
+        this.raw = raw == null ? "" : raw;
+    }
+
+    // ========== Lookup ==========
+
+    /**
+     * @param name the parameter name
+     * @return the first value of the parameter (empty if given without {@code '='}), or {@code null}
+     */
+    public String get(String name) {
+        int i = find(name, 0);
+        return i < 0 ? null : value(i);
+    }
+
+    /**
+     * @param name the parameter name
+     * @return every value of the parameter in request order, or an empty list
+     */
+    public List<String> getAll(String name) {
+        int i = find(name, 0);
+        if (i < 0) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>(2);
+        for (; i >= 0; i = find(name, i + 1)) {
+            values.add(value(i));
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Parses the first value of a parameter as an {@code int}.
+     *
+     * @param name         the parameter name
+     * @param defaultValue returned when the parameter is missing or empty
+     * @return the parsed value
+     * @throws NumberFormatException if the value is not a valid {@code int}
+     */
+    public int getInt(String name, int defaultValue) {
+        return (int) parseNumber(name, defaultValue, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Parses the first value of a parameter as a {@code long}.
+     *
+     * @param name         the parameter name
+     * @param defaultValue returned when the parameter is missing or empty
+     * @return the parsed value
+     * @throws NumberFormatException if the value is not a valid {@code long}
+     */
+    public long getLong(String name, long defaultValue) {
+        return parseNumber(name, defaultValue, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * @return the number of name/value pairs
+     */
+    public int size() {
+        ensureIndexed();
+        return count;
+    }
+
+    // ========== Indexing ==========
+
+    private void ensureIndexed() {
+        if (count >= 0) {
+            return;
+        }
+        int[] idx = new int[16];
+        int n = 0;
+        int length = raw.length();
+        int pos = 0;
+        while (pos < length) {
+            int amp = raw.indexOf('&', pos);
+            if (amp < 0) amp = length;
+            if (amp > pos) {
+                int eq = raw.indexOf('=', pos);
+                if (eq < 0 || eq > amp) eq = -1;
+                if (4 * n + 4 > idx.length) idx = Arrays.copyOf(idx, idx.length * 2);
+                idx[4 * n] = pos;
+                idx[4 * n + 1] = eq < 0 ? amp : eq;
+                idx[4 * n + 2] = eq < 0 ? amp : eq + 1;
+                idx[4 * n + 3] = amp;
+                n++;
+            }
+            pos = amp + 1;
+        }
+        index = idx;
+        count = n;
+    }
+
+    /**
+     * @return the position of the first pair at or after {@code from} with the given name, or -1
+     */
+    private int find(String name, int from) {
+        ensureIndexed();
+        for (int i = from; i < count; i++) {
+            int start = index[4 * i];
+            int end = index[4 * i + 1];
+            if (isPlain(start, end)) {
+                if (end - start == name.length() && raw.regionMatches(start, name, 0, end - start)) {
+                    return i;
+                }
+            } else if (decode(start, end).equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String value(int i) {
+        if (decodedValues == null) {
+            decodedValues = new String[count];
+        }
+        String value = decodedValues[i];
+        if (value == null) {
+            value = decode(index[4 * i + 2], index[4 * i + 3]);
+            decodedValues[i] = value;
+        }
+        return value;
+    }
+
+    private long parseNumber(String name, long defaultValue, long min, long max) {
+        int i = find(name, 0);
+        if (i < 0) {
+            return defaultValue;
+        }
+        int start = index[4 * i + 2];
+        int end = index[4 * i + 3];
+        if (start == end) {
+            return defaultValue;
+        }
+        if (isPlain(start, end)) {
+            return RouteMatch.parseLong(raw, start, end, min, max);
+        }
+        String value = value(i);
+        return RouteMatch.parseLong(value, 0, value.length(), min, max);
+    }
+
+    // ========== Decoding ==========
+
+    private boolean isPlain(int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = raw.charAt(i);
+            if (c == '%' || c == '+') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes {@code raw[start, end)}: {@code '+'} becomes a space and {@code %XX} sequences
+     * are decoded as UTF-8. Malformed escapes are kept literally.
+     */
+    private String decode(int start, int end) {
+        if (isPlain(start, end)) {
+            return raw.substring(start, end);
+        }
+        StringBuilder sb = new StringBuilder(end - start);
+        byte[] bytes = null;
+        int pending = 0;
+        for (int i = start; i < end; i++) {
+            char c = raw.charAt(i);
+            if (c == '%' && i + 2 < end) {
+                int hi = Character.digit(raw.charAt(i + 1), 16);
+                int lo = Character.digit(raw.charAt(i + 2), 16);
+                if (hi >= 0 && lo >= 0) {
+                    if (bytes == null) {
+                        bytes = new byte[(end - i) / 3 + 1];
+                    }
+                    bytes[pending++] = (byte) ((hi << 4) | lo);
+                    i += 2;
+                    continue;
+                }
+            }
+            if (pending > 0) {
+                sb.append(new String(bytes, 0, pending, StandardCharsets.UTF_8));
+                pending = 0;
+            }
+            sb.append(c == '+' ? ' ' : c);
+        }
+        if (pending > 0) {
+            sb.append(new String(bytes, 0, pending, StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,108 @@
+package com.javelin.core;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Host-scoped routers for serving several sites from one server.
+ * <p>
+ * Hosts are registered either exactly ({@code "api.example.com"}) or as a wildcard for one
+ * subdomain label ({@code "*.example.com"} matches {@code "shop.example.com"} but not
+ * {@code "example.com"} or {@code "a.b.example.com"}). An exact registration wins over a
+ * wildcard.
+ * <p>
+ * Resolution is one hash lookup on the {@code Host} header (without port), plus one more
+ * for the wildcard table when the exact lookup misses, so its cost does not depend on the
+ * number of hosts. Both tables are immutable maps replaced on registration, so lookups
+ * never lock.
+ */
+public final class VirtualHosts {
+
+    private volatile Map<String, Router> exact = Map.of();
+    private volatile Map<String, Router> wildcard = Map.of(); // keyed by the suffix after "*."
+
+    /**
+     * Returns the router for a host pattern, creating it on first use.
+     *
+     * @param hostPattern an exact host name or {@code "*.domain"}
+     * @return the host's router
+     */
+    public synchronized Router register(String hostPattern) {
+        String host = hostPattern.trim().toLowerCase(Locale.ROOT);
+        boolean isWildcard = host.startsWith("*.");
+        String key = isWildcard ? host.substring(2) : host;
+        if (key.isEmpty() || key.indexOf('*') >= 0) {
+            throw new IllegalArgumentException("Invalid host pattern: " + hostPattern);
+        }
+
+        Map<String, Router> table = isWildcard ? wildcard : exact;
+        Router router = table.get(key);
+        if (router == null) {
+            router = new Router();
+            Map<String, Router> copy = new HashMap<>(table);
+            copy.put(key, router);
+            if (isWildcard) {
+                wildcard = Map.copyOf(copy);
+            } else {
+                exact = Map.copyOf(copy);
+            }
+        }
+        return router;
+    }
+
+    /**
+     * @return {@code true} if no host has been registered
+     */
+    public boolean isEmpty() {
+        return exact.isEmpty() && wildcard.isEmpty();
+    }
+
+    /**
+     * Finds the router for a {@code Host} header value.
+     *
+     * @param hostHeader the header value, possibly with a port (may be null)
+     * @return the matching router, or {@code null} if no host matches
+     */
+    public Router resolve(String hostHeader) {
+        if (hostHeader == null) {
+            return null;
+        }
+        String host = normalize(hostHeader);
+        Router router = exact.get(host);
+        if (router == null) {
+            int dot = host.indexOf('.');
+            if (dot > 0) {
+                router = wildcard.get(host.substring(dot + 1));
+            }
+        }
+        return router;
+    }
+
+    /**
+     * Strips the port and a trailing dot, and lower-cases the host only if needed.
+     */
+    static String normalize(String hostHeader) {
+        int end = hostHeader.length();
+        if (hostHeader.startsWith("[")) {
+            // IPv6 literal, e.g. [::1]:8080
+            int close = hostHeader.indexOf(']');
+            end = close < 0 ? end : close + 1;
+        } else {
+            int colon = hostHeader.lastIndexOf(':');
+            if (colon >= 0) {
+                end = colon;
+            }
+        }
+        if (end > 0 && hostHeader.charAt(end - 1) == '.') {
+            end--;
+        }
+        for (int i = 0; i < end; i++) {
+            char c = hostHeader.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                return hostHeader.substring(0, end).toLowerCase(Locale.ROOT);
+            }
+        }
+        return end == hostHeader.length() ? hostHeader : hostHeader.substring(0, end);
+    }
+}
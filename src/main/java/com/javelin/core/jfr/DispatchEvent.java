@@ -0,0 +1,24 @@
+package com.javelin.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The time between the JDK HTTP server handing over a parsed request and the request's virtual thread starting, i.e. accept and scheduling delay.
+ */
+@Name("javelin.Dispatch")
+@Label("Dispatch")
+@Category({"Javelin", "Request"})
+@Description("Time from the HTTP server accepting the request to its virtual thread starting")
+@StackTrace(false)
+@Threshold(JavelinEvents.DEFAULT_THRESHOLD)
+public final class DispatchEvent extends Event {
+
+    @Label("Path")
+    public String path;
+}
@@ -0,0 +1,181 @@
+package com.javelin.core.jfr;
+
+import com.javelin.core.JavelinHandler;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admin handlers that start, dump and stop a bounded Flight Recorder recording on demand.
+ * <p>
+ * The recording uses the JDK's {@code default} settings plus the Javelin events, and is bounded
+ * by age and size so it can be left running. A dump returns the data recorded so far as a
+ * {@code .jfr} file for JDK Mission Control or {@code jfr print}.
+ * <pre>{@code
+ * POST /admin/jfr/start?maxAge=300&maxSize=67108864&threshold=0
+ * GET  /admin/jfr/dump
+ * POST /admin/jfr/stop
+ * }</pre>
+ */
+public final class FlightRecorderEndpoints {
+
+    /** Seconds of history kept when {@code maxAge} is not given. */
+    public static final long DEFAULT_MAX_AGE_SECONDS = 300;
+
+    /** Bytes kept when {@code maxSize} is not given. */
+    public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+    // Upper bounds for request parameters, so an admin call cannot make the recording unbounded
+    private static final long MAX_AGE_LIMIT_SECONDS = 3600;
+    private static final long MAX_SIZE_LIMIT = 512L * 1024 * 1024;
+
+    // A lock rather than synchronized, so a waiting admin request does not pin its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private Recording recording; // guarded by lock
+
+    /**
+     * Starts a recording. Query parameters: {@code maxAge} in seconds, {@code maxSize} in bytes,
+     * and {@code threshold} in milliseconds for the Javelin events (default
+     * {@link JavelinEvents#DEFAULT_THRESHOLD}). Responds {@code 409} if one is already running.
+     */
+    public JavelinHandler start() {
+        return ctx -> {
+            long maxAge = Math.min(MAX_AGE_LIMIT_SECONDS, ctx.queryLong("maxAge", DEFAULT_MAX_AGE_SECONDS));
+            long maxSize = Math.min(MAX_SIZE_LIMIT, ctx.queryLong("maxSize", DEFAULT_MAX_SIZE));
+            long thresholdMillis = ctx.queryLong("threshold", -1);
+            if (maxAge <= 0 || maxSize <= 0) {
+                throw new IllegalArgumentException("maxAge and maxSize must be positive");
+            }
+            long id;
+            boolean running;
+            lock.lock();
+            try {
+                running = recording != null && recording.getState() == RecordingState.RUNNING;
+                if (!running) {
+                    if (recording != null) {
+                        // Stopped outside this class (e.g. jcmd JFR.stop); closing frees its disk chunks
+                        recording.close();
+                        recording = null;
+                    }
+                    recording = newRecording(Duration.ofSeconds(maxAge), maxSize, thresholdMillis);
+                    recording.start();
+                }
+                id = recording.getId();
+            } finally {
+                lock.unlock();
+            }
+            if (running) {
+                ctx.status(409).json(Map.of("error", "A recording is already running", "id", id));
+            } else {
+                ctx.json(Map.of("id", id, "maxAgeSeconds", maxAge, "maxSize", maxSize));
+            }
+        };
+    }
+
+    /**
+     * Dumps what the running recording holds so far as a {@code .jfr} file, streamed from a
+     * temporary file. Responds {@code 404} if no recording was started.
+     */
+    public JavelinHandler dump() {
+        return ctx -> {
+            Recording current;
+            lock.lock();
+            try {
+                current = recording;
+            } finally {
+                lock.unlock();
+            }
+            if (current == null) {
+                ctx.status(404).json(Map.of("error", "No recording"));
+                return;
+            }
+
+            Path file = Files.createTempFile("javelin-", ".jfr");
+            try {
+                try {
+                    current.dump(file);
+                } catch (IOException e) {
+                    if (current.getState() == RecordingState.CLOSED) {
+                        // Stopped while this request was dumping it
+                        ctx.status(404).json(Map.of("error", "No recording"));
+                        return;
+                    }
+                    throw e;
+                }
+                ctx.setHeader("Content-Type", "application/octet-stream")
+                        .setHeader("Content-Disposition", "attachment; filename=\"javelin-" + current.getId() + ".jfr\"")
+                        .sendFile(file);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+    }
+
+    /**
+     * Stops and discards the recording. Dump first to keep its data.
+     */
+    public JavelinHandler stop() {
+        return ctx -> {
+            Recording stopped;
+            lock.lock();
+            try {
+                stopped = recording;
+                recording = null;
+            } finally {
+                lock.unlock();
+            }
+            if (stopped == null) {
+                ctx.status(404).json(Map.of("error", "No recording"));
+                return;
+            }
+            stopped.close();
+            ctx.json(Map.of("stopped", true));
+        };
+    }
+
+    /**
+     * Closes a running recording, e.g. when the server stops.
+     */
+    public void close() {
+        Recording stopped;
+        lock.lock();
+        try {
+            stopped = recording;
+            recording = null;
+        } finally {
+            lock.unlock();
+        }
+        if (stopped != null) {
+            stopped.close();
+        }
+    }
+
+    private static Recording newRecording(Duration maxAge, long maxSize, long thresholdMillis) throws IOException {
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration("default"));
+        } catch (ParseException e) {
+            throw new IOException("Cannot load the JDK's default recording settings", e);
+        }
+        recording.setName("javelin");
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSize);
+        recording.setToDisk(true);
+        for (Class<? extends Event> event : JavelinEvents.ALL) {
+            var settings = recording.enable(event);
+            if (thresholdMillis >= 0) {
+                settings.withThreshold(Duration.ofMillis(thresholdMillis));
+            }
+        }
+        return recording;
+    }
+}
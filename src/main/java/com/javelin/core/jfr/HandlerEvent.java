@@ -0,0 +1,27 @@
+package com.javelin.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Execution of a route handler, or of the 404/405 fallback when no route matched.
+ */
+@Name("javelin.Handler")
+@Label("Handler")
+@Category({"Javelin", "Request"})
+@Description("Execution of the route handler")
+@StackTrace(false)
+@Threshold(JavelinEvents.DEFAULT_THRESHOLD)
+public final class HandlerEvent extends Event {
+
+    @Label("Route")
+    public String route;
+
+    @Label("Status")
+    public int status;
+}
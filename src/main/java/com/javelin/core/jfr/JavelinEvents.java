@@ -0,0 +1,80 @@
+package com.javelin.core.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The Flight Recorder events Javelin emits for the request lifecycle.
+ * <p>
+ * They are ordinary JFR events: any recording includes them, and their thresholds can be
+ * changed in a {@code .jfc} file, e.g. {@code javelin.Handler#threshold=0 ms}.
+ * <p>
+ * The server creates events through {@link #begin} and finishes them with {@link #end}, which
+ * check whether a recording enables the event type first. While none does, a request creates
+ * no event objects; while one does, each stage of a request allocates its event.
+ */
+public final class JavelinEvents {
+
+    /**
+     * Events are recorded only when they take at least this long unless a recording lowers
+     * the threshold, so an always-on recording captures slow requests without one event
+     * per stage of every request.
+     */
+    public static final String DEFAULT_THRESHOLD = "10 ms";
+
+    /** Every Javelin event type, in request order. */
+    public static final List<Class<? extends Event>> ALL = List.of(
+            DispatchEvent.class,
+            ParseEvent.class,
+            RouteMatchEvent.class,
+            MiddlewareEvent.class,
+            HandlerEvent.class,
+            SerializationEvent.class,
+            ResponseWriteEvent.class,
+            RequestEvent.class
+    );
+
+    private static final ClassValue<EventType> TYPES = new ClassValue<>() {
+        @Override
+        protected EventType computeValue(Class<?> type) {
+            return EventType.getEventType(type.asSubclass(Event.class));
+        }
+    };
+
+    private JavelinEvents() {
+    }
+
+    /**
+     * Creates and begins an event if a recording enables its type.
+     *
+     * @param type    the event class
+     * @param factory creates the event, e.g. {@code RequestEvent::new}
+     * @param <E>     the event type
+     * @return the begun event, or {@code null} if the type is disabled
+     */
+    public static <E extends Event> E begin(Class<E> type, Supplier<E> factory) {
+        if (!TYPES.get(type).isEnabled()) {
+            return null;
+        }
+        E event = factory.get();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends an event from {@link #begin}.
+     *
+     * @param event the event, or {@code null}
+     * @return whether the event should be committed: it exists and took longer than its threshold
+     */
+    public static boolean end(Event event) {
+        if (event == null) {
+            return false;
+        }
+        event.end();
+        return event.shouldCommit();
+    }
+}
@@ -0,0 +1,30 @@
+package com.javelin.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One middleware invocation. Middleware wraps the rest of the chain, so the duration includes everything after it that runs inside ctx.next().
+ */
+@Name("javelin.Middleware")
+@Label("Middleware")
+@Category({"Javelin", "Request"})
+@Description("One middleware invocation, including the rest of the chain it wraps")
+@StackTrace(false)
+@Threshold(JavelinEvents.DEFAULT_THRESHOLD)
+public final class MiddlewareEvent extends Event {
+
+    @Label("Middleware")
+    public String middleware;
+
+    @Label("Route")
+    public String route;
+
+    @Label("Status")
+    public int status;
+}
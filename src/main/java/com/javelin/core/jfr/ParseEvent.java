@@ -0,0 +1,27 @@
+package com.javelin.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Request preparation before routing: method override, path and Host resolution. The request line and headers themselves are parsed by the JDK HTTP server before dispatch.
+ */
+@Name("javelin.Parse")
+@Label("Request Parse")
+@Category({"Javelin", "Request"})
+@Description("Method override, path and Host resolution before routing")
+@StackTrace(false)
+@Threshold(JavelinEvents.DEFAULT_THRESHOLD)
+public final class ParseEvent extends Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Path")
+    public String path;
+}
@@ -0,0 +1,115 @@
+package com.javelin.core.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches {@code jdk.VirtualThreadPinned} events in-process and reports which handler code
+ * pins carrier threads, typically by blocking inside {@code synchronized} or native code.
+ * <p>
+ * Each event is attributed to the innermost application frame of its stack trace: the first
+ * frame outside the JDK and Javelin's own request machinery. Sites are logged the first time
+ * they pin and are aggregated for {@link #report()}.
+ */
+public final class PinningMonitor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    /**
+     * How often one code location pinned a carrier, and for how long.
+     *
+     * @param frame the innermost application frame, e.g. {@code com.example.Api.lambda$routes$0:42}
+     * @param count how many pinning events were attributed to it
+     * @param total the total pinned time
+     * @param max   the longest single pin
+     */
+    public record PinnedSite(String frame, long count, Duration total, Duration max) {}
+
+    private final RecordingStream stream;
+    private final Map<String, Site> sites = new ConcurrentHashMap<>();
+
+    private PinningMonitor(Duration threshold) {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+    }
+
+    /**
+     * Starts watching for pins of at least {@code threshold}.
+     *
+     * @param threshold the shortest pin to report (the JDK default is 20 ms)
+     * @return the running monitor; close it to stop watching
+     */
+    public static PinningMonitor start(Duration threshold) {
+        PinningMonitor monitor = new PinningMonitor(threshold);
+        monitor.stream.startAsync();
+        return monitor;
+    }
+
+    /**
+     * @return every site that pinned a carrier so far, longest total pinned time first
+     */
+    public List<PinnedSite> report() {
+        List<PinnedSite> report = new ArrayList<>(sites.size());
+        sites.forEach((frame, site) -> report.add(new PinnedSite(frame, site.count.get(),
+                Duration.ofNanos(site.totalNanos.get()), Duration.ofNanos(site.maxNanos.get()))));
+        report.sort(Comparator.comparing(PinnedSite::total).reversed());
+        return report;
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String frame = applicationFrame(event);
+        long nanos = event.getDuration().toNanos();
+        Site site = sites.computeIfAbsent(frame, f -> {
+            log.warn("Virtual thread pinned its carrier for {} ms at {}", nanos / 1_000_000, f);
+            return new Site();
+        });
+        site.count.incrementAndGet();
+        site.totalNanos.addAndGet(nanos);
+        site.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static String applicationFrame(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "<no stack trace>";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (!isFramework(type)) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        return frames.isEmpty() ? "<unknown>" : frames.get(0).getMethod().getType().getName();
+    }
+
+    private static boolean isFramework(String type) {
+        return type.startsWith("java.") || type.startsWith("jdk.") || type.startsWith("sun.")
+                || type.startsWith("com.sun.") || type.startsWith("com.javelin.core.")
+                || type.startsWith("com.javelin.VirtualThreadServer");
+    }
+
+    private static final class Site {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+    }
+}
@@ -0,0 +1,34 @@
+package com.javelin.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A whole request, from the start of routing until the response is written.
+ */
+@Name("javelin.Request")
+@Label("Request")
+@Category({"Javelin", "Request"})
+@Description("One request handled by the server, from routing to the written response")
+@StackTrace(false)
+@Threshold(JavelinEvents.DEFAULT_THRESHOLD)
+public final class RequestEvent extends Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Route")
+    @Description("The matched route pattern, or null if no route matched")
+    public String route;
+
+    @Label("Status")
+    public int status;
+}
@@ -0,0 +1,32 @@
+package com.javelin.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Sending the response status, headers and body to the client.
+ */
+@Name("javelin.ResponseWrite")
+@Label("Response Write")
+@Category({"Javelin", "Request"})
+@Description("Sending the response status, headers and body to the client")
+@StackTrace(false)
+@Threshold(JavelinEvents.DEFAULT_THRESHOLD)
+public final class ResponseWriteEvent extends Event {
+
+    @Label("Status")
+    public int status;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Route")
+    public String route;
+}
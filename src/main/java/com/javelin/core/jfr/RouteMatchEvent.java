@@ -0,0 +1,31 @@
+package com.javelin.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Route lookup for one request, including the 405 check when nothing matches.
+ */
+@Name("javelin.RouteMatch")
+@Label("Route Match")
+@Category({"Javelin", "Request"})
+@Description("Route lookup for a request")
+@StackTrace(false)
+@Threshold(JavelinEvents.DEFAULT_THRESHOLD)
+public final class RouteMatchEvent extends Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Route")
+    @Description("The matched route pattern, or null if no route matched")
+    public String route;
+}
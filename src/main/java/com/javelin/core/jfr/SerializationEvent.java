@@ -0,0 +1,35 @@
+package com.javelin.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Encoding a response object as JSON or MessagePack.
+ */
+@Name("javelin.Serialization")
+@Label("Serialization")
+@Category({"Javelin", "Request"})
+@Description("Encoding a response object as JSON or MessagePack")
+@StackTrace(false)
+@Threshold(JavelinEvents.DEFAULT_THRESHOLD)
+public final class SerializationEvent extends Event {
+
+    @Label("Content Type")
+    public String contentType;
+
+    @Label("Type")
+    public Class<?> type;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Route")
+    public String route;
+}
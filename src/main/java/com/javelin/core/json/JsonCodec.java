@@ -0,0 +1,37 @@
+package com.javelin.core.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * A specialized JSON serializer and deserializer for a single type.
+ * <p>
+ * Codecs are created once per type by the {@link JsonCodecRegistry} and
+ * shared by all requests, so implementations must be stateless.
+ *
+ * @param <T> the type handled by this codec
+ */
+public interface JsonCodec<T> {
+
+    /**
+     * Writes {@code value} as JSON into the given output.
+     *
+     * @param value the value to serialize (never {@code null})
+     * @param out   the output to append UTF-8 bytes to
+     * @throws IOException if a nested fallback serializer fails
+     */
+    void write(T value, JsonOutput out) throws IOException;
+
+    /**
+     * Reads one value from the parser.
+     * <p>
+     * The parser is positioned on the first token of the value when this method is called,
+     * and is left on the last token of the value when it returns.
+     *
+     * @param parser the streaming parser to read from
+     * @return the decoded value
+     * @throws IOException if the input is not valid for this type
+     */
+    T read(JsonParser parser) throws IOException;
+}
@@ -0,0 +1,255 @@
+package com.javelin.core.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opt-in registry of specialized JSON codecs, with Jackson as the fallback.
+ * <p>
+ * Record types registered here get a {@link JsonCodec} generated once at startup
+ * that writes UTF-8 bytes directly, bypassing Jackson's reflective bean serializers.
+ * Every other type, and every record that cannot be generated (for example because
+ * it uses Jackson annotations), is handled by the underlying {@link ObjectMapper}
+ * exactly as before.
+ * <p>
+ * Example usage:
+ * <pre>{@code
+ * server.registerJsonCodec(User.class);
+ * server.get("/user", ctx -> ctx.json(new User(1, "Javelin"))); // uses the generated codec
+ * }</pre>
+ */
+public class JsonCodecRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(JsonCodecRegistry.class);
+
+    private final ObjectMapper mapper;
+    private final Map<Class<?>, JsonCodec<?>> codecs = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a registry backed by a default {@link ObjectMapper}.
+     */
+    public JsonCodecRegistry() {
+        this(new ObjectMapper());
+    }
+
+    /**
+     * Creates a registry that falls back to the given mapper for unsupported types.
+     *
+     * @param mapper the Jackson mapper to use as fallback
+     */
+    public JsonCodecRegistry(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * @return the Jackson mapper used for types without a codec
+     */
+    public ObjectMapper mapper() {
+        return mapper;
+    }
+
+    // ========== Registration ==========
+
+    /**
+     * Generates and registers a codec for the given record type.
+     * <p>
+     * Nested record components are generated on first use.
+     *
+     * @param type the record class
+     * @return {@code true} if a codec was generated, {@code false} if the type stays on Jackson
+     */
+    public <T extends Record> boolean register(Class<T> type) {
+        return resolve(type) != null;
+    }
+
+    /**
+     * Registers a hand-written codec for the given type.
+     *
+     * @param type  the type handled by the codec
+     * @param codec the codec to use
+     */
+    public <T> void register(Class<T> type, JsonCodec<T> codec) {
+        codecs.put(type, codec);
+    }
+
+    /**
+     * Returns the codec registered for exactly this type.
+     *
+     * @param type the type to look up
+     * @return the codec, or {@code null} if the type is handled by Jackson
+     */
+    @SuppressWarnings("unchecked")
+    public <T> JsonCodec<T> codec(Class<T> type) {
+        JsonCodec<?> codec = codecs.get(type);
+        return codec == Unsupported.INSTANCE ? null : (JsonCodec<T>) codec;
+    }
+
+    /**
+     * Returns the codec for a type, generating one if it is a record that has not been seen yet.
+     */
+    @SuppressWarnings("unchecked")
+    <T> JsonCodec<T> resolve(Class<T> type) {
+        JsonCodec<?> codec = codecs.get(type);
+        if (codec == null) {
+            codec = RecordCodec.generate(type, this);
+            if (codec == null) {
+                log.debug("No JSON codec generated for {}; using Jackson", type.getName());
+                codec = Unsupported.INSTANCE;
+            }
+            JsonCodec<?> existing = codecs.putIfAbsent(type, codec);
+            if (existing != null) {
+                codec = existing;
+            }
+        }
+        return codec == Unsupported.INSTANCE ? null : (JsonCodec<T>) codec;
+    }
+
+    // ========== Serialization ==========
+
+    /**
+     * Writes any value as JSON, using a registered codec when one exists for its runtime class.
+     *
+     * @param value the value to write (may be {@code null})
+     * @param out   the output to append to
+     * @throws IOException if Jackson fails to serialize a fallback value
+     */
+    @SuppressWarnings("unchecked")
+    public void write(Object value, JsonOutput out) throws IOException {
+        if (value == null) {
+            out.writeNull();
+            return;
+        }
+        if (value instanceof String s) {
+            out.writeString(s);
+            return;
+        }
+
+        JsonCodec<Object> codec = (JsonCodec<Object>) codec(value.getClass());
+        if (codec != null) {
+            codec.write(value, out);
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Boolean b) {
+            out.writeBoolean(b);
+        } else if (value instanceof Double d) {
+            out.writeDouble(d);
+        } else if (value instanceof Float f) {
+            out.writeFloat(f);
+        } else {
+            mapper.writeValue(out, value);
+        }
+    }
+
+    /**
+     * Serializes any value to a JSON byte array.
+     *
+     * @param value the value to serialize
+     * @return the UTF-8 JSON bytes
+     * @throws IOException if serialization fails
+     */
+    public byte[] writeValueAsBytes(Object value) throws IOException {
+        JsonOutput out = new JsonOutput();
+        write(value, out);
+        return out.toByteArray();
+    }
+
+    // ========== Deserialization ==========
+
+    /**
+     * Reads a single JSON value of the given type from a stream.
+     *
+     * @param in   the input stream
+     * @param type the class to deserialize into
+     * @return the decoded value
+     * @throws IOException if the input cannot be parsed
+     */
+    public <T> T read(InputStream in, Class<T> type) throws IOException {
+        JsonCodec<T> codec = codec(type);
+        if (codec == null) {
+            return mapper.readValue(in, type);
+        }
+        try (JsonParser parser = mapper.createParser(in)) {
+            if (parser.nextToken() == null) {
+                throw MismatchedInputException.from(parser, type, "No content to map due to end-of-input");
+            }
+            return codec.read(parser);
+        }
+    }
+
+    /**
+     * Reads a single JSON value of the given type from a parser positioned on its first token.
+     *
+     * @param parser the parser to read from
+     * @param type   the class to deserialize into
+     * @return the decoded value
+     * @throws IOException if the input cannot be parsed
+     */
+    public <T> T read(JsonParser parser, Class<T> type) throws IOException {
+        JsonCodec<T> codec = codec(type);
+        return codec != null ? codec.read(parser) : mapper.readValue(parser, type);
+    }
+
+    /**
+     * Returns a lazy iterator over a JSON array or NDJSON sequence read from a stream.
+     * <p>
+     * The caller must close the iterator, which also closes the stream.
+     *
+     * @param in   the input stream
+     * @param type the element type
+     * @return an iterator that decodes one element per {@code next()} call
+     * @throws IOException if the start of the input cannot be parsed
+     */
+    public <T> JsonValueIterator<T> readValues(InputStream in, Class<T> type) throws IOException {
+        return new JsonValueIterator<>(mapper.createParser(in), type, this);
+    }
+
+    // ========== Nested records ==========
+
+    /**
+     * Writes a record component value, generating a codec for its record type on first use.
+     */
+    @SuppressWarnings("unchecked")
+    void writeNested(Object value, JsonOutput out) throws IOException {
+        JsonCodec<Object> codec = value == null ? null : (JsonCodec<Object>) resolve(value.getClass());
+        if (codec != null) {
+            codec.write(value, out);
+        } else {
+            write(value, out);
+        }
+    }
+
+    /**
+     * Reads a record component value, generating a codec for its record type on first use.
+     */
+    <T> T readNested(JsonParser parser, Class<T> type) throws IOException {
+        JsonCodec<T> codec = resolve(type);
+        return codec != null ? codec.read(parser) : mapper.readValue(parser, type);
+    }
+
+    /**
+     * Marker stored for types that were checked and must stay on Jackson,
+     * so the check is not repeated on every call.
+     */
+    private enum Unsupported implements JsonCodec<Object> {
+        INSTANCE;
+
+        @Override
+        public void write(Object value, JsonOutput out) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object read(JsonParser parser) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
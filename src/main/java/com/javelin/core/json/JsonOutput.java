@@ -0,0 +1,249 @@
+package com.javelin.core.json;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer that JSON codecs write UTF-8 output into.
+ * <p>
+ * Numbers and strings are encoded straight into the backing array, so a
+ * serialized value never passes through an intermediate {@link String}.
+ * The buffer also extends {@link OutputStream}, which lets Jackson append
+ * fallback values to the same output.
+ */
+public class JsonOutput extends OutputStream {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes();
+
+    private byte[] buf;
+    private int count;
+
+    public JsonOutput() {
+        this(256);
+    }
+
+    public JsonOutput(int initialCapacity) {
+        this.buf = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * Writes into an existing array, e.g. one borrowed from a buffer pool.
+     *
+     * @param buffer the initial backing array
+     */
+    public JsonOutput(byte[] buffer) {
+        this.buf = buffer;
+    }
+
+    /**
+     * @return the backing array; only the first {@link #size()} bytes are valid
+     */
+    public byte[] array() {
+        return buf;
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Discards everything written so far while keeping the backing array.
+     */
+    public void reset() {
+        count = 0;
+    }
+
+    /**
+     * @return a copy of the written bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    // ========== Raw output ==========
+
+    @Override
+    public void write(int b) {
+        ensure(1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensure(len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    public void writeRaw(byte[] bytes) {
+        write(bytes, 0, bytes.length);
+    }
+
+    // ========== JSON values ==========
+
+    public void writeNull() {
+        writeRaw(NULL);
+    }
+
+    public void writeBoolean(boolean value) {
+        writeRaw(value ? TRUE : FALSE);
+    }
+
+    public void writeInt(int value) {
+        writeLong(value);
+    }
+
+    /**
+     * Writes the decimal digits of {@code value} without allocating.
+     */
+    public void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeRaw(MIN_LONG);
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buf[count++] = '-';
+            value = -value;
+        }
+        int digits = digitCount(value);
+        int pos = count + digits;
+        do {
+            buf[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        count += digits;
+    }
+
+    /**
+     * Writes a double the same way Jackson does: finite values as numbers,
+     * NaN and infinities as quoted strings.
+     */
+    public void writeDouble(double value) {
+        if (Double.isFinite(value)) {
+            writeAscii(Double.toString(value));
+        } else {
+            write('"');
+            writeAscii(Double.toString(value));
+            write('"');
+        }
+    }
+
+    public void writeFloat(float value) {
+        if (Float.isFinite(value)) {
+            writeAscii(Float.toString(value));
+        } else {
+            write('"');
+            writeAscii(Float.toString(value));
+            write('"');
+        }
+    }
+
+    /**
+     * Writes {@code value} as a quoted, escaped JSON string encoded as UTF-8.
+     */
+    public void writeString(CharSequence value) {
+        int len = value.length();
+        ensure(len + 2);
+        buf[count++] = '"';
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c < 0x20 || c == '"' || c == '\\') {
+                    writeEscaped(c);
+                } else {
+                    ensure(1);
+                    buf[count++] = (byte) c;
+                }
+            } else if (c < 0x800) {
+                ensure(2);
+                buf[count++] = (byte) (0xC0 | (c >> 6));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                ensure(4);
+                buf[count++] = (byte) (0xF0 | (cp >> 18));
+                buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Lone surrogate: emit as a \\u escape rather than invalid UTF-8
+                writeEscaped(c);
+            } else {
+                ensure(3);
+                buf[count++] = (byte) (0xE0 | (c >> 12));
+                buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        ensure(1);
+        buf[count++] = '"';
+    }
+
+    // ========== Internal Helpers ==========
+
+    private void writeEscaped(char c) {
+        ensure(6);
+        buf[count++] = '\\';
+        switch (c) {
+            case '"' -> buf[count++] = '"';
+            case '\\' -> buf[count++] = '\\';
+            case '\n' -> buf[count++] = 'n';
+            case '\r' -> buf[count++] = 'r';
+            case '\t' -> buf[count++] = 't';
+            case '\b' -> buf[count++] = 'b';
+            case '\f' -> buf[count++] = 'f';
+            default -> {
+                buf[count++] = 'u';
+                buf[count++] = HEX[(c >> 12) & 0xF];
+                buf[count++] = HEX[(c >> 8) & 0xF];
+                buf[count++] = HEX[(c >> 4) & 0xF];
+                buf[count++] = HEX[c & 0xF];
+            }
+        }
+    }
+
+    private void writeAscii(String s) {
+        int len = s.length();
+        ensure(len);
+        for (int i = 0; i < len; i++) {
+            buf[count++] = (byte) s.charAt(i);
+        }
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private void ensure(int extra) {
+        if (count + extra > buf.length) {
+            buf = grow(buf, count, count + extra);
+        }
+    }
+
+    /**
+     * Returns a larger backing array holding the first {@code count} bytes of {@code old}.
+     * Subclasses may take the new array from a pool and return the old one.
+     *
+     * @param old         the current backing array
+     * @param count       the number of valid bytes in {@code old}
+     * @param minCapacity the minimum length of the new array
+     * @return the new backing array
+     */
+    protected byte[] grow(byte[] old, int count, int minCapacity) {
+        return Arrays.copyOf(old, Math.max(old.length << 1, minCapacity));
+    }
+}
@@ -0,0 +1,80 @@
+package com.javelin.core.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily decodes a sequence of JSON values from a streaming parser.
+ * <p>
+ * Both layouts are accepted and detected from the first token:
+ * <ul>
+ *     <li>a single top-level JSON array, whose elements are returned one by one</li>
+ *     <li>newline-delimited JSON (NDJSON), i.e. consecutive top-level values</li>
+ * </ul>
+ * Only the element currently being decoded is held in memory. Parse failures are
+ * rethrown as {@link UncheckedIOException} since {@link Iterator} cannot throw checked exceptions.
+ *
+ * @param <T> the element type
+ */
+public final class JsonValueIterator<T> implements Iterator<T>, Closeable {
+
+    private final JsonParser parser;
+    private final Class<T> type;
+    private final JsonCodecRegistry codecs;
+    private boolean array;
+
+    // First token of the next element, or null once the input is exhausted
+    private JsonToken pending;
+
+    JsonValueIterator(JsonParser parser, Class<T> type, JsonCodecRegistry codecs) throws IOException {
+        this.parser = parser;
+        this.type = type;
+        this.codecs = codecs;
+
+        JsonToken first = parser.nextToken();
+        if (first == JsonToken.START_ARRAY) {
+            array = true;
+            first = parser.nextToken();
+            if (first == JsonToken.END_ARRAY) {
+                first = null;
+            }
+        }
+        this.pending = first;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return pending != null;
+    }
+
+    @Override
+    public T next() {
+        if (pending == null) {
+            throw new NoSuchElementException();
+        }
+        try {
+            T value = codecs.read(parser, type);
+            JsonToken token = parser.nextToken();
+            pending = array && token == JsonToken.END_ARRAY ? null : token;
+            return value;
+        } catch (IOException e) {
+            pending = null;
+            throw new UncheckedIOException("Failed to parse request body element", e);
+        }
+    }
+
+    /**
+     * Closes the parser and the underlying input.
+     */
+    @Override
+    public void close() throws IOException {
+        pending = null;
+        parser.close();
+    }
+}
@@ -0,0 +1,500 @@
+package com.javelin.core.json;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link JsonCodec} generated for a single record type.
+ * <p>
+ * At construction time every record component is bound to a typed {@link MethodHandle}
+ * accessor and its field name is pre-encoded as UTF-8 bytes (e.g. {@code ,"name":}).
+ * Serialization then only invokes those handles and copies bytes; no reflection or
+ * bean introspection happens per request.
+ * <p>
+ * Deserialization walks Jackson's streaming {@link JsonParser} and invokes the canonical
+ * constructor through a spreader handle. Component types that have no specialized
+ * writer (collections, maps, arbitrary objects) are delegated to Jackson individually,
+ * so a record is still supported when only some of its fields are simple.
+ *
+ * @param <T> the record type
+ */
+final class RecordCodec<T> implements JsonCodec<T> {
+
+    private final Class<T> type;
+    private final Component[] components;
+    private final Map<String, Integer> indexByName;
+    private final Object[] defaults;
+    private final MethodHandle constructor;
+    private final boolean failOnUnknown;
+
+    private RecordCodec(Class<T> type, Component[] components, MethodHandle constructor, boolean failOnUnknown) {
+        this.type = type;
+        this.components = components;
+        this.constructor = constructor;
+        this.failOnUnknown = failOnUnknown;
+        this.indexByName = new HashMap<>();
+        this.defaults = new Object[components.length];
+        for (int i = 0; i < components.length; i++) {
+            indexByName.put(components[i].name, i);
+            defaults[i] = components[i].defaultValue;
+        }
+    }
+
+    /**
+     * Generates a codec for the given record type.
+     *
+     * @param type     the record class
+     * @param registry the registry used to resolve nested records and the Jackson fallback
+     * @return the generated codec, or {@code null} if the type must be left to Jackson
+     *         (for example because it carries Jackson annotations)
+     */
+    static <T> RecordCodec<T> generate(Class<T> type, JsonCodecRegistry registry) {
+        if (!type.isRecord() || hasJacksonAnnotations(type)) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            RecordComponent[] recordComponents = type.getRecordComponents();
+            Component[] components = new Component[recordComponents.length];
+            Class<?>[] parameterTypes = new Class<?>[recordComponents.length];
+
+            for (int i = 0; i < recordComponents.length; i++) {
+                RecordComponent rc = recordComponents[i];
+                if (hasJacksonAnnotations(rc) || hasJacksonAnnotations(rc.getAccessor())) {
+                    return null;
+                }
+                parameterTypes[i] = rc.getType();
+                byte[] prefix = ((i == 0 ? "\"" : ",\"") + escapeName(rc.getName()) + "\":")
+                        .getBytes(StandardCharsets.UTF_8);
+                components[i] = component(rc, lookup.unreflect(rc.getAccessor()), prefix, registry);
+            }
+
+            MethodHandle ctor = lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+                    .asSpreader(Object[].class, parameterTypes.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+
+            boolean failOnUnknown = registry.mapper().isEnabled(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+            return new RecordCodec<>(type, components, ctor, failOnUnknown);
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void write(T value, JsonOutput out) throws IOException {
+        out.write('{');
+        for (Component component : components) {
+            out.writeRaw(component.prefix);
+            try {
+                component.write(value, out);
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Failed to read component " + component.name + " of " + type.getName(), t);
+            }
+        }
+        out.write('}');
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T read(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw MismatchedInputException.from(p, type,
+                    "Cannot deserialize " + type.getName() + " from " + token);
+        }
+
+        Object[] args = defaults.clone();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            Integer index = indexByName.get(name);
+            if (index == null) {
+                if (failOnUnknown) {
+                    throw UnrecognizedPropertyException.from(p, type, name, new ArrayList<>(indexByName.keySet()));
+                }
+                p.skipChildren();
+                continue;
+            }
+            args[index] = components[index].read(p);
+            if (args[index] == null && defaults[index] != null) {
+                args[index] = defaults[index]; // null for a primitive component
+            }
+        }
+
+        try {
+            Object instance = constructor.invokeExact(args);
+            return (T) instance;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Failed to construct " + type.getName(), t);
+        }
+    }
+
+    // ========== Component binding ==========
+
+    private static Component component(RecordComponent rc, MethodHandle accessor, byte[] prefix,
+                                       JsonCodecRegistry registry) {
+        Class<?> ct = rc.getType();
+        String name = rc.getName();
+
+        if (ct == int.class || ct == short.class || ct == byte.class) {
+            return new IntComponent(name, prefix, accessor.asType(MethodType.methodType(int.class, Object.class)), ct, registry);
+        }
+        if (ct == long.class) {
+            return new LongComponent(name, prefix, accessor.asType(MethodType.methodType(long.class, Object.class)), registry);
+        }
+        if (ct == double.class) {
+            return new DoubleComponent(name, prefix, accessor.asType(MethodType.methodType(double.class, Object.class)), registry);
+        }
+        if (ct == float.class) {
+            return new FloatComponent(name, prefix, accessor.asType(MethodType.methodType(float.class, Object.class)), registry);
+        }
+        if (ct == boolean.class) {
+            return new BooleanComponent(name, prefix, accessor.asType(MethodType.methodType(boolean.class, Object.class)), registry);
+        }
+
+        MethodHandle getter = accessor.asType(MethodType.methodType(Object.class, Object.class));
+        if (ct == String.class) {
+            return new StringComponent(name, prefix, getter);
+        }
+        if (ct.isEnum() && !hasJacksonAnnotations(ct) && !hasAnnotatedConstants(ct)) {
+            return new EnumComponent(name, prefix, getter, ct);
+        }
+        if (ct.isRecord()) {
+            return new NestedComponent(name, prefix, getter, ct, registry);
+        }
+        return new FallbackComponent(name, prefix, getter,
+                registry.mapper().getTypeFactory().constructType(rc.getGenericType()), registry);
+    }
+
+    private static boolean hasJacksonAnnotations(AnnotatedElement element) {
+        for (Annotation annotation : element.getAnnotations()) {
+            if (annotation.annotationType().getName().startsWith("com.fasterxml.jackson")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasAnnotatedConstants(Class<?> enumType) {
+        for (java.lang.reflect.Field field : enumType.getFields()) {
+            if (field.isEnumConstant() && hasJacksonAnnotations(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String escapeName(String name) {
+        JsonOutput out = new JsonOutput(name.length() + 2);
+        out.writeString(name);
+        return new String(out.array(), 1, out.size() - 2, StandardCharsets.UTF_8);
+    }
+
+    // ========== Component kinds ==========
+
+    /**
+     * One record component: its pre-encoded name prefix plus typed read/write logic.
+     */
+    private abstract static class Component {
+        final String name;
+        final byte[] prefix;
+        final Object defaultValue;
+
+        Component(String name, byte[] prefix, Object defaultValue) {
+            this.name = name;
+            this.prefix = prefix;
+            this.defaultValue = defaultValue;
+        }
+
+        abstract void write(Object record, JsonOutput out) throws Throwable;
+
+        abstract Object read(JsonParser p) throws IOException;
+    }
+
+    /**
+     * A primitive component. The token the type is written as (e.g. an integer for
+     * {@code int}) is read directly; any other token is handed to Jackson, which applies
+     * the mapper's coercion rules (e.g. numeric strings) and rejects the rest, so a
+     * structured value is never read as part of the enclosing record.
+     */
+    private abstract static class PrimitiveComponent extends Component {
+        final MethodHandle getter;
+        final Class<?> type;
+        private final JsonCodecRegistry registry;
+
+        PrimitiveComponent(String name, byte[] prefix, Object defaultValue, MethodHandle getter,
+                           Class<?> type, JsonCodecRegistry registry) {
+            super(name, prefix, defaultValue);
+            this.getter = getter;
+            this.type = type;
+            this.registry = registry;
+        }
+
+        Object coerce(JsonParser p) throws IOException {
+            return registry.mapper().readValue(p, type);
+        }
+
+        MismatchedInputException outOfRange(JsonParser p) throws IOException {
+            return MismatchedInputException.from(p, type,
+                    "Numeric value (" + p.getText() + ") out of range of " + type.getName() + " for '" + name + "'");
+        }
+    }
+
+    private static final class IntComponent extends PrimitiveComponent {
+        private final int min;
+        private final int max;
+
+        IntComponent(String name, byte[] prefix, MethodHandle getter, Class<?> type, JsonCodecRegistry registry) {
+            super(name, prefix, type == int.class ? (Object) 0 : type == short.class ? (Object) (short) 0 : (Object) (byte) 0,
+                    getter, type, registry);
+            this.min = type == int.class ? Integer.MIN_VALUE : type == short.class ? Short.MIN_VALUE : Byte.MIN_VALUE;
+            // Like Jackson, a byte also accepts its unsigned form (128-255)
+            this.max = type == int.class ? Integer.MAX_VALUE : type == short.class ? Short.MAX_VALUE : 0xFF;
+        }
+
+        @Override
+        void write(Object record, JsonOutput out) throws Throwable {
+            out.writeInt((int) getter.invokeExact(record));
+        }
+
+        @Override
+        Object read(JsonParser p) throws IOException {
+            JsonToken token = p.currentToken();
+            if (token == JsonToken.VALUE_NULL) return null;
+            if (token != JsonToken.VALUE_NUMBER_INT) return coerce(p);
+            if (p.getNumberType() != JsonParser.NumberType.INT) throw outOfRange(p);
+            int value = p.getIntValue();
+            if (value < min || value > max) throw outOfRange(p);
+            if (type == short.class) return (short) value;
+            if (type == byte.class) return (byte) value;
+            return value;
+        }
+    }
+
+    private static final class LongComponent extends PrimitiveComponent {
+
+        LongComponent(String name, byte[] prefix, MethodHandle getter, JsonCodecRegistry registry) {
+            super(name, prefix, 0L, getter, long.class, registry);
+        }
+
+        @Override
+        void write(Object record, JsonOutput out) throws Throwable {
+            out.writeLong((long) getter.invokeExact(record));
+        }
+
+        @Override
+        Object read(JsonParser p) throws IOException {
+            JsonToken token = p.currentToken();
+            if (token == JsonToken.VALUE_NULL) return null;
+            if (token != JsonToken.VALUE_NUMBER_INT) return coerce(p);
+            JsonParser.NumberType numberType = p.getNumberType();
+            if (numberType != JsonParser.NumberType.INT && numberType != JsonParser.NumberType.LONG) {
+                throw outOfRange(p);
+            }
+            return p.getLongValue();
+        }
+    }
+
+    private static final class DoubleComponent extends PrimitiveComponent {
+
+        DoubleComponent(String name, byte[] prefix, MethodHandle getter, JsonCodecRegistry registry) {
+            super(name, prefix, 0.0d, getter, double.class, registry);
+        }
+
+        @Override
+        void write(Object record, JsonOutput out) throws Throwable {
+            out.writeDouble((double) getter.invokeExact(record));
+        }
+
+        @Override
+        Object read(JsonParser p) throws IOException {
+            JsonToken token = p.currentToken();
+            if (token == JsonToken.VALUE_NULL) return null;
+            return token.isNumeric() ? p.getDoubleValue() : coerce(p);
+        }
+    }
+
+    private static final class FloatComponent extends PrimitiveComponent {
+
+        FloatComponent(String name, byte[] prefix, MethodHandle getter, JsonCodecRegistry registry) {
+            super(name, prefix, 0.0f, getter, float.class, registry);
+        }
+
+        @Override
+        void write(Object record, JsonOutput out) throws Throwable {
+            out.writeFloat((float) getter.invokeExact(record));
+        }
+
+        @Override
+        Object read(JsonParser p) throws IOException {
+            JsonToken token = p.currentToken();
+            if (token == JsonToken.VALUE_NULL) return null;
+            return token.isNumeric() ? p.getFloatValue() : coerce(p);
+        }
+    }
+
+    private static final class BooleanComponent extends PrimitiveComponent {
+
+        BooleanComponent(String name, byte[] prefix, MethodHandle getter, JsonCodecRegistry registry) {
+            super(name, prefix, false, getter, boolean.class, registry);
+        }
+
+        @Override
+        void write(Object record, JsonOutput out) throws Throwable {
+            out.writeBoolean((boolean) getter.invokeExact(record));
+        }
+
+        @Override
+        Object read(JsonParser p) throws IOException {
+            JsonToken token = p.currentToken();
+            if (token == JsonToken.VALUE_NULL) return null;
+            return token.isBoolean() ? token == JsonToken.VALUE_TRUE : coerce(p);
+        }
+    }
+
+    private static final class StringComponent extends Component {
+        private final MethodHandle getter;
+
+        StringComponent(String name, byte[] prefix, MethodHandle getter) {
+            super(name, prefix, null);
+            this.getter = getter;
+        }
+
+        @Override
+        void write(Object record, JsonOutput out) throws Throwable {
+            String value = (String) (Object) getter.invokeExact(record);
+            if (value == null) {
+                out.writeNull();
+            } else {
+                out.writeString(value);
+            }
+        }
+
+        @Override
+        Object read(JsonParser p) throws IOException {
+            JsonToken token = p.currentToken();
+            if (token == JsonToken.VALUE_NULL) return null;
+            if (!token.isScalarValue()) {
+                throw new JsonParseException(p, "Expected a string for '" + name + "' but got " + token);
+            }
+            return p.getValueAsString();
+        }
+    }
+
+    private static final class EnumComponent extends Component {
+        private final MethodHandle getter;
+        private final byte[][] encoded;
+        private final Map<String, Object> byName = new HashMap<>();
+
+        EnumComponent(String name, byte[] prefix, MethodHandle getter, Class<?> enumType) {
+            super(name, prefix, null);
+            this.getter = getter;
+            Object[] constants = enumType.getEnumConstants();
+            this.encoded = new byte[constants.length][];
+            for (Object constant : constants) {
+                Enum<?> e = (Enum<?>) constant;
+                JsonOutput out = new JsonOutput(e.name().length() + 2);
+                out.writeString(e.name());
+                encoded[e.ordinal()] = out.toByteArray();
+                byName.put(e.name(), e);
+            }
+        }
+
+        @Override
+        void write(Object record, JsonOutput out) throws Throwable {
+            Enum<?> value = (Enum<?>) (Object) getter.invokeExact(record);
+            if (value == null) {
+                out.writeNull();
+            } else {
+                out.writeRaw(encoded[value.ordinal()]);
+            }
+        }
+
+        @Override
+        Object read(JsonParser p) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_NULL) return null;
+            String text = p.getValueAsString();
+            Object value = byName.get(text);
+            if (value == null) {
+                throw new JsonParseException(p, "Unknown value '" + text + "' for '" + name + "'");
+            }
+            return value;
+        }
+    }
+
+    private static final class NestedComponent extends Component {
+        private final MethodHandle getter;
+        private final Class<?> type;
+        private final JsonCodecRegistry registry;
+
+        NestedComponent(String name, byte[] prefix, MethodHandle getter, Class<?> type, JsonCodecRegistry registry) {
+            super(name, prefix, null);
+            this.getter = getter;
+            this.type = type;
+            this.registry = registry;
+        }
+
+        @Override
+        void write(Object record, JsonOutput out) throws Throwable {
+            registry.writeNested((Object) getter.invokeExact(record), out);
+        }
+
+        @Override
+        Object read(JsonParser p) throws IOException {
+            return registry.readNested(p, type);
+        }
+    }
+
+    private static final class FallbackComponent extends Component {
+        private final MethodHandle getter;
+        private final JavaType javaType;
+        private final JsonCodecRegistry registry;
+
+        FallbackComponent(String name, byte[] prefix, MethodHandle getter, JavaType javaType,
+                          JsonCodecRegistry registry) {
+            super(name, prefix, primitiveDefault(javaType.getRawClass()));
+            this.getter = getter;
+            this.javaType = javaType;
+            this.registry = registry;
+        }
+
+        @Override
+        void write(Object record, JsonOutput out) throws Throwable {
+            registry.write((Object) getter.invokeExact(record), out);
+        }
+
+        @Override
+        Object read(JsonParser p) throws IOException {
+            return registry.mapper().readValue(p, javaType);
+        }
+
+        private static Object primitiveDefault(Class<?> type) {
+            if (type == char.class) return '\0';
+            return null;
+        }
+    }
+}
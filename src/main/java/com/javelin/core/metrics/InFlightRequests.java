@@ -0,0 +1,193 @@
+package com.javelin.core.metrics;
+
+import com.javelin.core.JavelinHandler;
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A live registry of the requests a server is currently handling, for finding what a stalled
+ * server is waiting on.
+ * <p>
+ * Each request is registered with its method, path, route pattern, start time and the virtual
+ * thread running it. {@link #slowest(int, boolean)} lists the oldest ones with the stack each
+ * thread is parked in, which is usually the blocking downstream call. With thousands of virtual
+ * threads a plain {@code jstack} cannot show this; {@link #threadDumpHandler()} produces the
+ * JDK's JSON thread dump instead, which includes virtual threads grouped by their container.
+ * <p>
+ * Entries are owned and reused by the server, so registering a request allocates only the
+ * registry's set node.
+ */
+public final class InFlightRequests {
+
+    /** Requests listed when no {@code limit} is given. */
+    public static final int DEFAULT_LIMIT = 20;
+
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_STACK_DEPTH = 64;
+
+    private final Set<Entry> entries = ConcurrentHashMap.newKeySet();
+
+    /**
+     * One request's registration. The server keeps one per pooled request slot and passes it to
+     * {@link #begin} and {@link #end} for every request the slot handles.
+     */
+    public static final class Entry {
+        private String method;
+        private String path;
+        private String route;
+        private long startNanos;
+        // Set last in begin and cleared first in end, so a reader that sees a thread sees the request
+        private volatile Thread thread;
+
+        /**
+         * Records the route pattern once the request has been matched.
+         *
+         * @param route the matched route pattern, or {@code null} if none matched
+         */
+        public void route(String route) {
+            this.route = route;
+        }
+    }
+
+    /**
+     * A snapshot of one in-flight request.
+     *
+     * @param method     the request method
+     * @param path       the request path
+     * @param route      the matched route pattern, or {@code null} if not matched (yet)
+     * @param threadId   the id of the thread handling it
+     * @param threadName the name of that thread; virtual threads are usually unnamed
+     * @param ageMillis  how long the request has been running
+     * @param stack      the thread's current stack, innermost frame first, or an empty list if not captured
+     */
+    public record InFlightRequest(String method, String path, String route, long threadId, String threadName,
+                                  long ageMillis, List<String> stack) {}
+
+    /**
+     * Registers a request running on the current thread.
+     *
+     * @param entry  the caller's reusable entry
+     * @param method the request method
+     * @param path   the request path
+     */
+    public void begin(Entry entry, String method, String path) {
+        entry.method = method;
+        entry.path = path;
+        entry.route = null;
+        entry.startNanos = System.nanoTime();
+        entry.thread = Thread.currentThread();
+        entries.add(entry);
+    }
+
+    /**
+     * Removes a finished request.
+     *
+     * @param entry the entry passed to {@link #begin}
+     */
+    public void end(Entry entry) {
+        entries.remove(entry);
+        entry.thread = null;
+        entry.method = null;
+        entry.path = null;
+        entry.route = null;
+    }
+
+    /**
+     * @return the number of requests currently in flight
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Lists the longest-running requests, oldest first.
+     *
+     * @param limit       the maximum number of requests to list
+     * @param withStacks  whether to capture each request thread's current stack
+     * @return the requests
+     */
+    public List<InFlightRequest> slowest(int limit, boolean withStacks) {
+        long now = System.nanoTime();
+        List<Running> running = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            Thread thread = entry.thread;
+            if (thread != null) {
+                running.add(new Running(entry.method, entry.path, entry.route, now - entry.startNanos, thread));
+            }
+        }
+        running.sort(Comparator.comparingLong(Running::nanos).reversed());
+
+        List<InFlightRequest> slowest = new ArrayList<>(Math.min(limit, running.size()));
+        for (int i = 0; i < running.size() && i < limit; i++) {
+            Running request = running.get(i);
+            slowest.add(new InFlightRequest(request.method(), request.path(), request.route(),
+                    request.thread().threadId(), request.thread().getName(), request.nanos() / 1_000_000,
+                    withStacks ? stackOf(request.thread()) : List.of()));
+        }
+        return slowest;
+    }
+
+    // Copied out of an entry, which the server reuses as soon as the request ends
+    private record Running(String method, String path, String route, long nanos, Thread thread) {}
+
+    private static List<String> stackOf(Thread thread) {
+        StackTraceElement[] frames = thread.getStackTrace();
+        List<String> stack = new ArrayList<>(Math.min(frames.length, MAX_STACK_DEPTH));
+        for (int i = 0; i < frames.length && i < MAX_STACK_DEPTH; i++) {
+            stack.add(frames[i].toString());
+        }
+        return stack;
+    }
+
+    // ========== Admin Endpoints ==========
+
+    /**
+     * Lists the slowest in-flight requests with their stacks as JSON. Query parameters:
+     * {@code limit} (default {@link #DEFAULT_LIMIT}) and {@code stacks=false} to skip stack capture.
+     *
+     * @return the handler
+     */
+    public JavelinHandler handler() {
+        return ctx -> {
+            int limit = (int) Math.min(MAX_LIMIT, ctx.queryLong("limit", DEFAULT_LIMIT));
+            if (limit <= 0) {
+                throw new IllegalArgumentException("limit must be positive");
+            }
+            boolean withStacks = !"false".equals(ctx.queryParam("stacks"));
+            ctx.json(Map.of("inFlight", size(), "requests", slowest(limit, withStacks)));
+        };
+    }
+
+    /**
+     * Responds with a thread dump of the whole JVM in the JDK's JSON format
+     * ({@link HotSpotDiagnosticMXBean#dumpThreads}), which unlike {@code jstack} includes virtual
+     * threads, grouped by the executor or thread container that started them. The dump is
+     * streamed from a temporary file, which is deleted once it is sent.
+     *
+     * @return the handler
+     */
+    public static JavelinHandler threadDumpHandler() {
+        return ctx -> {
+            HotSpotDiagnosticMXBean diagnostics = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            // dumpThreads refuses to overwrite, so write to a fresh file in a private directory
+            Path directory = Files.createTempDirectory("javelin-threads-");
+            Path file = directory.resolve("threads.json");
+            try {
+                diagnostics.dumpThreads(file.toAbsolutePath().toString(), HotSpotDiagnosticMXBean.ThreadDumpFormat.JSON);
+                ctx.setHeader("Content-Type", "application/json").sendFile(file);
+            } finally {
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(directory);
+            }
+        };
+    }
+}
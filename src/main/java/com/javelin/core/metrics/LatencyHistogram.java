@@ -0,0 +1,160 @@
+package com.javelin.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds with log-linear buckets, in the style
+ * of HdrHistogram.
+ * <p>
+ * Values below 8 ns get exact buckets. Above that, every power of two is split into 8
+ * equal sub-buckets, so a recorded value is known to within 12.5%. Values up to 2<sup>40</sup> ns
+ * (about 18 minutes) are distinguished; larger ones fall into the last bucket.
+ * <p>
+ * Counts are striped: each stripe is its own run of counters, and a thread picks a stripe by
+ * its id. Concurrent requests then rarely increment the same cache line, and
+ * {@link #record(long)} is two uncontended atomic adds. Reading a {@link #snapshot()} merges
+ * the stripes.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_MAGNITUDE = 39;  // highest power of two kept apart
+    static final int BUCKETS = (MAX_MAGNITUDE - SUB_BITS + 2) * SUB_BUCKETS;
+
+    // Per stripe: the buckets, then the sum, then padding so stripes do not share cache lines
+    private static final int SUM = BUCKETS;
+    private static final int STRIDE = BUCKETS + 16;
+
+    // Enough stripes to spread the cores of a typical server, without multiplying memory per route
+    private static final int MAX_STRIPES = 8;
+    private static final int STRIPES = Math.min(MAX_STRIPES,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * STRIDE);
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency in nanoseconds; negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int base = ((int) Thread.currentThread().threadId() & (STRIPES - 1)) * STRIDE;
+        counts.getAndIncrement(base + bucketOf(value));
+        counts.getAndAdd(base + SUM, value);
+    }
+
+    /**
+     * @return the merged counts of all stripes at this moment
+     */
+    public Snapshot snapshot() {
+        long[] merged = new long[BUCKETS];
+        long sum = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            int base = stripe * STRIDE;
+            for (int i = 0; i < BUCKETS; i++) {
+                merged[i] += counts.get(base + i);
+            }
+            sum += counts.get(base + SUM);
+        }
+        return new Snapshot(merged, sum);
+    }
+
+    // ========== Buckets ==========
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = Math.min(MAX_MAGNITUDE, 63 - Long.numberOfLeadingZeros(value));
+        if (magnitude == MAX_MAGNITUDE && value >= 1L << (MAX_MAGNITUDE + 1)) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (value >>> (magnitude - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return the smallest value that no longer falls into bucket {@code index}
+     */
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index + 1;
+        }
+        int magnitude = index / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        long width = 1L << (magnitude - SUB_BITS);
+        return ((long) (SUB_BUCKETS + sub) << (magnitude - SUB_BITS)) + width;
+    }
+
+    /**
+     * An immutable copy of a histogram's counts.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+
+        Snapshot(long[] counts, long sum) {
+            this.counts = counts;
+            this.sum = sum;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+
+        /**
+         * @return the number of recorded values
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * @return the sum of recorded values in nanoseconds
+         */
+        public long sum() {
+            return sum;
+        }
+
+        /**
+         * Counts the values known to be at most {@code nanos}, i.e. those whose whole bucket
+         * lies at or below it. Used for cumulative Prometheus buckets.
+         *
+         * @param nanos the inclusive upper limit
+         * @return the number of values at most {@code nanos}
+         */
+        public long countAtMost(long nanos) {
+            long total = 0;
+            for (int i = 0; i < counts.length && upperBound(i) - 1 <= nanos; i++) {
+                total += counts[i];
+            }
+            return total;
+        }
+
+        /**
+         * Estimates a percentile as the upper edge of the bucket it falls into, so the estimate
+         * errs high by at most one bucket width (12.5%).
+         *
+         * @param percentile between 0 and 100
+         * @return the estimated latency in nanoseconds, or 0 if nothing was recorded
+         */
+        public long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return upperBound(i) - 1;
+                }
+            }
+            return upperBound(counts.length - 1) - 1;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.javelin.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counts by status class and the latency histogram of one route pattern.
+ */
+public final class RouteMetrics {
+
+    /** Status class labels, indexed by {@link #statusClass(int)}. */
+    static final String[] STATUS_CLASSES = {"other", "1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private final String method;
+    private final String route;
+    private final LongAdder[] statusCounts = new LongAdder[STATUS_CLASSES.length];
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    RouteMetrics(String method, String route) {
+        this.method = method;
+        this.route = route;
+        for (int i = 0; i < statusCounts.length; i++) {
+            statusCounts[i] = new LongAdder();
+        }
+    }
+
+    void record(int status, long nanos) {
+        statusCounts[statusClass(status)].increment();
+        latency.record(nanos);
+    }
+
+    public String method() {
+        return method;
+    }
+
+    /**
+     * @return the route pattern (e.g. {@code /users/{id}}), or {@code null} for requests that matched no route
+     */
+    public String route() {
+        return route;
+    }
+
+    /**
+     * @param status an HTTP status code, e.g. 404
+     * @return the number of requests answered with a status in the same class (e.g. 4xx)
+     */
+    public long count(int status) {
+        return statusCounts[statusClass(status)].sum();
+    }
+
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    long countByClass(int statusClass) {
+        return statusCounts[statusClass].sum();
+    }
+
+    /**
+     * @return 1 to 5 for 1xx to 5xx, or 0 for anything else (e.g. -1 when no response was sent)
+     */
+    static int statusClass(int status) {
+        int c = status / 100;
+        return status >= 100 && c <= 5 ? c : 0;
+    }
+}
@@ -0,0 +1,213 @@
+package com.javelin.core.metrics;
+
+import com.javelin.core.JavelinHandler;
+import com.javelin.core.LocalCache;
+import com.javelin.core.LocalCacheStats;
+import com.javelin.core.Route;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Per-route request metrics of a server, exported in the Prometheus text format.
+ * <p>
+ * Requests are recorded against their route pattern ({@code /users/{id}}), never the raw
+ * path, so the number of series stays bounded by the number of routes. Requests that match
+ * no route share one series with an empty {@code route} label.
+ * <p>
+ * Metrics are keyed by pattern and then method, not by {@link Route} object: routes are
+ * replaced whenever middleware or routes change, and the series must survive those changes
+ * without keeping the replaced routes reachable. Both lookups hit the strings' cached hash
+ * codes, so recording a request allocates nothing.
+ * <p>
+ * Registered {@link LocalCache}s are exported alongside, labelled with their names.
+ */
+public final class ServerMetrics {
+
+    /** The {@code Content-Type} of the Prometheus text exposition format. */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Histogram bucket boundaries exported to Prometheus, in seconds
+    private static final double[] BUCKETS_SECONDS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    // Pattern -> method -> metrics; bounded by the patterns ever registered
+    private final Map<String, Map<String, RouteMetrics>> byPattern = new ConcurrentHashMap<>();
+    private final RouteMetrics unmatched = new RouteMetrics("", null);
+    private final Map<String, LocalCache<?, ?>> caches = new ConcurrentSkipListMap<>();
+
+    /**
+     * Records one finished request.
+     *
+     * @param route  the route that handled it, or {@code null} if none matched
+     * @param status the status code sent, or -1 if no response was sent
+     * @param nanos  how long the request took
+     */
+    public void record(Route route, int status, long nanos) {
+        metricsFor(route).record(status, nanos);
+    }
+
+    /**
+     * @param route a registered route, or {@code null} for unmatched requests
+     * @return the metrics of the route's method and pattern
+     */
+    public RouteMetrics metricsFor(Route route) {
+        if (route == null) {
+            return unmatched;
+        }
+        Map<String, RouteMetrics> byMethod = byPattern.get(route.originalPath);
+        RouteMetrics metrics = byMethod != null ? byMethod.get(route.method) : null;
+        if (metrics == null) {
+            metrics = byPattern.computeIfAbsent(route.originalPath, p -> new ConcurrentHashMap<>(4))
+                    .computeIfAbsent(route.method, m -> new RouteMetrics(m, route.originalPath));
+        }
+        return metrics;
+    }
+
+    /**
+     * @return the metrics of every route that has seen a request, plus unmatched requests
+     */
+    public List<RouteMetrics> routes() {
+        List<RouteMetrics> routes = new ArrayList<>();
+        for (Map<String, RouteMetrics> byMethod : byPattern.values()) {
+            routes.addAll(byMethod.values());
+        }
+        routes.sort(Comparator.comparing(RouteMetrics::route).thenComparing(RouteMetrics::method));
+        routes.add(unmatched);
+        return routes;
+    }
+
+    /**
+     * Exports a cache's hit, miss, load and eviction counters and its size.
+     *
+     * @param name  the value of the {@code cache} label
+     * @param cache the cache
+     */
+    public void registerCache(String name, LocalCache<?, ?> cache) {
+        caches.put(name, cache);
+    }
+
+    // ========== Prometheus ==========
+
+    /**
+     * @return a handler that responds with {@link #toPrometheus()}
+     */
+    public JavelinHandler handler() {
+        return ctx -> ctx.setHeader("Content-Type", CONTENT_TYPE).send(toPrometheus());
+    }
+
+    /**
+     * Renders all metrics in the Prometheus text exposition format (version 0.0.4).
+     *
+     * @return the exposition text
+     */
+    public String toPrometheus() {
+        List<RouteMetrics> routes = routes();
+        StringBuilder out = new StringBuilder(256 + routes.size() * 1024);
+
+        out.append("# HELP javelin_requests_total Requests handled, by route pattern and status class.\n");
+        out.append("# TYPE javelin_requests_total counter\n");
+        for (RouteMetrics route : routes) {
+            for (int c = 0; c < RouteMetrics.STATUS_CLASSES.length; c++) {
+                long count = route.countByClass(c);
+                if (count > 0) {
+                    out.append("javelin_requests_total");
+                    labels(out, route).append(",status=\"").append(RouteMetrics.STATUS_CLASSES[c]).append("\"} ")
+                            .append(count).append('\n');
+                }
+            }
+        }
+
+        out.append("# HELP javelin_request_duration_seconds Request latency, by route pattern.\n");
+        out.append("# TYPE javelin_request_duration_seconds histogram\n");
+        for (RouteMetrics route : routes) {
+            LatencyHistogram.Snapshot snapshot = route.latency().snapshot();
+            if (snapshot.count() == 0) {
+                continue;
+            }
+            for (double le : BUCKETS_SECONDS) {
+                out.append("javelin_request_duration_seconds_bucket");
+                labels(out, route).append(",le=\"").append(le).append("\"} ")
+                        .append(snapshot.countAtMost((long) (le * 1e9))).append('\n');
+            }
+            out.append("javelin_request_duration_seconds_bucket");
+            labels(out, route).append(",le=\"+Inf\"} ").append(snapshot.count()).append('\n');
+            out.append("javelin_request_duration_seconds_sum");
+            labels(out, route).append("} ").append(snapshot.sum() / 1e9).append('\n');
+            out.append("javelin_request_duration_seconds_count");
+            labels(out, route).append("} ").append(snapshot.count()).append('\n');
+        }
+        if (!caches.isEmpty()) {
+            appendCaches(out);
+        }
+        return out.toString();
+    }
+
+    private void appendCaches(StringBuilder out) {
+        Map<String, LocalCacheStats> stats = new LinkedHashMap<>();
+        caches.forEach((name, cache) -> stats.put(name, cache.stats()));
+
+        out.append("# HELP javelin_cache_requests_total Cache lookups, by cache and result.\n");
+        out.append("# TYPE javelin_cache_requests_total counter\n");
+        stats.forEach((name, s) -> {
+            cacheLabel(out.append("javelin_cache_requests_total"), name).append(",result=\"hit\"} ").append(s.hits()).append('\n');
+            cacheLabel(out.append("javelin_cache_requests_total"), name).append(",result=\"miss\"} ").append(s.misses()).append('\n');
+        });
+        out.append("# HELP javelin_cache_loads_total Values computed by cache loaders, by cache and result.\n");
+        out.append("# TYPE javelin_cache_loads_total counter\n");
+        stats.forEach((name, s) -> {
+            cacheLabel(out.append("javelin_cache_loads_total"), name).append(",result=\"success\"} ").append(s.loads()).append('\n');
+            cacheLabel(out.append("javelin_cache_loads_total"), name).append(",result=\"failure\"} ").append(s.loadFailures()).append('\n');
+        });
+        out.append("# HELP javelin_cache_evictions_total Cache entries removed for size or expiry.\n");
+        out.append("# TYPE javelin_cache_evictions_total counter\n");
+        stats.forEach((name, s) ->
+                cacheLabel(out.append("javelin_cache_evictions_total"), name).append("} ").append(s.evictions()).append('\n'));
+        out.append("# HELP javelin_cache_entries Entries currently cached.\n");
+        out.append("# TYPE javelin_cache_entries gauge\n");
+        stats.forEach((name, s) ->
+                cacheLabel(out.append("javelin_cache_entries"), name).append("} ").append(s.entries()).append('\n'));
+        out.append("# HELP javelin_cache_weight Total weight of the cached entries.\n");
+        out.append("# TYPE javelin_cache_weight gauge\n");
+        stats.forEach((name, s) ->
+                cacheLabel(out.append("javelin_cache_weight"), name).append("} ").append(s.weight()).append('\n'));
+    }
+
+    /**
+     * Appends the opening brace and the {@code method} and {@code route} labels.
+     */
+    private static StringBuilder labels(StringBuilder out, RouteMetrics route) {
+        out.append("{method=\"");
+        escape(out, route.method());
+        out.append("\",route=\"");
+        escape(out, route.route() == null ? "" : route.route());
+        return out.append('"');
+    }
+
+    /**
+     * Appends the opening brace and the {@code cache} label.
+     */
+    private static StringBuilder cacheLabel(StringBuilder out, String name) {
+        out.append("{cache=\"");
+        escape(out, name);
+        return out.append('"');
+    }
+
+    private static void escape(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '"' -> out.append("\\\"");
+                case '\n' -> out.append("\\n");
+                default -> out.append(c);
+            }
+        }
+    }
+}
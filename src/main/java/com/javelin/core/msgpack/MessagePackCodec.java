@@ -0,0 +1,261 @@
+package com.javelin.core.msgpack;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.javelin.core.json.JsonOutput;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Self-contained MessagePack encoder and decoder built on Jackson's data binding.
+ * <p>
+ * Encoding runs Jackson's serializers against a {@link MessagePackGenerator}; decoding
+ * translates MessagePack into a {@link TokenBuffer} and lets Jackson bind it. Either way
+ * the object model is the one used for JSON, so a DTO looks identical in both formats.
+ * <p>
+ * Supported MessagePack types: nil, bool, int/uint (all widths), float32/64, str, bin,
+ * array and map. Extension types are rejected.
+ */
+public class MessagePackCodec {
+
+    private final ObjectMapper mapper;
+
+    /**
+     * Creates a codec that binds values with the given mapper.
+     *
+     * @param mapper the Jackson mapper that defines the object model
+     */
+    public MessagePackCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    // ========== Encoding ==========
+
+    /**
+     * Appends the MessagePack encoding of {@code value} to the given output.
+     *
+     * @param value the value to encode (may be {@code null})
+     * @param out   the output buffer
+     * @throws IOException if Jackson fails to serialize the value
+     */
+    public void write(Object value, JsonOutput out) throws IOException {
+        try (MessagePackGenerator generator = new MessagePackGenerator(mapper, out)) {
+            mapper.writeValue(generator, value);
+        }
+    }
+
+    /**
+     * Encodes {@code value} as MessagePack.
+     *
+     * @param value the value to encode
+     * @return the encoded bytes
+     * @throws IOException if Jackson fails to serialize the value
+     */
+    public byte[] writeValueAsBytes(Object value) throws IOException {
+        JsonOutput out = new JsonOutput();
+        write(value, out);
+        return out.toByteArray();
+    }
+
+    // ========== Decoding ==========
+
+    /**
+     * Decodes a single MessagePack value into the given type.
+     *
+     * @param data the encoded bytes
+     * @param type the class to bind to
+     * @return the decoded value
+     * @throws IOException if the input is malformed or cannot be bound
+     */
+    public <T> T read(byte[] data, Class<T> type) throws IOException {
+        TokenBuffer tokens = new TokenBuffer(mapper, false);
+        int end = new Decoder(data).readValue(tokens, 0);
+        if (end != data.length) {
+            throw new JsonParseException(null, "Trailing bytes after MessagePack value");
+        }
+        try (JsonParser parser = tokens.asParser(mapper)) {
+            return mapper.readValue(parser, type);
+        }
+    }
+
+    /**
+     * Reads the whole stream and decodes a single MessagePack value from it.
+     *
+     * @param in   the input stream
+     * @param type the class to bind to
+     * @return the decoded value
+     * @throws IOException if the input is malformed or cannot be bound
+     */
+    public <T> T read(InputStream in, Class<T> type) throws IOException {
+        return read(in.readAllBytes(), type);
+    }
+
+    /**
+     * Translates MessagePack bytes into Jackson tokens.
+     */
+    private static final class Decoder {
+        // Same nesting limit as Jackson's default StreamReadConstraints
+        private static final int MAX_DEPTH = 1000;
+
+        private final byte[] data;
+        private int depth;
+
+        Decoder(byte[] data) {
+            this.data = data;
+        }
+
+        /**
+         * Reads one value starting at {@code pos} and returns the position after it.
+         */
+        int readValue(TokenBuffer tb, int pos) throws IOException {
+            int b = u8(pos++);
+
+            if (b <= 0x7f) { tb.writeNumber(b); return pos; }                     // positive fixint
+            if (b >= 0xe0) { tb.writeNumber((byte) b); return pos; }              // negative fixint
+            if ((b & 0xe0) == 0xa0) return readStr(tb, pos, b & 0x1f, false);    // fixstr
+            if ((b & 0xf0) == 0x90) return readArray(tb, pos, b & 0x0f);        // fixarray
+            if ((b & 0xf0) == 0x80) return readMap(tb, pos, b & 0x0f);          // fixmap
+
+            switch (b) {
+                case 0xc0: tb.writeNull(); return pos;
+                case 0xc2: tb.writeBoolean(false); return pos;
+                case 0xc3: tb.writeBoolean(true); return pos;
+                case 0xc4: return readBin(tb, pos + 1, u8(pos));
+                case 0xc5: return readBin(tb, pos + 2, u16(pos));
+                case 0xc6: return readBin(tb, pos + 4, length32(pos));
+                case 0xca: tb.writeNumber(Float.intBitsToFloat(i32(pos))); return pos + 4;
+                case 0xcb: tb.writeNumber(Double.longBitsToDouble(i64(pos))); return pos + 8;
+                case 0xcc: tb.writeNumber(u8(pos)); return pos + 1;
+                case 0xcd: tb.writeNumber(u16(pos)); return pos + 2;
+                case 0xce: tb.writeNumber(i32(pos) & 0xffffffffL); return pos + 4;
+                case 0xcf: {
+                    long v = i64(pos);
+                    if (v >= 0) tb.writeNumber(v);
+                    else tb.writeNumber(new BigInteger(Long.toUnsignedString(v)));
+                    return pos + 8;
+                }
+                case 0xd0: tb.writeNumber((int) data[check(pos, 1)]); return pos + 1;
+                case 0xd1: tb.writeNumber((short) u16(pos)); return pos + 2;
+                case 0xd2: tb.writeNumber(i32(pos)); return pos + 4;
+                case 0xd3: tb.writeNumber(i64(pos)); return pos + 8;
+                case 0xd9: return readStr(tb, pos + 1, u8(pos), false);
+                case 0xda: return readStr(tb, pos + 2, u16(pos), false);
+                case 0xdb: return readStr(tb, pos + 4, length32(pos), false);
+                case 0xdc: return readArray(tb, pos + 2, u16(pos));
+                case 0xdd: return readArray(tb, pos + 4, length32(pos));
+                case 0xde: return readMap(tb, pos + 2, u16(pos));
+                case 0xdf: return readMap(tb, pos + 4, length32(pos));
+                default:
+                    throw new JsonParseException(null, "Unsupported MessagePack type 0x" + Integer.toHexString(b));
+            }
+        }
+
+        private int readArray(TokenBuffer tb, int pos, int size) throws IOException {
+            enter();
+            tb.writeStartArray();
+            for (int i = 0; i < size; i++) {
+                pos = readValue(tb, pos);
+            }
+            tb.writeEndArray();
+            depth--;
+            return pos;
+        }
+
+        private int readMap(TokenBuffer tb, int pos, int size) throws IOException {
+            enter();
+            tb.writeStartObject();
+            for (int i = 0; i < size; i++) {
+                pos = readKey(tb, pos);
+                pos = readValue(tb, pos);
+            }
+            tb.writeEndObject();
+            depth--;
+            return pos;
+        }
+
+        private void enter() throws IOException {
+            if (++depth > MAX_DEPTH) {
+                throw new JsonParseException(null, "MessagePack nesting depth exceeds " + MAX_DEPTH);
+            }
+        }
+
+        private int readKey(TokenBuffer tb, int pos) throws IOException {
+            int b = u8(pos);
+            if ((b & 0xe0) == 0xa0) return readStr(tb, pos + 1, b & 0x1f, true);
+            if (b == 0xd9) return readStr(tb, pos + 2, u8(pos + 1), true);
+            if (b == 0xda) return readStr(tb, pos + 3, u16(pos + 1), true);
+            if (b == 0xdb) return readStr(tb, pos + 5, length32(pos + 1), true);
+
+            // Non-string key (e.g. an integer): bind it by its textual form, as JSON would
+            TokenBuffer key = new TokenBuffer(null, false);
+            int end = readValue(key, pos);
+            try (JsonParser p = key.asParser()) {
+                p.nextToken();
+                if (!p.currentToken().isScalarValue()) {
+                    throw new JsonParseException(null, "MessagePack map keys must be scalar values");
+                }
+                tb.writeFieldName(p.getText());
+            }
+            return end;
+        }
+
+        private int readStr(TokenBuffer tb, int pos, int len, boolean fieldName) throws IOException {
+            check(pos, len);
+            String text = new String(data, pos, len, StandardCharsets.UTF_8);
+            if (fieldName) {
+                tb.writeFieldName(text);
+            } else {
+                tb.writeString(text);
+            }
+            return pos + len;
+        }
+
+        private int readBin(TokenBuffer tb, int pos, int len) throws IOException {
+            check(pos, len);
+            byte[] bytes = new byte[len];
+            System.arraycopy(data, pos, bytes, 0, len);
+            tb.writeBinary(bytes);
+            return pos + len;
+        }
+
+        private int u8(int pos) throws IOException {
+            return data[check(pos, 1)] & 0xff;
+        }
+
+        private int u16(int pos) throws IOException {
+            check(pos, 2);
+            return ((data[pos] & 0xff) << 8) | (data[pos + 1] & 0xff);
+        }
+
+        private int i32(int pos) throws IOException {
+            check(pos, 4);
+            return ((data[pos] & 0xff) << 24) | ((data[pos + 1] & 0xff) << 16)
+                    | ((data[pos + 2] & 0xff) << 8) | (data[pos + 3] & 0xff);
+        }
+
+        private long i64(int pos) throws IOException {
+            return ((long) i32(pos) << 32) | (i32(pos + 4) & 0xffffffffL);
+        }
+
+        private int length32(int pos) throws IOException {
+            int len = i32(pos);
+            if (len < 0) {
+                throw new JsonParseException(null, "MessagePack length exceeds 2 GiB");
+            }
+            return len;
+        }
+
+        private int check(int pos, int len) throws IOException {
+            if (len > data.length - pos) {
+                throw new EOFException("Truncated MessagePack input");
+            }
+            return pos;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.javelin.core.msgpack;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.base.GeneratorBase;
+import com.fasterxml.jackson.core.json.JsonWriteContext;
+import com.javelin.core.json.JsonOutput;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A Jackson {@link JsonGenerator} that emits MessagePack instead of JSON text.
+ * <p>
+ * Because it plugs in below Jackson's serializers, every type Jackson can serialize
+ * (records, beans, maps, annotated DTOs) is encoded with exactly the same field names
+ * and values as {@code ctx.json(..)}, just in binary form.
+ * <p>
+ * MessagePack map and array headers carry their element count, which Jackson does not
+ * know up front. Containers are therefore written with a 32-bit header whose count is
+ * patched in when the container is closed.
+ */
+final class MessagePackGenerator extends GeneratorBase {
+
+    private final JsonOutput out;
+
+    // Open containers: header offset and number of entries written so far
+    private int[] headerOffsets = new int[16];
+    private int[] counts = new int[16];
+    private int depth;
+
+    MessagePackGenerator(ObjectCodec codec, JsonOutput out) {
+        super(JsonGenerator.Feature.collectDefaults(), codec);
+        this.out = out;
+    }
+
+    // ========== Structure ==========
+
+    @Override
+    public void writeStartArray() throws IOException {
+        _verifyValueWrite("start an array");
+        _writeContext = _writeContext.createChildArrayContext();
+        openContainer(0xdd);
+    }
+
+    @Override
+    public void writeEndArray() throws IOException {
+        if (!_writeContext.inArray()) {
+            _reportError("Current context not Array but " + _writeContext.typeDesc());
+        }
+        closeContainer();
+        _writeContext = _writeContext.clearAndGetParent();
+    }
+
+    @Override
+    public void writeStartObject() throws IOException {
+        _verifyValueWrite("start an object");
+        _writeContext = _writeContext.createChildObjectContext();
+        openContainer(0xdf);
+    }
+
+    @Override
+    public void writeEndObject() throws IOException {
+        if (!_writeContext.inObject()) {
+            _reportError("Current context not Object but " + _writeContext.typeDesc());
+        }
+        closeContainer();
+        _writeContext = _writeContext.clearAndGetParent();
+    }
+
+    @Override
+    public void writeFieldName(String name) throws IOException {
+        if (_writeContext.writeFieldName(name) == JsonWriteContext.STATUS_EXPECT_VALUE) {
+            _reportError("Can not write a field name, expecting a value");
+        }
+        counts[depth - 1]++;
+        writeStr(name);
+    }
+
+    // ========== Scalars ==========
+
+    @Override
+    public void writeString(String text) throws IOException {
+        if (text == null) {
+            writeNull();
+            return;
+        }
+        _verifyValueWrite("write a string");
+        writeStr(text);
+    }
+
+    @Override
+    public void writeString(char[] text, int offset, int len) throws IOException {
+        writeString(new String(text, offset, len));
+    }
+
+    @Override
+    public void writeRawUTF8String(byte[] text, int offset, int length) throws IOException {
+        writeUTF8String(text, offset, length);
+    }
+
+    @Override
+    public void writeUTF8String(byte[] text, int offset, int length) throws IOException {
+        _verifyValueWrite("write a string");
+        writeStrHeader(length);
+        out.write(text, offset, length);
+    }
+
+    @Override
+    public void writeBinary(Base64Variant variant, byte[] data, int offset, int len) throws IOException {
+        if (data == null) {
+            writeNull();
+            return;
+        }
+        _verifyValueWrite("write a binary value");
+        if (len < 0x100) {
+            out.write(0xc4);
+            out.write(len);
+        } else if (len < 0x10000) {
+            out.write(0xc5);
+            writeShort(len);
+        } else {
+            out.write(0xc6);
+            writeInt32(len);
+        }
+        out.write(data, offset, len);
+    }
+
+    @Override
+    public void writeNumber(int v) throws IOException {
+        _verifyValueWrite("write a number");
+        writeLong(v);
+    }
+
+    @Override
+    public void writeNumber(long v) throws IOException {
+        _verifyValueWrite("write a number");
+        writeLong(v);
+    }
+
+    @Override
+    public void writeNumber(BigInteger v) throws IOException {
+        if (v == null) {
+            writeNull();
+        } else if (v.bitLength() < 64) {
+            writeNumber(v.longValue());
+        } else if (v.signum() > 0 && v.bitLength() == 64) {
+            _verifyValueWrite("write a number");
+            out.write(0xcf);
+            writeInt64(v.longValue()); // uint64: same bit pattern
+        } else {
+            writeString(v.toString());
+        }
+    }
+
+    @Override
+    public void writeNumber(double v) throws IOException {
+        _verifyValueWrite("write a number");
+        out.write(0xcb);
+        writeInt64(Double.doubleToRawLongBits(v));
+    }
+
+    @Override
+    public void writeNumber(float v) throws IOException {
+        _verifyValueWrite("write a number");
+        out.write(0xca);
+        writeInt32(Float.floatToRawIntBits(v));
+    }
+
+    @Override
+    public void writeNumber(BigDecimal v) throws IOException {
+        // MessagePack has no decimal type; keep full precision as a string
+        writeString(v == null ? null : v.toString());
+    }
+
+    @Override
+    public void writeNumber(String encodedValue) throws IOException {
+        writeString(encodedValue);
+    }
+
+    @Override
+    public void writeBoolean(boolean state) throws IOException {
+        _verifyValueWrite("write a boolean value");
+        out.write(state ? 0xc3 : 0xc2);
+    }
+
+    @Override
+    public void writeNull() throws IOException {
+        _verifyValueWrite("write a null");
+        out.write(0xc0);
+    }
+
+    // ========== Raw content (not representable in MessagePack) ==========
+
+    @Override
+    public void writeRaw(String text) {
+        throw rawUnsupported();
+    }
+
+    @Override
+    public void writeRaw(String text, int offset, int len) {
+        throw rawUnsupported();
+    }
+
+    @Override
+    public void writeRaw(char[] text, int offset, int len) {
+        throw rawUnsupported();
+    }
+
+    @Override
+    public void writeRaw(char c) {
+        throw rawUnsupported();
+    }
+
+    private static UnsupportedOperationException rawUnsupported() {
+        return new UnsupportedOperationException("Raw JSON content cannot be written as MessagePack");
+    }
+
+    // ========== GeneratorBase plumbing ==========
+
+    @Override
+    public void flush() {
+        // Output is an in-memory buffer; nothing to flush
+    }
+
+    @Override
+    protected void _releaseBuffers() {
+    }
+
+    @Override
+    protected void _verifyValueWrite(String typeMsg) throws IOException {
+        if (_writeContext.writeValue() == JsonWriteContext.STATUS_EXPECT_NAME) {
+            _reportError("Can not " + typeMsg + ", expecting field name");
+        }
+        if (depth > 0 && _writeContext.inArray()) {
+            counts[depth - 1]++;
+        }
+    }
+
+    // ========== Encoding helpers ==========
+
+    private void openContainer(int header32) {
+        if (depth == headerOffsets.length) {
+            headerOffsets = Arrays.copyOf(headerOffsets, depth * 2);
+            counts = Arrays.copyOf(counts, depth * 2);
+        }
+        headerOffsets[depth] = out.size();
+        counts[depth] = 0;
+        depth++;
+        out.write(header32);
+        writeInt32(0); // patched in closeContainer()
+    }
+
+    private void closeContainer() {
+        depth--;
+        int offset = headerOffsets[depth] + 1;
+        int count = counts[depth];
+        byte[] buf = out.array();
+        buf[offset] = (byte) (count >>> 24);
+        buf[offset + 1] = (byte) (count >>> 16);
+        buf[offset + 2] = (byte) (count >>> 8);
+        buf[offset + 3] = (byte) count;
+    }
+
+    private void writeStr(String text) {
+        int len = text.length();
+        boolean ascii = true;
+        for (int i = 0; i < len; i++) {
+            if (text.charAt(i) >= 0x80) {
+                ascii = false;
+                break;
+            }
+        }
+        if (ascii) {
+            writeStrHeader(len);
+            for (int i = 0; i < len; i++) {
+                out.write(text.charAt(i));
+            }
+        } else {
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            writeStrHeader(utf8.length);
+            out.write(utf8, 0, utf8.length);
+        }
+    }
+
+    private void writeStrHeader(int len) {
+        if (len < 32) {
+            out.write(0xa0 | len);
+        } else if (len < 0x100) {
+            out.write(0xd9);
+            out.write(len);
+        } else if (len < 0x10000) {
+            out.write(0xda);
+            writeShort(len);
+        } else {
+            out.write(0xdb);
+            writeInt32(len);
+        }
+    }
+
+    private void writeLong(long v) {
+        if (v >= 0) {
+            if (v < 0x80) {
+                out.write((int) v);
+            } else if (v < 0x100) {
+                out.write(0xcc);
+                out.write((int) v);
+            } else if (v < 0x10000) {
+                out.write(0xcd);
+                writeShort((int) v);
+            } else if (v < 0x100000000L) {
+                out.write(0xce);
+                writeInt32((int) v);
+            } else {
+                out.write(0xcf);
+                writeInt64(v);
+            }
+        } else {
+            if (v >= -32) {
+                out.write((int) v & 0xff);
+            } else if (v >= Byte.MIN_VALUE) {
+                out.write(0xd0);
+                out.write((int) v & 0xff);
+            } else if (v >= Short.MIN_VALUE) {
+                out.write(0xd1);
+                writeShort((int) v);
+            } else if (v >= Integer.MIN_VALUE) {
+                out.write(0xd2);
+                writeInt32((int) v);
+            } else {
+                out.write(0xd3);
+                writeInt64(v);
+            }
+        }
+    }
+
+    private void writeShort(int v) {
+        out.write(v >>> 8);
+        out.write(v);
+    }
+
+    private void writeInt32(int v) {
+        out.write(v >>> 24);
+        out.write(v >>> 16);
+        out.write(v >>> 8);
+        out.write(v);
+    }
+
+    private void writeInt64(long v) {
+        writeInt32((int) (v >>> 32));
+        writeInt32((int) v);
+    }
+}
@@ -0,0 +1,54 @@
+package com.javelin;
+
+import com.javelin.core.AccessLogMiddleware;
+import com.javelin.core.PreparedResponse;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+/**
+ * Measures the per-request cost of the access log. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class AccessLogBenchmark {
+
+    static final PreparedResponse OK = PreparedResponse.text(200, "ok");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void requestOverhead() throws Exception {
+        VirtualThreadServer plain = new VirtualThreadServer(0);
+        plain.get("/ping", ctx -> ctx.send(OK));
+
+        AccessLogMiddleware accessLog = new AccessLogMiddleware(dir.resolve("bench.log"), 1 << 16,
+                AccessLogMiddleware.DEFAULT_BATCH_BYTES, AccessLogMiddleware.DEFAULT_FLUSH_INTERVAL);
+        VirtualThreadServer logged = new VirtualThreadServer(0);
+        logged.use(accessLog);
+        logged.get("/ping", ctx -> ctx.send(OK));
+
+        long plainNanos = nanosPerRequest(plain);
+        long loggedNanos = nanosPerRequest(logged);
+        accessLog.close();
+        System.out.println("[AccessLog] GET /ping: " + plainNanos + " ns/op without access log, " + loggedNanos
+                + " ns/op with access log; " + accessLog.dropped() + " dropped");
+    }
+
+    private static long nanosPerRequest(VirtualThreadServer server) {
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", "/ping");
+        int iterations = 100_000;
+        for (int i = 0; i < iterations; i++) {
+            exchange.reset();
+            server.handleRequest(exchange);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            exchange.reset();
+            server.handleRequest(exchange);
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+}
@@ -0,0 +1,125 @@
+package com.javelin;
+
+import com.javelin.core.AccessLogMiddleware;
+import com.javelin.core.PreparedResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccessLogTest {
+
+    static final PreparedResponse OK = PreparedResponse.text(200, "ok");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRecordFormat() throws Exception {
+        Path file = dir.resolve("access.log");
+        AccessLogMiddleware accessLog = new AccessLogMiddleware(file);
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(accessLog);
+        server.get("/users/{id}", ctx -> ctx.send("hello"));
+        server.get("/boom", ctx -> {
+            throw new IllegalStateException("boom");
+        });
+
+        Instant before = Instant.now().minusSeconds(1);
+        server.handleRequest(new FakeHttpExchange("GET", "/users/7"));
+        server.handleRequest(new FakeHttpExchange("GET", "/missing"));
+        server.handleRequest(new FakeHttpExchange("GET", "/boom"));
+        FakeHttpExchange forged = new FakeHttpExchange("GET", "/caf%C3%A9");
+        forged.getRequestHeaders().add("X-Forwarded-For", "1.2.3.4\" 200 0 0.000ms /\tfake");
+        server.handleRequest(forged);
+        accessLog.close();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(4, lines.size(), lines.toString());
+
+        String first = lines.get(0);
+        Instant time = Instant.parse(first.substring(0, 24));
+        assertTrue(!time.isBefore(before) && !time.isAfter(Instant.now()), first);
+        assertTrue(first.substring(24).matches(" 127\\.0\\.0\\.1 \"GET /users/7\" 200 5 \\d+\\.\\d{3}ms /users/\\{id}"), first);
+        assertTrue(lines.get(1).contains("\"GET /missing\" 404 ") && lines.get(1).endsWith("ms -"), lines.get(1));
+        assertTrue(lines.get(2).contains("\"GET /boom\" 500 ") && lines.get(2).endsWith("ms /boom"), lines.get(2));
+        assertTrue(lines.get(3).contains(" 1.2.3.4? 200 0 0.000ms /?fake \"GET /café\" 404 "), lines.get(3));
+
+        assertEquals(4, accessLog.written());
+        assertEquals(0, accessLog.dropped());
+    }
+
+    @Test
+    void testMiddlewareExceptionLoggedWithHandledStatus() throws Exception {
+        Path file = dir.resolve("errors.log");
+        AccessLogMiddleware accessLog = new AccessLogMiddleware(file);
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(accessLog);
+        server.use(ctx -> {
+            if (ctx.header("X-Token") == null) {
+                throw new IllegalArgumentException("missing token");
+            }
+            ctx.next();
+        });
+        server.get("/users", ctx -> ctx.send(OK));
+
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", "/users");
+        server.handleRequest(exchange);
+        accessLog.close();
+
+        assertEquals(400, exchange.getResponseCode());
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(1, lines.size(), lines.toString());
+        assertTrue(lines.get(0).contains("\"GET /users\" 400 " + exchange.responseBytes().length + " "), lines.get(0));
+    }
+
+    @Test
+    void testSamplingKeepsServerErrors() throws Exception {
+        Path file = dir.resolve("sampled.log");
+        AccessLogMiddleware accessLog = new AccessLogMiddleware(file);
+        accessLog.setSampleRate(0.0);
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(accessLog);
+        server.get("/ok", ctx -> ctx.send(OK));
+        server.get("/fail", ctx -> ctx.status(503).send("down"));
+
+        for (int i = 0; i < 100; i++) {
+            server.handleRequest(new FakeHttpExchange("GET", "/ok"));
+        }
+        server.handleRequest(new FakeHttpExchange("GET", "/fail"));
+        accessLog.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(1, lines.size(), lines.toString());
+        assertTrue(lines.get(0).contains("\"GET /fail\" 503 4 "), lines.get(0));
+        assertThrows(IllegalArgumentException.class, () -> accessLog.setSampleRate(1.5));
+    }
+
+    @Test
+    void testFullRingDropsInsteadOfBlocking() throws Exception {
+        Path file = dir.resolve("small.log");
+        AccessLogMiddleware accessLog = new AccessLogMiddleware(file, 2, AccessLogMiddleware.RECORD_BYTES, Duration.ofSeconds(10));
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(accessLog);
+        server.get("/ping", ctx -> ctx.send(OK));
+
+        int requests = 20_000;
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", "/ping");
+        for (int i = 0; i < requests; i++) {
+            exchange.reset();
+            server.handleRequest(exchange);
+        }
+        accessLog.close();
+
+        long written = accessLog.written();
+        assertEquals(requests, written + accessLog.dropped());
+        assertEquals(written, Files.readAllLines(file).size());
+    }
+}
@@ -0,0 +1,92 @@
+package com.javelin;
+
+import com.javelin.core.PreparedResponse;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AllocationBudgetTest {
+
+    static final PreparedResponse OK = PreparedResponse.text(200, "ok");
+
+    // Measured ~460-520 bytes, mostly JDK Headers key normalization; headroom for JDK differences
+    static final long BYTES_PER_GET = 768;
+
+    static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void testSimpleGetStaysWithinBudget() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.get("/ping", ctx -> ctx.send(OK));
+
+        long perRequest = bytesPerRequest(server, new FakeHttpExchange("GET", "/ping"));
+        assertTrue(perRequest <= BYTES_PER_GET, "GET /ping allocated " + perRequest + " bytes");
+    }
+
+    @Test
+    void testPathVariableGetStaysWithinBudget() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        long[] sink = new long[1];
+        server.get("/users/{id:long}", ctx -> {
+            sink[0] += ctx.pathLong("id");
+            ctx.send(OK);
+        });
+
+        long perRequest = bytesPerRequest(server, new FakeHttpExchange("GET", "/users/42"));
+        assertTrue(perRequest <= BYTES_PER_GET, "GET /users/42 allocated " + perRequest + " bytes");
+    }
+
+    @Test
+    void testPoolingReducesAllocation() {
+        VirtualThreadServer pooled = new VirtualThreadServer(0);
+        pooled.get("/ping", ctx -> ctx.send(OK));
+        VirtualThreadServer unpooled = new VirtualThreadServer(0);
+        unpooled.get("/ping", ctx -> ctx.send(OK));
+        unpooled.setContextPooling(false);
+
+        long withPool = bytesPerRequest(pooled, new FakeHttpExchange("GET", "/ping"));
+        long withoutPool = bytesPerRequest(unpooled, new FakeHttpExchange("GET", "/ping"));
+        assertTrue(withPool < withoutPool, "pooled " + withPool + " bytes, unpooled " + withoutPool + " bytes");
+    }
+
+    @Test
+    void testPooledContextDoesNotLeakState() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.get("/users/{id}", ctx -> ctx.send(ctx.pathVar("id") + ":" + ctx.queryParam("q")));
+
+        for (String id : new String[]{"1", "2", "3"}) {
+            FakeHttpExchange exchange = new FakeHttpExchange("GET", "/users/" + id + (id.equals("2") ? "?q=x" : ""));
+            server.handleRequest(exchange);
+            assertEquals(id + ":" + (id.equals("2") ? "x" : "null"), new String(exchange.responseBytes()));
+        }
+
+        FakeHttpExchange missing = new FakeHttpExchange("GET", "/nothing");
+        server.handleRequest(missing);
+        assertEquals(404, missing.getResponseCode());
+    }
+
+    /**
+     * Replays one exchange on the current thread and returns the bytes it allocated per request.
+     */
+    private static long bytesPerRequest(VirtualThreadServer server, FakeHttpExchange exchange) {
+        int warmup = 20_000;
+        int iterations = 20_000;
+        for (int i = 0; i < warmup; i++) {
+            exchange.reset();
+            server.handleRequest(exchange);
+        }
+        assertEquals(200, exchange.getResponseCode());
+
+        long threadId = Thread.currentThread().threadId();
+        long before = THREADS.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            exchange.reset();
+            server.handleRequest(exchange);
+        }
+        long after = THREADS.getThreadAllocatedBytes(threadId);
+        return (after - before) / iterations;
+    }
+}
@@ -0,0 +1,78 @@
+package com.javelin;
+
+import com.javelin.core.Key;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AttributeKeyTest {
+
+    record Principal(String name, boolean admin) {}
+
+    static final Key<Principal> PRINCIPAL = Key.of("principal");
+    static final Key<String> TRACE_ID = Key.of("traceId");
+
+    @Test
+    void testMiddlewarePassesDecodedPrincipalToHandler() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(ctx -> {
+            String auth = ctx.header("Authorization");
+            if (auth != null) {
+                ctx.attr(PRINCIPAL, new Principal(auth.substring("Bearer ".length()), auth.endsWith("root")));
+            }
+            ctx.next();
+        });
+        server.get("/me", ctx -> {
+            Principal principal = ctx.attr(PRINCIPAL);
+            ctx.send(principal == null ? "anonymous" : principal.name() + (principal.admin() ? " (admin)" : ""));
+        });
+
+        assertEquals("root (admin)", get(server, "/me", "Bearer root"));
+        assertEquals("alice", get(server, "/me", "Bearer alice"));
+        // Attributes do not survive into the next request on a reused context
+        assertEquals("anonymous", get(server, "/me", null));
+    }
+
+    @Test
+    void testKeysAreIndependentAndRemovable() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        Key<String> sameName = Key.of("traceId");
+        server.get("/trace", ctx -> {
+            ctx.attr(TRACE_ID, "abc").attr(sameName, "other");
+            assertEquals("abc", ctx.attr(TRACE_ID));
+            assertEquals("other", ctx.attr(sameName));
+            assertNull(ctx.attr(PRINCIPAL));
+
+            ctx.attr(TRACE_ID, null);
+            ctx.send(String.valueOf(ctx.attr(TRACE_ID)));
+        });
+
+        assertEquals("null", get(server, "/trace", null));
+    }
+
+    @Test
+    void testKeyCreatedAfterContextsExist() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        Key<?>[] late = new Key<?>[1];
+        server.get("/late", ctx -> {
+            @SuppressWarnings("unchecked")
+            Key<Integer> key = (Key<Integer>) late[0];
+            ctx.attr(key, 7);
+            ctx.send(String.valueOf(ctx.attr(key)));
+        });
+
+        late[0] = Key.of("before");
+        assertEquals("7", get(server, "/late", null));
+        late[0] = Key.of("after");
+        assertEquals("7", get(server, "/late", null));
+    }
+
+    private static String get(VirtualThreadServer server, String path, String authorization) {
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", path);
+        if (authorization != null) {
+            exchange.getRequestHeaders().add("Authorization", authorization);
+        }
+        server.handleRequest(exchange);
+        return new String(exchange.responseBytes());
+    }
+}
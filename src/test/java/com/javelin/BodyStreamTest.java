@@ -0,0 +1,92 @@
+package com.javelin;
+
+import com.javelin.model.User;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BodyStreamTest {
+    static VirtualThreadServer server;
+
+    @BeforeAll
+    static void setup() {
+        server = new VirtualThreadServer(8080);
+        server.registerJsonCodec(User.class);
+
+        server.post("/ingest", ctx -> {
+            try (Stream<User> users = ctx.bodyStream(User.class)) {
+                long[] stats = new long[2];
+                users.forEach(u -> {
+                    stats[0]++;
+                    stats[1] += u.id();
+                });
+                ctx.send(stats[0] + " " + stats[1]);
+            }
+        });
+        server.post("/batches", ctx -> {
+            List<Integer> sizes = new ArrayList<>();
+            ctx.bodyStream(User.class, 1000, batch -> sizes.add(batch.size()));
+            ctx.send(sizes.size() + " " + sizes.get(sizes.size() - 1));
+        });
+        server.start();
+
+        try { Thread.sleep(300); } catch (InterruptedException ignored) {}
+    }
+
+    @AfterAll
+    static void tearDown() {
+        try { server.stop(); } catch (Exception ignored) {}
+    }
+
+    @Test
+    void testNdjsonBody() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 1; i <= 100_000; i++) {
+            body.append("{\"id\":").append(i).append(",\"name\":\"user").append(i).append("\"}\n");
+        }
+        assertEquals("100000 5000050000", post("/ingest", body.toString()));
+    }
+
+    @Test
+    void testJsonArrayBody() throws Exception {
+        assertEquals("3 6", post("/ingest", "[{\"id\":1,\"name\":\"a\"}, {\"id\":2,\"name\":\"b\"}, {\"id\":3,\"name\":\"c\"}]"));
+        assertEquals("0 0", post("/ingest", "[]"));
+    }
+
+    @Test
+    void testBatches() throws Exception {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < 2500; i++) {
+            if (i > 0) body.append(',');
+            body.append("{\"id\":").append(i).append(",\"name\":\"n\"}");
+        }
+        body.append(']');
+        assertEquals("3 500", post("/batches", body.toString()));
+    }
+
+    private static String post(String path, String body) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080" + path).openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", "application/x-ndjson");
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(body.getBytes());
+        }
+
+        assertEquals(200, conn.getResponseCode());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
+            return reader.readLine();
+        }
+    }
+}
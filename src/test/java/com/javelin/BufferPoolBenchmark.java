@@ -0,0 +1,37 @@
+package com.javelin;
+
+import com.javelin.core.BufferPool;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reports allocation and collections for large JSON responses with and without buffer pooling.
+ * Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class BufferPoolBenchmark {
+
+    @Test
+    void sustainedLoad() {
+        long gcBefore = gcCount();
+        long pooled = BufferPoolTest.bytesPerResponse(new BufferPool());
+        long gcPooled = gcCount();
+        long unpooled = BufferPoolTest.bytesPerResponse(new BufferPool(0));
+        long gcUnpooled = gcCount();
+
+        System.out.println("[BufferPool] 1000-item JSON response: pooled " + pooled + " bytes/request ("
+                + (gcPooled - gcBefore) + " collections), unpooled " + unpooled + " bytes/request ("
+                + (gcUnpooled - gcPooled) + " collections)");
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+}
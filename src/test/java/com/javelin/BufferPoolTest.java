@@ -0,0 +1,140 @@
+package com.javelin;
+
+import com.javelin.core.BufferPool;
+import com.javelin.core.BufferPoolStats;
+import com.javelin.core.HttpExchangeContext;
+import com.javelin.core.json.JsonCodecRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BufferPoolTest {
+
+    record Item(int id, String name) {}
+
+    static final List<Item> ITEMS = IntStream.range(0, 1_000).mapToObj(i -> new Item(i, "item-" + i)).toList();
+    static final JsonCodecRegistry CODECS = new JsonCodecRegistry();
+
+    @Test
+    void testSizeClassesAndReuse() {
+        BufferPool pool = new BufferPool();
+
+        byte[] small = pool.acquire(100);
+        assertEquals(1024, small.length);
+        byte[] medium = pool.acquire(1025);
+        assertEquals(4096, medium.length);
+        assertEquals(1024 * 1024, pool.acquire(1024 * 1024).length);
+        assertEquals(1024 * 1024 + 1, pool.acquire(1024 * 1024 + 1).length);
+
+        pool.release(small);
+        assertSame(small, pool.acquire(512));
+
+        BufferPoolStats stats = pool.stats();
+        assertEquals(5, stats.acquisitions());
+        assertEquals(1, stats.reused());
+        assertEquals(4, stats.outstanding());
+        assertEquals(0, stats.pooledBuffers());
+    }
+
+    @Test
+    void testForeignAndOversizedArraysAreNotPooled() {
+        BufferPool pool = new BufferPool();
+        pool.release(pool.acquire(2 * 1024 * 1024));
+        pool.release(new byte[2048]);
+        assertEquals(0, pool.stats().pooledBuffers());
+
+        BufferPool disabled = new BufferPool(0);
+        byte[] buffer = disabled.acquire(10);
+        disabled.release(buffer);
+        assertNotSame(buffer, disabled.acquire(10));
+        assertEquals(0, disabled.stats().reused());
+    }
+
+    @Test
+    void testLeakDetection() {
+        BufferPool pool = new BufferPool();
+        pool.setLeakDetection(true);
+
+        byte[] returned = pool.acquire(10);
+        pool.acquire(5000);
+        pool.release(returned);
+
+        List<Throwable> leaks = pool.leaks();
+        assertEquals(1, leaks.size());
+        assertTrue(leaks.get(0).getMessage().contains("16384 bytes"));
+        assertEquals("testLeakDetection", leaks.get(0).getStackTrace()[1].getMethodName());
+
+        assertThrows(IllegalStateException.class, () -> pool.release(returned));
+    }
+
+    @Test
+    void testResponsesAndBodiesReturnTheirBuffers() {
+        BufferPool pool = new BufferPool();
+        pool.setLeakDetection(true);
+
+        FakeHttpExchange large = new FakeHttpExchange("GET", "/items");
+        new HttpExchangeContext(large, CODECS, pool).json(ITEMS);
+        assertTrue(new String(large.responseBytes(), StandardCharsets.UTF_8).startsWith("[{\"id\":0,\"name\":\"item-0\"}"));
+
+        FakeHttpExchange head = new FakeHttpExchange("HEAD", "/items");
+        new HttpExchangeContext(head, CODECS, pool).json(ITEMS);
+
+        FakeHttpExchange stream = new FakeHttpExchange("GET", "/items");
+        new HttpExchangeContext(stream, CODECS, pool).jsonStream(ITEMS.stream());
+        assertEquals(large.responseBytes().length, stream.responseBytes().length);
+
+        String form = "q=" + "x".repeat(10_000) + "&page=2";
+        FakeHttpExchange post = new FakeHttpExchange("POST", "/search", form.getBytes(StandardCharsets.UTF_8));
+        post.getRequestHeaders().add("Content-Type", "application/x-www-form-urlencoded");
+        assertEquals("2", new HttpExchangeContext(post, CODECS, pool).formParam("page"));
+
+        assertEquals(List.of(), pool.leaks());
+        assertEquals(0, pool.stats().outstanding());
+        assertTrue(pool.stats().pooledBuffers() > 0);
+    }
+
+    @Test
+    void testSustainedLoadAllocatesLess() {
+        long pooled = bytesPerResponse(new BufferPool());
+        long unpooled = bytesPerResponse(new BufferPool(0));
+
+        // The ~28 KB body is regrown from 1 KB on every unpooled request; pooled, its buffers are reused
+        assertTrue(pooled < unpooled / 2, "pooled " + pooled + " vs unpooled " + unpooled);
+    }
+
+    /**
+     * Serializes {@link #ITEMS} repeatedly on the current thread and returns the bytes allocated per response.
+     */
+    static long bytesPerResponse(BufferPool pool) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", "/items");
+        // Discard the body so only the serialization path is measured
+        exchange.setStreams(null, OutputStreamSink.INSTANCE);
+        HttpExchangeContext context = new HttpExchangeContext(exchange, CODECS, pool);
+
+        int iterations = 2_000;
+        for (int i = 0; i < iterations; i++) {
+            context.reset(exchange);
+            context.json(ITEMS);
+        }
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            context.reset(exchange);
+            context.json(ITEMS);
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / iterations;
+    }
+
+    static final class OutputStreamSink extends java.io.OutputStream {
+        static final OutputStreamSink INSTANCE = new OutputStreamSink();
+
+        @Override public void write(int b) { }
+        @Override public void write(byte[] b, int off, int len) { }
+    }
+}
@@ -0,0 +1,227 @@
+package com.javelin;
+
+import com.javelin.core.CoalescingMiddleware;
+import com.javelin.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoalescingTest {
+
+    @Test
+    void testConcurrentRequestsShareOneExecution() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        CoalescingMiddleware coalescing = new CoalescingMiddleware(Duration.ofSeconds(10));
+        server.use(coalescing);
+        server.get("/report", ctx -> {
+            int call = calls.incrementAndGet();
+            release.await();
+            ctx.status(201).setHeader("X-Call", String.valueOf(call)).json(Map.of("call", call));
+        });
+
+        List<FakeHttpExchange> exchanges = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        threads.add(start(server, "/report?year=2026", exchanges));
+        while (calls.get() == 0) {
+            Thread.sleep(1);
+        }
+        for (int i = 0; i < 50; i++) {
+            threads.add(start(server, "/report?year=2026", exchanges));
+        }
+        awaitParked(threads.subList(1, threads.size()));
+        assertEquals(1, coalescing.inFlight());
+
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, coalescing.executions());
+        assertEquals(50, coalescing.coalesced());
+        assertEquals(0, coalescing.inFlight());
+        for (FakeHttpExchange exchange : exchanges) {
+            assertEquals(201, exchange.getResponseCode());
+            assertEquals("1", exchange.getResponseHeaders().getFirst("X-Call"));
+            assertEquals("application/json", exchange.getResponseHeaders().getFirst("Content-Type"));
+            assertEquals("{\"call\":1}", new String(exchange.responseBytes(), StandardCharsets.UTF_8));
+        }
+
+        // Once finished, the next request runs the handler again
+        FakeHttpExchange later = new FakeHttpExchange("GET", "/report?year=2026");
+        server.handleRequest(later);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testDifferentKeysRunIndependently() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(new CoalescingMiddleware(Duration.ofSeconds(10)));
+        server.get("/report", ctx -> {
+            calls.incrementAndGet();
+            release.await();
+            ctx.send(ctx.queryParam("year"));
+        });
+
+        List<FakeHttpExchange> exchanges = new ArrayList<>();
+        List<Thread> threads = List.of(
+                start(server, "/report?year=2025", exchanges),
+                start(server, "/report?year=2026", exchanges));
+        while (calls.get() < 2) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testWaitersFallBackAfterTimeout() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        CoalescingMiddleware coalescing = new CoalescingMiddleware(Duration.ofMillis(50));
+        server.use(coalescing);
+        server.get("/slow", ctx -> {
+            if (calls.incrementAndGet() == 1) {
+                release.await();
+            }
+            ctx.send("call " + calls.get());
+        });
+
+        List<FakeHttpExchange> exchanges = new ArrayList<>();
+        Thread leader = start(server, "/slow", exchanges);
+        while (calls.get() == 0) {
+            Thread.sleep(1);
+        }
+        FakeHttpExchange waiter = new FakeHttpExchange("GET", "/slow");
+        server.handleRequest(waiter);
+        assertEquals("call 2", new String(waiter.responseBytes(), StandardCharsets.UTF_8));
+        assertEquals(1, coalescing.fallbacks());
+
+        release.countDown();
+        leader.join();
+    }
+
+    @Test
+    void testUnshareableResponsesAreNotFannedOut() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        CoalescingMiddleware coalescing = new CoalescingMiddleware(Duration.ofSeconds(10));
+        server.use(coalescing);
+        server.get("/session", ctx -> {
+            calls.incrementAndGet();
+            release.await();
+            ctx.setCookie("session", "s" + calls.get(), 60).send("ok");
+        });
+
+        List<FakeHttpExchange> exchanges = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        threads.add(start(server, "/session", exchanges));
+        while (calls.get() == 0) {
+            Thread.sleep(1);
+        }
+        for (int i = 0; i < 3; i++) {
+            threads.add(start(server, "/session", exchanges));
+        }
+        awaitParked(threads.subList(1, threads.size()));
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4, calls.get());
+        assertEquals(3, coalescing.fallbacks());
+        assertEquals(0, coalescing.coalesced());
+    }
+
+    @Test
+    void testResponsesAreSharedOnlyWithMatchingVaryHeaders() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        CoalescingMiddleware coalescing = new CoalescingMiddleware(Duration.ofSeconds(10));
+        server.use(coalescing);
+        server.get("/user", ctx -> {
+            if (calls.incrementAndGet() == 1) {
+                release.await();
+            }
+            ctx.respond(new User(1, "Ann"));
+        });
+
+        List<FakeHttpExchange> exchanges = new ArrayList<>();
+        Thread leader = start(server, "/user", "application/json", exchanges);
+        while (calls.get() == 0) {
+            Thread.sleep(1);
+        }
+        Thread sameAccept = start(server, "/user", "application/json", exchanges);
+        Thread otherAccept = start(server, "/user", "application/msgpack", exchanges);
+        awaitParked(List.of(sameAccept, otherAccept));
+        release.countDown();
+        for (Thread thread : List.of(leader, sameAccept, otherAccept)) {
+            thread.join();
+        }
+
+        assertEquals(2, calls.get());
+        assertEquals(1, coalescing.coalesced());
+        assertEquals(1, coalescing.fallbacks());
+        for (FakeHttpExchange exchange : exchanges) {
+            String accept = exchange.getRequestHeaders().getFirst("Accept");
+            assertEquals(accept, exchange.getResponseHeaders().getFirst("Content-Type"));
+        }
+    }
+
+    @Test
+    void testAuthorizedAndNonGetRequestsBypass() {
+        AtomicInteger calls = new AtomicInteger();
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(new CoalescingMiddleware(Duration.ofSeconds(1)));
+        server.get("/me", ctx -> ctx.send("me " + calls.incrementAndGet()));
+        server.post("/me", ctx -> ctx.send("posted " + calls.incrementAndGet()));
+
+        FakeHttpExchange authorized = new FakeHttpExchange("GET", "/me");
+        authorized.getRequestHeaders().add("Authorization", "Bearer x");
+        server.handleRequest(authorized);
+        server.handleRequest(new FakeHttpExchange("POST", "/me"));
+        assertEquals(2, calls.get());
+    }
+
+    private static Thread start(VirtualThreadServer server, String uri, List<FakeHttpExchange> exchanges) {
+        return start(server, uri, null, exchanges);
+    }
+
+    private static Thread start(VirtualThreadServer server, String uri, String accept, List<FakeHttpExchange> exchanges) {
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", uri);
+        if (accept != null) {
+            exchange.getRequestHeaders().add("Accept", accept);
+        }
+        synchronized (exchanges) {
+            exchanges.add(exchange);
+        }
+        return Thread.ofVirtual().start(() -> server.handleRequest(exchange));
+    }
+
+    private static void awaitParked(List<Thread> threads) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        for (Thread thread : threads) {
+            // Virtual threads may report a timed park as WAITING
+            while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+                assertTrue(System.nanoTime() < deadline, "requests did not start waiting");
+                Thread.sleep(1);
+            }
+        }
+    }
+}
@@ -13,8 +13,12 @@ import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.Random;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
@@ -79,6 +83,35 @@ public class ContextTest {
         assertEquals("OK", conn.getHeaderField("X-Test"));
     }
 
+    @Test
+    void testSendFileStreamsTheFile() throws Exception {
+        byte[] content = new byte[3 * 1024 * 1024];
+        new Random(7).nextBytes(content);
+        Path file = Files.createTempFile("javelin-", ".bin");
+        try {
+            Files.write(file, content);
+            VirtualThreadServer local = new VirtualThreadServer(0);
+            local.get("/file", ctx -> ctx.sendFile(file));
+            local.get("/missing", ctx -> ctx.sendFile(file.resolveSibling("missing-" + file.getFileName())));
+
+            FakeHttpExchange get = new FakeHttpExchange("GET", "/file");
+            local.handleRequest(get);
+            assertEquals(200, get.getResponseCode());
+            assertArrayEquals(content, get.responseBytes());
+
+            FakeHttpExchange head = new FakeHttpExchange("HEAD", "/file");
+            local.handleRequest(head);
+            assertEquals(String.valueOf(content.length), head.getResponseHeaders().getFirst("Content-Length"));
+            assertEquals(0, head.responseBytes().length);
+
+            FakeHttpExchange missing = new FakeHttpExchange("GET", "/missing");
+            local.handleRequest(missing);
+            assertEquals(500, missing.getResponseCode());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
     // ===================== 유틸 =====================
 
     private static HttpURLConnection openGetConnection(String urlStr) throws IOException {
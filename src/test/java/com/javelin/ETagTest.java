@@ -0,0 +1,152 @@
+package com.javelin;
+
+import com.javelin.core.ETagMiddleware;
+import com.javelin.core.PreparedResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ETagTest {
+
+    @Test
+    void testTagsBodyAndAnswersNotModified() {
+        AtomicInteger calls = new AtomicInteger();
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        ETagMiddleware etags = new ETagMiddleware();
+        server.use(etags);
+        server.get("/status", ctx -> {
+            calls.incrementAndGet();
+            ctx.json(Map.of("status", "UP"));
+        });
+
+        FakeHttpExchange first = request(server, "/status", null);
+        String etag = first.getResponseHeaders().getFirst("ETag");
+        assertNotNull(etag);
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""), etag);
+        assertEquals("{\"status\":\"UP\"}", new String(first.responseBytes()));
+
+        FakeHttpExchange second = request(server, "/status", etag);
+        assertEquals(304, second.getResponseCode());
+        assertEquals(0, second.responseBytes().length);
+        assertEquals(etag, second.getResponseHeaders().getFirst("ETag"));
+
+        // Weak and listed tags match too; other tags get the full body
+        assertEquals(304, request(server, "/status", "\"other\", W/" + etag).getResponseCode());
+        assertEquals(200, request(server, "/status", "\"other\"").getResponseCode());
+        assertEquals(4, calls.get());
+        assertEquals(2, etags.notModified());
+    }
+
+    @Test
+    void testTagFollowsContent() {
+        AtomicInteger version = new AtomicInteger();
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(new ETagMiddleware());
+        server.get("/counter", ctx -> ctx.send("v" + version.get()));
+
+        String etag = request(server, "/counter", null).getResponseHeaders().getFirst("ETag");
+        version.incrementAndGet();
+        FakeHttpExchange changed = request(server, "/counter", etag);
+        assertEquals(200, changed.getResponseCode());
+        assertEquals("v1", new String(changed.responseBytes()));
+        assertNotEquals(etag, changed.getResponseHeaders().getFirst("ETag"));
+    }
+
+    @Test
+    void testOnlyPlainSuccessesAreTagged() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(new ETagMiddleware());
+        server.get("/created", ctx -> ctx.status(201).send("created"));
+        server.get("/custom", ctx -> ctx.setHeader("ETag", "\"v7\"").send("custom"));
+        server.post("/posted", ctx -> ctx.send("posted"));
+
+        assertNull(request(server, "/created", null).getResponseHeaders().getFirst("ETag"));
+        // A handler's own tag is kept and honored
+        assertEquals(304, request(server, "/custom", "\"v7\"").getResponseCode());
+
+        FakeHttpExchange post = new FakeHttpExchange("POST", "/posted");
+        server.handleRequest(post);
+        assertNull(post.getResponseHeaders().getFirst("ETag"));
+    }
+
+    @Test
+    void testVersionSkipsTheHandler() {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger version = new AtomicInteger(1);
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        ETagMiddleware etags = new ETagMiddleware(ctx -> version.get());
+        server.use(etags);
+        server.get("/boards/{id}", ctx -> {
+            calls.incrementAndGet();
+            ctx.json(Map.of("id", ctx.pathVar("id"), "version", version.get()));
+        });
+
+        String etag = request(server, "/boards/1", null).getResponseHeaders().getFirst("ETag");
+        for (int i = 0; i < 5; i++) {
+            FakeHttpExchange polled = request(server, "/boards/1", etag);
+            assertEquals(304, polled.getResponseCode());
+            assertEquals(etag, polled.getResponseHeaders().getFirst("ETag"));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(5, etags.skipped());
+
+        // Another URL has its own tag
+        assertEquals(200, request(server, "/boards/2", etag).getResponseCode());
+        assertEquals(2, calls.get());
+
+        // A new version runs the handler again
+        version.incrementAndGet();
+        FakeHttpExchange changed = request(server, "/boards/1", etag);
+        assertEquals(200, changed.getResponseCode());
+        assertEquals(3, calls.get());
+        assertEquals(304, request(server, "/boards/1", changed.getResponseHeaders().getFirst("ETag")).getResponseCode());
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void testRememberedTagsAreBounded() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        AtomicInteger calls = new AtomicInteger();
+        server.use(new ETagMiddleware(ctx -> 1, 10));
+        server.get("/items/{id}", ctx -> {
+            calls.incrementAndGet();
+            ctx.send(ctx.pathVar("id"));
+        });
+
+        String[] tags = new String[100];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = request(server, "/items/" + i, null).getResponseHeaders().getFirst("ETag");
+        }
+        int skippedHandlers = 0;
+        for (int i = 0; i < tags.length; i++) {
+            int before = calls.get();
+            assertEquals(304, request(server, "/items/" + i, tags[i]).getResponseCode());
+            skippedHandlers += calls.get() == before ? 1 : 0;
+        }
+        assertTrue(skippedHandlers <= 11, String.valueOf(skippedHandlers));
+    }
+
+    @Test
+    void testPreparedResponsesKeepTheirOwnTags() {
+        PreparedResponse health = PreparedResponse.json(200, Map.of("status", "UP"));
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(new ETagMiddleware());
+        server.get("/health", ctx -> ctx.send(health));
+
+        FakeHttpExchange exchange = request(server, "/health", null);
+        assertEquals(health.etag(), exchange.getResponseHeaders().getFirst("ETag"));
+        assertEquals(304, request(server, "/health", health.etag()).getResponseCode());
+    }
+
+    private static FakeHttpExchange request(VirtualThreadServer server, String uri, String ifNoneMatch) {
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", uri);
+        if (ifNoneMatch != null) {
+            exchange.getRequestHeaders().add("If-None-Match", ifNoneMatch);
+        }
+        server.handleRequest(exchange);
+        return exchange;
+    }
+}
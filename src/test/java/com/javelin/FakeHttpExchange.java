@@ -0,0 +1,89 @@
+package com.javelin;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An in-memory {@link HttpExchange} for driving {@code VirtualThreadServer.handleRequest}
+ * without a socket (used by benchmarks).
+ */
+class FakeHttpExchange extends HttpExchange {
+    private final String method;
+    private final URI uri;
+    private final Headers requestHeaders = new Headers();
+    private final Headers responseHeaders = new Headers();
+    private final Map<String, Object> attributes = new HashMap<>();
+    private InputStream requestBody;
+    // What was written to the original body, even after setStreams wraps or replaces it
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    private OutputStream responseBody = written;
+    private int responseCode = -1;
+    private long responseLength;
+
+    FakeHttpExchange(String method, String uri) {
+        this(method, uri, new byte[0]);
+    }
+
+    FakeHttpExchange(String method, String uri, byte[] body) {
+        this.method = method;
+        this.uri = URI.create(uri);
+        this.requestBody = new ByteArrayInputStream(body);
+    }
+
+    /**
+     * Clears the response so the same exchange can be replayed, e.g. in allocation tests.
+     */
+    void reset() {
+        responseHeaders.clear();
+        written.reset();
+        responseCode = -1;
+    }
+
+    byte[] responseBytes() {
+        return written.toByteArray();
+    }
+
+    @Override public Headers getRequestHeaders() { return requestHeaders; }
+    @Override public Headers getResponseHeaders() { return responseHeaders; }
+    @Override public URI getRequestURI() { return uri; }
+    @Override public String getRequestMethod() { return method; }
+    @Override public HttpContext getHttpContext() { return null; }
+    @Override public void close() { }
+    @Override public InputStream getRequestBody() { return requestBody; }
+    @Override public OutputStream getResponseBody() { return responseBody; }
+    @Override public void sendResponseHeaders(int rCode, long responseLength) {
+        this.responseCode = rCode;
+        this.responseLength = responseLength;
+    }
+
+    /**
+     * @return the length passed to {@link #sendResponseHeaders}: -1 for no body, 0 for chunked
+     */
+    long responseLength() {
+        return responseLength;
+    }
+    @Override public InetSocketAddress getRemoteAddress() { return new InetSocketAddress("127.0.0.1", 50000); }
+    @Override public int getResponseCode() { return responseCode; }
+    @Override public InetSocketAddress getLocalAddress() { return new InetSocketAddress("127.0.0.1", 8080); }
+    @Override public String getProtocol() { return "HTTP/1.1"; }
+    @Override public Object getAttribute(String name) { return attributes.get(name); }
+    @Override public void setAttribute(String name, Object value) { attributes.put(name, value); }
+    @Override public HttpPrincipal getPrincipal() { return null; }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) requestBody = i;
+        if (o != null) responseBody = o;
+    }
+}
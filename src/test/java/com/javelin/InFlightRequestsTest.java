@@ -0,0 +1,112 @@
+package com.javelin;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javelin.core.metrics.InFlightRequests;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InFlightRequestsTest {
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void testListsSlowestRequestsWithStacks() throws Exception {
+        CountDownLatch started = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        InFlightRequests inFlight = server.enableRequestInspector("/admin");
+        server.get("/reports/{id}", ctx -> {
+            started.countDown();
+            awaitDownstream(release);
+            ctx.send("done");
+        });
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            String path = "/reports/" + i;
+            threads.add(Thread.ofVirtual().start(() -> server.handleRequest(new FakeHttpExchange("GET", path))));
+            Thread.sleep(20); // so the requests have distinct ages
+        }
+        started.await();
+
+        try {
+            FakeHttpExchange exchange = new FakeHttpExchange("GET", "/admin/requests?limit=2");
+            server.handleRequest(exchange);
+            JsonNode body = MAPPER.readTree(exchange.responseBytes());
+            assertEquals(4, body.get("inFlight").asInt()); // including this one
+
+            JsonNode requests = body.get("requests");
+            assertEquals(2, requests.size());
+            JsonNode oldest = requests.get(0);
+            assertEquals("/reports/1", oldest.get("path").asText());
+            assertEquals("/reports/{id}", oldest.get("route").asText());
+            assertTrue(oldest.get("ageMillis").asLong() >= requests.get(1).get("ageMillis").asLong());
+            assertTrue(oldest.get("stack").toString().contains("InFlightRequestsTest.awaitDownstream"), oldest.toString());
+
+            List<InFlightRequests.InFlightRequest> withoutStacks = inFlight.slowest(10, false);
+            assertEquals(3, withoutStacks.size());
+            assertTrue(withoutStacks.get(0).stack().isEmpty());
+        } finally {
+            release.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        assertEquals(0, inFlight.size());
+    }
+
+    @Test
+    void testThreadDumpIncludesVirtualThreads() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Thread parked = Thread.ofVirtual().name("parked-request").start(() -> awaitDownstream(release));
+        try {
+            VirtualThreadServer server = new VirtualThreadServer(0);
+            server.enableRequestInspector("/admin");
+            long dumpsBefore = tempDumps();
+            FakeHttpExchange exchange = new FakeHttpExchange("GET", "/admin/threads");
+            server.handleRequest(exchange);
+            assertEquals(dumpsBefore, tempDumps(), "the temporary dump must be deleted");
+
+            assertEquals(200, exchange.getResponseCode());
+            assertEquals("application/json", exchange.getResponseHeaders().getFirst("Content-Type"));
+            JsonNode dump = MAPPER.readTree(exchange.responseBytes());
+            assertTrue(dump.get("threadDump").get("threadContainers").isArray());
+            assertTrue(dump.toString().contains("parked-request"));
+        } finally {
+            release.countDown();
+            parked.join();
+        }
+    }
+
+    @Test
+    void testRejectsInvalidLimit() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.enableRequestInspector("/admin");
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", "/admin/requests?limit=0");
+        server.handleRequest(exchange);
+        assertEquals(400, exchange.getResponseCode());
+    }
+
+    private static void awaitDownstream(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long tempDumps() throws IOException {
+        try (var entries = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return entries.filter(p -> p.getFileName().toString().startsWith("javelin-threads-")).count();
+        }
+    }
+}
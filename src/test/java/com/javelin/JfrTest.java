@@ -0,0 +1,160 @@
+package com.javelin;
+
+import com.javelin.core.jfr.JavelinEvents;
+import com.javelin.core.jfr.PinningMonitor;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JfrTest {
+
+    record User(int id, String name) {}
+
+    @Test
+    void testRequestLifecycleEvents() throws Exception {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(ctx -> ctx.next());
+        server.get("/users/{id}", ctx -> ctx.json(new User(Integer.parseInt(ctx.pathVar("id")), "kim")));
+        server.get("/text", ctx -> ctx.send("hello"));
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            for (Class<? extends Event> event : JavelinEvents.ALL) {
+                recording.enable(event).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            server.handleRequest(new FakeHttpExchange("GET", "/users/7"));
+            server.handleRequest(new FakeHttpExchange("GET", "/text"));
+            server.handleRequest(new FakeHttpExchange("GET", "/missing"));
+            recording.stop();
+            events = read(recording);
+        }
+
+        RecordedEvent request = find(events, "javelin.Request", "path", "/users/7");
+        assertEquals("GET", request.getString("method"));
+        assertEquals("/users/{id}", request.getString("route"));
+        assertEquals(200, request.getInt("status"));
+
+        assertEquals("/users/{id}", find(events, "javelin.RouteMatch", "path", "/users/7").getString("route"));
+        assertNull(find(events, "javelin.RouteMatch", "path", "/missing").getString("route"));
+        assertEquals(404, find(events, "javelin.Request", "path", "/missing").getInt("status"));
+        find(events, "javelin.Parse", "path", "/text");
+
+        RecordedEvent serialization = find(events, "javelin.Serialization", "route", "/users/{id}");
+        assertEquals(User.class.getName(), serialization.getClass("type").getName());
+        assertEquals("{\"id\":7,\"name\":\"kim\"}".length(), serialization.getLong("bytes"));
+
+        assertEquals(200, find(events, "javelin.Handler", "route", "/users/{id}").getInt("status"));
+        assertEquals(5, find(events, "javelin.ResponseWrite", "route", "/text").getLong("bytes"));
+        assertTrue(find(events, "javelin.Middleware", "route", "/text").getString("middleware").startsWith("com.javelin.JfrTest"));
+    }
+
+    @Test
+    void testEventsBelowThresholdAreNotRecorded() throws Exception {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.get("/fast", ctx -> ctx.send("ok"));
+
+        try (Recording recording = new Recording()) {
+            for (Class<? extends Event> event : JavelinEvents.ALL) {
+                recording.enable(event); // default 10 ms threshold
+            }
+            recording.start();
+            for (int i = 0; i < 100; i++) {
+                server.handleRequest(new FakeHttpExchange("GET", "/fast"));
+            }
+            recording.stop();
+            // Only a request stalled by a GC pause or descheduling could reach 10 ms
+            long recorded = read(recording).stream()
+                    .filter(e -> e.getEventType().getName().equals("javelin.Request"))
+                    .filter(e -> "/fast".equals(e.getString("path")))
+                    .count();
+            assertTrue(recorded < 10, recorded + " of 100 requests recorded");
+        }
+    }
+
+    @Test
+    void testPinningMonitorAttributesSite() throws Exception {
+        Object lock = new Object();
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.get("/pinned", ctx -> {
+            synchronized (lock) {
+                Thread.sleep(50);
+            }
+            ctx.send("ok");
+        });
+
+        try (PinningMonitor monitor = server.enablePinningMonitor(Duration.ofMillis(10))) {
+            assertSame(monitor, server.enablePinningMonitor(Duration.ofMillis(10)));
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (monitor.report().isEmpty() && System.nanoTime() < deadline) {
+                Thread.ofVirtual().start(() -> server.handleRequest(new FakeHttpExchange("GET", "/pinned"))).join();
+                Thread.sleep(200);
+            }
+            List<PinningMonitor.PinnedSite> report = monitor.report();
+            assertFalse(report.isEmpty(), "no pinned events observed");
+            PinningMonitor.PinnedSite site = report.get(0);
+            assertTrue(site.frame().startsWith("com.javelin.JfrTest"), site.frame());
+            assertTrue(site.max().toMillis() >= 10, site.toString());
+        }
+    }
+
+    @Test
+    void testRecordingEndpoints() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.enableFlightRecorder("/admin/jfr");
+
+        assertEquals(404, request(server, "GET", "/admin/jfr/dump").getResponseCode());
+        assertEquals(200, request(server, "POST", "/admin/jfr/start?maxAge=60&threshold=0").getResponseCode());
+        assertEquals(409, request(server, "POST", "/admin/jfr/start").getResponseCode());
+
+        FakeHttpExchange dump = request(server, "GET", "/admin/jfr/dump");
+        assertEquals(200, dump.getResponseCode());
+        assertEquals("application/octet-stream", dump.getResponseHeaders().getFirst("Content-Type"));
+        byte[] data = dump.responseBytes();
+        assertEquals("FLR", new String(data, 0, 3));
+
+        assertEquals(200, request(server, "POST", "/admin/jfr/stop").getResponseCode());
+        assertEquals(404, request(server, "POST", "/admin/jfr/stop").getResponseCode());
+        assertEquals(400, request(server, "POST", "/admin/jfr/start?maxAge=0").getResponseCode());
+    }
+
+    private static List<RecordedEvent> read(Recording recording) throws Exception {
+        Path file = Files.createTempFile("jfr-test", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String type, String field, String value) {
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals(type))
+                .filter(e -> value.equals(e.getValue(field)))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no " + type + " with " + field + "=" + value + " in " + names(events)));
+    }
+
+    private static Map<String, Long> names(List<RecordedEvent> events) {
+        return events.stream().collect(Collectors.groupingBy(e -> e.getEventType().getName(),
+                Collectors.counting()));
+    }
+
+    private static FakeHttpExchange request(VirtualThreadServer server, String method, String path) {
+        FakeHttpExchange exchange = new FakeHttpExchange(method, path);
+        server.handleRequest(exchange);
+        return exchange;
+    }
+}
@@ -0,0 +1,49 @@
+package com.javelin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javelin.core.json.JsonCodecRegistry;
+import com.javelin.model.User;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * Compares generated record codecs with Jackson. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class JsonCodecBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void againstJackson() throws Exception {
+        JsonCodecRegistry registry = new JsonCodecRegistry();
+        registry.register(User.class);
+        User user = new User(42, "Javelin Virtual Thread Server");
+        int iterations = 500_000;
+
+        long jacksonNanos = time(iterations, () -> mapper.writeValueAsBytes(user));
+        long codecNanos = time(iterations, () -> registry.writeValueAsBytes(user));
+
+        byte[] json = mapper.writeValueAsBytes(user);
+        long jacksonReadNanos = time(iterations, () -> mapper.readValue(json, User.class));
+        long codecReadNanos = time(iterations, () -> registry.read(new ByteArrayInputStream(json), User.class));
+
+        System.out.printf("serialize   Jackson %d ns/op, codec %d ns/op (%.1fx)%n",
+                jacksonNanos / iterations, codecNanos / iterations, (double) jacksonNanos / codecNanos);
+        System.out.printf("deserialize Jackson %d ns/op, codec %d ns/op (%.1fx)%n",
+                jacksonReadNanos / iterations, codecReadNanos / iterations, (double) jacksonReadNanos / codecReadNanos);
+    }
+
+    private interface Op {
+        Object run() throws Exception;
+    }
+
+    private static long time(int iterations, Op op) throws Exception {
+        for (int i = 0; i < iterations; i++) op.run(); // warm-up
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) op.run();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,112 @@
+package com.javelin;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.javelin.core.json.JsonCodecRegistry;
+import com.javelin.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonCodecTest {
+
+    enum Role { ADMIN, MEMBER }
+
+    record Address(String city, String zip) {}
+
+    record Account(long id, String name, double balance, boolean active, Role role,
+                   Address address, List<String> tags, Integer score) {}
+
+    record Narrow(short small, byte tiny, boolean flag) {}
+
+    record Renamed(@JsonProperty("user_id") int id) {}
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void testGeneratedCodecMatchesJackson() throws Exception {
+        JsonCodecRegistry registry = new JsonCodecRegistry();
+        assertTrue(registry.register(Account.class));
+
+        Account account = new Account(7L, "Jav\"elin ✓ 🚀", 12.5, true, Role.ADMIN,
+                new Address("Seoul", null), List.of("a", "b"), null);
+
+        assertEquals(mapper.readTree(mapper.writeValueAsBytes(account)),
+                mapper.readTree(registry.writeValueAsBytes(account)));
+    }
+
+    @Test
+    void testGeneratedCodecRoundTrip() throws Exception {
+        JsonCodecRegistry registry = new JsonCodecRegistry();
+        registry.register(Account.class);
+
+        Account account = new Account(-3L, "line\nbreak", -0.25, false, Role.MEMBER,
+                new Address("Busan", "48000"), List.of(), 99);
+        byte[] json = registry.writeValueAsBytes(account);
+
+        assertEquals(account, registry.read(new ByteArrayInputStream(json), Account.class));
+    }
+
+    @Test
+    void testAnnotatedRecordFallsBackToJackson() throws Exception {
+        JsonCodecRegistry registry = new JsonCodecRegistry();
+
+        assertFalse(registry.register(Renamed.class));
+        assertEquals("{\"user_id\":5}", new String(registry.writeValueAsBytes(new Renamed(5))));
+
+        Map<String, Object> map = Map.of("id", 1, "name", "x");
+        assertEquals(mapper.readTree(mapper.writeValueAsBytes(map)), mapper.readTree(registry.writeValueAsBytes(map)));
+    }
+
+    @Test
+    void testUnknownPropertyRejectedLikeJackson() {
+        JsonCodecRegistry registry = new JsonCodecRegistry();
+        registry.register(User.class);
+
+        byte[] json = "{\"id\":1,\"name\":\"x\",\"extra\":true}".getBytes();
+        assertThrows(Exception.class, () -> registry.read(new ByteArrayInputStream(json), User.class));
+    }
+
+    @Test
+    void testMistypedPrimitiveRejectedLikeJackson() {
+        JsonCodecRegistry registry = new JsonCodecRegistry();
+        registry.register(User.class);
+        registry.register(Narrow.class);
+
+        assertRejected(registry, User.class, "{\"id\":\"abc\",\"name\":\"x\"}");
+        assertRejected(registry, User.class, "{\"id\":{\"name\":\"admin\"},\"name\":\"bob\"}");
+        assertRejected(registry, User.class, "{\"id\":[1],\"name\":\"bob\"}");
+        assertRejected(registry, User.class, "{\"id\":3000000000,\"name\":\"x\"}");
+        assertRejected(registry, Narrow.class, "{\"small\":70000,\"tiny\":1,\"flag\":true}");
+        assertRejected(registry, Narrow.class, "{\"small\":1,\"tiny\":256,\"flag\":true}");
+        assertRejected(registry, Narrow.class, "{\"small\":1,\"tiny\":1,\"flag\":\"yes\"}");
+    }
+
+    @Test
+    void testPrimitiveCoercionFollowsMapper() throws Exception {
+        JsonCodecRegistry registry = new JsonCodecRegistry();
+        registry.register(User.class);
+        registry.register(Narrow.class);
+
+        byte[] user = "{\"id\":\"12\",\"name\":\"x\"}".getBytes();
+        assertEquals(mapper.readValue(user, User.class), registry.read(new ByteArrayInputStream(user), User.class));
+
+        byte[] narrow = "{\"small\":-32768,\"tiny\":127,\"flag\":false}".getBytes();
+        assertEquals(new Narrow(Short.MIN_VALUE, Byte.MAX_VALUE, false),
+                registry.read(new ByteArrayInputStream(narrow), Narrow.class));
+
+        byte[] unsigned = "{\"small\":0,\"tiny\":200,\"flag\":true}".getBytes();
+        assertEquals(mapper.readValue(unsigned, Narrow.class), registry.read(new ByteArrayInputStream(unsigned), Narrow.class));
+    }
+
+    private void assertRejected(JsonCodecRegistry registry, Class<?> type, String json) {
+        byte[] bytes = json.getBytes();
+        assertThrows(Exception.class, () -> mapper.readValue(bytes, type), json);
+        assertThrows(MismatchedInputException.class, () -> registry.read(new ByteArrayInputStream(bytes), type), json);
+    }
+}
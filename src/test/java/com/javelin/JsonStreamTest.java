@@ -0,0 +1,124 @@
+package com.javelin;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javelin.model.User;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonStreamTest {
+    static VirtualThreadServer server;
+    static final AtomicLong pulled = new AtomicLong();
+
+    static final class Unserializable {
+        public String getValue() {
+            throw new IllegalStateException("cannot serialize");
+        }
+    }
+
+    @BeforeAll
+    static void setup() {
+        server = new VirtualThreadServer(8080);
+        server.registerJsonCodec(User.class);
+
+        server.get("/users", ctx -> ctx.jsonStream(IntStream.range(0, 10_000).mapToObj(i -> new User(i, "user-" + i))));
+        server.get("/users.ndjson", ctx -> ctx.ndjsonStream(IntStream.range(0, 3).mapToObj(i -> new User(i, "u" + i))));
+        server.get("/empty", ctx -> ctx.jsonStream(IntStream.range(0, 0).boxed()));
+        server.get("/endless", ctx -> ctx.jsonStream(new Iterator<User>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public User next() {
+                pulled.incrementAndGet();
+                return new User(1, "x".repeat(100));
+            }
+        }));
+        server.get("/broken", ctx -> ctx.jsonStream(Stream.of(new User(1, "a"), new Unserializable(), new User(3, "c"))));
+        server.get("/broken.ndjson", ctx -> ctx.ndjsonStream(Stream.of(new User(1, "a"), new Unserializable(), new User(3, "c"))));
+        server.start();
+
+        try { Thread.sleep(300); } catch (InterruptedException ignored) {}
+    }
+
+    @AfterAll
+    static void tearDown() {
+        try { server.stop(); } catch (Exception ignored) {}
+    }
+
+    @Test
+    void testJsonArrayIsChunked() throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/users").openConnection();
+
+        assertEquals(200, conn.getResponseCode());
+        assertEquals("chunked", conn.getHeaderField("Transfer-Encoding"));
+
+        try (InputStream in = conn.getInputStream()) {
+            JsonNode array = new ObjectMapper().readTree(in);
+            assertEquals(10_000, array.size());
+            assertEquals("user-9999", array.get(9999).get("name").asText());
+        }
+    }
+
+    @Test
+    void testNdjson() throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/users.ndjson").openConnection();
+
+        assertEquals("application/x-ndjson", conn.getContentType());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
+            assertEquals("{\"id\":0,\"name\":\"u0\"}", reader.readLine());
+            assertEquals("{\"id\":1,\"name\":\"u1\"}", reader.readLine());
+            assertEquals("{\"id\":2,\"name\":\"u2\"}", reader.readLine());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    void testEmptyStream() throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/empty").openConnection();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
+            assertEquals("[]", reader.readLine());
+        }
+    }
+
+    @Test
+    void testStopsPullingAfterDisconnect() throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/endless").openConnection();
+        try (InputStream in = conn.getInputStream()) {
+            in.readNBytes(64 * 1024);
+        }
+        conn.disconnect();
+
+        Thread.sleep(500);
+        long afterDisconnect = pulled.get();
+        Thread.sleep(500);
+        assertEquals(afterDisconnect, pulled.get(), "source should not be pulled after the client went away");
+    }
+
+    @Test
+    void testSerializationFailureTruncatesResponse() throws Exception {
+        for (String path : new String[]{"/broken", "/broken.ndjson"}) {
+            HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080" + path).openConnection();
+            assertEquals(200, conn.getResponseCode());
+            try (InputStream in = conn.getInputStream()) {
+                assertThrows(IOException.class, in::readAllBytes, path);
+            }
+        }
+    }
+}
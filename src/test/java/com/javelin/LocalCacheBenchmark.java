@@ -0,0 +1,33 @@
+package com.javelin;
+
+import com.javelin.core.LocalCache;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures the cost of a cache hit. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class LocalCacheBenchmark {
+
+    @Test
+    void readThroughput() {
+        LocalCache<Integer, Integer> cache = new LocalCache<>(10_000);
+        Integer[] keys = new Integer[1024];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+            cache.put(i, i);
+        }
+        int iterations = 5_000_000;
+        long sum = 0;
+        for (int i = 0; i < iterations; i++) {
+            sum += cache.getIfPresent(keys[i & 1023]);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sum += cache.getIfPresent(keys[i & 1023]);
+        }
+        long nanos = (System.nanoTime() - start) / iterations;
+        System.out.println("[LocalCache] getIfPresent hit: " + nanos + " ns/op (target < 500; " + sum + ")");
+    }
+}
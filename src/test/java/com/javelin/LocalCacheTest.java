@@ -0,0 +1,240 @@
+package com.javelin;
+
+import com.javelin.core.LocalCache;
+import com.javelin.core.LocalCacheStats;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalCacheTest {
+
+    @Test
+    void testGetPutAndInvalidate() {
+        LocalCache<String, String> cache = new LocalCache<>(100);
+        assertNull(cache.getIfPresent("a"));
+        cache.put("a", "1");
+        assertEquals("1", cache.getIfPresent("a"));
+        cache.put("a", "2");
+        assertEquals("2", cache.getIfPresent("a"));
+        assertEquals(1, cache.size());
+
+        cache.invalidate("a");
+        assertNull(cache.getIfPresent("a"));
+        cache.put("b", "1");
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+
+        LocalCacheStats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(0.5, stats.hitRate());
+        assertEquals(0, stats.weight());
+    }
+
+    @Test
+    void testSizeAndWeightBounds() {
+        LocalCache<Integer, Integer> sized = new LocalCache<>(100);
+        for (int i = 0; i < 1000; i++) {
+            sized.put(i, i);
+        }
+        sized.cleanUp();
+        assertEquals(100, sized.size());
+        assertEquals(900, sized.stats().evictions());
+
+        LocalCache<Integer, byte[]> weighted = new LocalCache<>(10_000, Duration.ZERO, (k, v) -> v.length);
+        for (int i = 0; i < 100; i++) {
+            weighted.put(i, new byte[i * 10]);
+        }
+        assertTrue(weighted.stats().weight() <= 10_000, String.valueOf(weighted.stats().weight()));
+        // Heavier than the whole cache: not stored
+        weighted.put(-1, new byte[20_000]);
+        assertNull(weighted.getIfPresent(-1));
+    }
+
+    @Test
+    void testFrequentKeysSurviveAScan() {
+        LocalCache<String, String> cache = new LocalCache<>(1000);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 500; i++) {
+                String key = "hot-" + i;
+                if (cache.getIfPresent(key) == null) {
+                    cache.put(key, key);
+                }
+            }
+        }
+        for (int i = 0; i < 20_000; i++) {
+            cache.put("scan-" + i, "x");
+        }
+        int retained = 0;
+        for (int i = 0; i < 500; i++) {
+            retained += cache.getIfPresent("hot-" + i) != null ? 1 : 0;
+        }
+        // An LRU cache would have none of them left
+        assertTrue(retained >= 450, retained + " of 500 hot keys retained");
+    }
+
+    @Test
+    void testExpireAfterWrite() throws Exception {
+        LocalCache<String, String> cache = new LocalCache<>(100, Duration.ofMillis(50));
+        cache.put("a", "1");
+        assertEquals("1", cache.getIfPresent("a"));
+        Thread.sleep(80);
+        assertNull(cache.getIfPresent("a"));
+        cache.cleanUp();
+        assertEquals(0, cache.size());
+
+        // A reload replaces an expired entry
+        assertEquals("2", cache.get("a", k -> "2"));
+        assertEquals("2", cache.getIfPresent("a"));
+    }
+
+    @Test
+    void testConcurrentLoadsAreDeduplicated() throws Exception {
+        LocalCache<String, String> cache = new LocalCache<>(100);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<String> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                String value = cache.get("user:1", key -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return "Alice";
+                });
+                synchronized (results) {
+                    results.add(value);
+                }
+            }));
+        }
+        while (loads.get() == 0) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(50);
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(50, results.size());
+        assertTrue(results.stream().allMatch("Alice"::equals));
+        assertEquals(1, cache.stats().loads());
+    }
+
+    @Test
+    void testAsyncLoadAndFailures() throws Exception {
+        LocalCache<Integer, String> cache = new LocalCache<>(100);
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> first = cache.getAsync(1, k -> {
+            loads.incrementAndGet();
+            return "one";
+        });
+        assertEquals("one", first.get());
+        assertEquals("one", cache.getAsync(1, k -> "other").get());
+        assertEquals(1, loads.get());
+
+        CompletableFuture<String> failed = cache.getAsync(2, k -> {
+            throw new IllegalArgumentException("no such item");
+        });
+        Exception e = assertThrows(Exception.class, failed::get);
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertThrows(IllegalArgumentException.class, () -> cache.get(3, k -> {
+            throw new IllegalArgumentException("no such item");
+        }));
+        assertNull(cache.getIfPresent(2));
+        assertEquals(2, cache.stats().loadFailures());
+
+        // Null results are returned but not cached
+        assertNull(cache.get(4, k -> null));
+        assertEquals("four", cache.get(4, k -> "four"));
+    }
+
+    @Test
+    void testLoaderAskingForItsOwnKeyFails() throws Exception {
+        LocalCache<String, String> cache = new LocalCache<>(100);
+        assertThrows(IllegalStateException.class, () -> cache.get("a", k -> cache.get(k, inner -> "inner")));
+        assertNull(cache.getIfPresent("a"));
+        assertEquals("a", cache.get("a", k -> k));
+
+        CompletableFuture<String> async = cache.getAsync("b", k -> cache.getAsync(k, inner -> "inner").join());
+        Exception e = assertThrows(ExecutionException.class, () -> async.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals("b", cache.get("b", k -> k));
+    }
+
+    @Test
+    void testReachableFromContextAndExportedWithMetrics() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.enableMetrics("/metrics");
+        LocalCache<String, String> greetings = server.cache("greetings", new LocalCache<>(10));
+        server.get("/greet/{name}", ctx -> {
+            LocalCache<String, String> cache = ctx.cache("greetings");
+            ctx.send(cache.get(ctx.pathVar("name"), name -> "Hello, " + name));
+        });
+        server.get("/missing", ctx -> ctx.cache("missing"));
+
+        for (int i = 0; i < 3; i++) {
+            FakeHttpExchange exchange = new FakeHttpExchange("GET", "/greet/Ann");
+            server.handleRequest(exchange);
+            assertEquals("Hello, Ann", new String(exchange.responseBytes()));
+        }
+        assertEquals(2, greetings.stats().hits());
+
+        FakeHttpExchange missing = new FakeHttpExchange("GET", "/missing");
+        server.handleRequest(missing);
+        assertEquals(500, missing.getResponseCode());
+        assertThrows(IllegalStateException.class, () -> server.cache("greetings", new LocalCache<>(10)));
+
+        FakeHttpExchange metrics = new FakeHttpExchange("GET", "/metrics");
+        server.handleRequest(metrics);
+        String text = new String(metrics.responseBytes());
+        assertTrue(text.contains("javelin_cache_requests_total{cache=\"greetings\",result=\"hit\"} 2\n"), text);
+        assertTrue(text.contains("javelin_cache_requests_total{cache=\"greetings\",result=\"miss\"} 1\n"), text);
+        assertTrue(text.contains("javelin_cache_loads_total{cache=\"greetings\",result=\"success\"} 1\n"), text);
+        assertTrue(text.contains("javelin_cache_entries{cache=\"greetings\"} 1\n"), text);
+    }
+
+    @Test
+    void testConcurrentReadsAndWritesStayBounded() throws Exception {
+        LocalCache<Integer, Integer> cache = new LocalCache<>(1000);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            threads.add(Thread.ofVirtual().start(() -> {
+                int x = seed * 7919 + 1;
+                for (int i = 0; i < 50_000; i++) {
+                    x ^= x << 13;
+                    x ^= x >>> 17;
+                    x ^= x << 5;
+                    int key = (x & 0x7fffffff) % 5000;
+                    Integer value = cache.getIfPresent(key);
+                    if (value == null) {
+                        cache.put(key, key);
+                    } else {
+                        assertEquals(key, value.intValue());
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        cache.cleanUp();
+        LocalCacheStats stats = cache.stats();
+        assertTrue(stats.entries() <= 1000, String.valueOf(stats.entries()));
+        assertEquals(stats.entries(), stats.weight());
+    }
+}
@@ -0,0 +1,50 @@
+package com.javelin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javelin.MessagePackTest.Order;
+import com.javelin.core.msgpack.MessagePackCodec;
+import com.javelin.model.User;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Compares MessagePack with JSON encoding. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class MessagePackBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final MessagePackCodec msgpack = new MessagePackCodec(mapper);
+
+    @Test
+    void againstJson() throws Exception {
+        Order order = new Order(123456789L, new User(42, "Javelin"), List.of("keyboard", "mouse", "monitor"),
+                1299.99, true, new byte[32]);
+        int iterations = 200_000;
+
+        byte[] json = mapper.writeValueAsBytes(order);
+        byte[] packed = msgpack.writeValueAsBytes(order);
+
+        long jsonWrite = time(iterations, () -> mapper.writeValueAsBytes(order));
+        long packWrite = time(iterations, () -> msgpack.writeValueAsBytes(order));
+        long jsonRead = time(iterations, () -> mapper.readValue(json, Order.class));
+        long packRead = time(iterations, () -> msgpack.read(packed, Order.class));
+
+        System.out.printf("payload     JSON %d bytes, MessagePack %d bytes%n", json.length, packed.length);
+        System.out.printf("encode      JSON %d ns/op, MessagePack %d ns/op%n", jsonWrite / iterations, packWrite / iterations);
+        System.out.printf("decode      JSON %d ns/op, MessagePack %d ns/op%n", jsonRead / iterations, packRead / iterations);
+    }
+
+    private interface Op {
+        Object run() throws Exception;
+    }
+
+    private static long time(int iterations, Op op) throws Exception {
+        for (int i = 0; i < iterations; i++) op.run(); // warm-up
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) op.run();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,163 @@
+package com.javelin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javelin.core.msgpack.MessagePackCodec;
+import com.javelin.model.User;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessagePackTest {
+    static VirtualThreadServer server;
+
+    record Order(long id, User customer, List<String> items, double total, boolean paid, byte[] signature) {}
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final MessagePackCodec msgpack = new MessagePackCodec(mapper);
+
+    @BeforeAll
+    static void setup() {
+        server = new VirtualThreadServer(8080);
+        server.get("/user", ctx -> ctx.respond(new User(7, "Javelin")));
+        server.post("/echo", ctx -> ctx.respond(ctx.read(User.class)));
+        server.get("/localized", ctx -> ctx.setHeader("Vary", "Accept-Language").respond(new User(8, "Vary")));
+        server.start();
+
+        try { Thread.sleep(300); } catch (InterruptedException ignored) {}
+    }
+
+    @AfterAll
+    static void tearDown() {
+        try { server.stop(); } catch (Exception ignored) {}
+    }
+
+    @Test
+    void testEncodingMatchesSpec() throws Exception {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("a", 1);
+        map.put("b", -1);
+        map.put("c", List.of(true, false));
+
+        // Containers use a 32-bit header (0xdf/0xdd) whose count is patched after writing
+        assertArrayEquals(new byte[]{
+                (byte) 0xdf, 0, 0, 0, 3,
+                (byte) 0xa1, 'a', 0x01,
+                (byte) 0xa1, 'b', (byte) 0xff,
+                (byte) 0xa1, 'c', (byte) 0xdd, 0, 0, 0, 2, (byte) 0xc3, (byte) 0xc2
+        }, msgpack.writeValueAsBytes(map));
+    }
+
+    @Test
+    void testRoundTrip() throws Exception {
+        Order order = new Order(Long.MAX_VALUE, new User(-200, "한글 ✓"), List.of("x", "y".repeat(300)),
+                -12.75, true, new byte[]{1, 2, 3});
+
+        Order decoded = msgpack.read(msgpack.writeValueAsBytes(order), Order.class);
+        assertEquals(order.id(), decoded.id());
+        assertEquals(order.customer(), decoded.customer());
+        assertEquals(order.items(), decoded.items());
+        assertEquals(order.total(), decoded.total());
+        assertArrayEquals(order.signature(), decoded.signature());
+    }
+
+    @Test
+    void testNegotiation() throws Exception {
+        HttpURLConnection json = (HttpURLConnection) new URL("http://localhost:8080/user").openConnection();
+        assertEquals("application/json", json.getContentType());
+        assertEquals("Accept", json.getHeaderField("Vary"));
+
+        HttpURLConnection binary = (HttpURLConnection) new URL("http://localhost:8080/user").openConnection();
+        binary.setRequestProperty("Accept", "application/json;q=0.5, application/msgpack");
+        assertEquals("application/msgpack", binary.getContentType());
+        try (InputStream in = binary.getInputStream()) {
+            assertEquals(new User(7, "Javelin"), msgpack.read(in, User.class));
+        }
+    }
+
+    @Test
+    void testNegotiationRanksAcceptHeader() throws Exception {
+        // Wildcards stand for JSON
+        assertEquals("application/json", negotiate("application/msgpack;q=0.5, */*"));
+        assertEquals("application/json", negotiate("application/msgpack;q=0.5, application/*"));
+        assertEquals("application/msgpack", negotiate("application/msgpack, */*"));
+        // The most specific range ranks JSON
+        assertEquals("application/msgpack", negotiate("application/msgpack;q=0.5, application/json;q=0.2, */*"));
+        // Types and q are case-insensitive, and q is clamped to 1
+        assertEquals("application/msgpack", negotiate("Application/MsgPack"));
+        assertEquals("application/json", negotiate("application/msgpack;Q=0.1, application/json;q=0.9"));
+        assertEquals("application/msgpack", negotiate("application/msgpack, application/x-msgpack;q=5"));
+        assertEquals("application/json", negotiate("application/msgpack;q=0"));
+    }
+
+    private static String negotiate(String accept) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/user").openConnection();
+        conn.setRequestProperty("Accept", accept);
+        assertEquals(200, conn.getResponseCode());
+        conn.getInputStream().readAllBytes();
+        return conn.getContentType();
+    }
+
+    @Test
+    void testNegotiationKeepsExistingVary() throws Exception {
+        HttpURLConnection json = (HttpURLConnection) new URL("http://localhost:8080/localized").openConnection();
+        assertEquals("application/json", json.getContentType());
+        assertEquals("Accept-Language, Accept", json.getHeaderField("Vary"));
+
+        HttpURLConnection binary = (HttpURLConnection) new URL("http://localhost:8080/localized").openConnection();
+        binary.setRequestProperty("Accept", "application/msgpack");
+        assertEquals("application/msgpack", binary.getContentType());
+        assertEquals("Accept-Language, Accept", binary.getHeaderField("Vary"));
+    }
+
+    @Test
+    void testReadMessagePackBody() throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/echo").openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", "application/x-msgpack");
+        conn.setRequestProperty("Accept", "application/x-msgpack");
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(msgpack.writeValueAsBytes(new User(3, "bin")));
+        }
+
+        assertEquals(200, conn.getResponseCode());
+        assertEquals("application/x-msgpack", conn.getContentType());
+        try (InputStream in = conn.getInputStream()) {
+            assertEquals(new User(3, "bin"), msgpack.read(in, User.class));
+        }
+    }
+
+    @Test
+    void testContentTypeIsCaseInsensitive() throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/echo").openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", "Application/MsgPack; charset=binary");
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(msgpack.writeValueAsBytes(new User(4, "case")));
+        }
+
+        assertEquals(200, conn.getResponseCode());
+        try (InputStream in = conn.getInputStream()) {
+            assertEquals(new User(4, "case"), mapper.readValue(in, User.class));
+        }
+    }
+
+    @Test
+    void testPayloadSmallerThanJson() throws Exception {
+        Order order = new Order(123456789L, new User(42, "Javelin"), List.of("keyboard", "mouse", "monitor"),
+                1299.99, true, new byte[32]);
+
+        assertTrue(msgpack.writeValueAsBytes(order).length < mapper.writeValueAsBytes(order).length);
+    }
+}
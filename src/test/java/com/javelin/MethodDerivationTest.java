@@ -0,0 +1,117 @@
+package com.javelin;
+
+import com.javelin.core.CorsMiddleware;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MethodDerivationTest {
+    static VirtualThreadServer server;
+    static final AtomicInteger serialized = new AtomicInteger();
+
+    record Item(String name) {
+        public String getName() {
+            serialized.incrementAndGet();
+            return name;
+        }
+    }
+
+    @BeforeAll
+    static void setup() {
+        server = new VirtualThreadServer(8080);
+        server.get("/text", ctx -> ctx.send("héllo"));
+        server.get("/items/{id}", ctx -> ctx.json(new Item("item" + ctx.pathVar("id"))));
+        server.delete("/items/{id}", ctx -> ctx.status(204).send(""));
+        server.get("/users/{id}", ctx -> ctx.send("user " + ctx.pathVar("id")));
+        server.delete("/users/me", ctx -> ctx.status(204).send(""));
+        server.group("/api", api -> {
+            api.use(new CorsMiddleware());
+            api.get("/orders", ctx -> ctx.json(Map.of("orders", 0)));
+            api.post("/orders", ctx -> ctx.status(201).send("created"));
+            api.get("/orders/{id}", ctx -> ctx.json(Map.of("id", ctx.pathVar("id"))));
+            api.delete("/orders/archived", ctx -> ctx.status(204).send(""));
+        });
+        server.start();
+
+        try { Thread.sleep(300); } catch (InterruptedException ignored) {}
+    }
+
+    @AfterAll
+    static void tearDown() {
+        try { server.stop(); } catch (Exception ignored) {}
+    }
+
+    @Test
+    void testHeadDerivedFromGet() throws Exception {
+        HttpURLConnection text = open("/text", "HEAD");
+        assertEquals(200, text.getResponseCode());
+        assertEquals(6, text.getContentLengthLong()); // real length, no body
+
+        int before = serialized.get();
+        HttpURLConnection json = open("/items/1", "HEAD");
+        assertEquals(200, json.getResponseCode());
+        assertEquals("application/json", json.getContentType());
+        assertEquals(before, serialized.get(), "HEAD must not serialize the body");
+    }
+
+    @Test
+    void testOptionsAndMethodNotAllowed() throws Exception {
+        HttpURLConnection options = open("/items/7", "OPTIONS");
+        assertEquals(204, options.getResponseCode());
+        assertEquals("GET, HEAD, DELETE, OPTIONS", options.getHeaderField("Allow"));
+
+        HttpURLConnection put = open("/items/7", "PUT");
+        assertEquals(405, put.getResponseCode());
+        assertEquals("GET, HEAD, DELETE, OPTIONS", put.getHeaderField("Allow"));
+
+        assertEquals(404, open("/nothing", "PUT").getResponseCode());
+    }
+
+    @Test
+    void testOverlappingPatternsAllowTheUnionOfTheirMethods() throws Exception {
+        // /users/me matches both GET /users/{id} and DELETE /users/me
+        HttpURLConnection put = open("/users/me", "PUT");
+        assertEquals(405, put.getResponseCode());
+        assertEquals("GET, HEAD, DELETE, OPTIONS", put.getHeaderField("Allow"));
+
+        HttpURLConnection options = open("/users/me", "OPTIONS");
+        assertEquals(204, options.getResponseCode());
+        assertEquals("GET, HEAD, DELETE, OPTIONS", options.getHeaderField("Allow"));
+
+        // Other users only match the variable pattern
+        assertEquals("GET, HEAD, OPTIONS", open("/users/7", "OPTIONS").getHeaderField("Allow"));
+        HttpURLConnection delete = open("/users/7", "DELETE");
+        assertEquals(405, delete.getResponseCode());
+        assertEquals("GET, HEAD, OPTIONS", delete.getHeaderField("Allow"));
+
+        HttpURLConnection preflight = open("/api/orders/archived", "OPTIONS");
+        preflight.setRequestProperty("Origin", "https://example.com");
+        preflight.setRequestProperty("Access-Control-Request-Method", "DELETE");
+        assertEquals(200, preflight.getResponseCode());
+        assertEquals("GET, HEAD, DELETE, OPTIONS", preflight.getHeaderField("Access-Control-Allow-Methods"));
+    }
+
+    @Test
+    void testCorsPreflightUsesRouteMethods() throws Exception {
+        HttpURLConnection preflight = open("/api/orders", "OPTIONS");
+        preflight.setRequestProperty("Origin", "https://example.com");
+        preflight.setRequestProperty("Access-Control-Request-Method", "POST");
+
+        assertEquals(200, preflight.getResponseCode());
+        assertEquals("*", preflight.getHeaderField("Access-Control-Allow-Origin"));
+        assertEquals("GET, HEAD, POST, OPTIONS", preflight.getHeaderField("Access-Control-Allow-Methods"));
+    }
+
+    private static HttpURLConnection open(String path, String method) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080" + path).openConnection();
+        conn.setRequestMethod(method);
+        return conn;
+    }
+}
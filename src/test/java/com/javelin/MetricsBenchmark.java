@@ -0,0 +1,59 @@
+package com.javelin;
+
+import com.javelin.core.PreparedResponse;
+import com.javelin.core.Route;
+import com.javelin.core.metrics.ServerMetrics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Measures the cost of recording request metrics. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class MetricsBenchmark {
+
+    static final PreparedResponse OK = PreparedResponse.text(200, "ok");
+
+    @Test
+    void recordingOverhead() {
+        ServerMetrics metrics = new ServerMetrics();
+        Route route = new Route("GET", "/users/{id}", ctx -> {}, List.of("id"));
+        int iterations = 2_000_000;
+        for (int i = 0; i < iterations; i++) {
+            metrics.record(route, 200, i & 0xFFFFF);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            metrics.record(route, 200, i & 0xFFFFF);
+        }
+        long recordNanos = (System.nanoTime() - start) / iterations;
+
+        VirtualThreadServer plain = new VirtualThreadServer(0);
+        plain.get("/ping", ctx -> ctx.send(OK));
+        VirtualThreadServer instrumented = new VirtualThreadServer(0);
+        instrumented.get("/ping", ctx -> ctx.send(OK));
+        instrumented.enableMetrics();
+        long plainNanos = nanosPerRequest(plain);
+        long instrumentedNanos = nanosPerRequest(instrumented);
+
+        System.out.println("[Metrics] record: " + recordNanos + " ns/op (target < 100); GET /ping: " + plainNanos
+                + " ns/op without metrics, " + instrumentedNanos + " ns/op with metrics");
+    }
+
+    private static long nanosPerRequest(VirtualThreadServer server) {
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", "/ping");
+        int iterations = 200_000;
+        for (int i = 0; i < iterations; i++) {
+            exchange.reset();
+            server.handleRequest(exchange);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            exchange.reset();
+            server.handleRequest(exchange);
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+}
@@ -0,0 +1,129 @@
+package com.javelin;
+
+import com.javelin.core.PreparedResponse;
+import com.javelin.core.Route;
+import com.javelin.core.metrics.LatencyHistogram;
+import com.javelin.core.metrics.RouteMetrics;
+import com.javelin.core.metrics.ServerMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+    static final PreparedResponse OK = PreparedResponse.text(200, "ok");
+
+    @Test
+    void testHistogramPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000); // 1 µs .. 100 ms
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(100_000, snapshot.count());
+        assertEquals(1_000L * 100_000 * 100_001 / 2, snapshot.sum());
+        for (double p : new double[]{50, 90, 99, 99.9}) {
+            double exact = p / 100 * 100_000_000;
+            long estimate = snapshot.percentile(p);
+            assertTrue(estimate >= exact && estimate <= exact * 1.125 + 1, p + "th: " + estimate + " vs " + exact);
+        }
+        // Whole buckets only: never more than the true count, and within one bucket of it
+        long atMostTenMillis = snapshot.countAtMost(10_000_000);
+        assertTrue(atMostTenMillis <= 10_000 && atMostTenMillis >= 10_000 * 0.875, String.valueOf(atMostTenMillis));
+
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(100_002, histogram.snapshot().count());
+    }
+
+    @Test
+    void testRecordsByRoutePatternAndStatusClass() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        ServerMetrics metrics = server.enableMetrics("/metrics");
+        server.get("/users/{id}", ctx -> ctx.send(OK));
+        server.post("/users", ctx -> ctx.status(201).send("created"));
+        server.get("/boom", ctx -> {
+            throw new IllegalStateException("boom");
+        });
+
+        request(server, "GET", "/users/1");
+        request(server, "GET", "/users/2");
+        request(server, "POST", "/users");
+        request(server, "GET", "/boom");
+        request(server, "GET", "/missing");
+        request(server, "DELETE", "/users/3"); // 405
+
+        // Middleware added later replaces the route objects but not the series
+        server.use(ctx -> ctx.next());
+        request(server, "GET", "/users/3");
+
+        List<RouteMetrics> routes = metrics.routes();
+        RouteMetrics users = routes.stream().filter(r -> "/users/{id}".equals(r.route()) && r.method().equals("GET")).findFirst().orElseThrow();
+        assertEquals(3, users.count(200));
+        assertEquals(3, users.latency().snapshot().count());
+
+        String text = new String(request(server, "GET", "/metrics").responseBytes(), StandardCharsets.UTF_8);
+        assertTrue(text.contains("# TYPE javelin_requests_total counter"));
+        assertTrue(text.contains("javelin_requests_total{method=\"GET\",route=\"/users/{id}\",status=\"2xx\"} 3\n"), text);
+        assertTrue(text.contains("javelin_requests_total{method=\"POST\",route=\"/users\",status=\"2xx\"} 1\n"), text);
+        assertTrue(text.contains("javelin_requests_total{method=\"GET\",route=\"/boom\",status=\"5xx\"} 1\n"), text);
+        assertTrue(text.contains("javelin_requests_total{method=\"\",route=\"\",status=\"4xx\"} 2\n"), text);
+        assertTrue(text.contains("javelin_request_duration_seconds_bucket{method=\"GET\",route=\"/users/{id}\",le=\"+Inf\"} 3\n"), text);
+        assertTrue(text.contains("javelin_request_duration_seconds_count{method=\"GET\",route=\"/users/{id}\"} 3\n"), text);
+        assertFalse(text.contains("/users/1"), "raw paths must not become labels");
+    }
+
+    @Test
+    void testSeriesAreKeyedByMethodAndPattern() {
+        ServerMetrics metrics = new ServerMetrics();
+        RouteMetrics first = metrics.metricsFor(new Route("GET", "/users/{id}", ctx -> {}, List.of("id")));
+        // A rebuilt route object records into the same series rather than a new entry
+        assertSame(first, metrics.metricsFor(new Route("GET", "/users/{id}", ctx -> {}, List.of("id"))));
+        assertNotSame(first, metrics.metricsFor(new Route("DELETE", "/users/{id}", ctx -> {}, List.of("id"))));
+        assertEquals(3, metrics.routes().size()); // plus unmatched requests
+    }
+
+    @Test
+    void testAdminListener() throws Exception {
+        VirtualThreadServer server = new VirtualThreadServer(8080);
+        server.admin(8081);
+        server.enableMetrics("/metrics");
+        server.get("/hello", ctx -> ctx.send("hi"));
+        server.start();
+        try {
+            Thread.sleep(300);
+            assertEquals(200, open(8080, "/hello").getResponseCode());
+            assertEquals(404, open(8080, "/metrics").getResponseCode());
+
+            HttpURLConnection conn = open(8081, "/metrics");
+            assertEquals(200, conn.getResponseCode());
+            assertEquals(ServerMetrics.CONTENT_TYPE, conn.getContentType());
+            try (InputStream in = conn.getInputStream()) {
+                String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(text.contains("route=\"/hello\",status=\"2xx\"} 1"), text);
+            }
+            assertThrows(IllegalStateException.class, () -> server.admin(9999));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static FakeHttpExchange request(VirtualThreadServer server, String method, String path) {
+        FakeHttpExchange exchange = new FakeHttpExchange(method, path);
+        server.handleRequest(exchange);
+        return exchange;
+    }
+
+    private static HttpURLConnection open(int port, String path) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        conn.setRequestMethod("GET");
+        return conn;
+    }
+}
@@ -0,0 +1,168 @@
+package com.javelin;
+
+import com.javelin.core.PreparedResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PreparedResponseTest {
+    static VirtualThreadServer server;
+
+    static final String PAGE = "<html><body>" + "Javelin ".repeat(100) + "</body></html>";
+    static final PreparedResponse HEALTH = PreparedResponse.json(200, Map.of("status", "UP"))
+            .withHeader("Cache-Control", "no-cache");
+    static final PreparedResponse PAGE_RESPONSE = PreparedResponse.html(200, PAGE);
+
+    @BeforeAll
+    static void setup() {
+        server = new VirtualThreadServer(8080);
+        server.get("/health", ctx -> ctx.send(HEALTH));
+        server.get("/page", ctx -> ctx.send(PAGE_RESPONSE));
+        server.get("/boom", ctx -> {
+            throw new IllegalStateException("boom");
+        });
+        server.start();
+
+        try { Thread.sleep(300); } catch (InterruptedException ignored) {}
+    }
+
+    @AfterAll
+    static void tearDown() {
+        try { server.stop(); } catch (Exception ignored) {}
+    }
+
+    @Test
+    void testPreparedJson() throws Exception {
+        HttpURLConnection conn = open("/health");
+
+        assertEquals(200, conn.getResponseCode());
+        assertEquals("application/json", conn.getContentType());
+        assertEquals("no-cache", conn.getHeaderField("Cache-Control"));
+        assertEquals(HEALTH.etag(), conn.getHeaderField("ETag"));
+        assertEquals("{\"status\":\"UP\"}", readLine(conn.getInputStream()));
+    }
+
+    @Test
+    void testConditionalRequest() throws Exception {
+        HttpURLConnection conn = open("/health");
+        conn.setRequestProperty("If-None-Match", HEALTH.etag());
+
+        assertEquals(304, conn.getResponseCode());
+    }
+
+    @Test
+    void testGzipVariant() throws Exception {
+        HttpURLConnection conn = open("/page");
+        conn.setRequestProperty("Accept-Encoding", "gzip, deflate");
+
+        assertEquals(200, conn.getResponseCode());
+        assertEquals("gzip", conn.getHeaderField("Content-Encoding"));
+        assertEquals("Accept-Encoding", conn.getHeaderField("Vary"));
+        assertTrue(conn.getContentLength() < PAGE.length());
+        assertEquals(PAGE, readLine(new GZIPInputStream(conn.getInputStream())));
+
+        HttpURLConnection plain = open("/page");
+        assertNull(plain.getHeaderField("Content-Encoding"));
+        assertEquals(PAGE, readLine(plain.getInputStream()));
+    }
+
+    @Test
+    void testNotFoundAndInternalError() throws Exception {
+        HttpURLConnection missing = open("/missing");
+        assertEquals(404, missing.getResponseCode());
+        assertEquals("404 Not Found", readLine(missing.getErrorStream()));
+
+        HttpURLConnection boom = open("/boom");
+        assertEquals(500, boom.getResponseCode());
+        String body = readLine(boom.getErrorStream());
+        assertTrue(body.contains("\"error\":\"Internal Server Error\""));
+        assertTrue(body.contains("\"status\":500"));
+    }
+
+    @Test
+    void testConditionalHeadersDoNotHideErrors() {
+        VirtualThreadServer local = new VirtualThreadServer(0);
+        local.post("/x", ctx -> ctx.send(HEALTH));
+        local.get("/health", ctx -> ctx.send(HEALTH));
+
+        // 404 for PUT /missing, 405 for GET /x: prepared error bodies, never 304
+        for (String[] request : new String[][]{{"PUT", "/missing", "404"}, {"GET", "/x", "405"}}) {
+            FakeHttpExchange exchange = new FakeHttpExchange(request[0], request[1]);
+            exchange.getRequestHeaders().add("If-None-Match", "*");
+            local.handleRequest(exchange);
+            assertEquals(Integer.parseInt(request[2]), exchange.getResponseCode(), request[0] + " " + request[1]);
+            assertTrue(exchange.responseBytes().length > 0);
+        }
+
+        // A matching tag on a non-GET request gets the full response
+        FakeHttpExchange post = new FakeHttpExchange("POST", "/x");
+        post.getRequestHeaders().add("If-None-Match", HEALTH.etag());
+        local.handleRequest(post);
+        assertEquals(200, post.getResponseCode());
+
+        FakeHttpExchange get = new FakeHttpExchange("GET", "/health");
+        get.getRequestHeaders().add("If-None-Match", "*");
+        local.handleRequest(get);
+        assertEquals(304, get.getResponseCode());
+    }
+
+    @Test
+    void testGzipVariantKeepsExistingVary() {
+        VirtualThreadServer local = new VirtualThreadServer(0);
+        local.use(ctx -> {
+            ctx.setHeader("Vary", "Origin");
+            ctx.next();
+        });
+        local.get("/page", ctx -> ctx.send(PAGE_RESPONSE));
+
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", "/page");
+        exchange.getRequestHeaders().add("Accept-Encoding", "gzip");
+        local.handleRequest(exchange);
+        assertEquals("gzip", exchange.getResponseHeaders().getFirst("Content-Encoding"));
+        assertEquals("Origin, Accept-Encoding", exchange.getResponseHeaders().getFirst("Vary"));
+    }
+
+    @Test
+    void testAcceptEncodingQValues() {
+        VirtualThreadServer local = new VirtualThreadServer(0);
+        local.get("/page", ctx -> ctx.send(PAGE_RESPONSE));
+
+        for (String accepted : new String[]{"gzip", "GZIP", "gzip;q=0.5", "gzip; q=1", "deflate, gzip ;Q=0.001",
+                "*", "br, *;q=0.1", "x-gzip"}) {
+            assertEquals("gzip", contentEncoding(local, accepted), accepted);
+        }
+        for (String refused : new String[]{"identity", "gzip;q=0", "gzip; q=0.0", "GZIP;q=0.000, *",
+                "*;q=0", "gzipper", "br"}) {
+            assertNull(contentEncoding(local, refused), refused);
+        }
+    }
+
+    private static String contentEncoding(VirtualThreadServer server, String acceptEncoding) {
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", "/page");
+        exchange.getRequestHeaders().add("Accept-Encoding", acceptEncoding);
+        server.handleRequest(exchange);
+        return exchange.getResponseHeaders().getFirst("Content-Encoding");
+    }
+
+    private static HttpURLConnection open(String path) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080" + path).openConnection();
+        conn.setRequestMethod("GET");
+        return conn;
+    }
+
+    private static String readLine(InputStream in) throws Exception {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
+            return reader.readLine();
+        }
+    }
+}
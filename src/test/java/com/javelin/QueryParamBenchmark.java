@@ -0,0 +1,47 @@
+package com.javelin;
+
+import com.javelin.core.UrlEncodedParams;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compares lazy query parsing with eagerly splitting and decoding every parameter.
+ * Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class QueryParamBenchmark {
+
+    @Test
+    void singleParamRead() {
+        String query = "utm_source=newsletter&utm_medium=email&utm_campaign=spring%20sale&ref=home&lang=en&page=4&sort=price&q=running+shoes";
+        int iterations = 1_000_000;
+
+        long eager = time(iterations, () -> eagerParse(query).get("page"));
+        long lazy = time(iterations, () -> new UrlEncodedParams(query).getInt("page", 1));
+        System.out.printf("query param (1 of 8 read): eager split/URLDecoder %d ns/op, lazy %d ns/op%n",
+                eager / iterations, lazy / iterations);
+    }
+
+    // The previous parser, for comparison
+    private static Map<String, String> eagerParse(String rawQuery) {
+        Map<String, String> result = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            String[] parts = pair.split("=", 2);
+            result.put(URLDecoder.decode(parts[0], StandardCharsets.UTF_8),
+                    parts.length > 1 ? URLDecoder.decode(parts[1], StandardCharsets.UTF_8) : "");
+        }
+        return result;
+    }
+
+    private static long time(int iterations, Runnable op) {
+        for (int i = 0; i < iterations; i++) op.run(); // warm-up
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) op.run();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,89 @@
+package com.javelin;
+
+import com.javelin.core.UrlEncodedParams;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryParamTest {
+    static VirtualThreadServer server;
+
+    @BeforeAll
+    static void setup() {
+        server = new VirtualThreadServer(8080);
+        server.get("/search", ctx -> ctx.send(ctx.queryParams("tag") + " page=" + ctx.queryInt("page", 1)
+                + " after=" + ctx.queryLong("after", -1)));
+        server.post("/form", ctx -> ctx.send(ctx.formParam("name") + " " + ctx.formParams("role")));
+        server.start();
+
+        try { Thread.sleep(300); } catch (InterruptedException ignored) {}
+    }
+
+    @AfterAll
+    static void tearDown() {
+        try { server.stop(); } catch (Exception ignored) {}
+    }
+
+    @Test
+    void testDecodingAndMultiValues() {
+        UrlEncodedParams params = new UrlEncodedParams("q=hello+world&tag=a&tag=b%20c&flag&empty=&name=%ED%95%9C%EA%B8%80&bad=%zz&a%26b=1");
+
+        assertEquals("hello world", params.get("q"));
+        assertEquals(List.of("a", "b c"), params.getAll("tag"));
+        assertEquals("a", params.get("tag"));
+        assertEquals("", params.get("flag"));
+        assertEquals("", params.get("empty"));
+        assertEquals("한글", params.get("name"));
+        assertEquals("%zz", params.get("bad"));
+        assertEquals("1", params.get("a&b"));
+        assertNull(params.get("missing"));
+        assertEquals(List.of(), params.getAll("missing"));
+        assertEquals(8, params.size());
+    }
+
+    @Test
+    void testTypedAccessors() {
+        UrlEncodedParams params = new UrlEncodedParams("page=3&offset=-9223372036854775808&empty=&enc=%2B42&big=3000000000&word=x");
+
+        assertEquals(3, params.getInt("page", 1));
+        assertEquals(Long.MIN_VALUE, params.getLong("offset", 0));
+        assertEquals(7, params.getInt("empty", 7));
+        assertEquals(7, params.getInt("missing", 7));
+        assertEquals(42, params.getInt("enc", 0));
+        assertEquals(3_000_000_000L, params.getLong("big", 0));
+        assertThrows(NumberFormatException.class, () -> params.getInt("big", 0));
+        assertThrows(NumberFormatException.class, () -> params.getLong("word", 0));
+    }
+
+    @Test
+    void testContextAccessors() throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/search?tag=java&tag=http&page=2").openConnection();
+        assertEquals("[java, http] page=2 after=-1", readLine(conn));
+
+        HttpURLConnection form = (HttpURLConnection) new URL("http://localhost:8080/form").openConnection();
+        form.setRequestMethod("POST");
+        form.setDoOutput(true);
+        form.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
+        try (OutputStream os = form.getOutputStream()) {
+            os.write("name=Jave+lin&role=admin&role=dev".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals("Jave lin [admin, dev]", readLine(form));
+    }
+
+    private static String readLine(HttpURLConnection conn) throws Exception {
+        assertEquals(200, conn.getResponseCode());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+            return reader.readLine();
+        }
+    }
+}
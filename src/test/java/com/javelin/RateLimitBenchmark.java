@@ -0,0 +1,32 @@
+package com.javelin;
+
+import com.javelin.core.RateLimitMiddleware;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures the cost of a rate limit check. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class RateLimitBenchmark {
+
+    @Test
+    void checkThroughput() {
+        RateLimitMiddleware limiter = new RateLimitMiddleware(1_000_000, 1e9);
+        String[] keys = new String[1024];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "10.0." + (i >> 8) + "." + (i & 255);
+        }
+        int iterations = 5_000_000;
+        for (int i = 0; i < iterations; i++) {
+            limiter.tryAcquire(keys[i & 1023]);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            limiter.tryAcquire(keys[i & 1023]);
+        }
+        long nanos = (System.nanoTime() - start) / iterations;
+        System.out.println("[RateLimit] tryAcquire over 1024 keys: " + nanos + " ns/op (target < 500), "
+                + (1_000_000_000L / Math.max(1, nanos)) + " checks/s per core");
+    }
+}
@@ -0,0 +1,125 @@
+package com.javelin;
+
+import com.javelin.core.PreparedResponse;
+import com.javelin.core.RateLimitMiddleware;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitTest {
+
+    static final PreparedResponse OK = PreparedResponse.text(200, "ok");
+
+    @Test
+    void testBurstThenRetryAfter() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(new RateLimitMiddleware(3, 0.5));
+        server.get("/ping", ctx -> ctx.send(OK));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, request(server, "10.0.0.1").getResponseCode());
+        }
+        FakeHttpExchange limited = request(server, "10.0.0.1");
+        assertEquals(429, limited.getResponseCode());
+        assertEquals("2", limited.getResponseHeaders().getFirst("Retry-After"));
+        assertEquals("429 Too Many Requests", new String(limited.responseBytes()));
+
+        // Other clients have their own buckets
+        assertEquals(200, request(server, "10.0.0.2").getResponseCode());
+    }
+
+    @Test
+    void testRefillsAtTheConfiguredRate() throws Exception {
+        RateLimitMiddleware limiter = new RateLimitMiddleware(1, 20); // one permit every 50 ms
+        assertEquals(0, limiter.tryAcquire("k"));
+        long wait = limiter.tryAcquire("k");
+        assertTrue(wait > 0 && wait <= 50_000_000, String.valueOf(wait));
+
+        Thread.sleep(60);
+        assertEquals(0, limiter.tryAcquire("k"));
+        assertTrue(limiter.tryAcquire("k") > 0);
+    }
+
+    @Test
+    void testCustomKeyAndUnlimitedRequests() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(new RateLimitMiddleware(1, 0.001, ctx -> ctx.header("X-API-Key")));
+        server.get("/ping", ctx -> ctx.send(OK));
+
+        assertEquals(200, withKey(server, "alpha").getResponseCode());
+        FakeHttpExchange limited = withKey(server, "alpha");
+        assertEquals(429, limited.getResponseCode());
+        assertEquals("1000", limited.getResponseHeaders().getFirst("Retry-After"));
+        assertEquals(200, withKey(server, "beta").getResponseCode());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, withKey(server, null).getResponseCode());
+        }
+    }
+
+    @Test
+    void testIdleKeysAreEvicted() throws Exception {
+        RateLimitMiddleware limiter = new RateLimitMiddleware(2, 10);
+        for (int i = 0; i < 1000; i++) {
+            limiter.tryAcquire("client-" + i);
+        }
+        limiter.tryAcquire("busy");
+        limiter.tryAcquire("busy");
+        assertEquals(1001, limiter.trackedKeys());
+
+        Thread.sleep(120); // the single-permit buckets refill after 100 ms; "busy" needs 200 ms
+        assertEquals(1000, limiter.evictIdle());
+        assertEquals(1, limiter.trackedKeys());
+        // 1.2 permits back: a bucket reset by eviction would admit both
+        assertEquals(0, limiter.tryAcquire("busy"));
+        assertTrue(limiter.tryAcquire("busy") > 0, "eviction must not reset a bucket that is still refilling");
+    }
+
+    @Test
+    void testConcurrentChecksNeverOverAdmit() throws Exception {
+        RateLimitMiddleware limiter = new RateLimitMiddleware(1000, 0.001);
+        int threads = 8;
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(Thread.ofVirtual().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 10_000; i++) {
+                    if (limiter.tryAcquire("shared") == 0) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(1000, admitted.get());
+    }
+
+    private static FakeHttpExchange request(VirtualThreadServer server, String ip) {
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", "/ping");
+        exchange.getRequestHeaders().add("X-Forwarded-For", ip);
+        server.handleRequest(exchange);
+        return exchange;
+    }
+
+    private static FakeHttpExchange withKey(VirtualThreadServer server, String key) {
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", "/ping");
+        if (key != null) {
+            exchange.getRequestHeaders().add("X-API-Key", key);
+        }
+        server.handleRequest(exchange);
+        return exchange;
+    }
+}
@@ -0,0 +1,270 @@
+package com.javelin;
+
+import com.javelin.core.AccessLogMiddleware;
+import com.javelin.core.RateLimitMiddleware;
+import com.javelin.core.ResponseCacheMiddleware;
+import com.javelin.core.ResponseCacheStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCacheTest {
+
+    record Report(int id, int version) {}
+
+    @Test
+    void testCachesFullResponse() {
+        AtomicInteger calls = new AtomicInteger();
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        ResponseCacheMiddleware cache = server.enableResponseCache(1024 * 1024, Duration.ZERO);
+        server.get("/reports/{id}", ctx -> ctx.status(203)
+                .setHeader("Cache-Control", "max-age=60")
+                .setHeader("X-Report", "yes")
+                .json(new Report(Integer.parseInt(ctx.pathVar("id")), calls.incrementAndGet())));
+
+        FakeHttpExchange first = request(server, "/reports/1?format=full", Map.of());
+        FakeHttpExchange second = request(server, "/reports/1?format=full", Map.of());
+        assertEquals(1, calls.get());
+        assertEquals(203, second.getResponseCode());
+        assertArrayEquals(first.responseBytes(), second.responseBytes());
+        assertEquals("application/json", second.getResponseHeaders().getFirst("Content-Type"));
+        assertEquals("yes", second.getResponseHeaders().getFirst("X-Report"));
+        assertEquals("0", second.getResponseHeaders().getFirst("Age"));
+
+        // Query and path are part of the key
+        request(server, "/reports/1?format=short", Map.of());
+        request(server, "/reports/2?format=full", Map.of());
+        assertEquals(3, calls.get());
+
+        // HEAD is answered from the GET entry
+        FakeHttpExchange head = new FakeHttpExchange("HEAD", "/reports/1?format=full");
+        server.handleRequest(head);
+        assertEquals(3, calls.get());
+        assertEquals(String.valueOf(first.responseBytes().length), head.getResponseHeaders().getFirst("Content-Length"));
+
+        ResponseCacheStats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(3, stats.misses());
+        assertEquals(3, stats.entries());
+    }
+
+    @Test
+    void testHonorsCacheControl() {
+        AtomicInteger calls = new AtomicInteger();
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.enableResponseCache(1024 * 1024, Duration.ZERO);
+        server.get("/none", ctx -> ctx.send("n" + calls.incrementAndGet()));
+        server.get("/nostore", ctx -> ctx.setHeader("Cache-Control", "no-store").send("s" + calls.incrementAndGet()));
+        server.get("/private", ctx -> ctx.setHeader("Cache-Control", "private, max-age=60").send("p" + calls.incrementAndGet()));
+        server.get("/cookie", ctx -> ctx.setHeader("Cache-Control", "max-age=60").setCookie("s", "1", 60).send("c" + calls.incrementAndGet()));
+        server.get("/error", ctx -> ctx.status(500).setHeader("Cache-Control", "max-age=60").send("e" + calls.incrementAndGet()));
+        server.get("/cached", ctx -> ctx.setHeader("Cache-Control", "public, max-age=60").send("c" + calls.incrementAndGet()));
+
+        for (String path : new String[]{"/none", "/nostore", "/private", "/cookie", "/error"}) {
+            int before = calls.get();
+            request(server, path, Map.of());
+            request(server, path, Map.of());
+            assertEquals(before + 2, calls.get(), path + " must not be cached");
+        }
+
+        request(server, "/cached", Map.of());
+        assertEquals("c11", body(request(server, "/cached", Map.of())));
+        // A client's no-cache fetches a fresh copy and stores it
+        assertEquals("c12", body(request(server, "/cached", Map.of("Cache-Control", "no-cache"))));
+        assertEquals("c12", body(request(server, "/cached", Map.of())));
+        // Directives are matched as whole tokens, in any case
+        assertEquals("c12", body(request(server, "/cached", Map.of("Cache-Control", "x-no-cache, max-stale"))));
+        assertEquals("c13", body(request(server, "/cached", Map.of("Cache-Control", "NO-CACHE"))));
+        // Authorized requests are never served from or stored in the shared cache
+        assertEquals("c14", body(request(server, "/cached", Map.of("Authorization", "Bearer x"))));
+        // Nor are requests with cookies, whose responses may depend on the session
+        assertEquals("c15", body(request(server, "/cached", Map.of("Cookie", "session=alice"))));
+        assertEquals("c16", body(request(server, "/cached", Map.of("Cookie", "session=bob"))));
+        assertEquals("c13", body(request(server, "/cached", Map.of())));
+    }
+
+    @Test
+    void testDefaultTtlAndExpiry() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(new ResponseCacheMiddleware(1024 * 1024, Duration.ofMillis(100), null));
+        server.get("/data", ctx -> ctx.send("v" + calls.incrementAndGet()));
+
+        assertEquals("v1", body(request(server, "/data", Map.of())));
+        assertEquals("v1", body(request(server, "/data", Map.of())));
+        Thread.sleep(150);
+        assertEquals("v2", body(request(server, "/data", Map.of())));
+    }
+
+    @Test
+    void testVaryKeepsVariantsApart() {
+        AtomicInteger calls = new AtomicInteger();
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.enableResponseCache(1024 * 1024, Duration.ZERO);
+        server.get("/greeting", ctx -> {
+            calls.incrementAndGet();
+            String language = ctx.header("Accept-Language");
+            ctx.setHeader("Cache-Control", "max-age=60").setHeader("Vary", "Accept-Language")
+                    .send("ko".equals(language) ? "안녕" : "hello");
+        });
+
+        assertEquals("hello", body(request(server, "/greeting", Map.of("Accept-Language", "en"))));
+        assertEquals("안녕", body(request(server, "/greeting", Map.of("Accept-Language", "ko"))));
+        assertEquals("hello", body(request(server, "/greeting", Map.of("Accept-Language", "en"))));
+        assertEquals("안녕", body(request(server, "/greeting", Map.of("Accept-Language", "ko"))));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testVaryNamesAreChargedAndReleasedWithTheirVariants() {
+        AtomicInteger calls = new AtomicInteger();
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        ResponseCacheMiddleware cache = server.enableResponseCache(64 * 1024, Duration.ofMinutes(1));
+        byte[] payload = new byte[4000];
+        server.get("/items/{id}", ctx -> {
+            calls.incrementAndGet();
+            ctx.setHeader("Vary", "Accept-Language").sendBytes(payload);
+        });
+
+        for (int i = 0; i < 500; i++) {
+            request(server, "/items/" + i, Map.of("Accept-Language", "en"));
+        }
+        ResponseCacheStats stats = cache.stats();
+        assertTrue(stats.entries() < 500);
+        assertTrue(stats.bytes() <= 64 * 1024, String.valueOf(stats.bytes()));
+
+        cache.clear();
+        assertEquals(0, cache.stats().entries());
+        assertEquals(0, cache.stats().bytes(), "the Vary names of evicted resources must be released");
+
+        // Cached again after the clear, under the same Vary names
+        int before = calls.get();
+        request(server, "/items/1", Map.of("Accept-Language", "en"));
+        request(server, "/items/1", Map.of("Accept-Language", "en"));
+        request(server, "/items/1", Map.of("Accept-Language", "ko"));
+        assertEquals(before + 2, calls.get());
+    }
+
+    @Test
+    void testStaleWhileRevalidate() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        ResponseCacheMiddleware cache = server.enableResponseCache(1024 * 1024, Duration.ZERO);
+        server.get("/slow", ctx -> {
+            int call = calls.incrementAndGet();
+            if (call > 1) {
+                Thread.sleep(100); // the refresh is slow, but nobody waits for it
+            }
+            ctx.setHeader("Cache-Control", "max-age=1, stale-while-revalidate=60").send("v" + call);
+        });
+
+        assertEquals("v1", body(request(server, "/slow", Map.of())));
+        Thread.sleep(1100);
+
+        long start = System.nanoTime();
+        FakeHttpExchange stale = request(server, "/slow", Map.of());
+        assertTrue(System.nanoTime() - start < 50_000_000, "stale hit must not wait for the refresh");
+        assertEquals("v1", body(stale));
+        assertEquals("1", stale.getResponseHeaders().getFirst("Age"));
+        assertEquals("v1", body(request(server, "/slow", Map.of()))); // still refreshing: one refresh only
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        String latest = "v1";
+        while (!latest.equals("v2") && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            latest = body(request(server, "/slow", Map.of()));
+        }
+        assertEquals("v2", latest);
+        assertEquals(2, calls.get());
+        assertTrue(cache.stats().staleHits() >= 2);
+    }
+
+    @Test
+    void testRevalidationSkipsAccessLogAndRateLimit(@TempDir Path dir) throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Path file = dir.resolve("access.log");
+        AccessLogMiddleware accessLog = new AccessLogMiddleware(file);
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(accessLog);
+        // Two requests per client, which the two client requests below use up
+        server.use(new RateLimitMiddleware(2, 0.001));
+        server.enableResponseCache(1024 * 1024, Duration.ZERO);
+        server.get("/feed", ctx -> ctx.setHeader("Cache-Control", "max-age=1, stale-while-revalidate=60")
+                .send("v" + calls.incrementAndGet()));
+
+        assertEquals("v1", body(request(server, "/feed", Map.of())));
+        Thread.sleep(1100);
+        assertEquals("v1", body(request(server, "/feed", Map.of())));
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (calls.get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, calls.get(), "the refresh must not be rate limited");
+        Thread.sleep(50);
+        accessLog.close();
+        assertEquals(2, Files.readAllLines(file).size(), "only client requests are logged");
+    }
+
+    @Test
+    void testByteBudgetWithFrequencyAdmission() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        ResponseCacheMiddleware cache = server.enableResponseCache(64 * 1024, Duration.ofMinutes(1));
+        byte[] payload = new byte[4000];
+        server.get("/items/{id}", ctx -> ctx.sendBytes(payload));
+
+        // A popular working set of 8 items, requested often
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 8; i++) {
+                request(server, "/items/hot-" + i, Map.of());
+            }
+        }
+        // A scan of one-off items larger than the cache
+        for (int i = 0; i < 200; i++) {
+            request(server, "/items/cold-" + i, Map.of());
+        }
+
+        ResponseCacheStats stats = cache.stats();
+        assertTrue(stats.bytes() <= 64 * 1024, String.valueOf(stats.bytes()));
+        assertTrue(stats.rejections() > 0 || stats.evictions() > 0);
+        long hitsBefore = stats.hits();
+        for (int i = 0; i < 8; i++) {
+            request(server, "/items/hot-" + i, Map.of());
+        }
+        assertEquals(8, cache.stats().hits() - hitsBefore, "the scan must not flush the popular entries");
+    }
+
+    @Test
+    void testCaptureHook() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        String[] captured = new String[1];
+        server.use(ctx -> {
+            ctx.captureResponse();
+            ctx.next();
+            captured[0] = ctx.capturedResponse().status() + " " + new String(ctx.capturedResponse().body(), StandardCharsets.UTF_8);
+        });
+        server.get("/x", ctx -> ctx.status(201).json(Map.of("a", 1)));
+
+        request(server, "/x", Map.of());
+        assertEquals("201 {\"a\":1}", captured[0]);
+    }
+
+    private static FakeHttpExchange request(VirtualThreadServer server, String uri, Map<String, String> headers) {
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", uri);
+        headers.forEach(exchange.getRequestHeaders()::add);
+        server.handleRequest(exchange);
+        return exchange;
+    }
+
+    private static String body(FakeHttpExchange exchange) {
+        return new String(exchange.responseBytes(), StandardCharsets.UTF_8);
+    }
+}
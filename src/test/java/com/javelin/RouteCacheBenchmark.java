@@ -0,0 +1,41 @@
+package com.javelin;
+
+import com.javelin.core.RouteCacheStats;
+import com.javelin.core.Router;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+
+/**
+ * Compares route lookups with and without the exact-path cache. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class RouteCacheBenchmark {
+
+    @Test
+    void skewedTraffic() {
+        int iterations = 1_000_000;
+        String[] paths = RouteCacheTest.skewedPaths();
+
+        Router cached = new Router();
+        Router uncached = new Router(0);
+        for (int i = 0; i < 50; i++) {
+            cached.get("/api/resource" + i + "/{id}", ctx -> {});
+            uncached.get("/api/resource" + i + "/{id}", ctx -> {});
+        }
+
+        long uncachedNs = time(uncached, paths, iterations);
+        long cachedNs = time(cached, paths, iterations);
+        RouteCacheStats stats = cached.cacheStats();
+        System.out.printf("route lookup: uncached %d ns/op, cached %d ns/op, hit rate %.1f%%%n",
+                uncachedNs / iterations, cachedNs / iterations, stats.hitRate() * 100);
+    }
+
+    private static long time(Router router, String[] paths, int iterations) {
+        for (int i = 0; i < iterations; i++) router.match("GET", paths[i % paths.length], new HashMap<>()); // warm-up
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) router.match("GET", paths[i % paths.length], new HashMap<>());
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,88 @@
+package com.javelin;
+
+import com.javelin.core.JavelinHandler;
+import com.javelin.core.RouteCacheStats;
+import com.javelin.core.Router;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteCacheTest {
+
+    @Test
+    void testHitsReturnVariables() {
+        Router router = new Router();
+        router.get("/users/{id}/orders/{orderId}", ctx -> {});
+
+        for (int i = 0; i < 3; i++) {
+            Map<String, String> vars = new HashMap<>();
+            assertNotNull(router.match("GET", "/users/7/orders/99", vars));
+            assertEquals(Map.of("id", "7", "orderId", "99"), vars);
+        }
+
+        RouteCacheStats stats = router.cacheStats();
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    void testScanDoesNotFlushHotPaths() {
+        Router router = new Router(64);
+        router.get("/items/{id}", ctx -> {});
+
+        // 20 hot paths, interleaved with a scan of unique IDs that are each requested once
+        for (int id = 0; id < 10_000; id++) {
+            router.match("GET", "/items/hot" + (id % 20), new HashMap<>());
+            router.match("GET", "/items/" + id, new HashMap<>());
+        }
+
+        long hitsBefore = router.cacheStats().hits();
+        for (int hot = 0; hot < 20; hot++) {
+            router.match("GET", "/items/hot" + hot, new HashMap<>());
+        }
+        long hotHits = router.cacheStats().hits() - hitsBefore;
+        assertTrue(hotHits >= 18, "hot paths evicted by scan: " + hotHits + "/20 hits");
+    }
+
+    @Test
+    void testRouteChangesInvalidateCache() {
+        Router router = new Router();
+        JavelinHandler handler = ctx -> {};
+        router.get("/reports/{name}", handler);
+
+        assertSame(handler, router.findHandler("GET", "/reports/daily", new HashMap<>()));
+        assertSame(handler, router.findHandler("GET", "/reports/daily", new HashMap<>()));
+
+        router.remove("GET", "/reports/{name}");
+        assertNull(router.findHandler("GET", "/reports/daily", new HashMap<>()));
+    }
+
+    @Test
+    void testSkewedTrafficHitRate() {
+        String[] paths = skewedPaths();
+        Router router = new Router();
+        for (int i = 0; i < 50; i++) {
+            router.get("/api/resource" + i + "/{id}", ctx -> {});
+        }
+
+        for (int i = 0; i < 100_000; i++) {
+            router.match("GET", paths[i % paths.length], new HashMap<>());
+        }
+        assertTrue(router.cacheStats().hitRate() > 0.8);
+    }
+
+    /**
+     * @return 100 request paths, ~90% of them for 20 hot URLs
+     */
+    static String[] skewedPaths() {
+        String[] paths = new String[100];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = i < 90 ? "/api/resource" + (i % 20) + "/" + (i % 20) : "/api/resource" + (i % 50) + "/" + i;
+        }
+        return paths;
+    }
+}
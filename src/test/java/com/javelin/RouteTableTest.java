@@ -0,0 +1,124 @@
+package com.javelin;
+
+import com.javelin.core.JavelinHandler;
+import com.javelin.core.Route;
+import com.javelin.core.Router;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteTableTest {
+    static VirtualThreadServer server;
+
+    @BeforeAll
+    static void setup() {
+        server = new VirtualThreadServer(8080);
+        server.get("/tenants/{tenant}/ping", ctx -> ctx.send("pong " + ctx.pathVar("tenant")));
+        server.start();
+
+        try { Thread.sleep(300); } catch (InterruptedException ignored) {}
+    }
+
+    @AfterAll
+    static void tearDown() {
+        try { server.stop(); } catch (Exception ignored) {}
+    }
+
+    @Test
+    void testRegistrationOrderIsPrecedence() {
+        Router router = new Router();
+        JavelinHandler me = ctx -> {};
+        JavelinHandler byId = ctx -> {};
+        for (int i = 0; i < 50; i++) {
+            router.get("/filler" + i, ctx -> {});
+        }
+        router.get("/users/me", me);
+        router.get("/users/{id}", byId);
+
+        assertSame(me, router.findHandler("GET", "/users/me", new HashMap<>()));
+        Map<String, String> vars = new HashMap<>();
+        assertSame(byId, router.findHandler("GET", "/users/42", vars));
+        assertEquals("42", vars.get("id"));
+
+        List<Route> routes = router.routes();
+        assertEquals("/users/me", routes.get(50).originalPath);
+        assertEquals("/users/{id}", routes.get(51).originalPath);
+    }
+
+    @Test
+    void testReplaceKeepsPositionAndRemove() {
+        Router router = new Router();
+        JavelinHandler first = ctx -> {};
+        JavelinHandler replaced = ctx -> {};
+        router.get("/a/{x}", first);
+        router.get("/a/b", ctx -> {});
+        router.get("/a/{x}", replaced);
+
+        assertSame(replaced, router.findHandler("GET", "/a/b", new HashMap<>()));
+        assertEquals(2, router.routes().size());
+
+        assertTrue(router.remove("GET", "/a/{x}"));
+        assertFalse(router.remove("GET", "/a/{x}"));
+        assertNotSame(replaced, router.findHandler("GET", "/a/b", new HashMap<>()));
+        assertNull(router.findHandler("GET", "/a/c", new HashMap<>()));
+    }
+
+    @Test
+    void testRuntimeRegistrationAndRemoval() throws Exception {
+        server.get("/tenants/acme/report", ctx -> ctx.send("acme report"));
+        assertEquals(200, status("/tenants/acme/report"));
+
+        assertTrue(server.removeRoute("GET", "/tenants/acme/report"));
+        assertEquals(404, status("/tenants/acme/report"));
+        assertEquals(200, status("/tenants/acme/ping"));
+    }
+
+    @Test
+    void testLookupsDuringConcurrentRegistration() throws Exception {
+        Router router = new Router();
+        JavelinHandler stable = ctx -> {};
+        router.get("/stable/{id}", stable);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger misses = new AtomicInteger();
+        CountDownLatch readers = new CountDownLatch(4);
+        for (int r = 0; r < 4; r++) {
+            Thread.startVirtualThread(() -> {
+                while (running.get()) {
+                    if (router.findHandler("GET", "/stable/7", new HashMap<>()) != stable) {
+                        misses.incrementAndGet();
+                    }
+                }
+                readers.countDown();
+            });
+        }
+
+        for (int i = 0; i < 2_000; i++) {
+            router.get("/tenant" + i + "/{id}", ctx -> {});
+            if (i % 2 == 0) {
+                router.remove("GET", "/tenant" + i + "/{id}");
+            }
+        }
+        running.set(false);
+        readers.await();
+
+        assertEquals(0, misses.get());
+        assertEquals(1_001, router.routes().size());
+    }
+
+    private static int status(String path) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080" + path).openConnection();
+        return conn.getResponseCode();
+    }
+}
@@ -0,0 +1,53 @@
+package com.javelin;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares global middleware that filters on the path with prefix-scoped middleware.
+ * Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class ScopedMiddlewareBenchmark {
+
+    @Test
+    void tenMiddlewareTwoApply() {
+        int iterations = 200_000;
+
+        // Before: every middleware is global and filters on the path itself
+        VirtualThreadServer global = new VirtualThreadServer(0);
+        for (int i = 0; i < 10; i++) {
+            String prefix = i < 2 ? "/api" : "/other" + i;
+            global.use(ctx -> {
+                if (ctx.path().startsWith(prefix)) {
+                    ctx.setHeader("X-Seen", prefix);
+                }
+                ctx.next();
+            });
+        }
+        global.get("/api/users", ctx -> ctx.send("ok"));
+
+        // After: the same middleware scoped to prefixes, filtered at registration
+        VirtualThreadServer scoped = new VirtualThreadServer(0);
+        for (int i = 0; i < 10; i++) {
+            String prefix = i < 2 ? "/api" : "/other" + i;
+            scoped.use(prefix, ctx -> {
+                ctx.setHeader("X-Seen", prefix);
+                ctx.next();
+            });
+        }
+        scoped.get("/api/users", ctx -> ctx.send("ok"));
+
+        long globalNs = time(global, iterations);
+        long scopedNs = time(scoped, iterations);
+        System.out.printf("10 middleware, 2 apply: all global %d ns/op, scoped %d ns/op%n",
+                globalNs / iterations, scopedNs / iterations);
+    }
+
+    private static long time(VirtualThreadServer server, int iterations) {
+        for (int i = 0; i < iterations; i++) server.handleRequest(new FakeHttpExchange("GET", "/api/users")); // warm-up
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) server.handleRequest(new FakeHttpExchange("GET", "/api/users"));
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,174 @@
+package com.javelin;
+
+import com.javelin.core.Context;
+import com.javelin.core.Middleware;
+import com.javelin.core.Router;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScopedMiddlewareTest {
+    static VirtualThreadServer server;
+
+    @BeforeAll
+    static void setup() {
+        server = new VirtualThreadServer(8080);
+        server.use(trace("global"));
+        server.use("/api", trace("api"));
+        server.group("/api", api -> {
+            api.use(trace("group"));
+            api.get("/users", ScopedMiddlewareTest::echoTrace);
+            api.group("/admin", admin -> {
+                admin.use(ctx -> {
+                    if (ctx.header("X-Admin") == null) {
+                        ctx.status(403).send("Forbidden");
+                        return;
+                    }
+                    ctx.next();
+                });
+                admin.get("/stats", ScopedMiddlewareTest::echoTrace, trace("route"));
+            });
+        });
+        server.get("/public", ScopedMiddlewareTest::echoTrace);
+        server.get("/apis", ScopedMiddlewareTest::echoTrace);
+        server.use("/acme", trace("acme"));
+        server.get("/{tenant}/admin", ScopedMiddlewareTest::echoTrace);
+        server.get("/files/*", ScopedMiddlewareTest::echoTrace);
+        // Registered after the routes: pipelines are recompiled
+        server.use("/public", trace("late"));
+        server.use("/files/private", trace("private"));
+        server.start();
+
+        try { Thread.sleep(300); } catch (InterruptedException ignored) {}
+    }
+
+    @AfterAll
+    static void tearDown() {
+        try { server.stop(); } catch (Exception ignored) {}
+    }
+
+    @Test
+    void testOnlyApplicableMiddlewareRuns() throws Exception {
+        assertEquals("global,api,group", get("/api/users", false));
+        assertEquals("global,late", get("/public", false));
+        assertEquals("global", get("/apis", false));
+    }
+
+    @Test
+    void testNestedGroupAndRouteMiddleware() throws Exception {
+        assertEquals("global,api,group,route", get("/api/admin/stats", true));
+
+        HttpURLConnection denied = (HttpURLConnection) new URL("http://localhost:8080/api/admin/stats").openConnection();
+        assertEquals(403, denied.getResponseCode());
+    }
+
+    @Test
+    void testPrefixMiddlewareRunsForVariableSegment() throws Exception {
+        assertEquals("global,acme", get("/acme/admin", false));
+        assertEquals("global", get("/other/admin", false));
+    }
+
+    @Test
+    void testPrefixMiddlewareRunsForWildcard() throws Exception {
+        assertEquals("global,private", get("/files/private/secret.txt", false));
+        assertEquals("global", get("/files/public.txt", false));
+        assertEquals("global", get("/files/privateer.txt", false));
+    }
+
+    @Test
+    void testUnmatchedRequestRunsPrefixMiddleware() throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080/api/missing").openConnection();
+        assertEquals(404, conn.getResponseCode());
+        assertEquals("global,api,group", conn.getHeaderField("X-Trace"));
+    }
+
+    @Test
+    void testFallbackPipelineDoesNotWaitForRegistration() throws Exception {
+        Router router = new Router();
+        Middleware global = Context::next;
+        Middleware api = Context::next;
+        router.use(global);
+        router.use("/api", api);
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Stands in for a registration in progress, which holds the router's lock
+        Thread registering = Thread.ofPlatform().start(() -> {
+            synchronized (router) {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        locked.await();
+        try {
+            Middleware[] pipeline = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> router.fallbackPipeline("/api/missing"));
+            assertArrayEquals(new Middleware[]{global, api}, pipeline);
+        } finally {
+            release.countDown();
+            registering.join();
+        }
+    }
+
+    @Test
+    void testOnlyMatchingPrefixesOfManyRun() {
+        VirtualThreadServer scoped = new VirtualThreadServer(0);
+        for (int i = 0; i < 10; i++) {
+            String prefix = i < 2 ? "/api" : "/other" + i;
+            scoped.use(prefix, ctx -> {
+                ctx.setHeader("X-Seen", ctx.responseHeader("X-Seen") == null ? prefix : ctx.responseHeader("X-Seen") + "," + prefix);
+                ctx.next();
+            });
+        }
+        scoped.get("/api/users", ctx -> ctx.send("ok"));
+
+        FakeHttpExchange check = new FakeHttpExchange("GET", "/api/users");
+        scoped.handleRequest(check);
+        assertEquals(200, check.getResponseCode());
+        assertEquals("/api,/api", check.getResponseHeaders().getFirst("X-Seen"));
+    }
+
+    // Each request runs on its own thread, so the trace can live in a thread-local
+    private static final ThreadLocal<String> TRACE = new ThreadLocal<>();
+
+    private static Middleware trace(String name) {
+        return ctx -> {
+            String current = name.equals("global") ? null : TRACE.get();
+            TRACE.set(current == null ? name : current + "," + name);
+            ctx.setHeader("X-Trace", TRACE.get());
+            ctx.next();
+        };
+    }
+
+    private static void echoTrace(Context ctx) {
+        ctx.send(TRACE.get());
+    }
+
+    private static String get(String path, boolean admin) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080" + path).openConnection();
+        if (admin) {
+            conn.setRequestProperty("X-Admin", "1");
+        }
+        assertEquals(200, conn.getResponseCode());
+        return readLine(conn.getInputStream());
+    }
+
+    private static String readLine(InputStream in) throws Exception {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
+            return reader.readLine();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.javelin;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures the time to send a 4.5 KB text body. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class TextEncodingBenchmark {
+
+    @Test
+    void sendText() {
+        String body = "The quick brown fox jumps over the lazy dog. ".repeat(100);
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.get("/text", ctx -> ctx.send(body));
+
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", "/text");
+        exchange.setStreams(null, BufferPoolTest.OutputStreamSink.INSTANCE);
+        int iterations = 20_000;
+        for (int i = 0; i < 5 * iterations; i++) {
+            exchange.reset();
+            server.handleRequest(exchange);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            exchange.reset();
+            server.handleRequest(exchange);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println("[Text] send(" + body.length() + " chars): " + (elapsed / iterations) + " ns/op");
+    }
+}
@@ -0,0 +1,113 @@
+package com.javelin;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextEncodingTest {
+
+    @Test
+    void testEncodingMatchesJdkEncoder() {
+        String[] samples = {
+                "hello", "café crème", "안녕하세요", "rocket 🚀 launch", "lone \ud800 high", "lone \udc00 low",
+                "trailing \ud83d", "mixed aé中😀z", "x".repeat(2047) + "😀" + "y".repeat(5000)
+        };
+        String[] charsets = {"UTF-8", "ISO-8859-1", "US-ASCII", "UTF-16BE"};
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        String[] current = new String[2];
+        server.get("/text", ctx -> ctx.setHeader("Content-Type", "text/plain; charset=" + current[1]).send(current[0]));
+
+        for (String charset : charsets) {
+            for (String sample : samples) {
+                current[0] = sample;
+                current[1] = charset;
+                FakeHttpExchange exchange = request("GET", "/text", server);
+                byte[] expected = sample.getBytes(java.nio.charset.Charset.forName(charset));
+                assertArrayEquals(expected, exchange.responseBytes(), charset + ": " + sample);
+                assertEquals(expected.length, exchange.responseLength());
+            }
+        }
+    }
+
+    @Test
+    void testDefaultContentTypeAndLength() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.get("/hello", ctx -> ctx.send("héllo 👋"));
+        server.head("/hello", ctx -> ctx.send("héllo 👋"));
+        server.get("/empty", ctx -> ctx.send(""));
+
+        FakeHttpExchange get = request("GET", "/hello", server);
+        byte[] expected = "héllo 👋".getBytes(StandardCharsets.UTF_8);
+        assertEquals("text/plain; charset=UTF-8", get.getResponseHeaders().getFirst("Content-Type"));
+        assertEquals(expected.length, get.responseLength());
+        assertArrayEquals(expected, get.responseBytes());
+
+        FakeHttpExchange head = request("HEAD", "/hello", server);
+        assertEquals(-1, head.responseLength());
+        assertEquals(String.valueOf(expected.length), head.getResponseHeaders().getFirst("Content-Length"));
+        assertEquals(0, head.responseBytes().length);
+
+        FakeHttpExchange empty = request("GET", "/empty", server);
+        assertEquals(-1, empty.responseLength());
+        assertNull(empty.getResponseHeaders().getFirst("Content-Type"));
+    }
+
+    @Test
+    void testExplicitContentTypeCharset() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.get("/html", ctx -> ctx.setHeader("Content-Type", "text/html").send("<p>é</p>"));
+        server.get("/latin1", ctx -> ctx.setHeader("Content-Type", "text/plain; charset=\"ISO-8859-1\"").send("é中"));
+        server.get("/json", ctx -> ctx.setHeader("Content-Type", "application/json").send("{\"a\":\"é\"}"));
+        server.get("/utf16", ctx -> ctx.setHeader("Content-Type", "text/plain;charset=UTF-16BE").send("ab"));
+        server.get("/bogus", ctx -> ctx.setHeader("Content-Type", "text/plain; charset=no-such-charset").send("x"));
+
+        FakeHttpExchange html = request("GET", "/html", server);
+        assertEquals("text/html; charset=UTF-8", html.getResponseHeaders().getFirst("Content-Type"));
+        assertArrayEquals("<p>é</p>".getBytes(StandardCharsets.UTF_8), html.responseBytes());
+
+        FakeHttpExchange latin1 = request("GET", "/latin1", server);
+        assertArrayEquals(new byte[]{(byte) 0xE9, '?'}, latin1.responseBytes());
+
+        FakeHttpExchange json = request("GET", "/json", server);
+        assertEquals("application/json", json.getResponseHeaders().getFirst("Content-Type"));
+        assertArrayEquals("{\"a\":\"é\"}".getBytes(StandardCharsets.UTF_8), json.responseBytes());
+
+        assertArrayEquals(new byte[]{0, 'a', 0, 'b'}, request("GET", "/utf16", server).responseBytes());
+        assertEquals(500, request("GET", "/bogus", server).getResponseCode());
+    }
+
+    @Test
+    void testSendAllocatesLessThanBody() {
+        String body = "The quick brown fox jumps over the lazy dog. ".repeat(100);
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.get("/text", ctx -> ctx.send(body));
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", "/text");
+        exchange.setStreams(null, BufferPoolTest.OutputStreamSink.INSTANCE);
+        int iterations = 20_000;
+        for (int i = 0; i < 5 * iterations; i++) {
+            exchange.reset();
+            server.handleRequest(exchange);
+        }
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            exchange.reset();
+            server.handleRequest(exchange);
+        }
+        long perRequest = (threads.getThreadAllocatedBytes(threadId) - before) / iterations;
+
+        // getBytes() alone would allocate the whole 4.5 KB body again
+        assertTrue(perRequest < body.length() / 2, perRequest + " bytes allocated per request");
+    }
+
+    private static FakeHttpExchange request(String method, String path, VirtualThreadServer server) {
+        FakeHttpExchange exchange = new FakeHttpExchange(method, path);
+        server.handleRequest(exchange);
+        return exchange;
+    }
+}
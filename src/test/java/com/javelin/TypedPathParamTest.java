@@ -0,0 +1,110 @@
+package com.javelin;
+
+import com.javelin.core.RouteMatch;
+import com.javelin.core.Router;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TypedPathParamTest {
+    static VirtualThreadServer server;
+    static final AtomicInteger fileHandlerCalls = new AtomicInteger();
+
+    @BeforeAll
+    static void setup() {
+        server = new VirtualThreadServer(8080);
+        server.get("/users/{id:long}", ctx -> ctx.send("id " + (ctx.pathLong("id") + 1)));
+        server.get("/users/{name:[a-z]+}", ctx -> ctx.send("name " + ctx.pathVar("name")));
+        server.get("/pages/{n:int}/lines/{line:int}", ctx -> ctx.send(ctx.pathInt("n") + ":" + ctx.pathInt("line")));
+        server.get("/files/{name:[a-z]+}", ctx -> {
+            fileHandlerCalls.incrementAndGet();
+            ctx.send(ctx.pathVar("name"));
+        });
+        server.start();
+
+        try { Thread.sleep(300); } catch (InterruptedException ignored) {}
+    }
+
+    @AfterAll
+    static void tearDown() {
+        try { server.stop(); } catch (Exception ignored) {}
+    }
+
+    @Test
+    void testTypedAndRegexConstraints() throws Exception {
+        assertEquals("id 43", get("/users/42"));
+        assertEquals("id " + (Long.MIN_VALUE + 1), get("/users/" + Long.MIN_VALUE));
+        assertEquals("name alice", get("/users/alice"));
+        assertEquals("-3:7", get("/pages/-3/lines/7"));
+    }
+
+    @Test
+    void testRejectedConstraintsFallThroughOrNotFound() throws Exception {
+        // Too large for long, not lowercase letters either
+        assertEquals(404, status("/users/99999999999999999999"));
+        // Too large for int
+        assertEquals(404, status("/pages/3000000000/lines/1"));
+
+        int before = fileHandlerCalls.get();
+        assertEquals(404, status("/files/ABC"));
+        assertEquals(404, status("/files/a1"));
+        assertEquals(before, fileHandlerCalls.get());
+    }
+
+    @Test
+    void testOffsetsAreReusedFromCache() {
+        Router router = new Router();
+        router.get("/orders/{orderId:long}/items/{sku}", ctx -> {});
+
+        for (int i = 0; i < 3; i++) {
+            RouteMatch match = router.find("GET", "/orders/" + Long.MAX_VALUE + "/items/x-1");
+            assertNotNull(match);
+            assertEquals(Long.MAX_VALUE, match.pathLong("orderId"));
+            assertEquals("x-1", match.pathVar("sku"));
+            assertThrows(NumberFormatException.class, () -> match.pathInt("orderId"));
+            assertThrows(IllegalArgumentException.class, () -> match.pathLong("missing"));
+        }
+        assertEquals(2, router.cacheStats().hits());
+        assertNull(router.find("GET", "/orders/" + Long.MAX_VALUE + "0/items/x"));
+    }
+
+    @Test
+    void testNumberSegmentsMatchUpToTheTypeBounds() {
+        Router router = new Router();
+        router.get("/ints/{n:int}", ctx -> {});
+        router.get("/longs/{n:long}", ctx -> {});
+
+        assertEquals(Integer.MAX_VALUE, router.find("GET", "/ints/" + Integer.MAX_VALUE).pathInt("n"));
+        assertEquals(Integer.MIN_VALUE, router.find("GET", "/ints/" + Integer.MIN_VALUE).pathInt("n"));
+        assertEquals(5, router.find("GET", "/ints/+5").pathInt("n"));
+        assertNull(router.find("GET", "/ints/2147483648"));
+        assertNull(router.find("GET", "/ints/-2147483649"));
+        assertNull(router.find("GET", "/ints/-"));
+        assertNull(router.find("GET", "/ints/1a"));
+
+        assertEquals(Long.MIN_VALUE, router.find("GET", "/longs/" + Long.MIN_VALUE).pathLong("n"));
+        assertNull(router.find("GET", "/longs/9223372036854775808"));
+        assertNull(router.find("GET", "/longs/-9223372036854775809"));
+    }
+
+    private static String get(String path) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080" + path).openConnection();
+        assertEquals(200, conn.getResponseCode());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
+            return reader.readLine();
+        }
+    }
+
+    private static int status(String path) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:8080" + path).openConnection();
+        return conn.getResponseCode();
+    }
+}
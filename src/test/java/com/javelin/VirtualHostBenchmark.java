@@ -0,0 +1,35 @@
+package com.javelin;
+
+import com.javelin.core.VirtualHosts;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Measures host resolution as the number of virtual hosts grows. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class VirtualHostBenchmark {
+
+    @Test
+    void resolveWithManyHosts() {
+        int iterations = 2_000_000;
+        long few = resolveTime(10, iterations);
+        long many = resolveTime(500, iterations);
+        System.out.printf("host resolve: 10 hosts %d ns/op, 500 hosts %d ns/op%n", few / iterations, many / iterations);
+    }
+
+    private static long resolveTime(int hostCount, int iterations) {
+        VirtualHosts hosts = new VirtualHosts();
+        String[] headers = new String[hostCount];
+        for (int i = 0; i < hostCount; i++) {
+            hosts.register(i % 2 == 0 ? "site" + i + ".example.com" : "*.tenant" + i + ".example.com");
+            headers[i] = (i % 2 == 0 ? "site" + i : "www.tenant" + i) + ".example.com:8080";
+        }
+        for (int i = 0; i < iterations; i++) assertNotNull(hosts.resolve(headers[i % hostCount])); // warm-up
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) hosts.resolve(headers[i % hostCount]);
+        return System.nanoTime() - start;
+    }
+}
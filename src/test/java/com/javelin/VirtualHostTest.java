@@ -0,0 +1,107 @@
+package com.javelin;
+
+import com.javelin.core.ResponseCacheMiddleware;
+import com.javelin.core.Router;
+import com.javelin.core.VirtualHosts;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualHostTest {
+
+    @Test
+    void testHostScopedRouting() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.get("/", ctx -> ctx.send("default"));
+        server.host("blog.example.com").get("/", ctx -> ctx.send("blog"));
+        server.host("*.shop.example.com").get("/", ctx -> ctx.send("shop"));
+        server.host("admin.shop.example.com").get("/", ctx -> ctx.send("admin"));
+
+        assertEquals("blog", request(server, "blog.example.com"));
+        assertEquals("blog", request(server, "Blog.Example.COM:8080"));
+        assertEquals("shop", request(server, "eu.shop.example.com"));
+        assertEquals("admin", request(server, "admin.shop.example.com"));
+        assertEquals("default", request(server, "shop.example.com"));
+        assertEquals("default", request(server, "a.b.shop.example.com"));
+        assertEquals("default", request(server, null));
+    }
+
+    @Test
+    void testHostMiddlewareIsIsolated() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        Router docs = server.host("docs.example.com");
+        docs.use(ctx -> {
+            ctx.setHeader("X-Site", "docs");
+            ctx.next();
+        });
+        docs.get("/page", ctx -> ctx.send("docs page"));
+        server.get("/page", ctx -> ctx.send("main page"));
+
+        FakeHttpExchange docsExchange = exchange("docs.example.com", "/page");
+        server.handleRequest(docsExchange);
+        assertEquals("docs", docsExchange.getResponseHeaders().getFirst("X-Site"));
+
+        FakeHttpExchange mainExchange = exchange("www.example.com", "/page");
+        server.handleRequest(mainExchange);
+        assertNull(mainExchange.getResponseHeaders().getFirst("X-Site"));
+        assertEquals("main page", new String(mainExchange.responseBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testServerMiddlewareDoesNotRunForHostRouters() {
+        VirtualThreadServer server = new VirtualThreadServer(0);
+        server.use(ctx -> {
+            ctx.setHeader("X-Server", "yes");
+            ctx.next();
+        });
+        ResponseCacheMiddleware cache = server.enableResponseCache(1024 * 1024, Duration.ZERO);
+        AtomicInteger calls = new AtomicInteger();
+        server.get("/page", ctx -> ctx.send("main page"));
+        Router blog = server.host("blog.example.com");
+        blog.get("/page", ctx -> ctx.setHeader("Cache-Control", "max-age=60").send("blog " + calls.incrementAndGet()));
+
+        FakeHttpExchange main = exchange("www.example.com", "/page");
+        server.handleRequest(main);
+        assertEquals("yes", main.getResponseHeaders().getFirst("X-Server"));
+
+        FakeHttpExchange first = exchange("blog.example.com", "/page");
+        server.handleRequest(first);
+        assertNull(first.getResponseHeaders().getFirst("X-Server"));
+        assertEquals("blog 2", request(server, "blog.example.com", "/page"));
+
+        // Registered on the host router too, the same cache serves the host's responses
+        blog.use(cache);
+        assertEquals("blog 3", request(server, "blog.example.com", "/page"));
+        assertEquals("blog 3", request(server, "blog.example.com", "/page"));
+    }
+
+    @Test
+    void testInvalidPattern() {
+        VirtualHosts hosts = new VirtualHosts();
+        assertThrows(IllegalArgumentException.class, () -> hosts.register("a.*.com"));
+        assertThrows(IllegalArgumentException.class, () -> hosts.register("*."));
+        assertSame(hosts.register("x.com"), hosts.register("X.com"));
+    }
+
+    private static String request(VirtualThreadServer server, String host) {
+        return request(server, host, "/");
+    }
+
+    private static String request(VirtualThreadServer server, String host, String path) {
+        FakeHttpExchange exchange = exchange(host, path);
+        server.handleRequest(exchange);
+        return new String(exchange.responseBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static FakeHttpExchange exchange(String host, String path) {
+        FakeHttpExchange exchange = new FakeHttpExchange("GET", path);
+        if (host != null) {
+            exchange.getRequestHeaders().set("Host", host);
+        }
+        return exchange;
+    }
+}